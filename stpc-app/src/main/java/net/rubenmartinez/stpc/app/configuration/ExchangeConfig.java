@@ -4,13 +4,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTradesExchangeClient;
+import net.rubenmartinez.stpc.app.metrics.LatencyHistograms;
+import net.rubenmartinez.stpc.app.metrics.MicrometerExchangeMetrics;
 import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeClient;
 
 @Configuration
 public class ExchangeConfig {
 	@Bean
-	public SimulatedTradesExchangeClient getExchangeClient(@Value("${productpair}") String productpair) {
-		return new SimulatedTradesExchangeClient(new BitsoExchangeClient(productpair));
+	public SimulatedTradesExchangeClient getExchangeClient(
+			@Value("${productpair}") String productpair,
+			@Value("${exchange.simulated-trades.max-per-strategy}") int maxSimulatedTradesPerStrategy,
+			MeterRegistry meterRegistry,
+			LatencyHistograms latencyHistograms) {
+		MicrometerExchangeMetrics exchangeMetrics = new MicrometerExchangeMetrics(meterRegistry, latencyHistograms);
+		return new SimulatedTradesExchangeClient(new BitsoExchangeClient(productpair, exchangeMetrics), maxSimulatedTradesPerStrategy);
 	}
 }
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTradesExchangeClient;
 import net.rubenmartinez.stpc.app.strategy.Strategy;
 import net.rubenmartinez.stpc.app.strategy.implementations.contrarian.ContrarianStrategy;
@@ -14,15 +15,15 @@ import net.rubenmartinez.stpc.app.strategy.implementations.contrarian.Contrarian
 public class StrategyConfig {
 
 	@Bean("contrarian1")
-	public Strategy getContrarianStrategy(@Autowired ContrarianStrategyConfig defaultConfig, @Autowired SimulatedTradesExchangeClient exchangeClient) {
-		Strategy contrarianStrategy = new ContrarianStrategy("contrarian1", defaultConfig, exchangeClient);
+	public Strategy getContrarianStrategy(@Autowired ContrarianStrategyConfig defaultConfig, @Autowired SimulatedTradesExchangeClient exchangeClient, @Autowired MeterRegistry meterRegistry) {
+		Strategy contrarianStrategy = new ContrarianStrategy("contrarian1", defaultConfig, exchangeClient, meterRegistry);
 		contrarianStrategy.activate();
 		return contrarianStrategy;
 	}
 
 	@Bean("just-a-second-one-for-demonstration-it-could-have-other-type-also")
-	public Strategy getSecondContrarianStrategy(@Autowired ContrarianStrategyConfig defaultConfig, @Autowired SimulatedTradesExchangeClient exchangeClient) {
-		return new ContrarianStrategy("just-a-second-one-for-demonstration-it-could-have-other-type-also", defaultConfig, exchangeClient);
+	public Strategy getSecondContrarianStrategy(@Autowired ContrarianStrategyConfig defaultConfig, @Autowired SimulatedTradesExchangeClient exchangeClient, @Autowired MeterRegistry meterRegistry) {
+		return new ContrarianStrategy("just-a-second-one-for-demonstration-it-could-have-other-type-also", defaultConfig, exchangeClient, meterRegistry);
 	}
 	
 	@Bean
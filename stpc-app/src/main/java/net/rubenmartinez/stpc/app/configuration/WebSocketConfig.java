@@ -1,12 +1,19 @@
 package net.rubenmartinez.stpc.app.configuration;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 import net.rubenmartinez.stpc.app.controller.websocket.TradesWebSocketHandler;
 import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTradesExchangeClient;
@@ -23,11 +30,15 @@ public class WebSocketConfig implements WebSocketConfigurer {
 	
 	@Autowired
 	SimulatedTradesExchangeClient exchangeClient;
+
+	@Value("${websocket.permessage-deflate}")
+	private boolean perMessageDeflate;
 	
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
     	exchangeClient.addFlaggedTradeListener(tradesWebSocketHandler);
-        registry.addHandler(tradesWebSocketHandler, getTradesWebSocketHandlerPath());
+        registry.addHandler(tradesWebSocketHandler, getTradesWebSocketHandlerPath())
+        		.setHandshakeHandler(new ExtensionsFilteringHandshakeHandler(perMessageDeflate));
     }
     
     
@@ -38,4 +49,29 @@ public class WebSocketConfig implements WebSocketConfigurer {
     	LOGGER.debug("{} marked with path: {}", TradesWebSocketHandler.class.getName(), path);
     	return path;
     }
+
+    /**
+     * Compression (<code>permessage-deflate</code>) is accepted when the browser offers it and the server supports it (as Tomcat does),
+     * unless disabled by configuration, e.g. to save CPU if the bandwidth is not a problem
+     */
+    private static class ExtensionsFilteringHandshakeHandler extends DefaultHandshakeHandler {
+    	private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    	private final boolean perMessageDeflate;
+
+    	private ExtensionsFilteringHandshakeHandler(boolean perMessageDeflate) {
+    		this.perMessageDeflate = perMessageDeflate;
+    	}
+
+    	@Override
+    	protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request, List<WebSocketExtension> requestedExtensions,
+    			List<WebSocketExtension> supportedExtensions) {
+    		List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+    		if (!perMessageDeflate) {
+    			extensions = extensions.stream().filter(extension -> !PERMESSAGE_DEFLATE.equals(extension.getName())).collect(Collectors.toList());
+    		}
+    		LOGGER.debug("WebSocket extensions requested: {}; accepted: {}", requestedExtensions, extensions);
+    		return extensions;
+    	}
+    }
 }
@@ -1,22 +1,25 @@
 package net.rubenmartinez.stpc.app.controller;
 
-import java.util.List;
-
 import javax.annotation.Resource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
-import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
 import net.rubenmartinez.stpc.app.exchange.service.ExchangeService;
-import net.rubenmartinez.stpc.exchange.domain.Order;
 
 /**
- * 
+ * Responses are already serialized to JSON by {@link ExchangeService}, which caches them.
+ * <p>
+ * Every response has an ETag, derived from the OrderBook sequence or the last trade, so a client polling with
+ * <code>If-None-Match</code> receives a <code>304 Not Modified</code> (without anything being computed) while nothing changes.</p>
  */
 @RestController
 @RequestMapping("/api/v1/exchange")
@@ -28,30 +31,49 @@ public class ExchangeRestController {
 	private ExchangeService exchangeService;
 
 	/**
-	 * {@see ExchangeService#getAsks(int)}
+	 * {@see ExchangeService#getAsksJson(int)}
 	 */
 	@GetMapping("bestAsks")
-	private List<Order> getBestAsks(@RequestParam int size) {
+	private ResponseEntity<byte[]> getBestAsks(@RequestParam int size, WebRequest request) {
 		LOGGER.debug("getBestAsks({})", size);
-		return exchangeService.getAsks(size);
+		if (request.checkNotModified(exchangeService.getOrderBookETag())) {
+			return null;
+		}
+		return jsonResponse(exchangeService.getAsksJson(size));
 	}
 
 	/**
-	 * {@see ExchangeService#getBids(int)}
+	 * {@see ExchangeService#getBidsJson(int)}
 	 */
 	@GetMapping("bestBids")
-	private List<Order> getBestBids(@RequestParam int size) {
+	private ResponseEntity<byte[]> getBestBids(@RequestParam int size, WebRequest request) {
 		LOGGER.debug("getBestBids({})", size);
-		return exchangeService.getBids(size);
+		if (request.checkNotModified(exchangeService.getOrderBookETag())) {
+			return null;
+		}
+		return jsonResponse(exchangeService.getBidsJson(size));
 	}
 
 	/**
-	 * {@see ExchangeService#getLastTradesOrderedIncludingSimulated(int, String)}
+	 * {@see ExchangeService#getLastTradesOrderedIncludingSimulatedJson(int, String)}
 	 */
 	@GetMapping("lastTrades")
-	private List<TaggedTrade> getLastTradesIncludingSimulated(@RequestParam int size, @RequestParam String strategyId) {
+	private ResponseEntity<byte[]> getLastTradesIncludingSimulated(@RequestParam int size, @RequestParam String strategyId, WebRequest request) {
 		LOGGER.debug("getLastTrades(size={}, strategyId={})", size, strategyId);
-		return exchangeService.getLastTradesOrderedIncludingSimulated(size, strategyId);
+		if (request.checkNotModified(exchangeService.getLastTradesETag(strategyId))) {
+			return null;
+		}
+		return jsonResponse(exchangeService.getLastTradesOrderedIncludingSimulatedJson(size, strategyId));
 	}
-	
+
+	/**
+	 * Note the ETag header was already set by {@link WebRequest#checkNotModified(String)}. The ETag is read before computing the response,
+	 * so in the worst case the response is newer than its ETag, and the client will just receive it again.
+	 * <p>
+	 * Responses are allowed to be stored by browsers, but always revalidated.</p>
+	 */
+	private static ResponseEntity<byte[]> jsonResponse(byte[] json) {
+		return ResponseEntity.ok().cacheControl(CacheControl.noCache()).contentType(MediaType.APPLICATION_JSON_UTF8).body(json);
+	}
+
 }
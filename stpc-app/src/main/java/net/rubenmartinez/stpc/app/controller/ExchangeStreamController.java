@@ -0,0 +1,53 @@
+package net.rubenmartinez.stpc.app.controller;
+
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import net.rubenmartinez.stpc.app.exchange.domain.BookSnapshot;
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.exchange.service.ExchangeStreamService;
+import reactor.core.publisher.Flux;
+
+/**
+ * Server-Sent Events streams of the exchange updates, pushed to the client as they happen instead of polled.
+ * <p>
+ * Each event is written when the previous one has been written, so each client is sent updates at the pace it can receive them,
+ * and no servlet thread is held while waiting for the next update.</p>
+ * <p>
+ * Streams are long lived: Spring MVC writes them through an emitter with its own timeout (none), so they are not closed after
+ * <code>spring.mvc.async.request-timeout</code>, which is left for the other async requests.</p>
+ */
+@RestController
+@RequestMapping("/api/v2/exchange")
+public class ExchangeStreamController {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExchangeStreamController.class);
+
+	@Resource
+	private ExchangeStreamService exchangeStreamService;
+
+	/**
+	 * {@see ExchangeStreamService#tradesStream()}
+	 */
+	@GetMapping(path = "trades/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<TaggedTrade> getTradesStream() {
+		LOGGER.debug("getTradesStream()");
+		return exchangeStreamService.tradesStream();
+	}
+
+	/**
+	 * {@see ExchangeStreamService#bookStream(int)}
+	 */
+	@GetMapping(path = "book/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<BookSnapshot> getBookStream(@RequestParam int size) {
+		LOGGER.debug("getBookStream({})", size);
+		return exchangeStreamService.bookStream(size);
+	}
+}
@@ -0,0 +1,96 @@
+package net.rubenmartinez.stpc.app.controller.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade.TradeTag;
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+
+/**
+ * Compact binary encoding of trades for the websocket clients negotiating the {@link #SUBPROTOCOL} subprotocol (decoded by stpc.js).
+ * <p>
+ * All numbers are little-endian. A frame is a header followed by <code>count</code> records:
+ * <pre>
+ * header: u8 version (1) | u8 record type (1 = trade) | u16 count
+ * trade:  f64 creation epoch millis | f64 price | f64 amount (each NaN if unknown) | u8 maker side (0 BUY, 1 SELL, 255 unknown)
+ *         | u8 length + UTF-8 tradeId | u8 length + UTF-8 id of the strategy that simulated it (0 length if real)
+ * </pre>
+ * Prices and amounts are sent as doubles, which is enough for displaying them (the REST endpoints still return the exact decimals).</p>
+ */
+public final class TradeBinaryEncoder {
+
+	public static final String SUBPROTOCOL = "stpc.trades.bin.v1";
+
+	public static final int MAX_TRADES_PER_FRAME = 0xFFFF;
+
+	static final byte VERSION = 1;
+	static final byte RECORD_TYPE_TRADE = 1;
+	static final byte SIDE_UNKNOWN = (byte) 255;
+
+	private static final int HEADER_BYTES = 4;
+	private static final int TRADE_FIXED_BYTES = 8 + 8 + 8 + 1 + 1 + 1;
+	public static final int MAX_STRING_BYTES = 255;
+
+	/**
+	 * Encodes the given trades in a single frame
+	 *
+	 * @throws IllegalArgumentException if there are too many trades, or an id is longer than {@link #MAX_STRING_BYTES}
+	 */
+	public static ByteBuffer encode(List<TaggedTrade> trades) {
+		if (trades.size() > MAX_TRADES_PER_FRAME) {
+			throw new IllegalArgumentException("Too many trades for a single frame: " + trades.size());
+		}
+
+		byte[][] tradeIds = new byte[trades.size()][];
+		byte[][] strategyIds = new byte[trades.size()][];
+		int size = HEADER_BYTES;
+		for (int i = 0; i < trades.size(); i++) {
+			TaggedTrade trade = trades.get(i);
+			tradeIds[i] = toBytes(trade.getTradeId());
+			strategyIds[i] = toBytes(trade.getTradeTags().get(TradeTag.SIMULATED_BY));
+			size += TRADE_FIXED_BYTES + tradeIds[i].length + strategyIds[i].length;
+		}
+
+		ByteBuffer frame = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		frame.put(VERSION).put(RECORD_TYPE_TRADE).putShort((short) trades.size());
+		for (int i = 0; i < trades.size(); i++) {
+			TaggedTrade trade = trades.get(i);
+			frame.putDouble(trade.getCreationDate() == null ? Double.NaN : trade.getCreationDate().toInstant().toEpochMilli());
+			frame.putDouble(toDouble(trade.getPrice()));
+			frame.putDouble(toDouble(trade.getAmount()));
+			frame.put(toByte(trade.getMakerSide()));
+			frame.put((byte) tradeIds[i].length).put(tradeIds[i]);
+			frame.put((byte) strategyIds[i].length).put(strategyIds[i]);
+		}
+		frame.flip();
+		return frame;
+	}
+
+	private static byte toByte(OrderSide side) {
+		if (side == null) {
+			return SIDE_UNKNOWN;
+		}
+		return side == OrderSide.BUY ? (byte) 0 : (byte) 1;
+	}
+
+	private static double toDouble(String value) {
+		return value == null ? Double.NaN : Double.parseDouble(value);
+	}
+
+	private static byte[] toBytes(String value) {
+		if (value == null) {
+			return new byte[0];
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_STRING_BYTES) {
+			throw new IllegalArgumentException("String too long for the binary format: " + value);
+		}
+		return bytes;
+	}
+
+	private TradeBinaryEncoder() {
+	}
+}
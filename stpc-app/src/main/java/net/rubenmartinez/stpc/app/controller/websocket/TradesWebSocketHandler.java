@@ -1,40 +1,94 @@
 package net.rubenmartinez.stpc.app.controller.websocket;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
 import net.rubenmartinez.stpc.app.exchange.service.listener.TaggedTradeListener;
 import net.rubenmartinez.stpc.app.helper.websocket.annotation.WebSocketEndpointPath;
+import net.rubenmartinez.stpc.app.metrics.LatencyHistograms;
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
 
 /**
  * This is not a strictly Controller but placed in a subpackage of net.rubenmartinez.stpc.app.controller
  * just to gather all "web entrypoints" together and accesible under the same package
+ * <p>
+ * Trades are sent as JSON text messages, or in the compact binary format of {@link TradeBinaryEncoder} to the clients
+ * negotiating its subprotocol. Each trade is encoded once per format, and only if there is any session using it. If trades can't
+ * be encoded in a format, only the sessions using that format miss them.</p>
+ * <p>
+ * Trades are not sent as soon as they are notified but up to <code>websocket.trades.max-flush-delay-millis</code> later,
+ * so the trades notified together (e.g. all the new trades found in the same poll) are sent in a single frame (a JSON array, or
+ * a binary frame with several records) instead of one frame per trade and session.</p>
  */
 @Component
 @WebSocketEndpointPath("/trades")
-public class TradesWebSocketHandler extends TextWebSocketHandler implements TaggedTradeListener {
+public class TradesWebSocketHandler extends TextWebSocketHandler implements TaggedTradeListener, SubProtocolCapable {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(TradesWebSocketHandler.class);
 	
 	@Autowired
 	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private LatencyHistograms latencyHistograms;
+
+	@Value("${websocket.trades.max-flush-delay-millis}")
+	private long maxFlushDelayMillis;
 	
 	private List<WebSocketSession> clientSessions = new CopyOnWriteArrayList<>();
+
+	private Queue<TaggedTrade> pendingTrades = new ConcurrentLinkedQueue<>();
+	private AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	private ScheduledExecutorService flushExecutor;
+
+	private Timer fanOutTimer;
+
+	@PostConstruct
+	private void init() {
+		fanOutTimer = meterRegistry.timer("stpc.websocket.trades.fan-out");
+		meterRegistry.gauge("stpc.websocket.trades.sessions", clientSessions, List::size);
+		flushExecutor = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("TradesWebSocket:flush", true));
+	}
+
+	@PreDestroy
+	private void destroy() {
+		flushExecutor.shutdown();
+	}
 	
 	@Override
 	public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -43,6 +97,11 @@ public class TradesWebSocketHandler extends TextWebSocketHandler implements Tagg
 		LOGGER.debug("Connection established: {}; current sessions: [{}]", session, clientSessions.size());
 	}
 
+	@Override
+	public List<String> getSubProtocols() {
+		return Collections.singletonList(TradeBinaryEncoder.SUBPROTOCOL);
+	}
+
 	@Override
 	public void handleTextMessage(WebSocketSession session, TextMessage message) {
 		LOGGER.debug("Unexpected message from session [{}], message: {}", session, message);
@@ -56,27 +115,93 @@ public class TradesWebSocketHandler extends TextWebSocketHandler implements Tagg
 	
 	@Override
 	public void onNewTrade(TaggedTrade trade) {
-		Optional<TextMessage> textMessage = tradeToTextMessage(trade);
-		if (textMessage.isPresent()) {
-			clientSessions.forEach(session -> safeSendMessage(session, textMessage.get()));
+		if (clientSessions.isEmpty()) {
+			return;
+		}
+		pendingTrades.add(trade);
+		if (flushScheduled.compareAndSet(false, true)) {
+			flushExecutor.schedule(this::flush, maxFlushDelayMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Sends all the pending trades. Only run by the flush thread, so messages are never sent concurrently to the same session
+	 */
+	private void flush() {
+		flushScheduled.set(false); // Before taking the trades, so a trade added meanwhile schedules another flush
+		List<TaggedTrade> trades = new ArrayList<>();
+		TaggedTrade trade;
+		while (trades.size() < TradeBinaryEncoder.MAX_TRADES_PER_FRAME && (trade = pendingTrades.poll()) != null) {
+			trades.add(trade);
+		}
+		if (!pendingTrades.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+			flushExecutor.execute(this::flush);
+		}
+		if (!trades.isEmpty()) {
+			try {
+				sendTrades(trades);
+			} catch (RuntimeException e) {
+				LOGGER.error("(Swallowing) Exception while sending trades to websocket sessions", e);
+			}
 		}
 	}
 
-	private Optional<TextMessage> tradeToTextMessage(TaggedTrade trade) {
+	private void sendTrades(List<TaggedTrade> trades) {
+		long startNanos = System.nanoTime();
+		Optional<TextMessage> textMessage = null; // Each format encoded only when the first session using it is found
+		Optional<BinaryMessage> binaryMessage = null;
+		for (WebSocketSession session : clientSessions) {
+			if (isBinary(session)) {
+				if (binaryMessage == null) {
+					binaryMessage = tradesToBinaryMessage(trades);
+				}
+				binaryMessage.ifPresent(message -> safeSendMessage(session, message));
+			} else {
+				if (textMessage == null) {
+					textMessage = tradesToTextMessage(trades);
+				}
+				textMessage.ifPresent(message -> safeSendMessage(session, message));
+			}
+		}
+		trades.forEach(this::recordLatency);
+		fanOutTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void recordLatency(TaggedTrade trade) {
+		if (trade.getCreationDate() != null && !clientSessions.isEmpty()) {
+			long createdToSentMillis = System.currentTimeMillis() - trade.getCreationDate().toInstant().toEpochMilli();
+			latencyHistograms.record(LatencyHistograms.STAGE_TRADE_CREATED_TO_WEBSOCKET_SENT, TimeUnit.MILLISECONDS.toNanos(createdToSentMillis));
+		}
+	}
+
+	private Optional<BinaryMessage> tradesToBinaryMessage(List<TaggedTrade> trades) {
+		try {
+			return Optional.of(new BinaryMessage(TradeBinaryEncoder.encode(trades)));
+		} catch (RuntimeException e) {
+			LOGGER.error("Exception while encoding trade objects in the binary format: {}", trades, e);
+			return Optional.empty();
+		}
+	}
+
+	private Optional<TextMessage> tradesToTextMessage(List<TaggedTrade> trades) {
 		try {
-			String tradeJsonText = objectMapper.writeValueAsString(trade);
-			return Optional.ofNullable(new TextMessage(tradeJsonText));
+			String tradesJsonText = objectMapper.writeValueAsString(trades);
+			return Optional.ofNullable(new TextMessage(tradesJsonText));
 		} catch (JsonProcessingException e) {
-			LOGGER.error("Exception while parsing trade object as a JSON String: {}", trade);
+			LOGGER.error("Exception while parsing trade objects as a JSON String: {}", trades);
 			return Optional.empty();
 		}
 	}
 	
-	private static void safeSendMessage(WebSocketSession session, TextMessage textMessage) {
+	private static boolean isBinary(WebSocketSession session) {
+		return TradeBinaryEncoder.SUBPROTOCOL.equals(session.getAcceptedProtocol());
+	}
+
+	private static void safeSendMessage(WebSocketSession session, WebSocketMessage<?> message) {
 		try {
-			session.sendMessage(textMessage);
+			session.sendMessage(message);
 		} catch (IOException e) {
-			LOGGER.error("(Swallowing) Exception while sending text message to session [{}]. Message: {}", session, textMessage);
+			LOGGER.error("(Swallowing) Exception while sending message to session [{}]. Message: {}", session, message);
 		}
 	}
 }
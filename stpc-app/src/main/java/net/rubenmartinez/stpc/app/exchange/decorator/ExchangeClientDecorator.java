@@ -38,6 +38,11 @@ public class ExchangeClientDecorator implements ExchangeClient {
 		return exchangeClient.getAsks(n);
 	}
 
+	@Override
+	public long getOrderBookSequence() {
+		return exchangeClient.getOrderBookSequence();
+	}
+
 	/**
 	 * @see ExchangeClient#getLastTrades(int)
 	 */
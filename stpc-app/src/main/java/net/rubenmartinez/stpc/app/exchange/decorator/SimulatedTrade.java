@@ -5,14 +5,18 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 
 import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.exchange.domain.TradeTags;
 import net.rubenmartinez.stpc.exchange.domain.OrderSide;
 
 /**
  */
 public class SimulatedTrade extends TaggedTrade {
-	public SimulatedTrade(String strategyId, String tradeId, OrderSide makerSide, BigDecimal price, BigDecimal amount, ZonedDateTime creationDate) {
-		super(tradeId, makerSide, price, amount, creationDate);
-		getTradeTags().put(TradeTag.SIMULATED_BY, strategyId);
+
+	/**
+	 * @param sortKey key to order this trade among the real ones, see {@link TaggedTrade#sortKeyFollowing(net.rubenmartinez.stpc.exchange.domain.Trade)}
+	 */
+	public SimulatedTrade(String strategyId, String tradeId, OrderSide makerSide, BigDecimal price, BigDecimal amount, ZonedDateTime creationDate, long sortKey) {
+		super(tradeId, makerSide, price, amount, creationDate, TradeTags.of(TradeTag.SIMULATED_BY, strategyId), sortKey);
 	}
 
 	/**
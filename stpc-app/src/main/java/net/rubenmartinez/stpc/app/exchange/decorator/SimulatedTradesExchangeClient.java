@@ -1,14 +1,10 @@
 package net.rubenmartinez.stpc.app.exchange.decorator;
 
 import java.math.BigDecimal;
-import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,16 +24,26 @@ import net.rubenmartinez.stpc.exchange.listener.TradeListener;
 public class SimulatedTradesExchangeClient extends ExchangeClientDecorator implements TradeListener {
 	private static final Logger LOGGER = LoggerFactory.getLogger(SimulatedTradesExchangeClient.class);
 
+	private static final int DEFAULT_MAX_SIMULATED_TRADES_PER_STRATEGY = 10000;
+
 	private List<TaggedTradeListener> copyOnWriteTradeListeners;
-	private List<SimulatedTrade> simulatedTrades;
+	private SimulatedTradesStore simulatedTrades;
 
 	private volatile Boolean thisAddedAsListener;
 
 	public SimulatedTradesExchangeClient(ExchangeClient exchangeClient) {
+		this(exchangeClient, DEFAULT_MAX_SIMULATED_TRADES_PER_STRATEGY);
+	}
+
+	/**
+	 * @param exchangeClient the decorated exchange client
+	 * @param maxSimulatedTradesPerStrategy number of simulated trades kept for each strategy, older ones are discarded
+	 */
+	public SimulatedTradesExchangeClient(ExchangeClient exchangeClient, int maxSimulatedTradesPerStrategy) {
 		super(exchangeClient);
 		this.thisAddedAsListener = false; // Will add as a listener of the exchangeClient later as it is not safe to call super.addTradeListener(this) inside constructor as object it not ensured to be created till constructor has finished
 		this.copyOnWriteTradeListeners = new CopyOnWriteArrayList<>();
-		this.simulatedTrades = Collections.synchronizedList(new ArrayList<>()); // We should use a circular buffer cause the memory will if the app is running enough time, but it should be ok for the exercise  
+		this.simulatedTrades = new SimulatedTradesStore(maxSimulatedTradesPerStrategy);
 	}
 
 	private void placeSimulatedOrder(SimulatedTrade simulatedTrade) {
@@ -46,17 +52,30 @@ public class SimulatedTradesExchangeClient extends ExchangeClientDecorator imple
 		notifyNewTrade(simulatedTrade);
 	}
 	
+	/**
+	 * Returns a number that changes whenever the simulated trades of the given strategy change
+	 */
+	public long getSimulatedTradesVersion(String strategyId) {
+		return simulatedTrades.getVersion(strategyId);
+	}
+
 	public void clearSimulatedTrades(String strategyId) {
 		LOGGER.debug("clearSimulatedTrades(strategyId={})", strategyId);
-		simulatedTrades.removeIf(trade -> strategyId.equals(trade.getStrategyId()));
+		simulatedTrades.clear(strategyId);
 	}
 	
-	public void simulateBuy(String strategyId, String orderId, BigDecimal price, BigDecimal amount, ZonedDateTime creationDate) {
-		placeSimulatedOrder(new SimulatedTrade(strategyId, orderId, OrderSide.SELL, price, amount, creationDate)); // Note OrderSide is the maker Side, so we have to simulate a SELL
+	/**
+	 * @param triggeringTrade the real trade that made the strategy buy, the simulated trade is ordered right after it
+	 */
+	public void simulateBuy(String strategyId, String orderId, BigDecimal price, BigDecimal amount, Trade triggeringTrade) {
+		placeSimulatedOrder(new SimulatedTrade(strategyId, orderId, OrderSide.SELL, price, amount, triggeringTrade.getCreationDate(), TaggedTrade.sortKeyFollowing(triggeringTrade))); // Note OrderSide is the maker Side, so we have to simulate a SELL
 	}
 
-	public void simulateSell(String strategyId, String orderId, BigDecimal price, BigDecimal amount, ZonedDateTime creationDate) {
-		placeSimulatedOrder(new SimulatedTrade(strategyId, orderId, OrderSide.BUY, price, amount, creationDate)); // Note OrderSide is the maker Side, so we have to simulate a SELL
+	/**
+	 * @param triggeringTrade the real trade that made the strategy sell, the simulated trade is ordered right after it
+	 */
+	public void simulateSell(String strategyId, String orderId, BigDecimal price, BigDecimal amount, Trade triggeringTrade) {
+		placeSimulatedOrder(new SimulatedTrade(strategyId, orderId, OrderSide.BUY, price, amount, triggeringTrade.getCreationDate(), TaggedTrade.sortKeyFollowing(triggeringTrade))); // Note OrderSide is the maker Side, so we have to simulate a BUY
 	}
 
 	public void addFlaggedTradeListener(TaggedTradeListener listener) {
@@ -81,7 +100,7 @@ public class SimulatedTradesExchangeClient extends ExchangeClientDecorator imple
 
 	@Override
 	public void onNewTrade(Trade trade) {
-		notifyNewTrade(new TaggedTrade(trade));
+		notifyNewTrade(TaggedTrade.of(trade));
 	}
 	
 	private void notifyNewTrade(TaggedTrade trade) {
@@ -99,25 +118,50 @@ public class SimulatedTradesExchangeClient extends ExchangeClientDecorator imple
 	
 	/**
 	 * New method in this decorator to return the last trades including the simulated trades from a particular strategy
-	 * sorted in ascending order 
-	 * 
-	 * As the resolution of creation date is up to a second. The simulated trades are not easily shown in correct order so
-	 * this decorator
-	 * 
-	 * It uses a "trick" that wouldn't actually work with Exchanges which don't have tradeIds that can be ordered.
-	 * Avoiding this trick would be quite simple but laborious as would imply to modify a lot of code from <code>stpc-exchange-api</code>
-	 * to keep track of an <em>sortId</em>, so for the moment I would keep it like this being the last day of the challenge.
-	 * 
-	 * As this is a simulation, this method was <em>not</em> designed for performance  
-	 * 
+	 * sorted from the newest to the oldest.
+	 * <p>
+	 * As the resolution of creation date is up to a second, trades are ordered by their sort key instead (see {@link TaggedTrade#sortKeyOf(Trade)}),
+	 * so each simulated trade is shown right after the real trade that triggered it.</p>
+	 * <p>
+	 * Both the real trades and the simulated ones are already ordered, so they are just merged, stopping as soon as {@code n} trades are collected.
+	 * Only the real trades actually returned get wrapped into a (lightweight) {@link TaggedTrade} view.</p>
+	 *
 	 * @param n The number of trades to return
-	 * @return the last trades including the simulated trades from a particular strategy sorted in ascending order
+	 * @return the last trades including the simulated trades from a particular strategy sorted from the newest to the oldest
 	 */
 	public List<TaggedTrade> getLastTradesOrderedIncludingSimulated(int n, String strategyId) {
-		Stream<SimulatedTrade> simulatedTradesStream = simulatedTrades.stream().filter(trade -> strategyId.equals(trade.getStrategyId()));
-		Stream<TaggedTrade> realTradesStream = super.getLastTrades(n).stream().map(TaggedTrade::new);
-		
-		Stream<TaggedTrade> allTradesStream = Stream.concat(simulatedTradesStream, realTradesStream).distinct();
-		return allTradesStream.sorted(Comparator.comparing(TaggedTrade::getTradeId).reversed()).limit(n).collect(Collectors.toList());
+		List<Trade> realTrades = super.getLastTrades(n);
+		Iterator<Trade> realIterator = realTrades.iterator();
+		Iterator<SimulatedTrade> simulatedIterator = simulatedTrades.iterateNewestFirst(strategyId);
+
+		List<TaggedTrade> lastTrades = new ArrayList<>(Math.min(n, realTrades.size() + simulatedTrades.size(strategyId)));
+
+		Trade real = nextOrNull(realIterator);
+		long realSortKey = real == null ? 0 : TaggedTrade.sortKeyOf(real);
+		SimulatedTrade simulated = nextOrNull(simulatedIterator);
+		long lastSortKey = Long.MAX_VALUE;
+
+		while (lastTrades.size() < n && (real != null || simulated != null)) {
+			if (simulated == null || (real != null && realSortKey > simulated.getSortKey())) {
+				if (realSortKey != lastSortKey) {
+					lastTrades.add(TaggedTrade.of(real));
+					lastSortKey = realSortKey;
+				}
+				real = nextOrNull(realIterator);
+				realSortKey = real == null ? 0 : TaggedTrade.sortKeyOf(real);
+			} else {
+				if (simulated.getSortKey() != lastSortKey) {
+					lastTrades.add(simulated);
+					lastSortKey = simulated.getSortKey();
+				}
+				simulated = nextOrNull(simulatedIterator);
+			}
+		}
+
+		return lastTrades;
+	}
+
+	private static <T> T nextOrNull(Iterator<T> iterator) {
+		return iterator.hasNext() ? iterator.next() : null;
 	}
 }
@@ -0,0 +1,163 @@
+package net.rubenmartinez.stpc.app.exchange.decorator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the {@link SimulatedTrade}s placed by each strategy, ordered by their sort key.
+ * <p>
+ * Every strategy has its own independent store, so strategies never contend with each other, and each store
+ * is bounded: once {@code maxTradesPerStrategy} trades are stored for a strategy, adding a new one evicts the oldest.</p>
+ * <p>
+ * The capacity is not strictly enforced while several threads are adding trades for the same strategy at the same time, but it
+ * is restored as soon as they finish.</p>
+ */
+public class SimulatedTradesStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SimulatedTradesStore.class);
+
+	private int maxTradesPerStrategy;
+	private ConcurrentMap<String, StrategyTrades> tradesByStrategy;
+	private AtomicLong modifications;
+
+	public SimulatedTradesStore(int maxTradesPerStrategy) {
+		if (maxTradesPerStrategy <= 0) {
+			throw new IllegalArgumentException("Max simulated trades per strategy must be greater than zero. Current: " + maxTradesPerStrategy);
+		}
+		this.maxTradesPerStrategy = maxTradesPerStrategy;
+		this.tradesByStrategy = new ConcurrentHashMap<>();
+		this.modifications = new AtomicLong(0);
+	}
+
+	/**
+	 * Stores the given trade for the strategy that simulated it, evicting the oldest trade of that strategy if its capacity is exceeded
+	 */
+	public void add(SimulatedTrade trade) {
+		StrategyTrades strategyTrades = tradesByStrategy.computeIfAbsent(trade.getStrategyId(), strategyId -> new StrategyTrades());
+		strategyTrades.add(trade);
+	}
+
+	/**
+	 * Returns as much as {@code n} trades simulated by the given strategy, ordered from the most recent trade to the oldest.
+	 *
+	 * @param strategyId the strategy that simulated the trades
+	 * @param n maximum number of trades to return
+	 * @return a copy of the newest {@code n} trades simulated by the given strategy (an empty list if there are none)
+	 */
+	public List<SimulatedTrade> getNewest(String strategyId, int n) {
+		StrategyTrades strategyTrades = tradesByStrategy.get(strategyId);
+		if (strategyTrades == null) {
+			return new ArrayList<>();
+		}
+		return strategyTrades.getNewest(n);
+	}
+
+	/**
+	 * Iterates lazily the trades simulated by the given strategy, from the most recent trade to the oldest.
+	 * The iterator is weakly consistent: it never fails because of concurrent modifications, but it may or may not reflect them.
+	 */
+	public Iterator<SimulatedTrade> iterateNewestFirst(String strategyId) {
+		StrategyTrades strategyTrades = tradesByStrategy.get(strategyId);
+		if (strategyTrades == null) {
+			return Collections.emptyIterator();
+		}
+		return strategyTrades.sorted.tradesBySortKey.descendingMap().values().iterator();
+	}
+
+	/**
+	 * Removes all the trades simulated by the given strategy, in constant time: its trades are replaced by an empty store, once the
+	 * trades being added meanwhile are added, so none of them is added to the discarded store nor survives the clear half-counted.
+	 * Readers already iterating the discarded trades keep doing it.
+	 */
+	public void clear(String strategyId) {
+		StrategyTrades strategyTrades = tradesByStrategy.get(strategyId);
+		if (strategyTrades != null) {
+			strategyTrades.clear();
+		}
+		LOGGER.debug("Simulated trades cleared for strategy: {}", strategyId);
+	}
+
+	/**
+	 * Returns a number that changes whenever a trade is added for the given strategy. It is {@code 0} when
+	 * there are no trades for the strategy (so the same as when the strategy trades were just cleared).
+	 */
+	public long getVersion(String strategyId) {
+		StrategyTrades strategyTrades = tradesByStrategy.get(strategyId);
+		return strategyTrades == null ? 0 : strategyTrades.version;
+	}
+
+	/**
+	 * Approximate number of trades stored for the given strategy
+	 */
+	public int size(String strategyId) {
+		StrategyTrades strategyTrades = tradesByStrategy.get(strategyId);
+		return strategyTrades == null ? 0 : strategyTrades.sorted.size.get();
+	}
+
+	public int getMaxTradesPerStrategy() {
+		return maxTradesPerStrategy;
+	}
+
+	private class StrategyTrades {
+		// Replaced as a whole when cleared
+		private volatile SortedTrades sorted = new SortedTrades();
+
+		private volatile long version;
+
+		// Adds share the read lock, so they still run concurrently; clearing takes the write lock
+		private ReadWriteLock clearLock = new ReentrantReadWriteLock();
+
+		private void add(SimulatedTrade trade) {
+			clearLock.readLock().lock();
+			try {
+				SortedTrades current = sorted;
+				SimulatedTrade previous = current.tradesBySortKey.put(trade.getSortKey(), trade);
+				if (previous == null && current.size.incrementAndGet() > maxTradesPerStrategy) {
+					current.evictOldest();
+				}
+				version = modifications.incrementAndGet();
+			} finally {
+				clearLock.readLock().unlock();
+			}
+		}
+
+		private void clear() {
+			clearLock.writeLock().lock();
+			try {
+				sorted = new SortedTrades();
+				version = 0;
+			} finally {
+				clearLock.writeLock().unlock();
+			}
+		}
+
+		private List<SimulatedTrade> getNewest(int n) {
+			return sorted.tradesBySortKey.descendingMap().values().stream().limit(n).collect(Collectors.toList());
+		}
+	}
+
+	private class SortedTrades {
+		private final ConcurrentSkipListMap<Long, SimulatedTrade> tradesBySortKey = new ConcurrentSkipListMap<>();
+
+		// Keeping size here, as ConcurrentSkipListMap.size() is not a constant-time operation
+		private final AtomicInteger size = new AtomicInteger(0);
+
+		private void evictOldest() {
+			while (size.get() > maxTradesPerStrategy && tradesBySortKey.pollFirstEntry() != null) {
+				size.decrementAndGet();
+			}
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package net.rubenmartinez.stpc.app.exchange.domain;
+
+import java.util.List;
+
+import net.rubenmartinez.stpc.exchange.domain.Order;
+
+/**
+ * Best asks and bids of the OrderBook at a given sequence
+ */
+public class BookSnapshot {
+	private final long sequence;
+	private final List<Order> asks;
+	private final List<Order> bids;
+
+	public BookSnapshot(long sequence, List<Order> asks, List<Order> bids) {
+		this.sequence = sequence;
+		this.asks = asks;
+		this.bids = bids;
+	}
+
+	public long getSequence() {
+		return this.sequence;
+	}
+
+	public List<Order> getAsks() {
+		return this.asks;
+	}
+
+	public List<Order> getBids() {
+		return this.bids;
+	}
+
+	@Override
+	public String toString() {
+		return "BookSnapshot(sequence=" + sequence + ", asks=" + asks.size() + ", bids=" + bids.size() + ")";
+	}
+}
@@ -3,45 +3,162 @@ package net.rubenmartinez.stpc.app.exchange.domain;
 
 import java.math.BigDecimal;
 import java.time.ZonedDateTime;
-import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.springframework.beans.BeanUtils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import net.rubenmartinez.stpc.exchange.domain.OrderSide;
 import net.rubenmartinez.stpc.exchange.domain.Trade;
 
+/**
+ * A {@link Trade} with some tags attached.
+ * <p>
+ * This is just a view over the tagged trade: properties are read from it, never copied. Tags are immutable and shared
+ * between all the trades with the same tags (see {@link TradeTags}), so wrapping a trade without tags only costs this object.</p>
+ */
 public class TaggedTrade implements Trade {
 
 	public enum TradeTag {
 		SIMULATED_BY;
 	}
 
-	private String tradeId;
-	private ZonedDateTime creationDate;
-	private String amount;
-	private OrderSide makerSide;
-	private String price;
-	private EnumMap<TradeTag, String> tradeTags;
+	/**
+	 * Sort keys reserved for each real trade: the trade itself takes the first one and the following ones are left for
+	 * trades derived from it (e.g. a trade simulated as a reaction to it) and for trades with a non-numeric tradeId created
+	 * before the next real trade, so these are ordered right after it.
+	 */
+	private static final int SORT_KEY_SLOTS_PER_TRADE = 1024;
+
+	/**
+	 * Greatest sort key of the tagged trades created so far, so trades with a non-numeric tradeId are ordered after them
+	 */
+	private static final AtomicLong NEWEST_SORT_KEY = new AtomicLong();
+
+	private final Trade trade;
+	private final Map<TradeTag, String> tradeTags;
+	private final long sortKey;
 
 	public TaggedTrade(String tradeId, OrderSide makerSide, BigDecimal price, BigDecimal amount, ZonedDateTime creationDate) {
-		this.tradeId = tradeId;
-		this.makerSide = makerSide;
-		this.price = price.toString();
-		this.amount = amount.toString();
-		this.creationDate = creationDate;
-		this.tradeTags = new EnumMap<>(TradeTag.class);
+		this(tradeId, makerSide, price, amount, creationDate, TradeTags.none());
 	}
 
 	public TaggedTrade(String tradeId, OrderSide side, BigDecimal price, BigDecimal amount) {
 		this(tradeId, side, price, amount, ZonedDateTime.now());
 	}
 
+	/**
+	 * @param tradeTags tags of this trade, expected to be obtained from {@link TradeTags}
+	 */
+	protected TaggedTrade(String tradeId, OrderSide makerSide, BigDecimal price, BigDecimal amount, ZonedDateTime creationDate, Map<TradeTag, String> tradeTags) {
+		this(new UntaggedTrade(tradeId, makerSide, price.toString(), amount.toString(), creationDate), tradeTags);
+	}
+
+	/**
+	 * For trades derived from another one, which are given their sort key instead of taking it from their tradeId
+	 *
+	 * @param tradeTags tags of this trade, expected to be obtained from {@link TradeTags}
+	 * @param sortKey key to order this trade, see {@link #sortKeyFollowing(Trade)}
+	 */
+	protected TaggedTrade(String tradeId, OrderSide makerSide, BigDecimal price, BigDecimal amount, ZonedDateTime creationDate, Map<TradeTag, String> tradeTags, long sortKey) {
+		this.trade = new UntaggedTrade(tradeId, makerSide, price.toString(), amount.toString(), creationDate);
+		this.tradeTags = tradeTags;
+		this.sortKey = sortKey;
+	}
+
+	/**
+	 * Wraps the given trade, without tags. Consider {@link #of(Trade)} to avoid wrapping trades that are already tagged.
+	 */
 	public TaggedTrade(Trade trade) {
-		BeanUtils.copyProperties(trade, this);
-		this.tradeTags = new EnumMap<>(TradeTag.class);
+		this(trade, TradeTags.none());
+	}
+
+	private TaggedTrade(Trade trade, Map<TradeTag, String> tradeTags) {
+		this.trade = trade;
+		this.tradeTags = tradeTags;
+		this.sortKey = isNumeric(trade.getTradeId()) ? newRealTradeSortKey(trade.getTradeId()) : newArrivalOrderSortKey();
+	}
+
+	/**
+	 * Returns the given trade itself if it is already a {@link TaggedTrade}, or a new view over it without tags otherwise
+	 */
+	public static TaggedTrade of(Trade trade) {
+		if (trade instanceof TaggedTrade) {
+			return (TaggedTrade) trade;
+		}
+		return new TaggedTrade(trade);
+	}
+
+	/**
+	 * Returns the key used to order the given trade among both real and simulated trades (greater is newer).
+	 * <p>
+	 * Real trades are ordered by their tradeId, which must be numeric (as in Bitso, where tids are increasing). A tagged trade
+	 * whose tradeId is not numeric is ordered by arrival instead: after every tagged trade created before it, numeric or not, and
+	 * before the real trades with a greater tradeId than those. It never takes the sort key of a real trade, so it is not merged with one.</p>
+	 *
+	 * @throws IllegalArgumentException if the trade is not a tagged trade and its tradeId is not numeric
+	 */
+	public static long sortKeyOf(Trade trade) {
+		if (trade instanceof TaggedTrade) {
+			return ((TaggedTrade) trade).getSortKey();
+		}
+		return realTradeSortKey(trade.getTradeId());
+	}
+
+	/**
+	 * Returns the sort key for a trade derived from the given one, so it is ordered after it but before any newer real trade
+	 */
+	public static long sortKeyFollowing(Trade trade) {
+		return sortKeyOf(trade) + 1;
+	}
+
+	private static long newRealTradeSortKey(String tradeId) {
+		long sortKey = realTradeSortKey(tradeId);
+		if (sortKey > NEWEST_SORT_KEY.get()) {
+			NEWEST_SORT_KEY.accumulateAndGet(sortKey, Math::max);
+		}
+		return sortKey;
+	}
+
+	/**
+	 * Takes the next even slot after the newest trade (leaving the odd one for a trade derived from it), skipping the slots of real trades
+	 */
+	private static long newArrivalOrderSortKey() {
+		return NEWEST_SORT_KEY.updateAndGet(newest -> {
+			long sortKey = (newest | 1) + 1;
+			return sortKey % SORT_KEY_SLOTS_PER_TRADE == 0 ? sortKey + 2 : sortKey;
+		});
+	}
+
+	private static long realTradeSortKey(String tradeId) {
+		try {
+			return Math.multiplyExact(Long.parseLong(tradeId), SORT_KEY_SLOTS_PER_TRADE);
+		} catch (NumberFormatException | ArithmeticException e) {
+			throw new IllegalArgumentException("Trade id must be a number below " + (Long.MAX_VALUE / SORT_KEY_SLOTS_PER_TRADE)
+					+ " to order the trade among the others: " + tradeId, e);
+		}
+	}
+
+	private static boolean isNumeric(String tradeId) {
+		if (tradeId == null || tradeId.isEmpty() || tradeId.length() > 15) { // Any 15 digits number fits, even multiplied by the slots
+			return false;
+		}
+		for (int i = 0; i < tradeId.length(); i++) {
+			if (!Character.isDigit(tradeId.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
 	}
-	
+
+	/**
+	 * @see #sortKeyOf(Trade)
+	 */
+	@JsonIgnore
+	public long getSortKey() {
+		return sortKey;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj) {
@@ -56,59 +173,77 @@ public class TaggedTrade implements Trade {
 
 	@Override
 	public int hashCode() {
-		return tradeId.hashCode();
+		return getTradeId().hashCode();
 	}
 
 	public String getTradeId() {
-		return this.tradeId;
+		return trade.getTradeId();
 	}
 
 	public ZonedDateTime getCreationDate() {
-		return this.creationDate;
+		return trade.getCreationDate();
 	}
 
 	public String getAmount() {
-		return this.amount;
+		return trade.getAmount();
 	}
 
 	public OrderSide getMakerSide() {
-		return this.makerSide;
+		return trade.getMakerSide();
 	}
 
 	public String getPrice() {
-		return this.price;
+		return trade.getPrice();
 	}
 
+	/**
+	 * Returns the tags of this trade, as an unmodifiable map
+	 */
 	public Map<TradeTag, String> getTradeTags() {
 		return this.tradeTags;
 	}
 
-	public void setTradeId(final String tradeId) {
-		this.tradeId = tradeId;
+	@Override
+	public String toString() {
+		return "TaggedTrade(tradeId=" + this.getTradeId() + ", creationDate=" + this.getCreationDate() + ", amount=" + this.getAmount() + ", makerSide=" + this.getMakerSide() + ", price=" + this.getPrice() + ", tradeTags=" + this.getTradeTags() + ")";
 	}
 
-	public void setCreationDate(final ZonedDateTime creationDate) {
-		this.creationDate = creationDate;
-	}
+	/**
+	 * Plain trade, for tagged trades created from their properties instead of wrapping an existing trade
+	 */
+	private static class UntaggedTrade implements Trade {
+		private final String tradeId;
+		private final OrderSide makerSide;
+		private final String price;
+		private final String amount;
+		private final ZonedDateTime creationDate;
+
+		private UntaggedTrade(String tradeId, OrderSide makerSide, String price, String amount, ZonedDateTime creationDate) {
+			this.tradeId = tradeId;
+			this.makerSide = makerSide;
+			this.price = price;
+			this.amount = amount;
+			this.creationDate = creationDate;
+		}
 
-	public void setAmount(final String amount) {
-		this.amount = amount;
-	}
+		public String getTradeId() {
+			return tradeId;
+		}
 
-	public void setMakerSide(final OrderSide makerSide) {
-		this.makerSide = makerSide;
-	}
+		public ZonedDateTime getCreationDate() {
+			return creationDate;
+		}
 
-	public void setPrice(final String price) {
-		this.price = price;
-	}
+		public String getAmount() {
+			return amount;
+		}
 
-	public void setTradeTags(final EnumMap<TradeTag, String> tradeTags) {
-		this.tradeTags = tradeTags;
-	}
+		public OrderSide getMakerSide() {
+			return makerSide;
+		}
 
-	@Override
-	public String toString() {
-		return "TaggedTrade(tradeId=" + this.getTradeId() + ", creationDate=" + this.getCreationDate() + ", amount=" + this.getAmount() + ", makerSide=" + this.getMakerSide() + ", price=" + this.getPrice() + ", tradeTags=" + this.getTradeTags() + ")";
+		public String getPrice() {
+			return price;
+		}
 	}
 }
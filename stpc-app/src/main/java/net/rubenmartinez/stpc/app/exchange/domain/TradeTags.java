@@ -0,0 +1,44 @@
+package net.rubenmartinez.stpc.app.exchange.domain;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade.TradeTag;
+
+/**
+ * Registry of the tags attached to {@link TaggedTrade}s.
+ * <p>
+ * There are only a few different combinations of tags (e.g. one per strategy simulating trades), so instead of allocating
+ * a map for every trade, all the trades with the same tag share the same immutable map.</p>
+ */
+public final class TradeTags {
+	private static final Map<TradeTag, String> NONE = Collections.unmodifiableMap(new EnumMap<>(TradeTag.class));
+
+	private static final ConcurrentMap<TradeTag, ConcurrentMap<String, Map<TradeTag, String>>> REGISTRY = new ConcurrentHashMap<>();
+
+	private TradeTags() {
+	}
+
+	/**
+	 * Tags of a trade which is not tagged
+	 */
+	public static Map<TradeTag, String> none() {
+		return NONE;
+	}
+
+	/**
+	 * Returns the shared, unmodifiable, tags with just the given tag and value
+	 */
+	public static Map<TradeTag, String> of(TradeTag tag, String value) {
+		return REGISTRY.computeIfAbsent(tag, t -> new ConcurrentHashMap<>()).computeIfAbsent(value, v -> newTags(tag, v));
+	}
+
+	private static Map<TradeTag, String> newTags(TradeTag tag, String value) {
+		EnumMap<TradeTag, String> tags = new EnumMap<>(TradeTag.class);
+		tags.put(tag, value);
+		return Collections.unmodifiableMap(tags);
+	}
+}
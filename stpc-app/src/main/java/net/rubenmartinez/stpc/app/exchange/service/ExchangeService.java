@@ -1,13 +1,19 @@
 package net.rubenmartinez.stpc.app.exchange.service;
 
 import java.util.List;
+import java.util.Objects;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTradesExchangeClient;
 import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.exchange.service.cache.JsonResponseCache;
 import net.rubenmartinez.stpc.app.exchange.service.listener.TaggedTradeListener;
 import net.rubenmartinez.stpc.exchange.ExchangeClient;
 import net.rubenmartinez.stpc.exchange.domain.Order;
@@ -19,16 +25,90 @@ import net.rubenmartinez.stpc.exchange.listener.TradeListener;
  * 
  * This additional layer could be used to control number of requests, throttle, etc..
  * 
- * For the moment it is just a dummy layer
- * 
+ * For the moment it caches the responses for the REST endpoints (see the <code>*Json</code> methods), already serialized to JSON,
+ * while the OrderBook sequence (or the last trade) doesn't change, so many clients asking for the same data don't compute it again and again.
  *
  */
 @Service
 public class ExchangeService {
-	
+
+	private enum Endpoint {
+		BIDS, ASKS, LAST_TRADES;
+	}
+
+	private static final long NO_TRADES_VERSION = -1;
+
+	/**
+	 * Simulated trades versions start again from zero when the application restarts, so this is added to the trades ETags
+	 * to avoid browsers matching a version from before the restart.
+	 */
+	private static final String INSTANCE_ETAG_PREFIX = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
 	@Resource
 	private SimulatedTradesExchangeClient exchangeClient;
 
+	@Resource
+	private ObjectMapper objectMapper;
+
+	@Value("${exchange.response-cache.max-entries}")
+	private int responseCacheMaxEntries;
+
+	/**
+	 * Versions are OrderBook sequences in one cache and trade sort keys in the other, so they are never compared with each other
+	 */
+	private JsonResponseCache<ResponseKey> orderBookResponseCache;
+	private JsonResponseCache<ResponseKey> tradesResponseCache;
+
+	@PostConstruct
+	private void init() {
+		orderBookResponseCache = new JsonResponseCache<>(objectMapper, responseCacheMaxEntries);
+		tradesResponseCache = new JsonResponseCache<>(objectMapper, responseCacheMaxEntries);
+	}
+
+	/**
+	 * Same as {@link #getBids(int)} but serialized to JSON, cached while the OrderBook doesn't change
+	 */
+	public byte[] getBidsJson(int n) {
+		return orderBookResponseCache.get(new ResponseKey(Endpoint.BIDS, n, null), exchangeClient.getOrderBookSequence(), 0, () -> getBids(n));
+	}
+
+	/**
+	 * Same as {@link #getAsks(int)} but serialized to JSON, cached while the OrderBook doesn't change
+	 */
+	public byte[] getAsksJson(int n) {
+		return orderBookResponseCache.get(new ResponseKey(Endpoint.ASKS, n, null), exchangeClient.getOrderBookSequence(), 0, () -> getAsks(n));
+	}
+
+	/**
+	 * Same as {@link #getLastTradesOrderedIncludingSimulated(int, String)} but serialized to JSON, cached while there are
+	 * no new trades, neither real nor simulated by the given strategy
+	 */
+	public byte[] getLastTradesOrderedIncludingSimulatedJson(int n, String strategyId) {
+		long simulatedTradesVersion = exchangeClient.getSimulatedTradesVersion(strategyId);
+		return tradesResponseCache.get(new ResponseKey(Endpoint.LAST_TRADES, n, strategyId), getLastTradeSortKey(), simulatedTradesVersion,
+				() -> getLastTradesOrderedIncludingSimulated(n, strategyId));
+	}
+
+	/**
+	 * Returns an entity tag that changes whenever the OrderBook changes (so the responses of {@link #getBidsJson(int)} and {@link #getAsksJson(int)} may change)
+	 */
+	public String getOrderBookETag() {
+		return Long.toString(exchangeClient.getOrderBookSequence());
+	}
+
+	/**
+	 * Returns an entity tag that changes whenever there is a new trade, real or simulated by the given strategy
+	 * (so the response of {@link #getLastTradesOrderedIncludingSimulatedJson(int, String)} may change)
+	 */
+	public String getLastTradesETag(String strategyId) {
+		return INSTANCE_ETAG_PREFIX + "-" + getLastTradeSortKey() + "-" + exchangeClient.getSimulatedTradesVersion(strategyId);
+	}
+
+	private long getLastTradeSortKey() {
+		List<Trade> lastTrade = exchangeClient.getLastTrades(1);
+		return lastTrade.isEmpty() ? NO_TRADES_VERSION : TaggedTrade.sortKeyOf(lastTrade.get(0));
+	}
+
 
 	/**
 	 * @see ExchangeClient#getBids(int)
@@ -71,4 +151,38 @@ public class ExchangeService {
 	public void removeTradeListener(TradeListener listener) {
 		exchangeClient.removeTradeListener(listener);
 	}
+
+	private static final class ResponseKey {
+		private final Endpoint endpoint;
+		private final int size;
+		private final String strategyId;
+
+		private ResponseKey(Endpoint endpoint, int size, String strategyId) {
+			this.endpoint = endpoint;
+			this.size = size;
+			this.strategyId = strategyId;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			ResponseKey other = (ResponseKey) obj;
+			return endpoint == other.endpoint && size == other.size && Objects.equals(strategyId, other.strategyId);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(endpoint, size, strategyId);
+		}
+
+		@Override
+		public String toString() {
+			return "ResponseKey(endpoint=" + endpoint + ", size=" + size + ", strategyId=" + strategyId + ")";
+		}
+	}
 }
@@ -0,0 +1,106 @@
+package net.rubenmartinez.stpc.app.exchange.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTradesExchangeClient;
+import net.rubenmartinez.stpc.app.exchange.domain.BookSnapshot;
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.exchange.service.listener.TaggedTradeListener;
+import net.rubenmartinez.stpc.exchange.domain.Order;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Trades and OrderBook changes as {@link Flux} streams, for clients that want to be pushed the updates instead of polling.
+ * <p>
+ * Every subscriber has its own flow control: it receives as much as it requests, and what it can't receive is dropped
+ * for it alone (the oldest trades beyond <code>exchange.stream.trades-buffer</code>, and all the OrderBook snapshots but the latest),
+ * so a slow client never delays the exchange listeners nor the other clients.</p>
+ */
+@Service
+public class ExchangeStreamService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExchangeStreamService.class);
+
+	/**
+	 * Times both book sides are read again when the OrderBook changes while reading them, before sending them anyway
+	 */
+	private static final int MAX_BOOK_READ_ATTEMPTS = 3;
+
+	@Resource
+	private SimulatedTradesExchangeClient exchangeClient;
+
+	@Value("${exchange.stream.book-check-millis}")
+	private long bookCheckMillis;
+
+	@Value("${exchange.stream.trades-buffer}")
+	private int tradesBuffer;
+
+	/**
+	 * Sequences of the OrderBook as it changes, shared by all the subscribers (only checked while there are subscribers)
+	 */
+	private Flux<Long> bookSequences;
+
+	@PostConstruct
+	private void init() {
+		bookSequences = Flux.interval(Duration.ofMillis(bookCheckMillis))
+				.onBackpressureDrop()
+				.map(tick -> exchangeClient.getOrderBookSequence())
+				.distinctUntilChanged()
+				.share();
+	}
+
+	/**
+	 * New trades, both real and simulated, from the moment of subscribing
+	 */
+	public Flux<TaggedTrade> tradesStream() {
+		Flux<TaggedTrade> trades = Flux.create(sink -> {
+			TaggedTradeListener listener = sink::next;
+			exchangeClient.addFlaggedTradeListener(listener);
+			sink.onDispose(() -> exchangeClient.removeFlaggedTradeListener(listener));
+			LOGGER.debug("Trades stream subscribed");
+		});
+		return trades.onBackpressureBuffer(tradesBuffer, trade -> LOGGER.debug("Trade dropped for slow subscriber: {}", trade), BufferOverflowStrategy.DROP_OLDEST);
+	}
+
+	/**
+	 * Current best <code>size</code> asks and bids, and again every time the OrderBook changes
+	 * <p>
+	 * The book is read on the elastic scheduler, as reading it may block till the book is ready, which must not happen in the
+	 * shared (and bounded) scheduler checking the sequence for all the subscribers.</p>
+	 */
+	public Flux<BookSnapshot> bookStream(int size) {
+		return Flux.defer(() -> bookSequences.startWith(exchangeClient.getOrderBookSequence()))
+				.filter(sequence -> sequence >= 0) // Book not retrieved yet
+				.distinctUntilChanged()
+				.onBackpressureLatest()
+				.publishOn(Schedulers.elastic(), 1) // Prefetching only one so the latest sequence is still the one read when slow
+				.map(sequence -> readBookSnapshot(sequence, size));
+	}
+
+	/**
+	 * Reads both sides of the book, again if the sequence changed meanwhile, so the asks and bids sent together are from the same OrderBook
+	 */
+	private BookSnapshot readBookSnapshot(long sequence, int size) {
+		for (int attempt = 1; ; attempt++) {
+			List<Order> asks = exchangeClient.getAsks(size);
+			List<Order> bids = exchangeClient.getBids(size);
+			long sequenceAfterReading = exchangeClient.getOrderBookSequence();
+			if (sequenceAfterReading == sequence || attempt == MAX_BOOK_READ_ATTEMPTS) {
+				return new BookSnapshot(sequenceAfterReading, asks, bids);
+			}
+			LOGGER.trace("OrderBook changed from sequence {} to {} while reading it, reading it again", sequence, sequenceAfterReading);
+			sequence = sequenceAfterReading;
+		}
+	}
+}
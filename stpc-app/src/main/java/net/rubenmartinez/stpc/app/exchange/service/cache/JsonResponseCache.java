@@ -0,0 +1,190 @@
+package net.rubenmartinez.stpc.app.exchange.service.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps responses already serialized to JSON, each one valid only while the data it was computed from doesn't change.
+ * <p>
+ * Every response is stored together with the <em>version</em> of the data it was computed from (e.g. the OrderBook sequence),
+ * so when a response is requested with a different version it is computed again. Concurrent requests of the same response and version
+ * wait for a single computation instead of computing it each.</p>
+ * <p>
+ * When a response is computed for a new version, the responses cached for the previous version are evicted as well, as the data they
+ * were computed from has changed too (e.g. all the bids sizes requested for an old OrderBook sequence). The number of cached responses is
+ * also bounded: once {@code maxEntries} are stored, the least recently used response is evicted to make room for the new one.</p>
+ * <p>
+ * All the versions given to a cache must come from the same source (e.g. only OrderBook sequences, or only trade sort keys), as
+ * responses are evicted by version number alone: use a different cache for each source.</p>
+ *
+ * @param <K> key identifying a response (e.g. the endpoint and its parameters)
+ */
+public class JsonResponseCache<K> {
+	private static final Logger LOGGER = LoggerFactory.getLogger(JsonResponseCache.class);
+
+	private ObjectMapper objectMapper;
+	private int maxEntries;
+	private Map<K, CachedResponse> responses; // Guarded by itself, in access order
+	private Map<Long, Set<K>> keysByVersion; // Guarded by responses, so a version is evicted without going through all the responses
+
+	public JsonResponseCache(ObjectMapper objectMapper, int maxEntries) {
+		this.objectMapper = objectMapper;
+		this.maxEntries = maxEntries;
+		this.responses = new LinkedHashMap<K, CachedResponse>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, CachedResponse> eldest) {
+				if (size() > JsonResponseCache.this.maxEntries) {
+					unindex(eldest.getKey(), eldest.getValue().version);
+					return true;
+				}
+				return false;
+			}
+		};
+		this.keysByVersion = new HashMap<>();
+	}
+
+	/**
+	 * Returns the JSON response for the given key, computing it only if it was not already computed for the given version.
+	 * <p>
+	 * Note the version must be read <em>before</em> calling this method (and so before computing the response). If data changes while
+	 * computing, the response will be cached with the old version and so discarded by the next request. Versions are expected to increase:
+	 * a response requested for a version older than the cached one is computed but not cached.</p>
+	 *
+	 * @param key identifies the response
+	 * @param version version of the data the response is computed from
+	 * @param secondaryVersion another version, when the response is computed from two different sources
+	 * @param responseSupplier computes the response, which will be serialized to JSON
+	 * @return the response serialized to JSON, shared between all callers so it must not be modified
+	 */
+	public byte[] get(K key, long version, long secondaryVersion, Supplier<?> responseSupplier) {
+		CachedResponse newResponse = new CachedResponse(version, secondaryVersion);
+		CachedResponse current;
+		synchronized (responses) {
+			current = responses.get(key);
+			if (current != null && current.version > version) {
+				current = null;
+			} else if (current == null || !current.isVersion(version, secondaryVersion)) {
+				if (current != null && current.version != version) {
+					evictVersion(current.version);
+				}
+				put(key, newResponse);
+				current = newResponse;
+			}
+		}
+		if (current == null) {
+			LOGGER.debug("Response for {} requested for an old version {}, not caching it", key, version);
+			return toJson(responseSupplier.get());
+		}
+		if (current != newResponse) {
+			LOGGER.trace("Cache hit for {}, version {}/{}", key, version, secondaryVersion);
+			return join(current.json);
+		}
+
+		LOGGER.debug("Computing response for {}, version {}/{}", key, version, secondaryVersion);
+		try {
+			newResponse.json.complete(toJson(responseSupplier.get()));
+		} catch (RuntimeException e) {
+			synchronized (responses) {
+				if (responses.remove(key, newResponse)) {
+					unindex(key, version);
+				}
+			}
+			newResponse.json.completeExceptionally(e);
+		}
+		return join(newResponse.json);
+	}
+
+	/**
+	 * Number of responses currently cached
+	 */
+	public int size() {
+		synchronized (responses) {
+			return responses.size();
+		}
+	}
+
+	/**
+	 * Must be called holding the lock of {@link #responses}
+	 */
+	private void put(K key, CachedResponse response) {
+		CachedResponse previous = responses.put(key, response);
+		if (previous != null) {
+			unindex(key, previous.version);
+		}
+		keysByVersion.computeIfAbsent(response.version, version -> new HashSet<>()).add(key);
+	}
+
+	/**
+	 * Must be called holding the lock of {@link #responses}
+	 */
+	private void unindex(K key, long version) {
+		Set<K> keys = keysByVersion.get(version);
+		if (keys != null && keys.remove(key) && keys.isEmpty()) {
+			keysByVersion.remove(version);
+		}
+	}
+
+	/**
+	 * Must be called holding the lock of {@link #responses}
+	 */
+	private void evictVersion(long staleVersion) {
+		Set<K> staleKeys = keysByVersion.remove(staleVersion);
+		if (staleKeys != null) {
+			for (K staleKey : staleKeys) {
+				responses.remove(staleKey);
+			}
+		}
+	}
+
+	private byte[] toJson(Object response) {
+		try {
+			return objectMapper.writeValueAsBytes(response);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize response to JSON", e);
+		}
+	}
+
+	/**
+	 * Waits for the response, rethrowing the original exception if its computation failed
+	 */
+	private static byte[] join(CompletableFuture<byte[]> json) {
+		try {
+			return json.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private static class CachedResponse {
+		private final long version;
+		private final long secondaryVersion;
+		private final CompletableFuture<byte[]> json;
+
+		private CachedResponse(long version, long secondaryVersion) {
+			this.version = version;
+			this.secondaryVersion = secondaryVersion;
+			this.json = new CompletableFuture<>();
+		}
+
+		private boolean isVersion(long version, long secondaryVersion) {
+			return this.version == version && this.secondaryVersion == secondaryVersion;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package net.rubenmartinez.stpc.app.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the whole latency distribution of every stage data goes through, from the exchange till it is pushed to the browsers,
+ * and publishes the percentiles as an Actuator endpoint (<code>/actuator/latency</code>).
+ * <p>
+ * Latencies are recorded in HdrHistogram {@link Recorder}s, which are wait-free for the recording threads, and accumulated since startup
+ * each time the endpoint is read. Percentiles are returned in microseconds.</p>
+ */
+@Component
+@Endpoint(id = "latency")
+public class LatencyHistograms {
+
+	public static final String STAGE_TRADE_CREATED_TO_WEBSOCKET_SENT = "stpc.trades.created-to-websocket-sent";
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+
+	private ConcurrentMap<String, StageHistogram> stages = new ConcurrentHashMap<>();
+
+	public void record(String stage, long nanos) {
+		stages.computeIfAbsent(stage, s -> new StageHistogram()).recorder.recordValue(Math.max(0, nanos));
+	}
+
+	@ReadOperation
+	public Map<String, LatencySummary> latencies() {
+		Map<String, LatencySummary> latencies = new TreeMap<>();
+		stages.forEach((stage, histogram) -> latencies.put(stage, histogram.summary()));
+		return latencies;
+	}
+
+	private static class StageHistogram {
+		private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+		private final Histogram accumulated = new Histogram(SIGNIFICANT_DIGITS);
+		private Histogram interval;
+
+		private synchronized LatencySummary summary() {
+			interval = recorder.getIntervalHistogram(interval);
+			accumulated.add(interval);
+			return new LatencySummary(accumulated);
+		}
+	}
+
+	public static class LatencySummary {
+		private final long count;
+		private final double meanMicros;
+		private final double p50Micros;
+		private final double p90Micros;
+		private final double p99Micros;
+		private final double p999Micros;
+		private final double maxMicros;
+
+		private LatencySummary(Histogram histogram) {
+			this.count = histogram.getTotalCount();
+			this.meanMicros = toMicros(histogram.getMean());
+			this.p50Micros = toMicros(histogram.getValueAtPercentile(50));
+			this.p90Micros = toMicros(histogram.getValueAtPercentile(90));
+			this.p99Micros = toMicros(histogram.getValueAtPercentile(99));
+			this.p999Micros = toMicros(histogram.getValueAtPercentile(99.9));
+			this.maxMicros = toMicros(histogram.getMaxValue());
+		}
+
+		private static double toMicros(double nanos) {
+			return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public double getMeanMicros() {
+			return this.meanMicros;
+		}
+
+		public double getP50Micros() {
+			return this.p50Micros;
+		}
+
+		public double getP90Micros() {
+			return this.p90Micros;
+		}
+
+		public double getP99Micros() {
+			return this.p99Micros;
+		}
+
+		public double getP999Micros() {
+			return this.p999Micros;
+		}
+
+		public double getMaxMicros() {
+			return this.maxMicros;
+		}
+	}
+}
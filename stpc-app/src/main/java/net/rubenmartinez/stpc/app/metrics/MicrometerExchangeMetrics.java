@@ -0,0 +1,99 @@
+package net.rubenmartinez.stpc.app.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+
+/**
+ * Binds the metrics reported by the exchange library to Micrometer, so they are published by Actuator (<code>/actuator/metrics</code>).
+ * Latencies are recorded in {@link LatencyHistograms} instead, to keep their whole distribution.
+ * <p>
+ * Meters are registered the first time each name and tags are recorded, and then kept here so recording
+ * (many times per second in the hot path) doesn't go through the registry again.</p>
+ */
+public class MicrometerExchangeMetrics implements ExchangeMetrics {
+
+	private MeterRegistry registry;
+	private LatencyHistograms latencyHistograms;
+
+	// Micrometer only keeps weak references to the objects measured by gauges
+	private List<Supplier<? extends Number>> gaugeSuppliers;
+
+	private Map<MeterKey, Timer> timers;
+	private Map<MeterKey, Counter> counters;
+	private Map<MeterKey, DistributionSummary> summaries;
+
+	public MicrometerExchangeMetrics(MeterRegistry registry) {
+		this(registry, new LatencyHistograms());
+	}
+
+	public MicrometerExchangeMetrics(MeterRegistry registry, LatencyHistograms latencyHistograms) {
+		this.registry = registry;
+		this.latencyHistograms = latencyHistograms;
+		this.gaugeSuppliers = new CopyOnWriteArrayList<>();
+		this.timers = new ConcurrentHashMap<>();
+		this.counters = new ConcurrentHashMap<>();
+		this.summaries = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public void recordTime(String name, long nanos, String... tags) {
+		timers.computeIfAbsent(new MeterKey(name, tags), key -> registry.timer(name, tags)).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void increment(String name, String... tags) {
+		counters.computeIfAbsent(new MeterKey(name, tags), key -> registry.counter(name, tags)).increment();
+	}
+
+	@Override
+	public void recordValue(String name, long value, String... tags) {
+		summaries.computeIfAbsent(new MeterKey(name, tags), key -> DistributionSummary.builder(name).tags(tags).register(registry)).record(value);
+	}
+
+	@Override
+	public void registerGauge(String name, Supplier<? extends Number> valueSupplier, String... tags) {
+		gaugeSuppliers.add(valueSupplier);
+		Gauge.builder(name, valueSupplier, supplier -> supplier.get().doubleValue()).tags(tags).register(registry);
+	}
+
+	@Override
+	public void recordLatency(String stage, long nanos) {
+		latencyHistograms.record(stage, nanos);
+	}
+
+	private static final class MeterKey {
+		private final String name;
+		private final String[] tags;
+
+		private MeterKey(String name, String[] tags) {
+			this.name = name;
+			this.tags = tags;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof MeterKey)) {
+				return false;
+			}
+			MeterKey otherKey = (MeterKey) other;
+			return name.equals(otherKey.name) && Arrays.equals(tags, otherKey.tags);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * name.hashCode() + Arrays.hashCode(tags);
+		}
+	}
+}
@@ -12,6 +12,9 @@ import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTradesExchangeClient;
 import net.rubenmartinez.stpc.app.strategy.ReconfigurableReevaluatingStrategy;
 import net.rubenmartinez.stpc.app.strategy.StrategyType;
@@ -39,6 +42,7 @@ import net.rubenmartinez.stpc.exchange.listener.TradeListener;
 public class ContrarianStrategy implements ReconfigurableReevaluatingStrategy<ContrarianStrategyConfig>, TradeListener {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ContrarianStrategy.class);
 	private static final int REEVALUATING_TIMEOUT_SECONDS = 10;
+	private static final String PROCESSING_TIMER_NAME = "stpc.strategy.processing";
 	private SimulatedTradesExchangeClient simulatedTradesExchangeClient;
 	private String strategyId;
 	private boolean activated;
@@ -47,14 +51,23 @@ public class ContrarianStrategy implements ReconfigurableReevaluatingStrategy<Co
 	private ContrarianStrategyStats stats;
 	private volatile CountDownLatch strategyRevaluatingLatch;
 	private volatile ContrarianStrategyConfig config;
+	private Timer processingTimer;
 
 	public ContrarianStrategy(String id, ContrarianStrategyConfig config, SimulatedTradesExchangeClient exchangeClient) {
+		this(id, config, exchangeClient, Metrics.globalRegistry);
+	}
+
+	/**
+	 * @param meterRegistry where to record the time spent processing each trade, tagged with this strategy id
+	 */
+	public ContrarianStrategy(String id, ContrarianStrategyConfig config, SimulatedTradesExchangeClient exchangeClient, MeterRegistry meterRegistry) {
 		this.strategyId = id;
 		validateConfig(config);
 		this.config = config;
 		this.simulatedTradesExchangeClient = exchangeClient;
 		this.activated = false;
 		this.stats = new ContrarianStrategyStats();
+		this.processingTimer = meterRegistry.timer(PROCESSING_TIMER_NAME, "strategy", id);
 	}
 
 	@Override
@@ -129,9 +142,11 @@ public class ContrarianStrategy implements ReconfigurableReevaluatingStrategy<Co
 
 	private void processTrade(Trade trade) {
 		LOGGER.trace("processTrade: {}", trade);
+		long startNanos = System.nanoTime();
 		updateStats(trade);
 		executeStrategy(trade);
 		stats.incTradesProcessed();
+		processingTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
 	}
 
 	@Override
@@ -141,7 +156,7 @@ public class ContrarianStrategy implements ReconfigurableReevaluatingStrategy<Co
 			checkStrategyReadyForLiveTrades();
 			processTrade(trade);
 		} else {
-			LOGGER.info("{} disabled", strategyId);
+			LOGGER.debug("{} disabled", strategyId);
 		}
 	}
 
@@ -152,18 +167,20 @@ public class ContrarianStrategy implements ReconfigurableReevaluatingStrategy<Co
 			stats.incCurrentConsecutiveDownticks();
 			stats.setCurrentConsecutiveUpticks(0);
 			stats.setCurrentConsecutiveZeroticks(0);
-			LOGGER.info("Registered downtick");
+			LOGGER.trace("Registered downtick");
 		} else if (price.compareTo(lastTradePrice) > 0) {
 			stats.incCurrentConsecutiveUpticks();
 			stats.setCurrentConsecutiveZeroticks(0);
 			stats.setCurrentConsecutiveDownticks(0);
-			LOGGER.info("Registered uptick");
+			LOGGER.trace("Registered uptick");
 		} else {
 			stats.incCurrentConsecutiveZeroticks();
-			LOGGER.info("Registered zerotick");
+			LOGGER.trace("Registered zerotick");
 		}
 		
-		LOGGER.info("consecutive upticks: [{}]; consecutive downticks: [{}]; consecutive zeroticks: [{}]; previous price: [{}], this trade price: [{}]", stats.getCurrentConsecutiveUpticks(), stats.getCurrentConsecutiveDownticks(), stats.getCurrentConsecutiveZeroticks(), lastTradePrice, price);
+		if (LOGGER.isTraceEnabled()) { // Guarded, as the varargs array and the boxing would be allocated for every trade otherwise
+			LOGGER.trace("consecutive upticks: [{}]; consecutive downticks: [{}]; consecutive zeroticks: [{}]; previous price: [{}], this trade price: [{}]", stats.getCurrentConsecutiveUpticks(), stats.getCurrentConsecutiveDownticks(), stats.getCurrentConsecutiveZeroticks(), lastTradePrice, price);
+		}
 		lastTradePrice = price;
 	}
 
@@ -178,7 +195,7 @@ public class ContrarianStrategy implements ReconfigurableReevaluatingStrategy<Co
 		if (stats.getCurrentConsecutiveUpticks() >= configLocal.getConsecutiveUpticksToSell()) {
 
 			String newOrderId = lastTrade.getTradeId() + "-contrarian-simulated-sell";
-			simulatedTradesExchangeClient.simulateSell(strategyId, newOrderId, lastTradePrice, configLocal.getTradeAmountInBaseCurrency(), lastTrade.getCreationDate());
+			simulatedTradesExchangeClient.simulateSell(strategyId, newOrderId, lastTradePrice, configLocal.getTradeAmountInBaseCurrency(), lastTrade);
 			LOGGER.info("Placed SELL order [{}] after {} consecutive upticks. price: [{}]", newOrderId, stats.getCurrentConsecutiveUpticks(), lastTradePrice);
 			
 			if (configLocal.isResetTicksAfterTrade()) {
@@ -191,7 +208,7 @@ public class ContrarianStrategy implements ReconfigurableReevaluatingStrategy<Co
 		} else if (stats.getCurrentConsecutiveDownticks() >= configLocal.getConsecutiveDownticksToBuy()) {
 			
 			String newOrderId = lastTrade.getTradeId() + "-contrarian-simulated-buy";
-			simulatedTradesExchangeClient.simulateBuy(strategyId, newOrderId, lastTradePrice, configLocal.getTradeAmountInBaseCurrency(), lastTrade.getCreationDate());
+			simulatedTradesExchangeClient.simulateBuy(strategyId, newOrderId, lastTradePrice, configLocal.getTradeAmountInBaseCurrency(), lastTrade);
 			LOGGER.info("Placed BUY order [{}] after {} consecutive downticks. price: [{}]", newOrderId, stats.getCurrentConsecutiveDownticks(), lastTradePrice);
 			
 			if (configLocal.isResetTicksAfterTrade()) {
@@ -1,6 +1,7 @@
 package net.rubenmartinez.stpc.app.strategy.service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -16,9 +17,11 @@ import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import net.rubenmartinez.stpc.app.Main;
+import net.rubenmartinez.stpc.app.controller.websocket.TradeBinaryEncoder;
 import net.rubenmartinez.stpc.app.strategy.ReconfigurableReevaluatingStrategy;
 import net.rubenmartinez.stpc.app.strategy.Strategy;
 import net.rubenmartinez.stpc.app.strategy.service.exception.ConfigurationParseException;
+import net.rubenmartinez.stpc.app.strategy.service.exception.StrategyException;
 import net.rubenmartinez.stpc.app.strategy.service.exception.StrategyNotFoundException;
 import net.rubenmartinez.stpc.app.strategy.service.exception.StrategyNotReconfigurableException;
 
@@ -34,8 +37,15 @@ public class StrategyService {
 	
 	private Map<String, Strategy> configuredStrategiesById;
 	
+	/**
+	 * Strategy ids are sent with each simulated trade, also in the binary websocket frames, where they can't be longer
+	 * (see {@link TradeBinaryEncoder})
+	 */
+	public static final int MAX_STRATEGY_ID_BYTES = TradeBinaryEncoder.MAX_STRING_BYTES;
+
 	@PostConstruct
 	public void init() {
+		configuredStrategies.forEach(StrategyService::checkStrategyId);
 		configuredStrategiesById = configuredStrategies.stream().collect(Collectors.toMap(Strategy::getStrategyId, Function.identity()));
 		
 		LOGGER.debug("initiated");
@@ -64,6 +74,13 @@ public class StrategyService {
 		}
 	}
 	
+	private static void checkStrategyId(Strategy strategy) {
+		String id = strategy.getStrategyId();
+		if (id == null || id.isEmpty() || id.getBytes(StandardCharsets.UTF_8).length > MAX_STRATEGY_ID_BYTES) {
+			throw new StrategyException("Strategy id must be non empty and up to " + MAX_STRATEGY_ID_BYTES + " bytes long (UTF-8): " + id);
+		}
+	}
+
 	private <T> ReconfigurableReevaluatingStrategy<T> getReconfigurableStrategyById(String id) {
 		
 		Strategy strategy = findById(id);
@@ -10,6 +10,9 @@ const STRATEGY_TEST_ID	= "contrarian1";
 
 const WEBSOCKET_TRADES_ENDPOINT = 'ws://' + window.location.host + '/trades';
 const WEBSOCKET_RECONNECT_INTERVAL_MILLIS = 2000;
+// Trades are received in the compact binary format (decoded by decodeBinaryTrades) instead of JSON
+const WEBSOCKET_TRADES_BINARY = true;
+const WEBSOCKET_TRADES_BINARY_SUBPROTOCOL = "stpc.trades.bin.v1";
 
 const TRADES_REFRESH_INTERVAL_MILLIS = 1000;
 const BOOK_REFRESH_INTERVAL_MILLIS = 500;
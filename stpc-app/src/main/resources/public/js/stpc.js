@@ -1,6 +1,9 @@
 function ajaxBase(ajaxParams, callback) {
 	request = $.ajax(ajaxParams)
-	.done(function(data) {
+	.done(function(data, textStatus) {
+		if (textStatus === "notmodified") {
+			return; // Nothing changed since the last request to this URL (the server answered 304), so data is undefined
+		}
 		if (callback) {
 			callback(data);
 		}
@@ -16,6 +19,12 @@ function ajax(url, callback, async) {
 	return ajaxBase(params, callback);	
 }
 
+// Sends If-None-Match with the ETag of the last response from the same URL, so the server doesn't send it again if nothing changed
+function ajaxIfModified(url, callback, async) {
+	params = { url: url, async: async, ifModified: true };
+	return ajaxBase(params, callback);	
+}
+
 function ajaxJson(url, method, data, callback, async) {
 	params = { url: url, data: JSON.stringify(data), async: async, method: method, contentType: 'application/json' };
 	return ajaxBase(params, callback);	
@@ -80,6 +89,46 @@ function convertTradeObjectToChartPoint(trade) {
 	return event;
 }
 
+// Decodes a binary frame of trades, as encoded by TradeBinaryEncoder, into objects like the JSON ones
+function decodeBinaryTrades(arrayBuffer) {
+	var view = new DataView(arrayBuffer);
+	var utf8 = new TextDecoder("utf-8");
+	var version = view.getUint8(0);
+	var recordType = view.getUint8(1);
+	if (version !== 1 || recordType !== 1) {
+		throw new Error("Unexpected binary trades frame. Version: " + version + "; record type: " + recordType);
+	}
+	var count = view.getUint16(2, true);
+	var offset = 4;
+	var readString = function() {
+		var length = view.getUint8(offset);
+		var value = utf8.decode(new Uint8Array(arrayBuffer, offset + 1, length));
+		offset += 1 + length;
+		return value;
+	};
+	var readNumber = function(numberOffset) {
+		var value = view.getFloat64(numberOffset, true);
+		return isNaN(value) ? null : value;
+	};
+
+	var trades = [];
+	for (var i = 0; i < count; i++) {
+		var trade = {};
+		var creationMillis = view.getFloat64(offset, true);
+		trade.creationDate = isNaN(creationMillis) ? null : new Date(creationMillis); // NaN if unknown, as null in the JSON trades
+		trade.price = readNumber(offset + 8);
+		trade.amount = readNumber(offset + 16);
+		var side = view.getUint8(offset + 24);
+		trade.makerSide = side === 0 ? "BUY" : side === 1 ? "SELL" : null;
+		offset += 25;
+		trade.tradeId = readString();
+		var simulatedBy = readString();
+		trade.tradeTags = simulatedBy ? { SIMULATED_BY: simulatedBy } : {};
+		trades.push(trade);
+	}
+	return trades;
+}
+
 function updateChart(chartObject, newElements) {
 	var chartData = chartObject.dataProvider;
 	if (Array.isArray(newElements)) {
@@ -130,17 +179,17 @@ $(document).ready(function() {
 	
 	var refreshTradesFn = function() {
 		var url = EXCHANGE_LAST_TRADES_ENDPOINT + "?size=" + getLastTradesConfiguredSizeFromDOM() + "&strategyId=" + STRATEGY_TEST_ID;
-		ajax(url, function(data) { refreshDatatable(tradesDataTable, convertTradesDataToTable(data)); }, true); // async=true as trades can take a long time if requested a very large number
+		ajaxIfModified(url, function(data) { refreshDatatable(tradesDataTable, convertTradesDataToTable(data)); }, true); // async=true as trades can take a long time if requested a very large number
 	}
 
 	var refreshBestAsksFn = function() {
 		var url = EXCHANGE_BEST_ASKS_ENDPOINT + "?size=" + getBestAsksConfiguredSizeFromDOM();
-		ajax(url, function(data) { refreshDatatable(bestAsksDataTable, convertOrdersDataToTable(data)); });
+		ajaxIfModified(url, function(data) { refreshDatatable(bestAsksDataTable, convertOrdersDataToTable(data)); });
 	}
 
 	var refreshBestBidsFn = function() {
 		var url = EXCHANGE_BEST_BIDS_ENDPOINT + "?size=" + getBestBidsConfiguredSizeFromDOM();
-		ajax(url, function(data) { refreshDatatable(bestBidsDataTable, convertOrdersDataToTable(data)); });
+		ajaxIfModified(url, function(data) { refreshDatatable(bestBidsDataTable, convertOrdersDataToTable(data)); });
 	}
 	
 	// In case some other client is using the same strategyId than us. TODO: Every client creates each own strategy with an UUID
@@ -161,10 +210,18 @@ $(document).ready(function() {
 	}
 	
 	var startTradesWebSocket = function () { // Function so it can be retried with setTimeout
-		var tradesWebSocket = new WebSocket(WEBSOCKET_TRADES_ENDPOINT);
+		var tradesWebSocket = WEBSOCKET_TRADES_BINARY ? new WebSocket(WEBSOCKET_TRADES_ENDPOINT, [WEBSOCKET_TRADES_BINARY_SUBPROTOCOL]) : new WebSocket(WEBSOCKET_TRADES_ENDPOINT);
+		tradesWebSocket.binaryType = "arraybuffer";
 		regenerateChart(tradesChart);
 		
-		tradesWebSocket.onmessage = function(message) { updateChart(tradesChart, convertTradeObjectToChartPoint(JSON.parse(message.data))) };
+		tradesWebSocket.onmessage = function(message) {
+			if (typeof message.data === "string") {
+				updateChart(tradesChart, JSON.parse(message.data).map(convertTradeObjectToChartPoint)); // Trades are sent in arrays
+			}
+			else {
+				updateChart(tradesChart, decodeBinaryTrades(message.data).map(convertTradeObjectToChartPoint));
+			}
+		};
 		tradesWebSocket.onerror = function(error) { console.error("Websocket error: " + error) };
 		tradesWebSocket.onclose = function() { setTimeout(function() { startTradesWebSocket(); }, WEBSOCKET_RECONNECT_INTERVAL_MILLIS) };
 		
@@ -0,0 +1,55 @@
+package net.rubenmartinez.stpc.app.controller;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import net.rubenmartinez.stpc.app.exchange.service.ExchangeService;
+
+public class ExchangeRestControllerTest {
+	private static final String BOOK_ETAG = "1234";
+
+	private ExchangeService exchangeService;
+	private MockMvc mockMvc;
+
+	@Before
+	public void before() {
+		exchangeService = mock(ExchangeService.class);
+		when(exchangeService.getOrderBookETag()).thenReturn(BOOK_ETAG);
+		when(exchangeService.getAsksJson(anyInt())).thenReturn("[]".getBytes(StandardCharsets.UTF_8));
+
+		ExchangeRestController controller = new ExchangeRestController();
+		ReflectionTestUtils.setField(controller, "exchangeService", exchangeService);
+		mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@Test
+	public void responseWithETag() throws Exception {
+		mockMvc.perform(get("/api/v1/exchange/bestAsks").param("size", "10"))
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", "\"" + BOOK_ETAG + "\""))
+			.andExpect(content().json("[]"));
+	}
+
+	@Test
+	public void notModifiedWithoutComputingResponse() throws Exception {
+		mockMvc.perform(get("/api/v1/exchange/bestAsks").param("size", "10").header("If-None-Match", "\"" + BOOK_ETAG + "\""))
+			.andExpect(status().isNotModified());
+
+		verify(exchangeService, never()).getAsksJson(anyInt());
+	}
+}
@@ -0,0 +1,71 @@
+package net.rubenmartinez.stpc.app.controller.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTrade;
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+import net.rubenmartinez.stpc.exchange.domain.Trade;
+
+public class TradeBinaryEncoderTest {
+
+	private static String readString(ByteBuffer frame) {
+		byte[] bytes = new byte[frame.get() & 0xFF];
+		frame.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void realAndSimulatedTradesInOneFrame() {
+		ZonedDateTime creationDate = ZonedDateTime.parse("2018-12-01T10:15:30Z");
+		TaggedTrade realTrade = new TaggedTrade("1234", OrderSide.SELL, new BigDecimal("65000.5"), new BigDecimal("0.125"), creationDate);
+		TaggedTrade simulatedTrade = new SimulatedTrade("contrarian1", "s-1", OrderSide.BUY, new BigDecimal("64999"), BigDecimal.ONE, creationDate, 2469);
+
+		ByteBuffer frame = TradeBinaryEncoder.encode(Arrays.asList(realTrade, simulatedTrade)).order(ByteOrder.LITTLE_ENDIAN);
+
+		assertEquals(TradeBinaryEncoder.VERSION, frame.get());
+		assertEquals(TradeBinaryEncoder.RECORD_TYPE_TRADE, frame.get());
+		assertEquals(2, frame.getShort());
+
+		assertEquals(creationDate.toInstant().toEpochMilli(), frame.getDouble(), 0);
+		assertEquals(65000.5, frame.getDouble(), 0);
+		assertEquals(0.125, frame.getDouble(), 0);
+		assertEquals(1, frame.get());
+		assertEquals("1234", readString(frame));
+		assertEquals("", readString(frame));
+
+		frame.position(frame.position() + 3 * Double.BYTES);
+		assertEquals(0, frame.get());
+		assertEquals("s-1", readString(frame));
+		assertEquals("contrarian1", readString(frame));
+		assertEquals(0, frame.remaining());
+	}
+
+	@Test
+	public void unknownCreationDatePriceAndAmountSentAsNaN() {
+		Trade trade = mock(Trade.class);
+		when(trade.getTradeId()).thenReturn("1234");
+
+		ByteBuffer frame = TradeBinaryEncoder.encode(Collections.singletonList(new TaggedTrade(trade))).order(ByteOrder.LITTLE_ENDIAN);
+
+		frame.position(4);
+		assertTrue(Double.isNaN(frame.getDouble()));
+		assertTrue(Double.isNaN(frame.getDouble()));
+		assertTrue(Double.isNaN(frame.getDouble()));
+		assertEquals(TradeBinaryEncoder.SIDE_UNKNOWN, frame.get());
+		assertEquals("1234", readString(frame));
+	}
+}
@@ -0,0 +1,102 @@
+package net.rubenmartinez.stpc.app.controller.websocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.metrics.LatencyHistograms;
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+
+public class TradesWebSocketHandlerTest {
+	private static final long MAX_FLUSH_DELAY_MILLIS = 50;
+
+	private ObjectMapper objectMapper;
+	private TradesWebSocketHandler handler;
+	private WebSocketSession jsonSession;
+	private WebSocketSession binarySession;
+
+	@Before
+	public void before() throws Exception {
+		objectMapper = new ObjectMapper();
+		handler = new TradesWebSocketHandler();
+		ReflectionTestUtils.setField(handler, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(handler, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(handler, "latencyHistograms", new LatencyHistograms());
+		ReflectionTestUtils.setField(handler, "maxFlushDelayMillis", MAX_FLUSH_DELAY_MILLIS);
+		ReflectionTestUtils.invokeMethod(handler, "init");
+
+		jsonSession = mock(WebSocketSession.class);
+		binarySession = mock(WebSocketSession.class);
+		when(binarySession.getAcceptedProtocol()).thenReturn(TradeBinaryEncoder.SUBPROTOCOL);
+		handler.afterConnectionEstablished(jsonSession);
+		handler.afterConnectionEstablished(binarySession);
+	}
+
+	@After
+	public void after() throws Exception {
+		handler.afterConnectionClosed(jsonSession, CloseStatus.NORMAL);
+		handler.afterConnectionClosed(binarySession, CloseStatus.NORMAL);
+		ReflectionTestUtils.invokeMethod(handler, "destroy");
+	}
+
+	private static TaggedTrade trade(String tradeId) {
+		return new TaggedTrade(tradeId, OrderSide.BUY, BigDecimal.ONE, BigDecimal.ONE);
+	}
+
+	@Test
+	public void tradesNotifiedTogetherSentInOneFrame() throws Exception {
+		handler.onNewTrade(trade("1"));
+		handler.onNewTrade(trade("2"));
+		handler.onNewTrade(trade("3"));
+
+		ArgumentCaptor<TextMessage> textMessage = ArgumentCaptor.forClass(TextMessage.class);
+		verify(jsonSession, timeout(5000)).sendMessage(textMessage.capture());
+		JsonNode trades = objectMapper.readTree(textMessage.getValue().getPayload());
+		assertEquals(3, trades.size());
+		assertEquals("3", trades.get(2).get("tradeId").asText());
+
+		ArgumentCaptor<BinaryMessage> binaryMessage = ArgumentCaptor.forClass(BinaryMessage.class);
+		verify(binarySession, timeout(5000)).sendMessage(binaryMessage.capture());
+		ByteBuffer frame = binaryMessage.getValue().getPayload().order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(3, frame.getShort(2));
+
+		Thread.sleep(2 * MAX_FLUSH_DELAY_MILLIS);
+		verify(jsonSession).sendMessage(any()); // Still only once
+	}
+
+	@Test
+	public void tradesNotEncodableInBinarySentToJsonSessions() throws Exception {
+		handler.onNewTrade(trade(String.join("", Collections.nCopies(TradeBinaryEncoder.MAX_STRING_BYTES + 1, "1"))));
+
+		ArgumentCaptor<TextMessage> textMessage = ArgumentCaptor.forClass(TextMessage.class);
+		verify(jsonSession, timeout(5000)).sendMessage(textMessage.capture());
+		assertEquals(1, objectMapper.readTree(textMessage.getValue().getPayload()).size());
+
+		Thread.sleep(2 * MAX_FLUSH_DELAY_MILLIS);
+		verify(binarySession, never()).sendMessage(any());
+	}
+}
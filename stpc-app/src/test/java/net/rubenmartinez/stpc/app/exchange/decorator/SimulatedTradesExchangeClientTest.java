@@ -0,0 +1,78 @@
+package net.rubenmartinez.stpc.app.exchange.decorator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade.TradeTag;
+import net.rubenmartinez.stpc.exchange.ExchangeClient;
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+import net.rubenmartinez.stpc.exchange.domain.Trade;
+
+public class SimulatedTradesExchangeClientTest {
+	private static final String STRATEGY_ID = "strategy1";
+
+	private SimulatedTradesExchangeClient simulatedTradesExchangeClient;
+
+	private static Trade realTrade(String tradeId) {
+		return new TaggedTrade(tradeId, OrderSide.SELL, new BigDecimal("74000"), BigDecimal.ONE);
+	}
+
+	private static List<String> tradeIds(List<TaggedTrade> trades) {
+		return trades.stream().map(TaggedTrade::getTradeId).collect(Collectors.toList());
+	}
+
+	@Before
+	public void before() {
+		ExchangeClient exchangeClient = mock(ExchangeClient.class);
+		// Newest first, as returned by the exchange
+		when(exchangeClient.getLastTrades(anyInt())).thenReturn(Arrays.asList(realTrade("100"), realTrade("98"), realTrade("97"), realTrade("9")));
+		simulatedTradesExchangeClient = new SimulatedTradesExchangeClient(exchangeClient);
+	}
+
+	@Test
+	public void simulatedTradesOrderedRightAfterTheirTriggeringTrade() {
+		simulatedTradesExchangeClient.simulateSell(STRATEGY_ID, "98-sell", new BigDecimal("74000"), BigDecimal.ONE, realTrade("98"));
+		simulatedTradesExchangeClient.simulateBuy(STRATEGY_ID, "9-buy", new BigDecimal("74000"), BigDecimal.ONE, realTrade("9"));
+		simulatedTradesExchangeClient.simulateBuy("otherStrategy", "100-buy", new BigDecimal("74000"), BigDecimal.ONE, realTrade("100"));
+
+		List<TaggedTrade> lastTrades = simulatedTradesExchangeClient.getLastTradesOrderedIncludingSimulated(10, STRATEGY_ID);
+
+		assertEquals(Arrays.asList("100", "98-sell", "98", "97", "9-buy", "9"), tradeIds(lastTrades));
+	}
+
+	@Test
+	public void mergeStopsAfterRequestedTrades() {
+		simulatedTradesExchangeClient.simulateSell(STRATEGY_ID, "98-sell", new BigDecimal("74000"), BigDecimal.ONE, realTrade("98"));
+
+		List<TaggedTrade> lastTrades = simulatedTradesExchangeClient.getLastTradesOrderedIncludingSimulated(3, STRATEGY_ID);
+
+		assertEquals(Arrays.asList("100", "98-sell", "98"), tradeIds(lastTrades));
+	}
+
+	@Test
+	public void simulatedTradesShareTheirTags() {
+		simulatedTradesExchangeClient.simulateSell(STRATEGY_ID, "98-sell", new BigDecimal("74000"), BigDecimal.ONE, realTrade("98"));
+		simulatedTradesExchangeClient.simulateBuy(STRATEGY_ID, "9-buy", new BigDecimal("74000"), BigDecimal.ONE, realTrade("9"));
+
+		List<TaggedTrade> lastTrades = simulatedTradesExchangeClient.getLastTradesOrderedIncludingSimulated(10, STRATEGY_ID);
+
+		TaggedTrade sell = lastTrades.get(1);
+		TaggedTrade buy = lastTrades.get(4);
+		assertEquals(STRATEGY_ID, sell.getTradeTags().get(TradeTag.SIMULATED_BY));
+		assertSame(sell.getTradeTags(), buy.getTradeTags());
+		assertTrue(lastTrades.get(0).getTradeTags().isEmpty());
+	}
+}
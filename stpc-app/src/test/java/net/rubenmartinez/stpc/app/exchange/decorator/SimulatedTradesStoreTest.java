@@ -0,0 +1,118 @@
+package net.rubenmartinez.stpc.app.exchange.decorator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+
+public class SimulatedTradesStoreTest {
+	private static final int MAX_TRADES_PER_STRATEGY = 3;
+
+	private SimulatedTradesStore store;
+
+	@Before
+	public void before() {
+		store = new SimulatedTradesStore(MAX_TRADES_PER_STRATEGY);
+	}
+
+	private static SimulatedTrade simulatedTrade(String strategyId, String tradeId) {
+		return new SimulatedTrade(strategyId, tradeId, OrderSide.BUY, new BigDecimal("74000"), BigDecimal.ONE, ZonedDateTime.now(), Long.parseLong(tradeId));
+	}
+
+	@Test
+	public void newestFirstAndPerStrategy() {
+		store.add(simulatedTrade("s1", "10"));
+		store.add(simulatedTrade("s2", "11"));
+		store.add(simulatedTrade("s1", "12"));
+
+		List<SimulatedTrade> s1Trades = store.getNewest("s1", 10);
+		assertEquals(2, s1Trades.size());
+		assertEquals("12", s1Trades.get(0).getTradeId());
+		assertEquals("10", s1Trades.get(1).getTradeId());
+
+		assertEquals(1, store.getNewest("s1", 1).size());
+		assertEquals(1, store.getNewest("s2", 10).size());
+		assertTrue(store.getNewest("unknown", 10).isEmpty());
+	}
+
+	@Test
+	public void oldestEvictedWhenCapacityExceeded() {
+		store.add(simulatedTrade("s1", "10"));
+		store.add(simulatedTrade("s1", "11"));
+		store.add(simulatedTrade("s1", "12"));
+		store.add(simulatedTrade("s1", "13"));
+		store.add(simulatedTrade("s1", "13"));
+
+		List<SimulatedTrade> s1Trades = store.getNewest("s1", 10);
+		assertEquals(MAX_TRADES_PER_STRATEGY, s1Trades.size());
+		assertEquals(MAX_TRADES_PER_STRATEGY, store.size("s1"));
+		assertEquals("13", s1Trades.get(0).getTradeId());
+		assertEquals("11", s1Trades.get(2).getTradeId());
+	}
+
+	@Test
+	public void clearOnlyAffectsOneStrategy() {
+		store.add(simulatedTrade("s1", "10"));
+		store.add(simulatedTrade("s2", "11"));
+
+		store.clear("s1");
+
+		assertTrue(store.getNewest("s1", 10).isEmpty());
+		assertEquals(0, store.size("s1"));
+		assertEquals(1, store.getNewest("s2", 10).size());
+
+		store.add(simulatedTrade("s1", "12"));
+		assertEquals(1, store.getNewest("s1", 10).size());
+	}
+
+	@Test
+	public void iterationStartedBeforeClearNotAffected() {
+		store.add(simulatedTrade("s1", "10"));
+		store.add(simulatedTrade("s1", "11"));
+		Iterator<SimulatedTrade> iterator = store.iterateNewestFirst("s1");
+
+		store.clear("s1");
+
+		assertEquals("11", iterator.next().getTradeId());
+		assertEquals("10", iterator.next().getTradeId());
+		assertFalse(store.iterateNewestFirst("s1").hasNext());
+	}
+
+	@Test
+	public void sizeMatchesTradesWhenClearedWhileAdding() throws InterruptedException {
+		SimulatedTradesStore bigStore = new SimulatedTradesStore(100_000);
+		AtomicLong tradeIds = new AtomicLong();
+		List<Thread> adders = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			Thread adder = new Thread(() -> {
+				for (int j = 0; j < 10_000; j++) {
+					bigStore.add(simulatedTrade("s1", String.valueOf(tradeIds.incrementAndGet())));
+				}
+			});
+			adders.add(adder);
+			adder.start();
+		}
+		while (adders.stream().anyMatch(Thread::isAlive)) {
+			bigStore.clear("s1");
+		}
+		for (Thread adder : adders) {
+			adder.join();
+		}
+
+		assertEquals(bigStore.getNewest("s1", Integer.MAX_VALUE).size(), bigStore.size("s1"));
+		bigStore.clear("s1");
+		assertEquals(0, bigStore.size("s1"));
+		assertEquals(0, bigStore.getVersion("s1"));
+	}
+}
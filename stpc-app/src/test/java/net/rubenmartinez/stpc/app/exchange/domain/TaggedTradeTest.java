@@ -0,0 +1,73 @@
+package net.rubenmartinez.stpc.app.exchange.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTrade;
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+import net.rubenmartinez.stpc.exchange.domain.Trade;
+
+public class TaggedTradeTest {
+
+	private static TaggedTrade trade(String tradeId) {
+		return new TaggedTrade(tradeId, OrderSide.SELL, new BigDecimal("74000"), BigDecimal.ONE);
+	}
+
+	@Test
+	public void orderedByTradeId() {
+		assertTrue(trade("11").getSortKey() > trade("10").getSortKey());
+		assertTrue(TaggedTrade.sortKeyFollowing(trade("10")) < trade("11").getSortKey());
+	}
+
+	@Test
+	public void nonNumericTradeIdOrderedByCreation() {
+		TaggedTrade first = trade("b");
+		TaggedTrade second = trade("a");
+		TaggedTrade tooBig = trade("99999999999999999999");
+
+		assertTrue(second.getSortKey() > first.getSortKey());
+		assertTrue(TaggedTrade.sortKeyFollowing(first) < second.getSortKey());
+		assertTrue(tooBig.getSortKey() > second.getSortKey());
+		assertEquals(first.getSortKey(), first.getSortKey()); // Not a new key each time
+	}
+
+	@Test
+	public void nonNumericTradeIdOrderedByArrivalAmongNumeric() {
+		TaggedTrade real = trade("900000000000010");
+		TaggedTrade first = trade("a");
+		TaggedTrade second = trade("b");
+		TaggedTrade nextReal = trade("900000000000011");
+
+		assertTrue(first.getSortKey() > TaggedTrade.sortKeyFollowing(real));
+		assertTrue(TaggedTrade.sortKeyFollowing(second) < nextReal.getSortKey());
+		assertTrue(trade("c").getSortKey() > TaggedTrade.sortKeyFollowing(nextReal));
+	}
+
+	@Test
+	public void simulatedTradeTakesNoArrivalKey() {
+		TaggedTrade trade = trade("a");
+		new SimulatedTrade("strategy", "simulated", OrderSide.BUY, BigDecimal.ONE, BigDecimal.ONE, ZonedDateTime.now(), Long.MAX_VALUE);
+
+		assertEquals(trade.getSortKey() + 2, trade("b").getSortKey());
+	}
+
+	@Test
+	public void nonNumericUntaggedTradeRejected() {
+		Trade trade = mock(Trade.class);
+		when(trade.getTradeId()).thenReturn("a1b2");
+		try {
+			TaggedTrade.sortKeyOf(trade);
+			fail("Exception expected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().endsWith(": a1b2"));
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package net.rubenmartinez.stpc.app.exchange.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.rubenmartinez.stpc.app.exchange.decorator.SimulatedTradesExchangeClient;
+import net.rubenmartinez.stpc.app.exchange.domain.BookSnapshot;
+import net.rubenmartinez.stpc.app.exchange.domain.TaggedTrade;
+import net.rubenmartinez.stpc.app.exchange.service.listener.TaggedTradeListener;
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+import reactor.core.publisher.BaseSubscriber;
+
+public class ExchangeStreamServiceTest {
+	private static final int TRADES_BUFFER = 2;
+
+	private SimulatedTradesExchangeClient exchangeClient;
+	private ExchangeStreamService streamService;
+
+	@Before
+	public void before() {
+		exchangeClient = mock(SimulatedTradesExchangeClient.class);
+		when(exchangeClient.getAsks(anyInt())).thenReturn(Collections.emptyList());
+		when(exchangeClient.getBids(anyInt())).thenReturn(Collections.emptyList());
+
+		streamService = new ExchangeStreamService();
+		ReflectionTestUtils.setField(streamService, "exchangeClient", exchangeClient);
+		ReflectionTestUtils.setField(streamService, "bookCheckMillis", 10L);
+		ReflectionTestUtils.setField(streamService, "tradesBuffer", TRADES_BUFFER);
+		ReflectionTestUtils.invokeMethod(streamService, "init");
+	}
+
+	private static TaggedTrade trade(String tradeId) {
+		return new TaggedTrade(tradeId, OrderSide.BUY, BigDecimal.ONE, BigDecimal.ONE);
+	}
+
+	private TaggedTradeListener captureTradeListener() {
+		ArgumentCaptor<TaggedTradeListener> listener = ArgumentCaptor.forClass(TaggedTradeListener.class);
+		verify(exchangeClient).addFlaggedTradeListener(listener.capture());
+		return listener.getValue();
+	}
+
+	@Test
+	public void tradesSentOnDemandDroppingOldestForSlowSubscriber() {
+		RecordingSubscriber<TaggedTrade> subscriber = new RecordingSubscriber<>(1);
+		streamService.tradesStream().subscribe(subscriber);
+		TaggedTradeListener listener = captureTradeListener();
+
+		listener.onNewTrade(trade("1"));
+		listener.onNewTrade(trade("2"));
+		listener.onNewTrade(trade("3"));
+		listener.onNewTrade(trade("4"));
+		assertEquals(1, subscriber.received.size());
+
+		subscriber.request(10);
+		assertEquals(Arrays.asList("1", "3", "4"), tradeIds(subscriber.received)); // "2" dropped, as only TRADES_BUFFER trades are kept
+
+		subscriber.dispose();
+		verify(exchangeClient).removeFlaggedTradeListener(listener);
+	}
+
+	@Test
+	public void bookSnapshotSentWhenSequenceChanges() throws Exception {
+		when(exchangeClient.getOrderBookSequence()).thenReturn(5L);
+		RecordingSubscriber<BookSnapshot> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+		streamService.bookStream(10).subscribe(subscriber);
+
+		waitForReceived(subscriber, 1);
+		when(exchangeClient.getOrderBookSequence()).thenReturn(6L);
+		waitForReceived(subscriber, 2);
+		subscriber.dispose();
+
+		assertEquals(5L, subscriber.received.get(0).getSequence());
+		assertEquals(6L, subscriber.received.get(1).getSequence());
+	}
+
+	@Test
+	public void bookReadAgainWhenChangedWhileReading() throws Exception {
+		AtomicLong sequence = new AtomicLong(5);
+		when(exchangeClient.getOrderBookSequence()).thenAnswer(invocation -> sequence.get());
+		when(exchangeClient.getAsks(anyInt())).thenAnswer(invocation -> {
+			sequence.compareAndSet(5, 6); // A diff-order applied to the bids while reading the asks
+			return Collections.emptyList();
+		});
+		RecordingSubscriber<BookSnapshot> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+		streamService.bookStream(10).subscribe(subscriber);
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (subscriber.received.isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		subscriber.dispose();
+
+		assertEquals(6L, subscriber.received.get(0).getSequence());
+		verify(exchangeClient, atLeast(2)).getAsks(10);
+	}
+
+	private static void waitForReceived(RecordingSubscriber<?> subscriber, int n) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (subscriber.received.size() < n && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(n, subscriber.received.size());
+	}
+
+	private static List<String> tradeIds(List<TaggedTrade> trades) {
+		return trades.stream().map(TaggedTrade::getTradeId).collect(Collectors.toList());
+	}
+
+	private static class RecordingSubscriber<T> extends BaseSubscriber<T> {
+		private final long initialRequest;
+		private final List<T> received = new CopyOnWriteArrayList<>();
+
+		private RecordingSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			subscription.request(initialRequest);
+		}
+
+		@Override
+		protected void hookOnNext(T value) {
+			received.add(value);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package net.rubenmartinez.stpc.app.exchange.service.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonResponseCacheTest {
+	private static final int MAX_ENTRIES = 2;
+
+	private JsonResponseCache<String> cache;
+	private AtomicInteger computations;
+
+	@Before
+	public void before() {
+		cache = new JsonResponseCache<>(new ObjectMapper(), MAX_ENTRIES);
+		computations = new AtomicInteger(0);
+	}
+
+	private String compute(String response) {
+		computations.incrementAndGet();
+		return response;
+	}
+
+	private static String asString(byte[] json) {
+		return new String(json, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void computedOnlyWhenVersionChanges() {
+		assertEquals("\"a\"", asString(cache.get("key", 1, 0, () -> compute("a"))));
+		assertEquals("\"a\"", asString(cache.get("key", 1, 0, () -> compute("b"))));
+		assertEquals(1, computations.get());
+
+		assertEquals("\"b\"", asString(cache.get("key", 2, 0, () -> compute("b"))));
+		assertEquals("\"c\"", asString(cache.get("key", 2, 1, () -> compute("c"))));
+		assertEquals(3, computations.get());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void leastRecentlyUsedEvictedWhenFull() {
+		cache.get("key1", 1, 0, () -> compute("a"));
+		cache.get("key2", 1, 0, () -> compute("a"));
+		cache.get("key1", 1, 0, () -> compute("a"));
+		cache.get("key3", 1, 0, () -> compute("a")); // Evicts key2
+		assertEquals(MAX_ENTRIES, cache.size());
+		assertEquals(3, computations.get());
+
+		cache.get("key3", 1, 0, () -> compute("a"));
+		cache.get("key1", 1, 0, () -> compute("a"));
+		assertEquals(3, computations.get()); // Still cached after filling up
+
+		cache.get("key2", 1, 0, () -> compute("a"));
+		assertEquals(4, computations.get());
+	}
+
+	@Test
+	public void previousVersionEvictedWhenVersionChanges() {
+		cache.get("key1", 1, 0, () -> compute("a"));
+		cache.get("key2", 1, 0, () -> compute("a"));
+		assertEquals(2, cache.size());
+
+		cache.get("key1", 2, 0, () -> compute("b"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void onlyPreviousVersionEvictedWhenVersionChanges() {
+		cache = new JsonResponseCache<>(new ObjectMapper(), 10);
+		cache.get("key1", 1, 0, () -> compute("a"));
+		cache.get("key2", 1, 0, () -> compute("a"));
+		cache.get("key3", 2, 0, () -> compute("b"));
+		cache.get("key2", 1, 1, () -> compute("c")); // Same version, not evicted again
+		assertEquals(3, cache.size());
+
+		cache.get("key1", 3, 0, () -> compute("d"));
+		assertEquals(2, cache.size());
+		assertEquals("\"b\"", asString(cache.get("key3", 2, 0, () -> compute("other"))));
+		assertEquals(5, computations.get());
+	}
+
+	@Test
+	public void olderVersionNotCached() {
+		cache.get("key", 2, 0, () -> compute("b"));
+		assertEquals("\"a\"", asString(cache.get("key", 1, 0, () -> compute("a"))));
+		assertEquals("\"b\"", asString(cache.get("key", 2, 0, () -> compute("other"))));
+		assertEquals(2, computations.get());
+	}
+
+	@Test
+	public void failedComputationsNotCached() {
+		try {
+			cache.get("key", 1, 0, () -> {
+				throw new IllegalStateException("Book not ready");
+			});
+			fail("Exception expected");
+		} catch (IllegalStateException e) {
+			assertEquals("Book not ready", e.getMessage());
+		}
+
+		assertEquals("\"a\"", asString(cache.get("key", 1, 0, () -> compute("a"))));
+	}
+
+	@Test
+	public void concurrentRequestsComputedOnce() throws Exception {
+		int threads = 8;
+		CountDownLatch computationStarted = new CountDownLatch(1);
+		CountDownLatch releaseComputation = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<byte[]>> responses = new ArrayList<>();
+			responses.add(executor.submit(() -> cache.get("key", 1, 0, () -> {
+				computationStarted.countDown();
+				await(releaseComputation);
+				return compute("a");
+			})));
+			computationStarted.await(5, TimeUnit.SECONDS);
+
+			for (int i = 1; i < threads; i++) {
+				responses.add(executor.submit(() -> cache.get("key", 1, 0, () -> compute("other"))));
+			}
+			releaseComputation.countDown();
+
+			for (Future<byte[]> response : responses) {
+				assertArrayEquals("\"a\"".getBytes(StandardCharsets.UTF_8), response.get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(1, computations.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
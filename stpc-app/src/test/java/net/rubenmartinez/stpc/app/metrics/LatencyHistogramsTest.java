@@ -0,0 +1,49 @@
+package net.rubenmartinez.stpc.app.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.rubenmartinez.stpc.app.metrics.LatencyHistograms.LatencySummary;
+
+public class LatencyHistogramsTest {
+	private LatencyHistograms latencyHistograms;
+
+	@Before
+	public void before() {
+		latencyHistograms = new LatencyHistograms();
+	}
+
+	@Test
+	public void percentilesInMicros() {
+		for (int i = 1; i <= 1000; i++) {
+			latencyHistograms.record("stage", TimeUnit.MICROSECONDS.toNanos(i));
+		}
+
+		LatencySummary summary = latencyHistograms.latencies().get("stage");
+
+		assertEquals(1000, summary.getCount());
+		assertEquals(500, summary.getP50Micros(), 1);
+		assertEquals(990, summary.getP99Micros(), 1);
+		assertEquals(1000, summary.getMaxMicros(), 1);
+	}
+
+	@Test
+	public void accumulatedBetweenReads() {
+		latencyHistograms.record("stage", 1000);
+		latencyHistograms.latencies();
+		latencyHistograms.record("stage", 2000);
+		latencyHistograms.record("other", -5);
+
+		Map<String, LatencySummary> latencies = latencyHistograms.latencies();
+
+		assertEquals(2, latencies.get("stage").getCount());
+		assertEquals(1, latencies.get("other").getCount());
+		assertTrue(latencies.get("other").getMaxMicros() == 0);
+	}
+}
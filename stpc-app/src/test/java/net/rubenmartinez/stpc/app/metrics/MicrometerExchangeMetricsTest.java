@@ -0,0 +1,56 @@
+package net.rubenmartinez.stpc.app.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MicrometerExchangeMetricsTest {
+	private SimpleMeterRegistry registry;
+	private MicrometerExchangeMetrics metrics;
+
+	@Before
+	public void before() {
+		registry = new SimpleMeterRegistry();
+		metrics = new MicrometerExchangeMetrics(registry);
+	}
+
+	@Test
+	public void metricsRecordedWithTags() {
+		metrics.recordTime("test.time", TimeUnit.MILLISECONDS.toNanos(5), "listener", "A");
+		metrics.recordTime("test.time", TimeUnit.MILLISECONDS.toNanos(15), "listener", "A");
+		metrics.increment("test.count", "result", "hit");
+		metrics.recordValue("test.value", 3);
+
+		assertEquals(2, registry.get("test.time").tag("listener", "A").timer().count());
+		assertEquals(20, registry.get("test.time").timer().totalTime(TimeUnit.MILLISECONDS), 0.001);
+		assertEquals(1, registry.get("test.count").tag("result", "hit").counter().count(), 0.001);
+		assertEquals(3, registry.get("test.value").summary().totalAmount(), 0.001);
+	}
+
+	@Test
+	public void meterRegisteredOncePerNameAndTags() {
+		metrics.recordValue("test.value", 3, "feed", "A");
+		metrics.recordValue("test.value", 4, "feed", "A");
+		metrics.recordValue("test.value", 5, "feed", "B");
+
+		assertEquals(2, registry.getMeters().size());
+		assertEquals(7, registry.get("test.value").tag("feed", "A").summary().totalAmount(), 0.001);
+		assertEquals(5, registry.get("test.value").tag("feed", "B").summary().totalAmount(), 0.001);
+	}
+
+	@Test
+	public void gaugeSupplierNotGarbageCollected() {
+		AtomicInteger queueSize = new AtomicInteger(7);
+		metrics.registerGauge("test.gauge", () -> queueSize.get());
+
+		System.gc();
+
+		assertEquals(7, registry.get("test.gauge").gauge().value(), 0.001);
+	}
+}
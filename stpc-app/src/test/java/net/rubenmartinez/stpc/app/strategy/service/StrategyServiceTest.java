@@ -0,0 +1,37 @@
+package net.rubenmartinez.stpc.app.strategy.service;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import net.rubenmartinez.stpc.app.strategy.Strategy;
+import net.rubenmartinez.stpc.app.strategy.service.exception.StrategyException;
+
+public class StrategyServiceTest {
+
+	private static StrategyService serviceWith(String strategyId) {
+		Strategy strategy = mock(Strategy.class);
+		when(strategy.getStrategyId()).thenReturn(strategyId);
+		StrategyService service = new StrategyService();
+		ReflectionTestUtils.setField(service, "configuredStrategies", Collections.singletonList(strategy));
+		service.init();
+		return service;
+	}
+
+	@Test
+	public void strategyFoundById() {
+		StrategyService service = serviceWith("contrarian1");
+
+		assertSame(service.findAll().get(0), service.findById("contrarian1"));
+	}
+
+	@Test(expected = StrategyException.class)
+	public void strategyIdTooLongRejected() {
+		serviceWith(String.join("", Collections.nCopies(StrategyService.MAX_STRATEGY_ID_BYTES / 2 + 1, "\u00F1"))); // 2 bytes each in UTF-8
+	}
+}
@@ -44,6 +44,14 @@ public interface ExchangeClient {
 	 * 
 	 */
 	public List<Order> getAsks(int n);
+
+	/**
+	 * Returns the sequence of the current OrderBook. The sequence changes whenever the OrderBook changes,
+	 * so it can be used to know whether something previously read from the book is still up to date.
+	 * 
+	 * @return the sequence of the current OrderBook, or a negative number if the book has not been retrieved yet
+	 */
+	public long getOrderBookSequence();
 	
 	
 	/**
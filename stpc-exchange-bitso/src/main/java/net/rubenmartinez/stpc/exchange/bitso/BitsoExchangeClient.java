@@ -6,15 +6,16 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import feign.Feign;
-import feign.jackson.JacksonDecoder;
-import feign.okhttp.OkHttpClient;
-import feign.slf4j.Slf4jLogger;
 import net.rubenmartinez.stpc.exchange.ExchangeClient;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient;
+import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClientFactory;
 import net.rubenmartinez.stpc.exchange.bitso.api.websocket.BitsoWebsocketClient;
 import net.rubenmartinez.stpc.exchange.bitso.api.websocket.DiffOrdersListener;
 import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.ReloadableConfig;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEventLog;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.OrderBookKeeper;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.ReplayQueueOrderBookKeeper;
 import net.rubenmartinez.stpc.exchange.bitso.trade.TradesHolder;
@@ -42,28 +43,41 @@ public class BitsoExchangeClient implements ExchangeClient {
 	 * @param bookName
 	 */
 	public BitsoExchangeClient(String bookName) {
-		this.restApiClient = constructRestApiClient();
+		this(bookName, ExchangeMetrics.NO_OP);
+	}
+
+	/**
+	 * Immediately starts a websocket client to keep an orderbook synchronized
+	 * 
+	 * @param bookName
+	 * @param metrics where to report metrics about the OrderBook and the trades
+	 */
+	public BitsoExchangeClient(String bookName, ExchangeMetrics metrics) {
+		this(bookName, metrics, Configuration.getDefault());
+	}
+
+	/**
+	 * Immediately starts a websocket client to keep an orderbook synchronized
+	 * 
+	 * @param bookName
+	 * @param metrics where to report metrics about the OrderBook and the trades
+	 * @param config configuration of this client, so clients of different books can be tuned differently
+	 */
+	public BitsoExchangeClient(String bookName, ExchangeMetrics metrics, ReloadableConfig config) {
+		this.restApiClient = BitsoRestApiClientFactory.create(config.get());
 		
-		this.orderBookKeeper = new ReplayQueueOrderBookKeeper(restApiClient, bookName);
+		this.orderBookKeeper = new ReplayQueueOrderBookKeeper(restApiClient, bookName, metrics, config);
 		
-		this.webSocketClient = new BitsoWebsocketClient((DiffOrdersListener) this.orderBookKeeper);
+		this.webSocketClient = new BitsoWebsocketClient((DiffOrdersListener) this.orderBookKeeper, metrics, config);
 		this.webSocketClient.start();
 		
-		this.tradesHolder = new TradesHolder(restApiClient, bookName);
+		this.tradesHolder = new TradesHolder(restApiClient, bookName, metrics, config);
 		this.tradesHolder.start();
 
+		metrics.registerGauge(MetricNames.EVENTLOG_DROPPED, HotPathEventLog.getInstance()::getDroppedEvents);
+
 		LOGGER.debug("Constructed");
 	}
-	
-	private static BitsoRestApiClient constructRestApiClient() {
-		String restEndpoint = Configuration.getRestEndpointUri();
-		
-		return Feign.builder()
-				.client(new OkHttpClient())
-				.logger(new Slf4jLogger()).logLevel(feign.Logger.Level.FULL)
-				.decoder(new JacksonDecoder())
-				.target(BitsoRestApiClient.class, restEndpoint);
-	}
 
 	@Override
 	public OrderBook getOrderBook() {
@@ -86,6 +100,11 @@ public class BitsoExchangeClient implements ExchangeClient {
 		return orderBookKeeper.getAsks(n);
 	}
 
+	@Override
+	public long getOrderBookSequence() {
+		return orderBookKeeper.getSequence();
+	}
+
 	/**
 	 * Get Last <code>n</code> trades ordered from the most recent trade to oldest.
 	 * That is, the element on position [0] is the most recent in time.
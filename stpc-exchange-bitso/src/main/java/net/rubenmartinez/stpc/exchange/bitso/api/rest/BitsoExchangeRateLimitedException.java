@@ -0,0 +1,31 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeException;
+
+/**
+ * A {@code BitsoExchangeException} to signal that Bitso rejected a REST request because of its rate limits (HTTP 429)
+ * <p>
+ * It's not retried by Feign: the {@link RestRequestScheduler} queues the request again once it can be done.</p>
+ */
+public class BitsoExchangeRateLimitedException extends BitsoExchangeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new runtime exception with the specified detail message and
+     * cause.  <p>Note that the detail message associated with
+     * {@code cause} is <i>not</i> automatically incorporated in
+     * this runtime exception's detail message.
+     *
+     * @param  message the detail message (which is saved for later retrieval
+     *         by the {@link #getMessage()} method).
+     * @param  cause the cause (which is saved for later retrieval by the
+     *         {@link #getCause()} method).  (A <tt>null</tt> value is
+     *         permitted, and indicates that the cause is nonexistent or
+     *         unknown.)
+     */
+    public BitsoExchangeRateLimitedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -5,6 +5,7 @@ import feign.Param;
 import feign.RequestLine;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.domain.BitsoRestApiOrderBook;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.domain.BitsoRestApiTrades;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.dto.OrderBookBeanDTO;
 
 /**
  *
@@ -22,6 +23,13 @@ public interface BitsoRestApiClient {
 	@RequestLine("GET /v3/order_book/?book={book}&aggregate={aggregate}")
 	public BitsoRestApiOrderBook getOrderBook(@Param("book") String book, @Param("aggregate") boolean aggregate);
 
+	/**
+	 * Same as {@link #getOrderBook(String, boolean)} without aggregating, but streaming the response directly into the book structures
+	 * (see {@link net.rubenmartinez.stpc.exchange.bitso.api.rest.deserialize.StreamingOrderBookDecoder})
+	 */
+	@RequestLine("GET /v3/order_book/?book={book}&aggregate=false")
+	public OrderBookBeanDTO getFullOrderBook(@Param("book") String book);
+
 	public enum TradesSort {
 		ASC, DESC;
 		
@@ -0,0 +1,101 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import feign.Feign;
+import feign.Request;
+import feign.Retryer;
+import feign.jackson.JacksonDecoder;
+import feign.okhttp.OkHttpClient;
+import feign.slf4j.Slf4jLogger;
+import net.rubenmartinez.stpc.exchange.bitso.api.rest.deserialize.StreamingOrderBookDecoder;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import okhttp3.ConnectionPool;
+import okhttp3.Protocol;
+
+/**
+ * Builds the {@link BitsoRestApiClient}s, all of them sharing the same HTTP transport (see the <code>rest.*</code> properties).
+ * <p>
+ * The transport is an OkHttp client with a connection pool kept alive between polls, so trade polls and book resets don't pay
+ * for a new TLS handshake each time, HTTP/2 when the server and the JVM support it (it falls back to HTTP/1.1 otherwise),
+ * and transparent gzip (OkHttp asks for it and decompresses the response as long as no <code>Accept-Encoding</code> is set).</p>
+ * <p>
+ * All the clients also share the same {@link RestRequestScheduler}, so together they don't exceed Bitso rate limits. Requests
+ * rejected anyway (HTTP 429, see {@link RateLimitErrorDecoder}) or failed because of I/O errors are retried through the scheduler,
+ * with their priority, so Feign doesn't retry any request itself.</p>
+ * <p>
+ * The transport and the scheduler are process-wide, as the connections and Bitso rate limits (per IP) are shared by all the
+ * books, so they are configured from the default configuration ({@link Configuration#getDefault()}) when the first client is
+ * created, retries included. The endpoint and the logging are taken from the configuration given to each client.</p>
+ * <p>
+ * Feign logging defaults to headers only: at FULL level Feign reads the whole body into memory just to log it, which for a full
+ * OrderBook is a few MBs per reset.</p>
+ */
+public final class BitsoRestApiClientFactory {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BitsoRestApiClientFactory.class);
+
+	private BitsoRestApiClientFactory() {
+	}
+
+	private static class TransportHolder {
+		private static final BitsoConfig CONFIG = Configuration.getDefault().get();
+		private static final okhttp3.OkHttpClient TRANSPORT = newTransport(CONFIG);
+		private static final RestRequestScheduler SCHEDULER = new RestRequestScheduler(
+				CONFIG.getRestRateLimitRequestsPerMinute(),
+				CONFIG.getRestRateLimitBurst(),
+				CONFIG.getRestRateLimitRetryAfterMillis(),
+				CONFIG.getRestRateLimitMaxBackoffMillis(),
+				CONFIG.getRestRateLimitMaxAttempts(),
+				CONFIG.getRestRetryPeriodMillis(),
+				CONFIG.getRestRetryMaxPeriodMillis(),
+				CONFIG.getRestRetryMaxAttempts());
+	}
+
+	public static BitsoRestApiClient create() {
+		return create(Configuration.getDefault().get());
+	}
+
+	public static BitsoRestApiClient create(String restEndpoint) {
+		return create(restEndpoint, Configuration.getDefault().get());
+	}
+
+	public static BitsoRestApiClient create(BitsoConfig config) {
+		return create(config.getRestEndpointUri(), config);
+	}
+
+	private static BitsoRestApiClient create(String restEndpoint, BitsoConfig config) {
+		okhttp3.OkHttpClient transport = TransportHolder.TRANSPORT;
+		BitsoRestApiClient feignClient = Feign.builder()
+				.client(new OkHttpClient(transport))
+				// Feign rebuilds the OkHttp client for each request if these options don't match its timeouts
+				.options(new Request.Options(transport.connectTimeoutMillis(), transport.readTimeoutMillis()))
+				// Retried by the scheduler instead, waiting for a permit with their priority
+				.retryer(Retryer.NEVER_RETRY)
+				.errorDecoder(new RateLimitErrorDecoder(TransportHolder.SCHEDULER))
+				.logger(new Slf4jLogger()).logLevel(feign.Logger.Level.valueOf(config.getRestLogLevel()))
+				.decoder(new StreamingOrderBookDecoder(new JacksonDecoder(), config))
+				.target(BitsoRestApiClient.class, restEndpoint);
+
+		return new ScheduledBitsoRestApiClient(feignClient, TransportHolder.SCHEDULER);
+	}
+
+	private static okhttp3.OkHttpClient newTransport(BitsoConfig config) {
+		okhttp3.OkHttpClient transport = new okhttp3.OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(config.getRestConnectionPoolMaxIdle(), config.getRestConnectionPoolKeepAliveSeconds(), TimeUnit.SECONDS))
+				.connectTimeout(config.getRestConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+				.readTimeout(config.getRestReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+				.protocols(config.isRestHttp2Enabled() ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.HTTP_1_1))
+				.retryOnConnectionFailure(true)
+				.build();
+
+		LOGGER.debug("REST transport created. Protocols: {}; connect timeout: {} ms; read timeout: {} ms", transport.protocols(), transport.connectTimeoutMillis(), transport.readTimeoutMillis());
+		return transport;
+	}
+}
@@ -0,0 +1,51 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import feign.Response;
+import feign.codec.ErrorDecoder;
+
+/**
+ * Decodes the requests rejected by Bitso because of its rate limits (HTTP 429) as a {@link BitsoExchangeRateLimitedException},
+ * which Feign doesn't retry: retrying from the Feign retryer would resend the request at once, skipping the rate limit pause
+ * and the other requests waiting with higher priority. The {@link RestRequestScheduler} retries them instead.
+ * <p>
+ * Any other error is decoded as Feign does by default.</p>
+ * <p>
+ * The rejection is notified to a {@link RateLimitListener} (usually the {@link RestRequestScheduler}) before the exception
+ * is thrown, so all requests are paused.</p>
+ * 
+ * @see <a href="https://bitso.com/api_info/?shell#rate-limits">Bitso Rate Limits</a>
+ */
+public class RateLimitErrorDecoder implements ErrorDecoder {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitErrorDecoder.class);
+
+	public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+	private final RateLimitListener rateLimitListener;
+	private final ErrorDecoder defaultDecoder;
+
+	public RateLimitErrorDecoder() {
+		this(() -> {
+			// Nothing to do
+		});
+	}
+
+	public RateLimitErrorDecoder(RateLimitListener rateLimitListener) {
+		this.rateLimitListener = rateLimitListener;
+		this.defaultDecoder = new ErrorDecoder.Default();
+	}
+
+	@Override
+	public Exception decode(String methodKey, Response response) {
+		Exception exception = defaultDecoder.decode(methodKey, response);
+		if (response.status() == HTTP_TOO_MANY_REQUESTS) {
+			LOGGER.warn("Rate limit exceeded calling {}", methodKey);
+			rateLimitListener.onRateLimited();
+			return new BitsoExchangeRateLimitedException("Rate limit exceeded calling " + methodKey, exception);
+		}
+		return exception;
+	}
+}
@@ -0,0 +1,9 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+/**
+ * Notified whenever Bitso rejects a request because the rate limit was exceeded
+ */
+public interface RateLimitListener {
+
+	public void onRateLimited();
+}
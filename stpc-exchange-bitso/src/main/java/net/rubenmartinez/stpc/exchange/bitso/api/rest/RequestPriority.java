@@ -0,0 +1,13 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+/**
+ * Priority of the requests to Bitso REST API when they are paced by the {@link RestRequestScheduler}, from highest to lowest
+ */
+public enum RequestPriority {
+	/** Getting a full OrderBook, as the book cannot be read till it finishes */
+	RESET,
+	/** Polling new trades */
+	POLL,
+	/** Getting older trades to fill the trades buffer */
+	BACKFILL
+}
@@ -0,0 +1,264 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import feign.RetryableException;
+import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeThreadInterruptedException;
+
+/**
+ * Paces all the requests to Bitso REST API so together they stay under its rate limit, instead of each caller relying on its own sleeps.
+ * <p>
+ * Requests take a permit from a token bucket refilled at the configured rate (allowing short bursts up to the bucket size). When there
+ * are no tokens, callers wait, and tokens go first to the highest {@link RequestPriority} waiting: a book reset is never delayed by
+ * trade polls, nor trade polls by history backfills. Requests with the same priority are not necessarily served in arrival order.</p>
+ * <p>
+ * If Bitso rejects a request anyway ({@link #onRateLimited()}), no permits are given for a backoff period, doubled on each consecutive
+ * rejection, and the rate is halved; each successful request then increases it back gradually up to the configured rate. The rejected
+ * request itself ({@link BitsoExchangeRateLimitedException}) is queued again with its priority, so it also waits for the backoff and
+ * for a permit like any other request.</p>
+ * <p>
+ * Requests failed because of I/O errors ({@link RetryableException}, as Feign doesn't retry them itself) are queued again too, after
+ * waiting a period increased on each failure, so they don't skip the token bucket nor the requests waiting with higher priority.</p>
+ * 
+ * @see <a href="https://bitso.com/api_info/?shell#rate-limits">Bitso Rate Limits</a>
+ */
+public class RestRequestScheduler implements RateLimitListener {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RestRequestScheduler.class);
+
+	private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final int RATE_RECOVERY_STEPS = 10;
+	private static final int DEFAULT_MAX_RATE_LIMITED_ATTEMPTS = 3;
+	private static final double FAILED_RETRY_PERIOD_MULTIPLIER = 1.5;
+
+	private final Object lock = new Object();
+
+	private final double maxTokensPerNano;
+	private final double minTokensPerNano;
+	private final int burst;
+	private final long initialBackoffNanos;
+	private final long maxBackoffNanos;
+	private final int maxRateLimitedAttempts;
+	private final long failedRetryPeriodNanos;
+	private final long failedRetryMaxPeriodNanos;
+	private final int maxFailedAttempts;
+
+	// All guarded by lock
+	private double tokensPerNano;
+	private double tokens;
+	private long lastRefillNanos;
+	private long pausedUntilNanos;
+	private int consecutiveRateLimited;
+	private final int[] waiting = new int[RequestPriority.values().length];
+
+	/**
+	 * @param requestsPerMinute maximum sustained rate
+	 * @param burst maximum number of requests that can be done at once after some idle time
+	 * @param initialBackoffMillis time without requests after the first rejection because of rate limits
+	 * @param maxBackoffMillis maximum time without requests after consecutive rejections
+	 */
+	public RestRequestScheduler(int requestsPerMinute, int burst, long initialBackoffMillis, long maxBackoffMillis) {
+		this(requestsPerMinute, burst, initialBackoffMillis, maxBackoffMillis, DEFAULT_MAX_RATE_LIMITED_ATTEMPTS);
+	}
+
+	/**
+	 * Requests failed because of I/O errors are not retried
+	 *
+	 * @param requestsPerMinute maximum sustained rate
+	 * @param burst maximum number of requests that can be done at once after some idle time
+	 * @param initialBackoffMillis time without requests after the first rejection because of rate limits
+	 * @param maxBackoffMillis maximum time without requests after consecutive rejections
+	 * @param maxRateLimitedAttempts times a request is done before giving up if Bitso keeps rejecting it because of rate limits
+	 */
+	public RestRequestScheduler(int requestsPerMinute, int burst, long initialBackoffMillis, long maxBackoffMillis, int maxRateLimitedAttempts) {
+		this(requestsPerMinute, burst, initialBackoffMillis, maxBackoffMillis, maxRateLimitedAttempts, 0, 0, 1);
+	}
+
+	/**
+	 * @param requestsPerMinute maximum sustained rate
+	 * @param burst maximum number of requests that can be done at once after some idle time
+	 * @param initialBackoffMillis time without requests after the first rejection because of rate limits
+	 * @param maxBackoffMillis maximum time without requests after consecutive rejections
+	 * @param maxRateLimitedAttempts times a request is done before giving up if Bitso keeps rejecting it because of rate limits
+	 * @param failedRetryPeriodMillis time a request failed because of an I/O error waits before being queued again the first time
+	 * @param failedRetryMaxPeriodMillis maximum time a request waits before being queued again after consecutive I/O errors
+	 * @param maxFailedAttempts times a request is done before giving up if it keeps failing because of I/O errors
+	 */
+	public RestRequestScheduler(int requestsPerMinute, int burst, long initialBackoffMillis, long maxBackoffMillis, int maxRateLimitedAttempts,
+			long failedRetryPeriodMillis, long failedRetryMaxPeriodMillis, int maxFailedAttempts) {
+		if (requestsPerMinute <= 0 || burst <= 0) {
+			throw new IllegalArgumentException("Requests per minute and burst must be positive. Requests per minute: " + requestsPerMinute + "; burst: " + burst);
+		}
+		this.maxTokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+		this.minTokensPerNano = maxTokensPerNano / RATE_RECOVERY_STEPS;
+		this.burst = burst;
+		this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+		this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+		this.maxRateLimitedAttempts = Math.max(1, maxRateLimitedAttempts);
+		this.failedRetryPeriodNanos = TimeUnit.MILLISECONDS.toNanos(failedRetryPeriodMillis);
+		this.failedRetryMaxPeriodNanos = TimeUnit.MILLISECONDS.toNanos(failedRetryMaxPeriodMillis);
+		this.maxFailedAttempts = Math.max(1, maxFailedAttempts);
+
+		this.tokensPerNano = maxTokensPerNano;
+		this.tokens = burst;
+		this.lastRefillNanos = System.nanoTime();
+	}
+
+	/**
+	 * Waits for a permit and executes the request, waiting for a new permit with the same priority each time Bitso rejects it
+	 * because of rate limits or it fails because of an I/O error
+	 *
+	 * @throws BitsoExchangeRateLimitedException if the request is still rejected after the configured attempts
+	 * @throws RetryableException if the request still fails after the configured attempts
+	 */
+	public <T> T execute(RequestPriority priority, Supplier<T> request) {
+		int rateLimitedAttempts = 0;
+		int failedAttempts = 0;
+		while (true) {
+			acquire(priority);
+			try {
+				T response = request.get();
+				onSuccess();
+				return response;
+			} catch (BitsoExchangeRateLimitedException e) {
+				rateLimitedAttempts++;
+				if (rateLimitedAttempts >= maxRateLimitedAttempts) {
+					throw e;
+				}
+				LOGGER.debug("{} request rate limited (attempt {} of {}), queued again", priority, rateLimitedAttempts, maxRateLimitedAttempts);
+			} catch (RetryableException e) {
+				failedAttempts++;
+				if (failedAttempts >= maxFailedAttempts) {
+					throw e;
+				}
+				long retryPeriodNanos = failedRetryPeriodNanos(failedAttempts, e);
+				LOGGER.debug("{} request failed (attempt {} of {}), queued again in {} ms: {}", priority, failedAttempts, maxFailedAttempts,
+						TimeUnit.NANOSECONDS.toMillis(retryPeriodNanos), e.getMessage());
+				sleep(retryPeriodNanos, priority);
+			}
+		}
+	}
+
+	/**
+	 * Waits till a request with the given priority can be done
+	 */
+	public void acquire(RequestPriority priority) {
+		synchronized (lock) {
+			waiting[priority.ordinal()]++;
+			try {
+				while (true) {
+					long now = System.nanoTime();
+					refill(now);
+					boolean higherPriorityWaiting = isHigherPriorityWaiting(priority);
+					if (now >= pausedUntilNanos && tokens >= 1 && !higherPriorityWaiting) {
+						tokens--;
+						return;
+					}
+					waitFor(nanosTillNextPermit(now, higherPriorityWaiting), priority);
+				}
+			} finally {
+				waiting[priority.ordinal()]--;
+				lock.notifyAll(); // Lower priorities may be waiting just for this one
+			}
+		}
+	}
+
+	@Override
+	public void onRateLimited() {
+		synchronized (lock) {
+			consecutiveRateLimited++;
+			long backoffNanos = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(consecutiveRateLimited - 1, 20));
+			pausedUntilNanos = System.nanoTime() + backoffNanos;
+			tokens = 0;
+			tokensPerNano = Math.max(minTokensPerNano, tokensPerNano / 2);
+			LOGGER.warn("Rate limited by Bitso ({} consecutive times). Pausing requests for {} ms, rate reduced to {} requests/minute",
+					consecutiveRateLimited, TimeUnit.NANOSECONDS.toMillis(backoffNanos), Math.round(getRequestsPerMinute()));
+		}
+	}
+
+	private void onSuccess() {
+		synchronized (lock) {
+			consecutiveRateLimited = 0;
+			if (tokensPerNano < maxTokensPerNano) {
+				tokensPerNano = Math.min(maxTokensPerNano, tokensPerNano + maxTokensPerNano / RATE_RECOVERY_STEPS);
+			}
+		}
+	}
+
+	/**
+	 * Current rate, lower than the configured one if Bitso has rejected requests recently
+	 */
+	public double getRequestsPerMinute() {
+		synchronized (lock) {
+			return tokensPerNano * TimeUnit.MINUTES.toNanos(1);
+		}
+	}
+
+	int getWaiting(RequestPriority priority) {
+		synchronized (lock) {
+			return waiting[priority.ordinal()];
+		}
+	}
+
+	/**
+	 * As Feign default retryer: the period given by the server if any, or the initial period multiplied on each failure, up to the maximum
+	 */
+	private long failedRetryPeriodNanos(int failedAttempts, RetryableException e) {
+		if (e.retryAfter() != null) {
+			long retryAfterNanos = TimeUnit.MILLISECONDS.toNanos(e.retryAfter().getTime() - System.currentTimeMillis());
+			return Math.max(0, Math.min(failedRetryMaxPeriodNanos, retryAfterNanos));
+		}
+		double periodNanos = failedRetryPeriodNanos * Math.pow(FAILED_RETRY_PERIOD_MULTIPLIER, failedAttempts - 1);
+		return (long) Math.min(failedRetryMaxPeriodNanos, periodNanos);
+	}
+
+	private static void sleep(long nanos, RequestPriority priority) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BitsoExchangeThreadInterruptedException("Interrupted while waiting to retry a " + priority + " request");
+		}
+	}
+
+	private void refill(long now) {
+		tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+		lastRefillNanos = now;
+	}
+
+	private boolean isHigherPriorityWaiting(RequestPriority priority) {
+		for (int i = 0; i < priority.ordinal(); i++) {
+			if (waiting[i] > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long nanosTillNextPermit(long now, boolean higherPriorityWaiting) {
+		if (now < pausedUntilNanos) {
+			return pausedUntilNanos - now;
+		}
+		if (tokens < 1) {
+			return (long) Math.ceil((1 - tokens) / tokensPerNano);
+		}
+		return higherPriorityWaiting ? Long.MAX_VALUE : 0; // Woken up when the higher priority request gets its permit
+	}
+
+	private void waitFor(long nanos, RequestPriority priority) {
+		try {
+			if (nanos == Long.MAX_VALUE) {
+				lock.wait();
+			} else {
+				TimeUnit.NANOSECONDS.timedWait(lock, Math.max(MIN_WAIT_NANOS, nanos));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BitsoExchangeThreadInterruptedException("Interrupted while waiting to do a " + priority + " request");
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+import net.rubenmartinez.stpc.exchange.bitso.api.rest.domain.BitsoRestApiOrderBook;
+import net.rubenmartinez.stpc.exchange.bitso.api.rest.domain.BitsoRestApiTrades;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.dto.OrderBookBeanDTO;
+
+/**
+ * Decorates a {@link BitsoRestApiClient} so every request waits for a permit of a {@link RestRequestScheduler}, with a
+ * priority depending on what it is for
+ */
+public class ScheduledBitsoRestApiClient implements BitsoRestApiClient {
+
+	private BitsoRestApiClient delegate;
+	private RestRequestScheduler scheduler;
+
+	public ScheduledBitsoRestApiClient(BitsoRestApiClient delegate, RestRequestScheduler scheduler) {
+		this.delegate = delegate;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Trades after the marker are polled (new trades), trades before it are backfilled (history)
+	 */
+	@Override
+	public BitsoRestApiTrades getTrades(String book, String markerTradeId, TradesSort directionFromMarker, int limit) {
+		RequestPriority priority = directionFromMarker == TradesSort.ASC ? RequestPriority.POLL : RequestPriority.BACKFILL;
+		return scheduler.execute(priority, () -> delegate.getTrades(book, markerTradeId, directionFromMarker, limit));
+	}
+
+	@Override
+	public BitsoRestApiTrades getNewestTrades(String book, int limit) {
+		return scheduler.execute(RequestPriority.POLL, () -> delegate.getNewestTrades(book, limit));
+	}
+
+	@Override
+	public BitsoRestApiOrderBook getOrderBook(String book, boolean aggregate) {
+		return scheduler.execute(RequestPriority.RESET, () -> delegate.getOrderBook(book, aggregate));
+	}
+
+	@Override
+	public OrderBookBeanDTO getFullOrderBook(String book) {
+		return scheduler.execute(RequestPriority.RESET, () -> delegate.getFullOrderBook(book));
+	}
+}
@@ -0,0 +1,151 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest.deserialize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import feign.Response;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.dto.OrderBookBeanDTO;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSide;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSides;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap.SortOrdering;
+
+/**
+ * Decodes the full OrderBook returned by Bitso REST API directly into the structures used by the book keepers, any other type is
+ * decoded by the delegate decoder.
+ * <p>
+ * The response body is read as a stream of JSON tokens and every order is put in its {@link OrderBookSide} as soon as it is read,
+ * so there is no intermediate object graph of the whole response (as it would be when data binding to <code>BitsoRestApiOrderBook</code>)
+ * to be copied afterwards.</p>
+ */
+public class StreamingOrderBookDecoder implements Decoder {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StreamingOrderBookDecoder.class);
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final long SEQUENCE_MISSING = -1;
+
+	private Decoder delegate;
+	private BitsoConfig config;
+
+	public StreamingOrderBookDecoder(Decoder delegate) {
+		this(delegate, Configuration.getDefault().get());
+	}
+
+	/**
+	 * @param config configuration of the book sides created (see {@link OrderBookSides})
+	 */
+	public StreamingOrderBookDecoder(Decoder delegate, BitsoConfig config) {
+		this.delegate = delegate;
+		this.config = config;
+	}
+
+	@Override
+	public Object decode(Response response, Type type) throws IOException {
+		if (type != OrderBookBeanDTO.class) {
+			return delegate.decode(response, type);
+		}
+		if (response.body() == null) {
+			throw new DecodeException("Empty response while getting OrderBook. Status: " + response.status());
+		}
+		return decodeOrderBook(response.body().asInputStream());
+	}
+
+	/**
+	 * Reads a full OrderBook, as returned by Bitso <code>/v3/order_book</code>, from the given stream (which is closed when finished)
+	 */
+	public OrderBookBeanDTO decodeOrderBook(InputStream json) throws IOException {
+		OrderBookSide asks = OrderBookSides.newSide(SortOrdering.ASCENDING, config);
+		OrderBookSide bids = OrderBookSides.newSide(SortOrdering.DESCENDING, config);
+		long sequence = SEQUENCE_MISSING;
+		boolean success = false;
+
+		try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+			expectToken(parser.nextToken(), JsonToken.START_OBJECT);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				if ("success".equals(field)) {
+					success = parser.getValueAsBoolean();
+				} else if ("payload".equals(field)) {
+					sequence = readPayload(parser, asks, bids);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+
+		if (!success || sequence == SEQUENCE_MISSING) {
+			throw new DecodeException("Unexpected OrderBook response. Success: " + success + "; sequence: " + sequence);
+		}
+		LOGGER.debug("OrderBook decoded. Sequence: {}; Number of Asks: {}; Number of Bids: {}", sequence, asks.size(), bids.size());
+		return OrderBookBeanDTO.builder().sequence(sequence).asks(asks).bids(bids).build();
+	}
+
+	/**
+	 * @return the sequence of the book
+	 */
+	private static long readPayload(JsonParser parser, OrderBookSide asks, OrderBookSide bids) throws IOException {
+		expectToken(parser.getCurrentToken(), JsonToken.START_OBJECT);
+		long sequence = SEQUENCE_MISSING;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if ("asks".equals(field)) {
+				readOrders(parser, asks);
+			} else if ("bids".equals(field)) {
+				readOrders(parser, bids);
+			} else if ("sequence".equals(field)) {
+				sequence = parser.getValueAsLong(SEQUENCE_MISSING); // Bitso sends it as a String
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return sequence;
+	}
+
+	private static void readOrders(JsonParser parser, OrderBookSide orders) throws IOException {
+		expectToken(parser.getCurrentToken(), JsonToken.START_ARRAY);
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			String orderId = null;
+			String price = null;
+			String amount = null;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				if ("oid".equals(field)) {
+					orderId = parser.getValueAsString();
+				} else if ("price".equals(field)) {
+					price = parser.getValueAsString();
+				} else if ("amount".equals(field)) {
+					amount = parser.getValueAsString();
+				} else {
+					parser.skipChildren();
+				}
+			}
+			if (orderId == null || price == null || amount == null) {
+				throw new DecodeException("Incomplete order in OrderBook. oid: " + orderId + "; price: " + price + "; amount: " + amount);
+			}
+			orders.addOrder(orderId, price, amount);
+		}
+		expectToken(parser.getCurrentToken(), JsonToken.END_ARRAY);
+	}
+
+	private static void expectToken(JsonToken actual, JsonToken expected) {
+		if (actual != expected) {
+			throw new DecodeException("Unexpected JSON in OrderBook response. Expected: " + expected + "; found: " + actual);
+		}
+	}
+}
@@ -1,60 +1,104 @@
 package net.rubenmartinez.stpc.exchange.bitso.api.websocket;
 
-import java.io.IOException;
 import java.net.URI;
-import java.util.Optional;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-import javax.websocket.ClientEndpoint;
-import javax.websocket.CloseReason;
 import javax.websocket.ContainerProvider;
-import javax.websocket.OnClose;
-import javax.websocket.OnMessage;
-import javax.websocket.OnOpen;
-import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeException;
 import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
 import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.ReloadableConfig;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
 
 /**
- * Set listeners before
- * 
- *
+ * Keeps the diff-orders {@link DiffOrdersListener} fed through a websocket connection to Bitso ({@link BitsoWebsocketConnection}),
+ * connecting again whenever it is lost.
+ * <p>
+ * Connections are established from an own thread, retried with a jittered exponential backoff (<code>websocket.reconnect.*</code>),
+ * and considered lost if nothing (neither a message nor the pong of the pings sent) is received for
+ * <code>websocket.liveness.timeout-millis</code>.</p>
+ * <p>
+ * If <code>websocket.standby.enabled</code>, a second connection is kept subscribed as a hot standby: its messages are not
+ * notified, just the last ones are kept, and when the primary connection is lost the standby one becomes the primary one, after
+ * notifying the messages kept that the primary connection didn't deliver. So the sequence of the diff-orders continues without gaps
+ * and the book doesn't need to be reset.</p>
+ * <p>
+ * If <code>websocket.arbitration.enabled</code> instead, both connections are used at the same time: each message is notified as
+ * soon as it is received through any of them, and its duplicate is dropped (see {@link FeedArbiter}). This masks the stalls of a
+ * single connection and cuts the tail latency. If a connection is lost the other one just goes on alone till it is reconnected.</p>
+ * <p>
+ * The listener is never notified concurrently.</p>
  */
-@ClientEndpoint
-public class BitsoWebsocketClient {
+public class BitsoWebsocketClient implements BitsoWebsocketConnection.ConnectionListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(BitsoWebsocketClient.class);
 
-    private static final String MESSAGE_PROPERTY_TYPE = "type";
-    private static final String MESSAGE_PROPERTY_ACTION = "action";
-    private static final String MESSAGE_PROPERTY_RESPONSE = "response";
-    private static final String MESSAGE_PROPERTY_RESPONSE_OK = "ok";
-
-    private static final String MESSAGE_TYPE_DIFF_ORDERS = "diff-orders";
-    private static final String MESSAGE_ACTION_SUBSCRIBE = "subscribe";
-    
-    private static final long CONNECTION_RETRY_WAIT_MILLIS = 2000;
+    private static final String ROLE_PRIMARY = "primary";
+    private static final String ROLE_STANDBY = "standby";
 
-    private static ObjectMapper jsonObjectMapper = new ObjectMapper(); // Static as ObjectMapper is ensured to be thread safe
-
-    private WebSocketContainer webSocketContainer;
-    private Session webSocketSession;
+    WebSocketContainer webSocketContainer;
     private DiffOrdersListener diffOrdersListener;
+    private ExchangeMetrics metrics;
+    private ReloadableConfig config;
+    private String endpointUri;
+    private String diffOrdersSubscribeMessage;
+    private ScheduledExecutorService connectionExecutor;
+    private ReconnectBackoff backoff;
+    boolean standbyEnabled;
+    private int standbyMaxMessages;
+    FeedArbiter arbiter;
+
+    // Guarded by this
+    private BitsoWebsocketConnection primary;
+    private BitsoWebsocketConnection standby;
+    private Deque<DiffOrdersWebsocketMessage> standbyMessages;
+    private long lastNotifiedSequence;
+    private boolean stopped;
+    private ScheduledFuture<?> livenessTask;
 
     public BitsoWebsocketClient(DiffOrdersListener diffOrdersListener) {
+        this(diffOrdersListener, ExchangeMetrics.NO_OP);
+    }
+
+    public BitsoWebsocketClient(DiffOrdersListener diffOrdersListener, ExchangeMetrics metrics) {
+        this(diffOrdersListener, metrics, Configuration.getDefault());
+    }
+
+    /**
+     * @param config only the liveness timeout is read again on each check, the rest is read once
+     */
+    public BitsoWebsocketClient(DiffOrdersListener diffOrdersListener, ExchangeMetrics metrics, ReloadableConfig config) {
     	if (diffOrdersListener == null) {
     		throw new IllegalArgumentException("DiffOrdersListener is a mandatory argument");
     	}
-    	
+
+    	BitsoConfig currentConfig = config.get();
     	this.diffOrdersListener = diffOrdersListener;
+    	this.metrics = metrics;
+    	this.config = config;
+    	this.endpointUri = currentConfig.getWebsocketEndpointUri();
+    	this.diffOrdersSubscribeMessage = currentConfig.getWebsocketSubscribeMessageDiffOrders();
+    	this.backoff = new ReconnectBackoff(currentConfig.getWebsocketReconnectInitialBackoffMillis(), currentConfig.getWebsocketReconnectMaxBackoffMillis());
+    	this.standbyEnabled = currentConfig.isWebsocketStandbyEnabled();
+    	this.standbyMaxMessages = currentConfig.getWebsocketStandbyMaxMessages();
+    	this.standbyMessages = new ArrayDeque<>();
+    	if (currentConfig.isWebsocketArbitrationEnabled()) {
+    		this.arbiter = new FeedArbiter(currentConfig.getWebsocketArbitrationWindow(), metrics);
+    	}
+    	this.stopped = true;
+    	this.connectionExecutor = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("BitsoWebsocket", true));
 
 		try {
 			webSocketContainer = ContainerProvider.getWebSocketContainer();
@@ -65,126 +109,182 @@ public class BitsoWebsocketClient {
 
         LOGGER.debug("Constructed");
     }
-    
-	public void start() {
-		connect();
+
+	/**
+	 * Starts connecting, without waiting for the connection to be established
+	 */
+	public synchronized void start() {
+		stopped = false;
+		scheduleConnect(0);
+		if (isSecondConnectionWanted()) {
+			scheduleConnect(0);
+		}
+		long pingIntervalMillis = config.get().getWebsocketLivenessPingIntervalMillis();
+		livenessTask = connectionExecutor.scheduleAtFixedRate(this::checkLiveness, pingIntervalMillis, pingIntervalMillis, TimeUnit.MILLISECONDS);
 	}
-	
+
 	public void stop() {
-		if (webSocketSession != null) {
-			try {
-				webSocketSession.close();
-			} catch (IOException e) {
-				LOGGER.error("Error while closing webSocketSession", e);
+		BitsoWebsocketConnection closedPrimary;
+		BitsoWebsocketConnection closedStandby;
+		synchronized (this) {
+			stopped = true;
+			if (livenessTask != null) {
+				livenessTask.cancel(false);
 			}
+			closedPrimary = primary;
+			closedStandby = standby;
+			primary = null;
+			standby = null;
+			standbyMessages.clear();
 		}
+		closeQuietly(closedPrimary);
+		closeQuietly(closedStandby);
 	}
-	
-	private void reconnect() {
-		LOGGER.info("Reconnecting");
-		stop();
-		start();
+
+	private void scheduleConnect(long delayMillis) {
+		connectionExecutor.schedule(this::connect, delayMillis, TimeUnit.MILLISECONDS);
 	}
-	
+
+	/**
+	 * Runs in {@link #connectionExecutor}. The connection established becomes the primary one if there isn't any, or the standby one
+	 */
 	private void connect() {
-		boolean connected = false;
-		do {
-			LOGGER.debug("Connecting");
-			try {
-				BitsoWebsocketClient websocketClientEndpoint = new BitsoWebsocketClient((DiffOrdersListener) this.diffOrdersListener);
-				webSocketSession = webSocketContainer.connectToServer(websocketClientEndpoint, new URI(Configuration.getWebsocketEndpointUri()));
-				connected = true;
-			} catch (Exception e) {
-				LOGGER.error("Error creating websocket to [" + Configuration.getWebsocketEndpointUri() + "]", e);
-				sleepMillis(CONNECTION_RETRY_WAIT_MILLIS);
+		String role;
+		synchronized (this) {
+			if (stopped || (primary != null && (!isSecondConnectionWanted() || standby != null))) {
+				return;
 			}
-		} while (!connected);
-	}
+			role = (primary == null ? ROLE_PRIMARY : ROLE_STANDBY);
+		}
 
-	
-    
-    @OnOpen
-    public void onOpen(Session session) {
-        LOGGER.info("WebSocket opened: {}", session.getId());
-        
-        String diffOrdersSubscribeMessage = Configuration.getWebsocketSubscribeMessageDiffOrders();
-        try {
-			session.getBasicRemote().sendText(diffOrdersSubscribeMessage);
+		BitsoWebsocketConnection connection = new BitsoWebsocketConnection(role, this, diffOrdersSubscribeMessage);
+		try {
+			connection.connect(webSocketContainer, new URI(endpointUri));
 		} catch (Exception e) {
-			throw new BitsoExchangeWebSocketException("Error sending subscribe message: " + diffOrdersSubscribeMessage, e);
+			long delayMillis = backoff.nextDelayMillis();
+			LOGGER.error("Error creating websocket to [" + endpointUri + "]. Retrying in " + delayMillis + " ms", e);
+			scheduleConnect(delayMillis);
+			return;
 		}
-    }
 
-    @OnMessage
-    public void onMessage(String jsonMessage) {
-        LOGGER.debug("New websocket message received: {}", jsonMessage);
-
-        try {
-            JsonNode rootNode = jsonObjectMapper.readTree(jsonMessage);
-            
-            String action = nodeAsText(rootNode, MESSAGE_PROPERTY_ACTION).orElse("");
-            
-            if (action.equals(MESSAGE_ACTION_SUBSCRIBE)) {
-            	LOGGER.info("Message received is a subscribe response message: {}", jsonMessage);
-                handleSubscribeResponseMessage(jsonMessage, rootNode);
-            }
-            else {
-            	// Validating that client is subscribed before processing any other type has been left out on purpose (we just need diff orders, we don't really care if subscribe configuration was lost)
-                String type = nodeAsText(rootNode, MESSAGE_PROPERTY_TYPE).orElse("");
-                
-                if (MESSAGE_TYPE_DIFF_ORDERS.equals(type)) {
-                	LOGGER.debug("Message received is a diff-orders message: {}", jsonMessage);
-                    handleDiffOrdersMessage(jsonMessage, rootNode);
-                }
-                else {
-                	LOGGER.debug("Ignoring message with type: [{}]: {}", type, jsonMessage);
-                }
-            }
-        } catch (Exception e) {
-            LOGGER.warn("Message caused exception. Fail-safe procedure ignoring: {}", jsonMessage, e);
-        }
-    }
+		boolean surplus;
+		synchronized (this) {
+			surplus = stopped || (primary != null && (!isSecondConnectionWanted() || standby != null));
+			if (!surplus) {
+				if (primary == null) {
+					primary = connection;
+				} else {
+					standby = connection;
+				}
+			}
+		}
+		if (surplus) {
+			closeQuietly(connection);
+			return;
+		}
 
-    private void handleDiffOrdersMessage(String jsonMessage, JsonNode rootNode) throws JsonProcessingException {
-        LOGGER.debug("Received diffOrders message: {} ", jsonMessage);
-        
-        DiffOrdersWebsocketMessage diffOrdersMessage = jsonObjectMapper.treeToValue(rootNode, DiffOrdersWebsocketMessage.class);
-        diffOrdersListener.onDiffOrder(diffOrdersMessage);        
-    }
+		backoff.reset();
+		LOGGER.info("Websocket connection {} established", connection.getName());
+		if (!connection.isOpen()) {
+			onConnectionLost(connection); // Closed before becoming primary or standby, so the close wasn't handled
+		}
+	}
 
-    private void handleSubscribeResponseMessage(String jsonMessage, JsonNode rootNode) {
-        String response = nodeAsText(rootNode, MESSAGE_PROPERTY_RESPONSE).orElse("");
-        if (!response.equals(MESSAGE_PROPERTY_RESPONSE_OK)) {
-            LOGGER.warn("non-ok response in subscribe message: {}", jsonMessage);
-        }
+	private boolean isSecondConnectionWanted() {
+		return standbyEnabled || arbiter != null;
+	}
 
-    }
-    
-    private static final Optional<String> nodeAsText(JsonNode node, String propertyName) {
-        JsonNode value = node.get(propertyName);
-        if (value == null) {
-            return Optional.empty();
-        }
-        else {
-            return Optional.of(value.asText()); 
-        }
-    }
+	@Override
+	public synchronized void onDiffOrders(BitsoWebsocketConnection connection, DiffOrdersWebsocketMessage diffOrdersMessage) {
+		if (arbiter != null) {
+			String feed = (connection == primary ? ROLE_PRIMARY : (connection == standby ? ROLE_STANDBY : null));
+			if (feed != null && arbiter.arbitrate(feed, diffOrdersMessage)) {
+				notifyListener(diffOrdersMessage);
+			}
+		} else if (connection == primary) {
+			notifyListener(diffOrdersMessage);
+		} else if (connection == standby) {
+			standbyMessages.addLast(diffOrdersMessage);
+			if (standbyMessages.size() > standbyMaxMessages) {
+				standbyMessages.removeFirst();
+			}
+		}
+	}
 
-    @OnClose
-    public void onClose(CloseReason reason) {
-        LOGGER.info("WebSocket closed. Reason code: [{}], Reason phrase: {}", reason.getCloseCode(), reason.getReasonPhrase());
-        if (reason.getCloseCode() != CloseReason.CloseCodes.NORMAL_CLOSURE) {
-            LOGGER.warn("WebSocket not closed normally. Trying to reconnect");
-            reconnect();
-        }
-    }
-    
-	private static void sleepMillis(long millis) {
-		try {
-			Thread.sleep(millis);
-		} catch (InterruptedException e) {
-			LOGGER.warn("Sleep interrupted");
-			Thread.currentThread().interrupt();
+	/**
+	 * Handled in the calling thread (a websocket container or the liveness check) so the standby connection, if any, takes over immediately
+	 */
+	@Override
+	public void onConnectionLost(BitsoWebsocketConnection connection) {
+		synchronized (this) {
+			if (stopped) {
+				return;
+			}
+			if (connection == primary) {
+				metrics.increment(MetricNames.WEBSOCKET_CONNECTIONS_LOST);
+				primary = null;
+				if (standby != null) {
+					failOverToStandby();
+				} else {
+					LOGGER.warn("Websocket primary connection {} lost, reconnecting", connection.getName());
+				}
+			} else if (connection == standby) {
+				metrics.increment(MetricNames.WEBSOCKET_CONNECTIONS_LOST);
+				LOGGER.warn("Websocket standby connection {} lost, reconnecting", connection.getName());
+				standby = null;
+				standbyMessages.clear();
+			} else {
+				return; // Already handled
+			}
+			scheduleConnect(backoff.nextDelayMillis());
+		}
+		closeQuietly(connection);
+	}
+
+	private void failOverToStandby() {
+		LOGGER.warn("Websocket primary connection lost, failing over to standby connection {}. Last sequence notified: {}", standby.getName(), lastNotifiedSequence);
+		metrics.increment(MetricNames.WEBSOCKET_FAILOVERS);
+		primary = standby;
+		standby = null;
+		for (DiffOrdersWebsocketMessage message : standbyMessages) {
+			if (message.getSequence() > lastNotifiedSequence) {
+				notifyListener(message);
+			}
 		}
-	}	    
+		standbyMessages.clear();
+	}
+
+	private void notifyListener(DiffOrdersWebsocketMessage diffOrdersMessage) {
+		lastNotifiedSequence = Math.max(lastNotifiedSequence, diffOrdersMessage.getSequence());
+		diffOrdersListener.onDiffOrder(diffOrdersMessage);
+	}
+
+	/**
+	 * Runs periodically in {@link #connectionExecutor}: pings the connections, and closes the ones that received nothing for too long
+	 */
+	private void checkLiveness() {
+		long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.get().getWebsocketLivenessTimeoutMillis());
+		BitsoWebsocketConnection[] connections;
+		synchronized (this) {
+			connections = new BitsoWebsocketConnection[] { primary, standby };
+		}
+		for (BitsoWebsocketConnection connection : connections) {
+			if (connection == null) {
+				continue;
+			}
+			long silentNanos = System.nanoTime() - connection.getLastReceivedNanos();
+			if (silentNanos > timeoutNanos) {
+				LOGGER.warn("Nothing received through websocket connection {} for {} ms, closing it", connection.getName(), TimeUnit.NANOSECONDS.toMillis(silentNanos));
+				onConnectionLost(connection);
+			} else {
+				connection.sendPing();
+			}
+		}
+	}
+
+	private static void closeQuietly(BitsoWebsocketConnection connection) {
+		if (connection != null) {
+			connection.close();
+		}
+	}
 }
@@ -0,0 +1,223 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.websocket;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.websocket.ClientEndpoint;
+import javax.websocket.CloseReason;
+import javax.websocket.DeploymentException;
+import javax.websocket.OnClose;
+import javax.websocket.OnError;
+import javax.websocket.OnMessage;
+import javax.websocket.OnOpen;
+import javax.websocket.PongMessage;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEvent;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEventLog;
+
+/**
+ * A single websocket connection to Bitso, subscribed to the diff-orders. A new instance is created for each connection attempt
+ * (see {@link BitsoWebsocketClient}), and it is never reconnected.
+ */
+@ClientEndpoint
+public class BitsoWebsocketConnection {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BitsoWebsocketConnection.class);
+
+    private static final String MESSAGE_PROPERTY_TYPE = "type";
+    private static final String MESSAGE_PROPERTY_ACTION = "action";
+    private static final String MESSAGE_PROPERTY_RESPONSE = "response";
+    private static final String MESSAGE_PROPERTY_RESPONSE_OK = "ok";
+
+    private static final String MESSAGE_TYPE_DIFF_ORDERS = "diff-orders";
+    private static final String MESSAGE_ACTION_SUBSCRIBE = "subscribe";
+
+    private static final ByteBuffer PING_PAYLOAD = ByteBuffer.wrap(new byte[] { 's', 't', 'p', 'c' });
+    private static final AtomicInteger CONNECTION_NUMBER = new AtomicInteger();
+
+    private static ObjectMapper jsonObjectMapper = new ObjectMapper(); // Static as ObjectMapper is ensured to be thread safe
+
+    /**
+     * Notified from the websocket container threads
+     */
+    public interface ConnectionListener {
+        void onDiffOrders(BitsoWebsocketConnection connection, DiffOrdersWebsocketMessage diffOrdersMessage);
+
+        /**
+         * The connection was closed, by any of the sides, so it won't receive more messages
+         */
+        void onConnectionLost(BitsoWebsocketConnection connection);
+    }
+
+    private final String name;
+    private final ConnectionListener listener;
+    private final HotPathEventLog eventLog;
+    private final String diffOrdersSubscribeMessage;
+    private volatile Session session;
+    private volatile long lastReceivedNanos;
+
+    public BitsoWebsocketConnection(String role, ConnectionListener listener) {
+        this(role, listener, Configuration.getDefault().get().getWebsocketSubscribeMessageDiffOrders());
+    }
+
+    public BitsoWebsocketConnection(String role, ConnectionListener listener, String diffOrdersSubscribeMessage) {
+        this.name = role + "-" + CONNECTION_NUMBER.incrementAndGet();
+        this.listener = listener;
+        this.eventLog = HotPathEventLog.getInstance();
+        this.diffOrdersSubscribeMessage = diffOrdersSubscribeMessage;
+    }
+
+    /**
+     * Blocks till the connection is established (the subscription is sent once opened)
+     */
+    public void connect(WebSocketContainer webSocketContainer, URI endpoint) throws DeploymentException, IOException {
+        LOGGER.debug("Connecting {}", name);
+        lastReceivedNanos = System.nanoTime();
+        session = webSocketContainer.connectToServer(this, endpoint);
+    }
+
+    public boolean isOpen() {
+        Session currentSession = session;
+        return currentSession != null && currentSession.isOpen();
+    }
+
+    /**
+     * Sends a ping without waiting, its pong (as any other message) updates {@link #getLastReceivedNanos()}
+     */
+    public void sendPing() {
+        Session currentSession = session;
+        if (currentSession == null) {
+            return;
+        }
+        try {
+            currentSession.getAsyncRemote().sendPing(PING_PAYLOAD.duplicate());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Error sending ping through {}", name, e);
+        }
+    }
+
+    public void close() {
+        Session currentSession = session;
+        if (currentSession != null && currentSession.isOpen()) {
+            try {
+                currentSession.close();
+            } catch (IOException e) {
+                LOGGER.warn("Error while closing websocket connection {}", name, e);
+            }
+        }
+    }
+
+    /**
+     * {@link System#nanoTime()} when the last message or pong was received (or when connecting, if none was received yet)
+     */
+    public long getLastReceivedNanos() {
+        return lastReceivedNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @OnOpen
+    public void onOpen(Session session) {
+        LOGGER.info("WebSocket {} opened: {}", name, session.getId());
+
+        try {
+            session.getBasicRemote().sendText(diffOrdersSubscribeMessage);
+        } catch (Exception e) {
+            throw new BitsoExchangeWebSocketException("Error sending subscribe message: " + diffOrdersSubscribeMessage, e);
+        }
+    }
+
+    @OnMessage
+    public void onMessage(String jsonMessage) {
+        long receivedNanos = System.nanoTime();
+        long receivedEpochMillis = System.currentTimeMillis();
+        lastReceivedNanos = receivedNanos;
+        LOGGER.trace("New websocket message received: {}", jsonMessage);
+
+        try {
+            JsonNode rootNode = jsonObjectMapper.readTree(jsonMessage);
+
+            String action = nodeAsText(rootNode, MESSAGE_PROPERTY_ACTION).orElse("");
+
+            if (action.equals(MESSAGE_ACTION_SUBSCRIBE)) {
+                LOGGER.info("Message received is a subscribe response message: {}", jsonMessage);
+                handleSubscribeResponseMessage(jsonMessage, rootNode);
+            }
+            else {
+                // Validating that client is subscribed before processing any other type has been left out on purpose (we just need diff orders, we don't really care if subscribe configuration was lost)
+                String type = nodeAsText(rootNode, MESSAGE_PROPERTY_TYPE).orElse("");
+
+                if (MESSAGE_TYPE_DIFF_ORDERS.equals(type)) {
+                    handleDiffOrdersMessage(rootNode, receivedNanos, receivedEpochMillis);
+                }
+                else {
+                    LOGGER.debug("Ignoring message with type: [{}]: {}", type, jsonMessage);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Message caused exception. Fail-safe procedure ignoring: {}", jsonMessage, e);
+        }
+    }
+
+    @OnMessage
+    public void onPong(PongMessage pong) {
+        lastReceivedNanos = System.nanoTime();
+    }
+
+    private void handleDiffOrdersMessage(JsonNode rootNode, long receivedNanos, long receivedEpochMillis) throws JsonProcessingException {
+        DiffOrdersWebsocketMessage diffOrdersMessage = jsonObjectMapper.treeToValue(rootNode, DiffOrdersWebsocketMessage.class);
+        diffOrdersMessage.setReceivedNanos(receivedNanos);
+        diffOrdersMessage.setReceivedEpochMillis(receivedEpochMillis);
+        diffOrdersMessage.setParsedNanos(System.nanoTime());
+        eventLog.record(HotPathEvent.DIFF_ORDERS_RECEIVED, diffOrdersMessage.getSequence(), diffOrdersMessage.getPayload().size(), null);
+        listener.onDiffOrders(this, diffOrdersMessage);
+    }
+
+    private void handleSubscribeResponseMessage(String jsonMessage, JsonNode rootNode) {
+        String response = nodeAsText(rootNode, MESSAGE_PROPERTY_RESPONSE).orElse("");
+        if (!response.equals(MESSAGE_PROPERTY_RESPONSE_OK)) {
+            LOGGER.warn("non-ok response in subscribe message: {}", jsonMessage);
+        }
+    }
+
+    private static final Optional<String> nodeAsText(JsonNode node, String propertyName) {
+        JsonNode value = node.get(propertyName);
+        if (value == null) {
+            return Optional.empty();
+        }
+        else {
+            return Optional.of(value.asText());
+        }
+    }
+
+    @OnClose
+    public void onClose(CloseReason reason) {
+        LOGGER.info("WebSocket {} closed. Reason code: [{}], Reason phrase: {}", name, reason.getCloseCode(), reason.getReasonPhrase());
+        listener.onConnectionLost(this);
+    }
+
+    @OnError
+    public void onError(Throwable error) {
+        LOGGER.warn("WebSocket {} error", name, error);
+    }
+
+    @Override
+    public String toString() {
+        return "BitsoWebsocketConnection(" + name + ")";
+    }
+}
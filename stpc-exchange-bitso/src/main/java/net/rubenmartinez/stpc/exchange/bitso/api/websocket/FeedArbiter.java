@@ -0,0 +1,62 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.websocket;
+
+import java.util.Arrays;
+
+import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
+
+/**
+ * Decides which copy of each diff-orders message to use when the same messages are received through several connections
+ * (feeds): the first one received, whatever the feed.
+ * <p>
+ * The last <code>windowSize</code> sequences used are remembered, so a message is a duplicate if its sequence is among them, or
+ * older. For each feed, the messages it delivered first are counted ({@link MetricNames#WEBSOCKET_ARBITRATION_WINS}), and for the
+ * duplicates it delivered, how late they were ({@link MetricNames#WEBSOCKET_ARBITRATION_LAG}).</p>
+ * <p>
+ * Not thread-safe, calls must be serialized by the caller.</p>
+ */
+public class FeedArbiter {
+
+	private static final long NO_SEQUENCE = Long.MIN_VALUE;
+
+	private final ExchangeMetrics metrics;
+	private final long[] sequences;
+	private final long[] firstReceivedNanos;
+	private final int mask;
+	private long highestSequence;
+
+	/**
+	 * @param windowSize rounded up to a power of 2
+	 */
+	public FeedArbiter(int windowSize, ExchangeMetrics metrics) {
+		int capacity = Integer.highestOneBit(Math.max(1, windowSize - 1)) << 1;
+		this.metrics = metrics;
+		this.sequences = new long[capacity];
+		this.firstReceivedNanos = new long[capacity];
+		this.mask = capacity - 1;
+		this.highestSequence = NO_SEQUENCE;
+		Arrays.fill(sequences, NO_SEQUENCE);
+	}
+
+	/**
+	 * @return <code>true</code> if the message is the first one received with its sequence, so it must be used
+	 */
+	public boolean arbitrate(String feed, DiffOrdersWebsocketMessage message) {
+		long sequence = message.getSequence();
+		int slot = (int) sequence & mask;
+		if (sequences[slot] == sequence) {
+			metrics.recordTime(MetricNames.WEBSOCKET_ARBITRATION_LAG, Math.max(0, message.getReceivedNanos() - firstReceivedNanos[slot]), MetricNames.TAG_FEED, feed);
+			return false;
+		}
+		if (highestSequence != NO_SEQUENCE && sequence <= highestSequence - sequences.length) {
+			return false; // Too old to know, but already used or skipped by then
+		}
+
+		sequences[slot] = sequence;
+		firstReceivedNanos[slot] = message.getReceivedNanos();
+		highestSequence = Math.max(highestSequence, sequence);
+		metrics.increment(MetricNames.WEBSOCKET_ARBITRATION_WINS, MetricNames.TAG_FEED, feed);
+		return true;
+	}
+}
@@ -0,0 +1,32 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.websocket;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delays between consecutive connection attempts: doubled on each failed attempt, up to a maximum, and then randomized between
+ * half and the whole delay, so clients disconnected at the same time don't reconnect all at once.
+ */
+public class ReconnectBackoff {
+
+	private final long initialDelayMillis;
+	private final long maxDelayMillis;
+	private int attempts;
+
+	public ReconnectBackoff(long initialDelayMillis, long maxDelayMillis) {
+		this.initialDelayMillis = initialDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+
+	public synchronized long nextDelayMillis() {
+		attempts++;
+		long delayMillis = Math.min(maxDelayMillis, initialDelayMillis << Math.min(attempts - 1, 20));
+		return delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+	}
+
+	/**
+	 * To be called once connected, so the next delay is the initial one again
+	 */
+	public synchronized void reset() {
+		attempts = 0;
+	}
+}
@@ -3,6 +3,7 @@ package net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -13,6 +14,14 @@ public class DiffOrdersWebsocketMessage {
 	@JsonProperty("payload")
 	private List<DiffOrder> payload;
 
+	// Stage timestamps, not part of the message from Bitso but set while processing it to trace its latency. Zero if not set
+	@JsonIgnore
+	private long receivedEpochMillis;
+	@JsonIgnore
+	private long receivedNanos;
+	@JsonIgnore
+	private long parsedNanos;
+
 
 	public static class DiffOrder {
 		@JsonProperty("d")
@@ -123,6 +132,39 @@ public class DiffOrdersWebsocketMessage {
 		this.payload = payload;
 	}
 
+	/**
+	 * Wall-clock time when the websocket frame with this message was received, comparable with the timestamps from Bitso
+	 */
+	public long getReceivedEpochMillis() {
+		return this.receivedEpochMillis;
+	}
+
+	/**
+	 * {@link System#nanoTime()} when the websocket frame with this message was received
+	 */
+	public long getReceivedNanos() {
+		return this.receivedNanos;
+	}
+
+	/**
+	 * {@link System#nanoTime()} when the websocket frame was parsed into this message
+	 */
+	public long getParsedNanos() {
+		return this.parsedNanos;
+	}
+
+	public void setReceivedEpochMillis(final long receivedEpochMillis) {
+		this.receivedEpochMillis = receivedEpochMillis;
+	}
+
+	public void setReceivedNanos(final long receivedNanos) {
+		this.receivedNanos = receivedNanos;
+	}
+
+	public void setParsedNanos(final long parsedNanos) {
+		this.parsedNanos = parsedNanos;
+	}
+
 	@Override
 	public String toString() {
 		return "DiffOrdersWebsocketMessage(book=" + this.getBook() + ", sequence=" + this.getSequence() + ", payload=" + this.getPayload() + ")";
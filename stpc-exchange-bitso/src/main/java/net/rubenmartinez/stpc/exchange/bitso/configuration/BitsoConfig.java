@@ -0,0 +1,457 @@
+package net.rubenmartinez.stpc.exchange.bitso.configuration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable and typed values of the <code>bitso.properties</code> configuration.
+ * <p>
+ * All the properties are parsed and validated once when the instance is created (so a wrong value fails at startup, not when it's
+ * first used), and the getters just return the fields. Components are given the configuration of their client (see
+ * {@link ReloadableConfig}), so books in the same JVM can be configured differently.</p>
+ * <p>
+ * The {@link #WATCHED_PROPERTIES} are the ones read again on each use, so they can be changed by reloading the configuration
+ * while running. The rest are only read when the components are constructed.</p>
+ */
+public final class BitsoConfig {
+
+    static final String PROPERTY_REST_ENDPOINT = "rest.endpoint";
+    static final String PROPERTY_REST_CONNECT_TIMEOUT_MILLIS = "rest.connect-timeout-millis";
+    static final String PROPERTY_REST_READ_TIMEOUT_MILLIS = "rest.read-timeout-millis";
+    static final String PROPERTY_REST_CONNECTION_POOL_MAX_IDLE = "rest.connection-pool.max-idle";
+    static final String PROPERTY_REST_CONNECTION_POOL_KEEP_ALIVE_SECONDS = "rest.connection-pool.keep-alive-seconds";
+    static final String PROPERTY_REST_HTTP2_ENABLED = "rest.http2.enabled";
+    static final String PROPERTY_REST_LOG_LEVEL = "rest.log-level";
+    static final String PROPERTY_REST_RETRY_PERIOD_MILLIS = "rest.retry.period-millis";
+    static final String PROPERTY_REST_RETRY_MAX_PERIOD_MILLIS = "rest.retry.max-period-millis";
+    static final String PROPERTY_REST_RETRY_MAX_ATTEMPTS = "rest.retry.max-attempts";
+    static final String PROPERTY_REST_RATE_LIMIT_RETRY_AFTER_MILLIS = "rest.rate-limit.retry-after-millis";
+    static final String PROPERTY_REST_RATE_LIMIT_REQUESTS_PER_MINUTE = "rest.rate-limit.requests-per-minute";
+    static final String PROPERTY_REST_RATE_LIMIT_BURST = "rest.rate-limit.burst";
+    static final String PROPERTY_REST_RATE_LIMIT_MAX_BACKOFF_MILLIS = "rest.rate-limit.max-backoff-millis";
+    static final String PROPERTY_REST_RATE_LIMIT_MAX_ATTEMPTS = "rest.rate-limit.max-attempts";
+    static final String PROPERTY_WEBSOCKET_ENDPOINT = "websocket.endpoint";
+    static final String PROPERTY_WEBSOCKET_SUBSCRIBE_MESSAGE_DIFFORDERS = "websocket.subscribe.diff-orders";
+    static final String PROPERTY_WEBSOCKET_MISSING_SEQUENCE_WHILE_RESETTING_MAX_RETRIES = "websocket.missing-sequence-while-resetting-max-retries";
+    static final String PROPERTY_WEBSOCKET_RECONNECT_INITIAL_BACKOFF_MILLIS = "websocket.reconnect.initial-backoff-millis";
+    static final String PROPERTY_WEBSOCKET_RECONNECT_MAX_BACKOFF_MILLIS = "websocket.reconnect.max-backoff-millis";
+    static final String PROPERTY_WEBSOCKET_LIVENESS_PING_INTERVAL_MILLIS = "websocket.liveness.ping-interval-millis";
+    static final String PROPERTY_WEBSOCKET_LIVENESS_TIMEOUT_MILLIS = "websocket.liveness.timeout-millis";
+    static final String PROPERTY_WEBSOCKET_STANDBY_ENABLED = "websocket.standby.enabled";
+    static final String PROPERTY_WEBSOCKET_STANDBY_MAX_MESSAGES = "websocket.standby.max-messages";
+    static final String PROPERTY_WEBSOCKET_ARBITRATION_ENABLED = "websocket.arbitration.enabled";
+    static final String PROPERTY_WEBSOCKET_ARBITRATION_WINDOW = "websocket.arbitration.window";
+    static final String PROPERTY_TRADE_HOLDER_POLL_SECONDS = "trade-holder.poll.seconds";
+    static final String PROPERTY_TRADE_HOLDER_POLL_TRADES = "trade-holder.poll.trades";
+    static final String PROPERTY_TRADE_HOLDER_BUFFER_MAX_TRADES = "trade-holder.buffer.max-trades";
+    static final String PROPERTY_TRADE_HOLDER_POLL_ITERATIONS_MILLIS_WAIT_FINDING_LAST_TRADE = "trade-holder.poll.iterations-millis-wait-finding-last-trade";
+    static final String PROPERTY_TRADE_HOLDER_HISTORY_PARALLEL_PAGES = "trade-holder.history.parallel-pages";
+    static final String PROPERTY_TRADE_HOLDER_HISTORY_MARKER_OVERLAP_PERCENT = "trade-holder.history.marker-overlap-percent";
+    static final String PROPERTY_ORDERBOOK_READY_TIMEOUT_SECONDS = "orderbook.ready-timeout-seconds";
+    static final String PROPERTY_ORDERBOOK_RESET_RETRY_WAIT_MILLIS = "orderbook.reset-retry-millis-wait";
+    static final String PROPERTY_ORDERBOOK_ORDER_POOL_MAX_SIZE = "orderbook.order-pool.max-size";
+    static final String PROPERTY_ORDERBOOK_STORAGE = "orderbook.storage";
+    static final String PROPERTY_ORDERBOOK_REORDER_WINDOW_MILLIS = "orderbook.reorder.window-millis";
+    static final String PROPERTY_ORDERBOOK_REORDER_MAX_MESSAGES = "orderbook.reorder.max-messages";
+    static final String PROPERTY_ORDERBOOK_SNAPSHOT_DIRECTORY = "orderbook.snapshot.directory";
+    static final String PROPERTY_ORDERBOOK_SNAPSHOT_INTERVAL_SECONDS = "orderbook.snapshot.interval-seconds";
+    static final String PROPERTY_ORDERBOOK_SNAPSHOT_MAX_AGE_SECONDS = "orderbook.snapshot.max-age-seconds";
+    static final String PROPERTY_ORDERBOOK_SNAPSHOT_BRIDGE_TIMEOUT_MILLIS = "orderbook.snapshot.bridge-timeout-millis";
+    static final String PROPERTY_EVENTLOG_ENABLED = "eventlog.enabled";
+    static final String PROPERTY_EVENTLOG_CAPACITY = "eventlog.capacity";
+    static final String PROPERTY_EVENTLOG_SAMPLING_RATE = "eventlog.sampling-rate";
+    static final String PROPERTY_EVENTLOG_DRAIN_INTERVAL_MILLIS = "eventlog.drain-interval-millis";
+    static final String PROPERTY_EVENTLOG_FILE = "eventlog.file";
+    static final String PROPERTY_CONFIGURATION_RELOAD_FILE = "configuration.reload.file";
+    static final String PROPERTY_CONFIGURATION_RELOAD_INTERVAL_MILLIS = "configuration.reload.interval-millis";
+
+    /**
+     * Properties that can be changed while running, see {@link ReloadableConfig#reload(Properties)}
+     */
+    public static final Set<String> WATCHED_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+    		PROPERTY_TRADE_HOLDER_POLL_TRADES,
+    		PROPERTY_TRADE_HOLDER_POLL_ITERATIONS_MILLIS_WAIT_FINDING_LAST_TRADE,
+    		PROPERTY_ORDERBOOK_READY_TIMEOUT_SECONDS,
+    		PROPERTY_WEBSOCKET_LIVENESS_TIMEOUT_MILLIS)));
+
+    private final Properties properties;
+
+    private final String restEndpointUri;
+    private final int restConnectTimeoutMillis;
+    private final int restReadTimeoutMillis;
+    private final int restConnectionPoolMaxIdle;
+    private final int restConnectionPoolKeepAliveSeconds;
+    private final boolean restHttp2Enabled;
+    private final String restLogLevel;
+    private final int restRetryPeriodMillis;
+    private final int restRetryMaxPeriodMillis;
+    private final int restRetryMaxAttempts;
+    private final int restRateLimitRetryAfterMillis;
+    private final int restRateLimitRequestsPerMinute;
+    private final int restRateLimitBurst;
+    private final int restRateLimitMaxBackoffMillis;
+    private final int restRateLimitMaxAttempts;
+    private final String websocketEndpointUri;
+    private final String websocketSubscribeMessageDiffOrders;
+    private final int websocketMissingSequenceWhileResettingMaxRetries;
+    private final int websocketReconnectInitialBackoffMillis;
+    private final int websocketReconnectMaxBackoffMillis;
+    private final int websocketLivenessPingIntervalMillis;
+    private final int websocketLivenessTimeoutMillis;
+    private final boolean websocketStandbyEnabled;
+    private final int websocketStandbyMaxMessages;
+    private final boolean websocketArbitrationEnabled;
+    private final int websocketArbitrationWindow;
+    private final int tradeHolderPollSeconds;
+    private final int tradeHolderPollTrades;
+    private final int tradeHolderBufferMaxTrades;
+    private final int tradeHolderIterationsMillisWaitFindingLastTrade;
+    private final int tradeHolderHistoryParallelPages;
+    private final int tradeHolderHistoryMarkerOverlapPercent;
+    private final long orderBookReadyTimeoutSeconds;
+    private final int orderBookResetRetryWaitMillis;
+    private final int orderBookOrderPoolMaxSize;
+    private final String orderBookStorage;
+    private final long orderBookReorderWindowMillis;
+    private final int orderBookReorderMaxMessages;
+    private final String orderBookSnapshotDirectory;
+    private final int orderBookSnapshotIntervalSeconds;
+    private final int orderBookSnapshotMaxAgeSeconds;
+    private final int orderBookSnapshotBridgeTimeoutMillis;
+    private final boolean eventLogEnabled;
+    private final int eventLogCapacity;
+    private final int eventLogSamplingRate;
+    private final int eventLogDrainIntervalMillis;
+    private final String eventLogFile;
+    private final String configurationReloadFile;
+    private final int configurationReloadIntervalMillis;
+
+    /**
+     * @throws IllegalArgumentException if any property is missing or has a wrong value
+     */
+    public static BitsoConfig fromProperties(Properties properties) {
+    	return new BitsoConfig(properties);
+    }
+
+    private BitsoConfig(Properties source) {
+    	this.properties = new Properties();
+    	this.properties.putAll(source);
+
+    	this.restEndpointUri = getString(PROPERTY_REST_ENDPOINT);
+    	this.restConnectTimeoutMillis = getPositiveInt(PROPERTY_REST_CONNECT_TIMEOUT_MILLIS);
+    	this.restReadTimeoutMillis = getPositiveInt(PROPERTY_REST_READ_TIMEOUT_MILLIS);
+    	this.restConnectionPoolMaxIdle = getInt(PROPERTY_REST_CONNECTION_POOL_MAX_IDLE);
+    	this.restConnectionPoolKeepAliveSeconds = getInt(PROPERTY_REST_CONNECTION_POOL_KEEP_ALIVE_SECONDS);
+    	this.restHttp2Enabled = getBoolean(PROPERTY_REST_HTTP2_ENABLED);
+    	this.restLogLevel = getString(PROPERTY_REST_LOG_LEVEL);
+    	this.restRetryPeriodMillis = getInt(PROPERTY_REST_RETRY_PERIOD_MILLIS);
+    	this.restRetryMaxPeriodMillis = getInt(PROPERTY_REST_RETRY_MAX_PERIOD_MILLIS);
+    	this.restRetryMaxAttempts = getInt(PROPERTY_REST_RETRY_MAX_ATTEMPTS);
+    	this.restRateLimitRetryAfterMillis = getInt(PROPERTY_REST_RATE_LIMIT_RETRY_AFTER_MILLIS);
+    	this.restRateLimitRequestsPerMinute = getPositiveInt(PROPERTY_REST_RATE_LIMIT_REQUESTS_PER_MINUTE);
+    	this.restRateLimitBurst = getPositiveInt(PROPERTY_REST_RATE_LIMIT_BURST);
+    	this.restRateLimitMaxBackoffMillis = getInt(PROPERTY_REST_RATE_LIMIT_MAX_BACKOFF_MILLIS);
+    	this.restRateLimitMaxAttempts = getPositiveInt(PROPERTY_REST_RATE_LIMIT_MAX_ATTEMPTS);
+    	this.websocketEndpointUri = getString(PROPERTY_WEBSOCKET_ENDPOINT);
+    	this.websocketSubscribeMessageDiffOrders = getString(PROPERTY_WEBSOCKET_SUBSCRIBE_MESSAGE_DIFFORDERS);
+    	this.websocketMissingSequenceWhileResettingMaxRetries = getInt(PROPERTY_WEBSOCKET_MISSING_SEQUENCE_WHILE_RESETTING_MAX_RETRIES);
+    	this.websocketReconnectInitialBackoffMillis = getPositiveInt(PROPERTY_WEBSOCKET_RECONNECT_INITIAL_BACKOFF_MILLIS);
+    	this.websocketReconnectMaxBackoffMillis = getPositiveInt(PROPERTY_WEBSOCKET_RECONNECT_MAX_BACKOFF_MILLIS);
+    	this.websocketLivenessPingIntervalMillis = getPositiveInt(PROPERTY_WEBSOCKET_LIVENESS_PING_INTERVAL_MILLIS);
+    	this.websocketLivenessTimeoutMillis = getPositiveInt(PROPERTY_WEBSOCKET_LIVENESS_TIMEOUT_MILLIS);
+    	this.websocketStandbyEnabled = getBoolean(PROPERTY_WEBSOCKET_STANDBY_ENABLED);
+    	this.websocketStandbyMaxMessages = getInt(PROPERTY_WEBSOCKET_STANDBY_MAX_MESSAGES);
+    	this.websocketArbitrationEnabled = getBoolean(PROPERTY_WEBSOCKET_ARBITRATION_ENABLED);
+    	this.websocketArbitrationWindow = getPositiveInt(PROPERTY_WEBSOCKET_ARBITRATION_WINDOW);
+    	this.tradeHolderPollSeconds = getPositiveInt(PROPERTY_TRADE_HOLDER_POLL_SECONDS);
+    	this.tradeHolderPollTrades = getPositiveInt(PROPERTY_TRADE_HOLDER_POLL_TRADES);
+    	this.tradeHolderBufferMaxTrades = getPositiveInt(PROPERTY_TRADE_HOLDER_BUFFER_MAX_TRADES);
+    	this.tradeHolderIterationsMillisWaitFindingLastTrade = getPositiveInt(PROPERTY_TRADE_HOLDER_POLL_ITERATIONS_MILLIS_WAIT_FINDING_LAST_TRADE);
+    	this.tradeHolderHistoryParallelPages = getPositiveInt(PROPERTY_TRADE_HOLDER_HISTORY_PARALLEL_PAGES);
+    	this.tradeHolderHistoryMarkerOverlapPercent = getInt(PROPERTY_TRADE_HOLDER_HISTORY_MARKER_OVERLAP_PERCENT);
+    	this.orderBookReadyTimeoutSeconds = getPositiveInt(PROPERTY_ORDERBOOK_READY_TIMEOUT_SECONDS);
+    	this.orderBookResetRetryWaitMillis = getInt(PROPERTY_ORDERBOOK_RESET_RETRY_WAIT_MILLIS);
+    	this.orderBookOrderPoolMaxSize = getInt(PROPERTY_ORDERBOOK_ORDER_POOL_MAX_SIZE);
+    	this.orderBookStorage = getString(PROPERTY_ORDERBOOK_STORAGE);
+    	this.orderBookReorderWindowMillis = getInt(PROPERTY_ORDERBOOK_REORDER_WINDOW_MILLIS);
+    	this.orderBookReorderMaxMessages = getInt(PROPERTY_ORDERBOOK_REORDER_MAX_MESSAGES);
+    	this.orderBookSnapshotDirectory = getOptionalString(PROPERTY_ORDERBOOK_SNAPSHOT_DIRECTORY);
+    	this.orderBookSnapshotIntervalSeconds = getPositiveInt(PROPERTY_ORDERBOOK_SNAPSHOT_INTERVAL_SECONDS);
+    	this.orderBookSnapshotMaxAgeSeconds = getPositiveInt(PROPERTY_ORDERBOOK_SNAPSHOT_MAX_AGE_SECONDS);
+    	this.orderBookSnapshotBridgeTimeoutMillis = getPositiveInt(PROPERTY_ORDERBOOK_SNAPSHOT_BRIDGE_TIMEOUT_MILLIS);
+    	this.eventLogEnabled = getBoolean(PROPERTY_EVENTLOG_ENABLED);
+    	this.eventLogCapacity = getPositiveInt(PROPERTY_EVENTLOG_CAPACITY);
+    	this.eventLogSamplingRate = getPositiveInt(PROPERTY_EVENTLOG_SAMPLING_RATE);
+    	this.eventLogDrainIntervalMillis = getPositiveInt(PROPERTY_EVENTLOG_DRAIN_INTERVAL_MILLIS);
+    	this.eventLogFile = getOptionalString(PROPERTY_EVENTLOG_FILE);
+    	this.configurationReloadFile = getOptionalString(PROPERTY_CONFIGURATION_RELOAD_FILE);
+    	this.configurationReloadIntervalMillis = getPositiveInt(PROPERTY_CONFIGURATION_RELOAD_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @return a copy of this configuration with the {@link #WATCHED_PROPERTIES} taken from <code>changed</code> (if present there)
+     * @throws IllegalArgumentException if any of the watched properties taken has a wrong value
+     */
+    public BitsoConfig withWatchedPropertiesFrom(Properties changed) {
+    	Properties merged = getProperties();
+    	for (String name : WATCHED_PROPERTIES) {
+    		String value = changed.getProperty(name);
+    		if (value != null) {
+    			merged.setProperty(name, value);
+    		}
+    	}
+    	return new BitsoConfig(merged);
+    }
+
+    /**
+     * @return a copy of the properties this configuration was created from
+     */
+    public Properties getProperties() {
+    	Properties copy = new Properties();
+    	copy.putAll(properties);
+    	return copy;
+    }
+
+    public String getRestEndpointUri() {
+    	return restEndpointUri;
+    }
+
+    public int getRestConnectTimeoutMillis() {
+    	return restConnectTimeoutMillis;
+    }
+
+    public int getRestReadTimeoutMillis() {
+    	return restReadTimeoutMillis;
+    }
+
+    public int getRestConnectionPoolMaxIdle() {
+    	return restConnectionPoolMaxIdle;
+    }
+
+    public int getRestConnectionPoolKeepAliveSeconds() {
+    	return restConnectionPoolKeepAliveSeconds;
+    }
+
+    public boolean isRestHttp2Enabled() {
+    	return restHttp2Enabled;
+    }
+
+    public String getRestLogLevel() {
+    	return restLogLevel;
+    }
+
+    public int getRestRetryPeriodMillis() {
+    	return restRetryPeriodMillis;
+    }
+
+    public int getRestRetryMaxPeriodMillis() {
+    	return restRetryMaxPeriodMillis;
+    }
+
+    public int getRestRetryMaxAttempts() {
+    	return restRetryMaxAttempts;
+    }
+
+    public int getRestRateLimitRetryAfterMillis() {
+    	return restRateLimitRetryAfterMillis;
+    }
+
+    public int getRestRateLimitRequestsPerMinute() {
+    	return restRateLimitRequestsPerMinute;
+    }
+
+    public int getRestRateLimitBurst() {
+    	return restRateLimitBurst;
+    }
+
+    public int getRestRateLimitMaxBackoffMillis() {
+    	return restRateLimitMaxBackoffMillis;
+    }
+
+    public int getRestRateLimitMaxAttempts() {
+    	return restRateLimitMaxAttempts;
+    }
+
+    public String getWebsocketEndpointUri() {
+    	return websocketEndpointUri;
+    }
+
+    public String getWebsocketSubscribeMessageDiffOrders() {
+    	return websocketSubscribeMessageDiffOrders;
+    }
+
+    public int getWebsocketMissingSequenceWhileResettingMaxRetries() {
+    	return websocketMissingSequenceWhileResettingMaxRetries;
+    }
+
+    public int getWebsocketReconnectInitialBackoffMillis() {
+    	return websocketReconnectInitialBackoffMillis;
+    }
+
+    public int getWebsocketReconnectMaxBackoffMillis() {
+    	return websocketReconnectMaxBackoffMillis;
+    }
+
+    public int getWebsocketLivenessPingIntervalMillis() {
+    	return websocketLivenessPingIntervalMillis;
+    }
+
+    public int getWebsocketLivenessTimeoutMillis() {
+    	return websocketLivenessTimeoutMillis;
+    }
+
+    public boolean isWebsocketStandbyEnabled() {
+    	return websocketStandbyEnabled;
+    }
+
+    public int getWebsocketStandbyMaxMessages() {
+    	return websocketStandbyMaxMessages;
+    }
+
+    public boolean isWebsocketArbitrationEnabled() {
+    	return websocketArbitrationEnabled;
+    }
+
+    public int getWebsocketArbitrationWindow() {
+    	return websocketArbitrationWindow;
+    }
+
+    public int getTradeHolderPollSeconds() {
+    	return tradeHolderPollSeconds;
+    }
+
+    public int getTradeHolderPollTrades() {
+    	return tradeHolderPollTrades;
+    }
+
+    public int getTradeHolderBufferMaxTrades() {
+    	return tradeHolderBufferMaxTrades;
+    }
+
+    public int getTradeHolderIterationsMillisWaitFindingLastTrade() {
+    	return tradeHolderIterationsMillisWaitFindingLastTrade;
+    }
+
+    public int getTradeHolderHistoryParallelPages() {
+    	return tradeHolderHistoryParallelPages;
+    }
+
+    public int getTradeHolderHistoryMarkerOverlapPercent() {
+    	return tradeHolderHistoryMarkerOverlapPercent;
+    }
+
+    public long getOrderBookReadyTimeoutSeconds() {
+    	return orderBookReadyTimeoutSeconds;
+    }
+
+    public int getOrderBookResetRetryWaitMillis() {
+    	return orderBookResetRetryWaitMillis;
+    }
+
+    public int getOrderBookOrderPoolMaxSize() {
+    	return orderBookOrderPoolMaxSize;
+    }
+
+    public String getOrderBookStorage() {
+    	return orderBookStorage;
+    }
+
+    public long getOrderBookReorderWindowMillis() {
+    	return orderBookReorderWindowMillis;
+    }
+
+    public int getOrderBookReorderMaxMessages() {
+    	return orderBookReorderMaxMessages;
+    }
+
+    /**
+     * Empty if the OrderBook snapshots are disabled
+     */
+    public String getOrderBookSnapshotDirectory() {
+    	return orderBookSnapshotDirectory;
+    }
+
+    public int getOrderBookSnapshotIntervalSeconds() {
+    	return orderBookSnapshotIntervalSeconds;
+    }
+
+    public int getOrderBookSnapshotMaxAgeSeconds() {
+    	return orderBookSnapshotMaxAgeSeconds;
+    }
+
+    public int getOrderBookSnapshotBridgeTimeoutMillis() {
+    	return orderBookSnapshotBridgeTimeoutMillis;
+    }
+
+    public boolean isEventLogEnabled() {
+    	return eventLogEnabled;
+    }
+
+    public int getEventLogCapacity() {
+    	return eventLogCapacity;
+    }
+
+    public int getEventLogSamplingRate() {
+    	return eventLogSamplingRate;
+    }
+
+    public int getEventLogDrainIntervalMillis() {
+    	return eventLogDrainIntervalMillis;
+    }
+
+    public String getEventLogFile() {
+    	return eventLogFile;
+    }
+
+    public String getConfigurationReloadFile() {
+    	return configurationReloadFile;
+    }
+
+    public int getConfigurationReloadIntervalMillis() {
+    	return configurationReloadIntervalMillis;
+    }
+
+    private String getString(String name) {
+    	String value = properties.getProperty(name);
+    	if (value == null || value.trim().isEmpty()) {
+    		throw new IllegalArgumentException("Property [" + name + "] is mandatory");
+    	}
+    	return value.trim();
+    }
+
+    private String getOptionalString(String name) {
+    	return properties.getProperty(name, "").trim();
+    }
+
+    private int getInt(String name) {
+    	try {
+    		return Integer.parseInt(getString(name));
+    	} catch (NumberFormatException e) {
+    		throw new IllegalArgumentException("Property [" + name + "] must be a number", e);
+    	}
+    }
+
+    private int getPositiveInt(String name) {
+    	int value = getInt(name);
+    	if (value <= 0) {
+    		throw new IllegalArgumentException("Property [" + name + "] must be greater than zero. Current: " + value);
+    	}
+    	return value;
+    }
+
+    private boolean getBoolean(String name) {
+    	String value = getString(name);
+    	if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+    		throw new IllegalArgumentException("Property [" + name + "] must be true or false");
+    	}
+    	return Boolean.parseBoolean(value);
+    }
+
+    @Override
+    public String toString() {
+    	return "BitsoConfig(" + properties + ")";
+    }
+}
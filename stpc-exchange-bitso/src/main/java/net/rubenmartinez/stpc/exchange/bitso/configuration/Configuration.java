@@ -1,6 +1,7 @@
 package net.rubenmartinez.stpc.exchange.bitso.configuration;
 
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 import org.slf4j.Logger;
@@ -12,28 +13,27 @@ import net.rubenmartinez.stpc.exchange.bitso.util.Resources;
 /**
  *  
  * Singleton
- * 
+ * <p>
+ * The properties are parsed and validated once into the {@link #getDefault() default configuration}, the static getters just
+ * return its current values. If <code>configuration.reload.file</code> is set, the {@link BitsoConfig#WATCHED_PROPERTIES} are
+ * reloaded from that file when it changes (see {@link ConfigurationFileWatcher}).</p>
  */
 public class Configuration {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(Configuration.class);
     
     private static final String PROPERTIES_FILE = "/bitso.properties";
-    private static final String PROPERTY_REST_ENDPOINT = "rest.endpoint";
-    private static final String PROPERTY_WEBSOCKET_ENDPOINT = "websocket.endpoint";
-    private static final String PROPERTY_WEBSOCKET_SUBSCRIBE_MESSAGE_DIFFORDERS = "websocket.subscribe.diff-orders";
-    private static final String PROPERTY_WEBSOCKET_MISSING_SEQUENCE_WHILE_RESETTING_MAX_RETRIES = "websocket.missing-sequence-while-resetting-max-retries";
-    private static final String PROPERTY_TRADE_HOLDER_POLL_SECONDS = "trade-holder.poll.seconds";
-    private static final String PROPERTY_TRADE_HOLDER_POLL_TRADES = "trade-holder.poll.trades";
-    private static final String PROPERTY_TRADE_HOLDER_BUFFER_MAX_TRADES = "trade-holder.buffer.max-trades";
-    private static final String PROPERTY_TRADE_HOLDER_POLL_ITERATIONS_MILLIS_WAIT_FINDING_LAST_TRADE = "trade-holder.poll.iterations-millis-wait-finding-last-trade";
-    private static final String PROPERTY_ORDERBOOK_READY_TIMEOUT_SECONDS = "orderbook.ready-timeout-seconds";
-    private static final String PROPERTY_ORDERBOOK_RESET_RETRY_WAIT_MILLIS = "orderbook.reset-retry-millis-wait";
     
     
     private static Configuration theInstance = new Configuration();
+
+    static {
+    	theInstance.startWatchingIfConfigured(); // Not from the constructor, so the instances of subclasses don't start a watcher of their own
+    }
     
     private Properties properties;
+    private ReloadableConfig defaultConfig;
+    private ConfigurationFileWatcher watcher;
     
     protected Configuration() {
     	LOGGER.debug("Creating configuration");
@@ -45,61 +45,254 @@ public class Configuration {
         } catch (Exception e) {
             throw new BitsoExchangeException("Error while reading properties file from classpath: "+PROPERTIES_FILE, e);
         }
+        try {
+        	this.defaultConfig = new ReloadableConfig(BitsoConfig.fromProperties(properties));
+        } catch (IllegalArgumentException e) {
+        	throw new BitsoExchangeException("Wrong configuration in properties file from classpath: " + PROPERTIES_FILE, e);
+        }
+    }
+
+    private void startWatchingIfConfigured() {
+    	BitsoConfig config = defaultConfig.get();
+    	if (!config.getConfigurationReloadFile().isEmpty()) {
+    		watcher = new ConfigurationFileWatcher(Paths.get(config.getConfigurationReloadFile()), defaultConfig);
+    		watcher.start(config.getConfigurationReloadIntervalMillis());
+    	}
+    }
+
+    /**
+     * The configuration read from the <code>bitso.properties</code> in the classpath, used by the clients not given their own one
+     */
+    public static ReloadableConfig getDefault() {
+    	return theInstance.defaultConfig;
     }
     
     public static final int getOrderBookResetRetryWaitMillis() {
-    	return getIntProperty(PROPERTY_ORDERBOOK_RESET_RETRY_WAIT_MILLIS);
+    	return getDefault().get().getOrderBookResetRetryWaitMillis();
     }
     
     public static final String getRestEndpointUri() {
-        return getStringProperty(PROPERTY_REST_ENDPOINT);
+        return getDefault().get().getRestEndpointUri();
     }
     
+    public static final int getRestConnectTimeoutMillis() {
+    	return getDefault().get().getRestConnectTimeoutMillis();
+    }
+
+    public static final int getRestReadTimeoutMillis() {
+    	return getDefault().get().getRestReadTimeoutMillis();
+    }
+
+    public static final int getRestConnectionPoolMaxIdle() {
+    	return getDefault().get().getRestConnectionPoolMaxIdle();
+    }
+
+    public static final int getRestConnectionPoolKeepAliveSeconds() {
+    	return getDefault().get().getRestConnectionPoolKeepAliveSeconds();
+    }
+
+    public static final boolean isRestHttp2Enabled() {
+    	return getDefault().get().isRestHttp2Enabled();
+    }
+
+    /**
+     * One of the {@link feign.Logger.Level} names
+     */
+    public static final String getRestLogLevel() {
+    	return getDefault().get().getRestLogLevel();
+    }
+
+    public static final int getRestRetryPeriodMillis() {
+    	return getDefault().get().getRestRetryPeriodMillis();
+    }
+
+    public static final int getRestRetryMaxPeriodMillis() {
+    	return getDefault().get().getRestRetryMaxPeriodMillis();
+    }
+
+    public static final int getRestRetryMaxAttempts() {
+    	return getDefault().get().getRestRetryMaxAttempts();
+    }
+
+    public static final int getRestRateLimitRetryAfterMillis() {
+    	return getDefault().get().getRestRateLimitRetryAfterMillis();
+    }
+
+    public static final int getRestRateLimitRequestsPerMinute() {
+    	return getDefault().get().getRestRateLimitRequestsPerMinute();
+    }
+
+    public static final int getRestRateLimitBurst() {
+    	return getDefault().get().getRestRateLimitBurst();
+    }
+
+    public static final int getRestRateLimitMaxBackoffMillis() {
+    	return getDefault().get().getRestRateLimitMaxBackoffMillis();
+    }
+
+    public static final int getRestRateLimitMaxAttempts() {
+    	return getDefault().get().getRestRateLimitMaxAttempts();
+    }
+
     public static final String getWebsocketEndpointUri() {
-        return getStringProperty(PROPERTY_WEBSOCKET_ENDPOINT);
+        return getDefault().get().getWebsocketEndpointUri();
     }
     
     public static final String getWebsocketSubscribeMessageDiffOrders() {
-    	return getStringProperty(PROPERTY_WEBSOCKET_SUBSCRIBE_MESSAGE_DIFFORDERS);
+    	return getDefault().get().getWebsocketSubscribeMessageDiffOrders();
+    }
+
+    public static final int getWebsocketReconnectInitialBackoffMillis() {
+    	return getDefault().get().getWebsocketReconnectInitialBackoffMillis();
+    }
+
+    public static final int getWebsocketReconnectMaxBackoffMillis() {
+    	return getDefault().get().getWebsocketReconnectMaxBackoffMillis();
+    }
+
+    public static final int getWebsocketLivenessPingIntervalMillis() {
+    	return getDefault().get().getWebsocketLivenessPingIntervalMillis();
+    }
+
+    /**
+     * A websocket connection that receives nothing (neither messages nor pongs) for this time is considered lost
+     */
+    public static final int getWebsocketLivenessTimeoutMillis() {
+    	return getDefault().get().getWebsocketLivenessTimeoutMillis();
+    }
+
+    public static final boolean isWebsocketStandbyEnabled() {
+    	return getDefault().get().isWebsocketStandbyEnabled();
+    }
+
+    /**
+     * Last messages kept from the standby connection, to be notified if the primary one is lost before delivering them
+     */
+    public static final int getWebsocketStandbyMaxMessages() {
+    	return getDefault().get().getWebsocketStandbyMaxMessages();
+    }
+
+    public static final boolean isWebsocketArbitrationEnabled() {
+    	return getDefault().get().isWebsocketArbitrationEnabled();
+    }
+
+    /**
+     * Number of the last sequences remembered to detect the duplicated messages, when arbitrating
+     */
+    public static final int getWebsocketArbitrationWindow() {
+    	return getDefault().get().getWebsocketArbitrationWindow();
     }
     
     public static final int getWebsocketMissingSequenceWhileResettingMaxRetries() {
-    	return getIntProperty(PROPERTY_WEBSOCKET_MISSING_SEQUENCE_WHILE_RESETTING_MAX_RETRIES);
+    	return getDefault().get().getWebsocketMissingSequenceWhileResettingMaxRetries();
     }
     
     public static final int getTradeHolderBufferMaxTrades() {
-    	return getIntProperty(PROPERTY_TRADE_HOLDER_BUFFER_MAX_TRADES);
+    	return getDefault().get().getTradeHolderBufferMaxTrades();
     }
     
     public static final int getTradeHolderPollSeconds() {
-    	return getIntProperty(PROPERTY_TRADE_HOLDER_POLL_SECONDS);
+    	return getDefault().get().getTradeHolderPollSeconds();
     }
     
     public static final int getTradeHolderPollTrades() {
-    	return getIntProperty(PROPERTY_TRADE_HOLDER_POLL_TRADES);
+    	return getDefault().get().getTradeHolderPollTrades();
     }
 
     public static final int getTradeHolderIterationsMillisWaitFindingLastTrade() {
-    	return getIntProperty(PROPERTY_TRADE_HOLDER_POLL_ITERATIONS_MILLIS_WAIT_FINDING_LAST_TRADE);
+    	return getDefault().get().getTradeHolderIterationsMillisWaitFindingLastTrade();
+    }
+
+    public static final int getTradeHolderHistoryParallelPages() {
+    	return getDefault().get().getTradeHolderHistoryParallelPages();
+    }
+
+    public static final int getTradeHolderHistoryMarkerOverlapPercent() {
+    	return getDefault().get().getTradeHolderHistoryMarkerOverlapPercent();
     }
     
 	public static long getOrderBookReadyTimeoutSeconds() {
-		return getIntProperty(PROPERTY_ORDERBOOK_READY_TIMEOUT_SECONDS);
+		return getDefault().get().getOrderBookReadyTimeoutSeconds();
 	}
-    
 
-    private static final int getIntProperty(String name) {
-    	try {
-        	return Integer.parseInt(getStringProperty(name));
-    	} catch (NumberFormatException e) {
-    		throw new IllegalArgumentException("Property [" + name + "] must be a number", e);
-    	}
+	/**
+	 * Maximum number of removed orders kept to be reused by new orders
+	 */
+	public static int getOrderBookOrderPoolMaxSize() {
+		return getDefault().get().getOrderBookOrderPoolMaxSize();
+	}
+
+	/**
+	 * Where the orders of the books are kept, see {@link net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSides}
+	 */
+	public static String getOrderBookStorage() {
+		return getDefault().get().getOrderBookStorage();
+	}
+
+	/**
+	 * How long the diff-orders received after a missing sequence are held waiting for it, before resetting the book
+	 */
+	public static long getOrderBookReorderWindowMillis() {
+		return getDefault().get().getOrderBookReorderWindowMillis();
+	}
+
+	public static int getOrderBookReorderMaxMessages() {
+		return getDefault().get().getOrderBookReorderMaxMessages();
+	}
+
+	/**
+	 * Directory where the OrderBooks are periodically saved to, to start from them when restarted. Empty to disable the snapshots
+	 */
+	public static String getOrderBookSnapshotDirectory() {
+		return getDefault().get().getOrderBookSnapshotDirectory();
+	}
+
+	public static int getOrderBookSnapshotIntervalSeconds() {
+		return getDefault().get().getOrderBookSnapshotIntervalSeconds();
+	}
+
+	/**
+	 * Older snapshots are not used when starting, as the diff-orders received won't be able to bridge the gap anyway
+	 */
+	public static int getOrderBookSnapshotMaxAgeSeconds() {
+		return getDefault().get().getOrderBookSnapshotMaxAgeSeconds();
+	}
+
+	/**
+	 * Time a book started from a snapshot waits for a diff-order following it, before being retrieved through REST anyway
+	 */
+	public static int getOrderBookSnapshotBridgeTimeoutMillis() {
+		return getDefault().get().getOrderBookSnapshotBridgeTimeoutMillis();
+	}
+
+    public static final boolean isEventLogEnabled() {
+    	return getDefault().get().isEventLogEnabled();
+    }
+
+    public static final int getEventLogCapacity() {
+    	return getDefault().get().getEventLogCapacity();
+    }
+
+    public static final int getEventLogSamplingRate() {
+    	return getDefault().get().getEventLogSamplingRate();
+    }
+
+    public static final int getEventLogDrainIntervalMillis() {
+    	return getDefault().get().getEventLogDrainIntervalMillis();
     }
 
-    private static final String getStringProperty(String name) {
-    	return getProperties().getProperty(name);
+    /**
+     * File where the hot path events are appended to, if empty they are written to the log instead
+     */
+    public static final String getEventLogFile() {
+    	return getDefault().get().getEventLogFile();
     }
 
+    
+
+    /**
+     * The raw properties read, properties not used by the library included
+     */
     public static Properties getProperties() {
         return theInstance.properties;
     }
@@ -0,0 +1,69 @@
+package net.rubenmartinez.stpc.exchange.bitso.configuration;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
+
+/**
+ * Reloads a {@link ReloadableConfig} from a properties file whenever the file is modified, checking it every
+ * <code>intervalMillis</code> from an own daemon thread.
+ * <p>
+ * A file that can't be read or has wrong values is logged and ignored, keeping the current configuration.</p>
+ */
+public class ConfigurationFileWatcher {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationFileWatcher.class);
+
+	private final Path file;
+	private final ReloadableConfig config;
+	private final ScheduledExecutorService executor;
+	private long lastModifiedMillis;
+
+	public ConfigurationFileWatcher(Path file, ReloadableConfig config) {
+		this.file = file;
+		this.config = config;
+		this.executor = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("ConfigurationWatcher", true));
+		this.lastModifiedMillis = -1;
+	}
+
+	public void start(long intervalMillis) {
+		LOGGER.info("Watching configuration file {} every {} ms", file, intervalMillis);
+		executor.scheduleWithFixedDelay(this::reloadIfModified, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Runs in {@link #executor}
+	 */
+	void reloadIfModified() {
+		try {
+			if (!Files.isRegularFile(file)) {
+				return;
+			}
+			long modifiedMillis = Files.getLastModifiedTime(file).toMillis();
+			if (modifiedMillis == lastModifiedMillis) {
+				return;
+			}
+			lastModifiedMillis = modifiedMillis;
+
+			Properties properties = new Properties();
+			try (InputStream in = Files.newInputStream(file)) {
+				properties.load(in);
+			}
+			config.reload(properties);
+		} catch (Exception e) {
+			LOGGER.error("Error reloading configuration from " + file + ", keeping the current configuration", e);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package net.rubenmartinez.stpc.exchange.bitso.configuration;
+
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The current {@link BitsoConfig} of a client, replaced as a whole when reloaded.
+ * <p>
+ * Components keep this and call {@link #get()} when they use a {@link BitsoConfig#WATCHED_PROPERTIES watched property}, which is
+ * just a volatile read. Any other property is read once when the component is constructed.</p>
+ */
+public class ReloadableConfig {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReloadableConfig.class);
+
+	private final AtomicReference<BitsoConfig> current;
+
+	public ReloadableConfig(BitsoConfig initial) {
+		this.current = new AtomicReference<>(initial);
+	}
+
+	public BitsoConfig get() {
+		return current.get();
+	}
+
+	/**
+	 * Applies the {@link BitsoConfig#WATCHED_PROPERTIES} of the given properties, replacing the current configuration atomically.
+	 * Changes to any other property are ignored (logged), as they are only read at construction time.
+	 *
+	 * @return the new current configuration
+	 * @throws IllegalArgumentException if a watched property has a wrong value, in which case the current configuration is kept
+	 */
+	public synchronized BitsoConfig reload(Properties properties) {
+		BitsoConfig previous = current.get();
+		BitsoConfig reloaded = previous.withWatchedPropertiesFrom(properties);
+
+		Properties previousProperties = previous.getProperties();
+		for (String name : properties.stringPropertyNames()) {
+			String previousValue = previousProperties.getProperty(name);
+			String value = properties.getProperty(name);
+			if (!Objects.equals(previousValue, value)) {
+				if (BitsoConfig.WATCHED_PROPERTIES.contains(name)) {
+					LOGGER.info("Configuration property [{}] reloaded: {} -> {}", name, previousValue, value);
+				} else {
+					LOGGER.warn("Configuration property [{}] changed but it can't be reloaded, a restart is required to apply it", name);
+				}
+			}
+		}
+
+		current.set(reloaded);
+		return reloaded;
+	}
+}
@@ -0,0 +1,61 @@
+package net.rubenmartinez.stpc.exchange.bitso.eventlog;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeException;
+
+/**
+ * Appends the drained events to a file, one line per event
+ */
+public class FileEventSink implements HotPathEventSink {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FileEventSink.class);
+
+	private BufferedWriter writer;
+
+	public FileEventSink(Path file) {
+		try {
+			this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			throw new BitsoExchangeException("Could not open event log file: " + file, e);
+		}
+		LOGGER.debug("Writing events to: {}", file);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public void write(long epochMillis, HotPathEvent event, String message) {
+		try {
+			writer.write(Instant.ofEpochMilli(epochMillis).toString());
+			writer.write(' ');
+			writer.write(event.name());
+			writer.write(' ');
+			writer.write(message);
+			writer.newLine();
+		} catch (IOException e) {
+			LOGGER.warn("(Swallowing) Exception writing event to file: {}", message, e);
+		}
+	}
+
+	@Override
+	public void flush() {
+		try {
+			writer.flush();
+		} catch (IOException e) {
+			LOGGER.warn("(Swallowing) Exception flushing event log file", e);
+		}
+	}
+}
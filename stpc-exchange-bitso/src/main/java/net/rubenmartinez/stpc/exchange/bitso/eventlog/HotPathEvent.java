@@ -0,0 +1,40 @@
+package net.rubenmartinez.stpc.exchange.bitso.eventlog;
+
+/**
+ * Types of the events recorded in the {@link HotPathEventLog}.
+ * <p>
+ * Each event carries two <code>long</code> values (<code>{a}</code> and <code>{b}</code> in the pattern) and a reference to an object
+ * (<code>{ref}</code>), which is only converted to String when the event is drained. Per-message events are <em>sampled</em>: only
+ * one in every <code>eventlog.sampling-rate</code> is recorded.</p>
+ */
+public enum HotPathEvent {
+	DIFF_ORDERS_RECEIVED(true, "Diff orders received. Sequence: {a}; orders: {b}"),
+	DIFF_ORDERS_QUEUED(true, "Book being reset, diff orders queued to replay later. Sequence: {a}"),
+	ORDER_ADDED(true, "Order added. Sequence: {a}; diffOrder: {ref}"),
+	ORDER_UPDATED(true, "Order updated. Sequence: {a}; diffOrder: {ref}"),
+	ORDER_REMOVED(true, "Order removed. Sequence: {a}; diffOrder: {ref}"),
+	TRADE_NOTIFIED(true, "Listeners notified of trade: {ref}"),
+	TRADES_NOTIFIED(false, "Listeners notified of {a} new trades");
+
+	private final boolean sampled;
+	private final String pattern;
+
+	private HotPathEvent(boolean sampled, String pattern) {
+		this.sampled = sampled;
+		this.pattern = pattern;
+	}
+
+	public boolean isSampled() {
+		return sampled;
+	}
+
+	/**
+	 * Note this is only called when draining the log, never by the thread recording the event
+	 */
+	public String format(long a, long b, Object ref) {
+		return pattern
+				.replace("{a}", Long.toString(a))
+				.replace("{b}", Long.toString(b))
+				.replace("{ref}", String.valueOf(ref));
+	}
+}
@@ -0,0 +1,244 @@
+package net.rubenmartinez.stpc.exchange.bitso.eventlog;
+
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+
+/**
+ * Records diagnostic events from the hot paths (diff-orders applied to the book, trades notified...) without formatting
+ * any String in the recording thread.
+ * <p>
+ * Events are written into a ring buffer of pre-sized records (event type, timestamp, two <code>long</code> values and a reference
+ * to an already existing object), and a background thread drains them periodically to a {@link HotPathEventSink}, which is the
+ * only one converting them to text. Recording is lock-free and doesn't allocate; if the drain thread falls behind, the oldest
+ * events are overwritten and counted as dropped.</p>
+ * <p>
+ * Per-message events are sampled (see {@link HotPathEvent#isSampled()}), so the cost can be bounded in production while still
+ * keeping a trace of what the book keeper was doing.</p>
+ */
+public class HotPathEventLog {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HotPathEventLog.class);
+
+	// Fields of each record, stored consecutively in the records array
+	private static final int HEADER = 0;
+	private static final int EVENT = 1;
+	private static final int NANOS = 2;
+	private static final int VALUE_A = 3;
+	private static final int VALUE_B = 4;
+	private static final int RECORD_LONGS = 5;
+
+	private static final HotPathEvent[] EVENTS = HotPathEvent.values();
+
+	private final boolean enabled;
+	private final int mask;
+	private final int samplingRate;
+	private final HotPathEventSink sink;
+
+	/*
+	 * The header of a record is (sequence + 1) once the record is written, or -(sequence + 1) while it is being written, so
+	 * the drain thread can detect both records not written yet and records overwritten while reading them
+	 */
+	private final AtomicLongArray records;
+	private final AtomicReferenceArray<Object> references;
+	private final AtomicLong nextSequence;
+	private final AtomicLongArray sampleCounters;
+	private final AtomicLong droppedEvents;
+
+	private final long baseEpochMillis;
+	private final long baseNanos;
+
+	private long drainedSequence; // Only accessed while draining (synchronized)
+
+	private ScheduledExecutorService drainExecutor;
+
+	private static class InstanceHolder {
+		private static final HotPathEventLog INSTANCE = newInstanceFromConfiguration(Configuration.getDefault().get());
+	}
+
+	/**
+	 * Returns the event log shared by the whole library, configured with the <code>eventlog.*</code> properties and already draining.
+	 * <p>
+	 * There is a single event log (and drain thread, and file) per process, so it's configured from the default configuration
+	 * ({@link Configuration#getDefault()}), not from the configuration given to each client.</p>
+	 */
+	public static HotPathEventLog getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	private static HotPathEventLog newInstanceFromConfiguration(BitsoConfig config) {
+		if (!config.isEventLogEnabled()) {
+			LOGGER.debug("Hot path event log disabled");
+			return new HotPathEventLog(false, 1, 1, new LoggerEventSink());
+		}
+
+		String file = config.getEventLogFile();
+		HotPathEventSink sink = file == null || file.isEmpty() ? new LoggerEventSink() : new FileEventSink(Paths.get(file));
+		HotPathEventLog eventLog = new HotPathEventLog(true, config.getEventLogCapacity(), config.getEventLogSamplingRate(), sink);
+		eventLog.startDraining(config.getEventLogDrainIntervalMillis());
+		return eventLog;
+	}
+
+	/**
+	 * @param enabled if false nothing is recorded
+	 * @param capacity number of events the ring buffer can hold, it will be rounded up to a power of 2
+	 * @param samplingRate only one in every <code>samplingRate</code> sampled events is recorded
+	 * @param sink where events are written to when drained
+	 */
+	public HotPathEventLog(boolean enabled, int capacity, int samplingRate, HotPathEventSink sink) {
+		if (capacity <= 0 || samplingRate <= 0) {
+			throw new IllegalArgumentException("Capacity and sampling rate must be positive. Capacity: " + capacity + "; sampling rate: " + samplingRate);
+		}
+		int roundedCapacity = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+
+		this.enabled = enabled;
+		this.mask = roundedCapacity - 1;
+		this.samplingRate = samplingRate;
+		this.sink = sink;
+		this.records = new AtomicLongArray(enabled ? roundedCapacity * RECORD_LONGS : 0);
+		this.references = new AtomicReferenceArray<>(enabled ? roundedCapacity : 0);
+		this.nextSequence = new AtomicLong();
+		this.sampleCounters = new AtomicLongArray(EVENTS.length);
+		this.droppedEvents = new AtomicLong();
+		this.baseEpochMillis = System.currentTimeMillis();
+		this.baseNanos = System.nanoTime();
+	}
+
+	public void record(HotPathEvent event, long a, Object ref) {
+		record(event, a, 0, ref);
+	}
+
+	/**
+	 * Records the event. The referenced object is kept till the event is drained, so it should not be modified afterwards
+	 * (or the event could show its later state)
+	 */
+	public void record(HotPathEvent event, long a, long b, Object ref) {
+		if (!enabled) {
+			return;
+		}
+		if (event.isSampled() && samplingRate > 1 && sampleCounters.getAndIncrement(event.ordinal()) % samplingRate != 0) {
+			return;
+		}
+
+		long sequence = nextSequence.getAndIncrement();
+		int index = (int) (sequence & mask);
+		int base = index * RECORD_LONGS;
+
+		records.set(base + HEADER, -(sequence + 1));
+		records.set(base + EVENT, event.ordinal());
+		records.set(base + NANOS, System.nanoTime());
+		records.set(base + VALUE_A, a);
+		records.set(base + VALUE_B, b);
+		references.set(index, ref);
+		records.set(base + HEADER, sequence + 1);
+	}
+
+	/**
+	 * Writes all the events recorded so far to the sink. Called periodically by the drain thread, but it can be called
+	 * by any thread (e.g. to flush the events before stopping)
+	 *
+	 * @return number of events written
+	 */
+	public synchronized int drain() {
+		if (!enabled) {
+			return 0;
+		}
+
+		long recorded = nextSequence.get();
+		int capacity = mask + 1;
+		if (recorded - drainedSequence > capacity) {
+			droppedEvents.addAndGet(recorded - capacity - drainedSequence);
+			drainedSequence = recorded - capacity;
+		}
+
+		boolean sinkEnabled = sink.isEnabled();
+		int written = 0;
+		while (drainedSequence < recorded) {
+			long expectedHeader = drainedSequence + 1;
+			int index = (int) (drainedSequence & mask);
+			int base = index * RECORD_LONGS;
+
+			long header = records.get(base + HEADER);
+			if (header != expectedHeader) {
+				if (Math.abs(header) > expectedHeader) {
+					droppedEvents.incrementAndGet(); // Already overwritten by a newer event
+					drainedSequence++;
+					continue;
+				}
+				break; // Still being written, it will be drained next time
+			}
+
+			HotPathEvent event = EVENTS[(int) records.get(base + EVENT)];
+			long nanos = records.get(base + NANOS);
+			long a = records.get(base + VALUE_A);
+			long b = records.get(base + VALUE_B);
+			Object ref = references.get(index);
+
+			if (records.get(base + HEADER) != expectedHeader) {
+				droppedEvents.incrementAndGet(); // Overwritten while reading it
+			} else {
+				references.compareAndSet(index, ref, null); // Don't keep the object alive till overwritten
+				if (sinkEnabled) {
+					sink.write(toEpochMillis(nanos), event, event.format(a, b, ref));
+					written++;
+				}
+			}
+			drainedSequence++;
+		}
+
+		if (written > 0) {
+			sink.flush();
+		}
+		return written;
+	}
+
+	/**
+	 * Number of events overwritten before they could be drained
+	 */
+	public long getDroppedEvents() {
+		return droppedEvents.get();
+	}
+
+	public synchronized void startDraining(long intervalMillis) {
+		if (!enabled || drainExecutor != null) {
+			return;
+		}
+		drainExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "HotPathEventLogDrain");
+			thread.setDaemon(true);
+			return thread;
+		});
+		drainExecutor.scheduleWithFixedDelay(this::safeDrain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		LOGGER.debug("Draining every {} ms", intervalMillis);
+	}
+
+	public synchronized void stopDraining() {
+		if (drainExecutor != null) {
+			drainExecutor.shutdown();
+			drainExecutor = null;
+		}
+		safeDrain();
+	}
+
+	private void safeDrain() {
+		try {
+			drain();
+		} catch (Exception e) {
+			LOGGER.warn("(Swallowing) Exception while draining events", e);
+		}
+	}
+
+	private long toEpochMillis(long nanos) {
+		return baseEpochMillis + TimeUnit.NANOSECONDS.toMillis(nanos - baseNanos);
+	}
+}
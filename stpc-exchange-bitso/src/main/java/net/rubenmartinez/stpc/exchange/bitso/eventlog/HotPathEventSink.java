@@ -0,0 +1,19 @@
+package net.rubenmartinez.stpc.exchange.bitso.eventlog;
+
+/**
+ * Destination of the events drained from the {@link HotPathEventLog}. Always called from the drain thread.
+ */
+public interface HotPathEventSink {
+
+	/**
+	 * If false events are discarded without even formatting them
+	 */
+	public boolean isEnabled();
+
+	public void write(long epochMillis, HotPathEvent event, String message);
+
+	/**
+	 * Called after each drain
+	 */
+	public void flush();
+}
@@ -0,0 +1,27 @@
+package net.rubenmartinez.stpc.exchange.bitso.eventlog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the drained events to the log at DEBUG level, under the logger of {@link HotPathEventLog}
+ */
+public class LoggerEventSink implements HotPathEventSink {
+
+	private static final Logger EVENT_LOGGER = LoggerFactory.getLogger(HotPathEventLog.class);
+
+	@Override
+	public boolean isEnabled() {
+		return EVENT_LOGGER.isDebugEnabled();
+	}
+
+	@Override
+	public void write(long epochMillis, HotPathEvent event, String message) {
+		EVENT_LOGGER.debug("[{}] {}", epochMillis, message);
+	}
+
+	@Override
+	public void flush() {
+		// Nothing to do
+	}
+}
@@ -0,0 +1,75 @@
+package net.rubenmartinez.stpc.exchange.bitso.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Minimal metrics SPI so this library can report what it is doing without depending on any metrics library.
+ * <p>
+ * The application using the library can bind it to its metrics library of choice, passing an implementation to
+ * {@link net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeClient#BitsoExchangeClient(String, ExchangeMetrics)}.
+ * By default nothing is recorded (see {@link #NO_OP}).</p>
+ * <p>
+ * Metric names are defined in {@link MetricNames}. Tags are given as a sequence of key/value pairs:
+ * <code>"key1", "value1", "key2", "value2"...</code></p>
+ * <p>
+ * Implementations must be thread-safe and fast, as they are called from the hot paths (e.g. for every diff-order received).</p>
+ */
+public interface ExchangeMetrics {
+
+	/**
+	 * Implementation which doesn't record anything
+	 */
+	public static final ExchangeMetrics NO_OP = new ExchangeMetrics() {
+		@Override
+		public void recordTime(String name, long nanos, String... tags) {
+			// Nothing to do
+		}
+
+		@Override
+		public void increment(String name, String... tags) {
+			// Nothing to do
+		}
+
+		@Override
+		public void recordValue(String name, long value, String... tags) {
+			// Nothing to do
+		}
+
+		@Override
+		public void registerGauge(String name, Supplier<? extends Number> valueSupplier, String... tags) {
+			// Nothing to do
+		}
+
+		@Override
+		public void recordLatency(String stage, long nanos) {
+			// Nothing to do
+		}
+	};
+
+	/**
+	 * Records the duration of an event, e.g. applying a diff-order. The number of events recorded gives also its rate.
+	 */
+	public void recordTime(String name, long nanos, String... tags);
+
+	/**
+	 * Counts an event, e.g. a sequence gap
+	 */
+	public void increment(String name, String... tags);
+
+	/**
+	 * Records a value whose distribution is interesting, e.g. the number of pages requested in a poll
+	 */
+	public void recordValue(String name, long value, String... tags);
+
+	/**
+	 * Registers a value which can be read at any moment, e.g. the size of a queue.
+	 * The implementation must keep a strong reference to the supplier.
+	 */
+	public void registerGauge(String name, Supplier<? extends Number> valueSupplier, String... tags);
+
+	/**
+	 * Records the latency of data from the exchange up to the given processing stage (see the <code>LATENCY_*</code> names in {@link MetricNames}).
+	 * Unlike {@link #recordTime(String, long, String...)}, the whole distribution of these latencies is expected to be kept, as the interest are the outliers.
+	 */
+	public void recordLatency(String stage, long nanos);
+}
@@ -0,0 +1,63 @@
+package net.rubenmartinez.stpc.exchange.bitso.metrics;
+
+/**
+ * Names of the metrics reported through {@link ExchangeMetrics}
+ */
+public final class MetricNames {
+	/** Time to apply a diff-orders websocket message to the OrderBook */
+	public static final String ORDERBOOK_DIFF_APPLY = "bitso.orderbook.diff.apply";
+	/** Diff-orders messages received with a non-consecutive sequence (so the OrderBook had to be reset) */
+	public static final String ORDERBOOK_SEQUENCE_GAPS = "bitso.orderbook.sequence.gaps";
+	/** Diff-orders messages received after a missing sequence and held till it arrives (see orderbook.reorder.*) */
+	public static final String ORDERBOOK_REORDER_HELD = "bitso.orderbook.reorder.held";
+	/** Time to reset the OrderBook, from the reset request till the book is ready again */
+	public static final String ORDERBOOK_RESET = "bitso.orderbook.reset";
+	/** Diff-orders messages queued while the OrderBook is being reset */
+	public static final String ORDERBOOK_REPLAY_QUEUE_SIZE = "bitso.orderbook.replay.queue.size";
+	/** Time to copy the OrderBook and save it to its snapshot file */
+	public static final String ORDERBOOK_SNAPSHOT_SAVE = "bitso.orderbook.snapshot.save";
+	/** OrderBook snapshots read when starting, tagged by {@link #TAG_RESULT} depending on whether the book could be started from them */
+	public static final String ORDERBOOK_SNAPSHOT_LOADS = "bitso.orderbook.snapshot.loads";
+
+	/** Websocket connections lost (closed by any side, or silent for too long) */
+	public static final String WEBSOCKET_CONNECTIONS_LOST = "bitso.websocket.connections.lost";
+	/** Primary websocket connections lost and replaced by the hot standby one */
+	public static final String WEBSOCKET_FAILOVERS = "bitso.websocket.failovers";
+	/** Diff-orders messages received first through a connection, when arbitrating, tagged by {@link #TAG_FEED} */
+	public static final String WEBSOCKET_ARBITRATION_WINS = "bitso.websocket.arbitration.wins";
+	/** How late a connection received a message already received through the other one, when arbitrating, tagged by {@link #TAG_FEED} */
+	public static final String WEBSOCKET_ARBITRATION_LAG = "bitso.websocket.arbitration.lag";
+
+	/** Time to poll Bitso for new trades */
+	public static final String TRADES_POLL = "bitso.trades.poll";
+	/** Number of pages (REST calls) requested in each poll for new trades */
+	public static final String TRADES_POLL_PAGES = "bitso.trades.poll.pages";
+	/** Time to notify a new trade to a listener, tagged by {@link #TAG_LISTENER} */
+	public static final String TRADES_LISTENER_NOTIFICATION = "bitso.trades.listener.notification";
+	/** Number of trades in the memory buffer */
+	public static final String TRADES_BUFFER_SIZE = "bitso.trades.buffer.size";
+	/** Requests of last trades, tagged by {@link #TAG_RESULT} depending on whether they could be served from the buffer */
+	public static final String TRADES_LAST_TRADES_REQUESTS = "bitso.trades.last-trades.requests";
+
+	/** Number of hot path events overwritten in the event log before they could be drained */
+	public static final String EVENTLOG_DROPPED = "bitso.eventlog.dropped";
+
+	/** Latency stage: from the diff-order timestamp in Bitso till its websocket frame is received. Millisecond resolution, subject to clock skew */
+	public static final String LATENCY_EXCHANGE_TO_RECEIVED = "bitso.diff-orders.exchange-to-received";
+	/** Latency stage: from the websocket frame received till it is parsed */
+	public static final String LATENCY_RECEIVED_TO_PARSED = "bitso.diff-orders.received-to-parsed";
+	/** Latency stage: from the diff-order parsed till it is applied to the OrderBook (including any wait in the replay queue) */
+	public static final String LATENCY_PARSED_TO_APPLIED = "bitso.diff-orders.parsed-to-applied";
+	/** Latency stage: from the trade creation in Bitso till the listeners are notified. Note Bitso trade creation dates have a resolution of seconds */
+	public static final String LATENCY_TRADE_CREATED_TO_NOTIFIED = "bitso.trades.created-to-notified";
+
+	/** Class name of the listener, fully qualified as anonymous classes have no simple name */
+	public static final String TAG_LISTENER = "listener";
+	public static final String TAG_RESULT = "result";
+	public static final String TAG_FEED = "feed";
+	public static final String RESULT_HIT = "hit";
+	public static final String RESULT_MISS = "miss";
+
+	private MetricNames() {
+	}
+}
@@ -1,8 +1,9 @@
 package net.rubenmartinez.stpc.exchange.bitso.orderbook;
 
 import java.util.List;
-import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -13,32 +14,65 @@ import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient;
 import net.rubenmartinez.stpc.exchange.bitso.api.websocket.DiffOrdersListener;
 import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
 import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.ReloadableConfig;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEvent;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEventLog;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.dto.OrderBookBeanDTO;
-import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrderBook;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.exception.OrderBookResetTimeOutException;
-import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.DiffOrdersReorderBuffer;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSide;
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
 import net.rubenmartinez.stpc.exchange.domain.Order;
 import net.rubenmartinez.stpc.exchange.domain.OrderBook;
 
 public abstract class BaseOrderBookKeeper implements DiffOrdersListener, OrderBookKeeper {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(SimpleOrderBookKeeper.class);
+	private static final Logger LOGGER = LoggerFactory.getLogger(BaseOrderBookKeeper.class);
 
 	protected static final long SEQUENCE_NOT_INITIZALIZED = -1;
 
 	protected String bookName;
 
-	protected volatile SortedBookOrdersMap asks;
-	protected volatile SortedBookOrdersMap bids;
+	protected volatile OrderBookSide asks;
+	protected volatile OrderBookSide bids;
 	protected volatile long currentSequence;
 
 	protected volatile CountDownLatch bookReadyForReadingLatch;
 
 	protected NewOrderBookSupplier orderBookSupplier;
 
+	protected ExchangeMetrics metrics;
+
+	protected HotPathEventLog eventLog;
+
+	protected DiffOrdersReorderBuffer reorderBuffer;
+
+	/**
+	 * Held while applying diff-orders, so the gap expiry check doesn't run at the same time
+	 */
+	protected final Object diffOrdersLock = new Object();
+
+	private ScheduledExecutorService checksExecutor; // Created on the first check scheduled
+
+	protected ReloadableConfig config;
+
 	public BaseOrderBookKeeper(BitsoRestApiClient client, String bookName) {
+		this(client, bookName, ExchangeMetrics.NO_OP);
+	}
+
+	public BaseOrderBookKeeper(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics) {
+		this(client, bookName, metrics, Configuration.getDefault());
+	}
+
+	public BaseOrderBookKeeper(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics, ReloadableConfig config) {
 		this.bookName = bookName;
+		this.metrics = metrics;
+		this.config = config;
+		this.eventLog = HotPathEventLog.getInstance();
+		this.reorderBuffer = new DiffOrdersReorderBuffer(config.get().getOrderBookReorderWindowMillis(), config.get().getOrderBookReorderMaxMessages());
 		this.currentSequence = SEQUENCE_NOT_INITIZALIZED;
 		this.orderBookSupplier = new NewOrderBookSupplier(client, bookName);
 
@@ -50,36 +84,116 @@ public abstract class BaseOrderBookKeeper implements DiffOrdersListener, OrderBo
 	 */
 	protected abstract void reset();
 
+	/**
+	 * Messages received after a missing sequence are held in {@link #reorderBuffer} till it arrives, and the book is only reset if the
+	 * gap isn't closed within the reorder window (the messages held are discarded then, as the book will be retrieved again).
+	 * <p>
+	 * Must be called holding {@link #diffOrdersLock}.</p>
+	 */
 	protected void evaluateAndApplyDiffOrderMessage(DiffOrdersWebsocketMessage diffOrdersMessage) {
 		if (diffOrdersMessage.getSequence() < (currentSequence + 1)) {
 			LOGGER.warn("Websocket diff-order, ignoring repeated message, sequence: {}, current sequence is: {}", diffOrdersMessage.getSequence(), currentSequence);
 		} else {
 			if (diffOrdersMessage.getSequence() == (currentSequence + 1)) {
-				diffOrdersMessage.getPayload().forEach(this::applyDiffOrder);
-				currentSequence++;
+				applyDiffOrderMessage(diffOrdersMessage);
+				DiffOrdersWebsocketMessage heldMessage;
+				while ((heldMessage = reorderBuffer.pollNext(currentSequence + 1)) != null) {
+					applyDiffOrderMessage(heldMessage);
+				}
+			} else if (reorderBuffer.hold(diffOrdersMessage)) {
+				LOGGER.debug("Websocket diff-order received with a non-consecutive sequence: {}, current sequence is: {}. Held till the gap is closed",
+						diffOrdersMessage.getSequence(), currentSequence);
+				metrics.increment(MetricNames.ORDERBOOK_REORDER_HELD);
+				if (reorderBuffer.size() == 1) {
+					scheduleGapExpiryCheck();
+				}
 			} else {
-				LOGGER.warn("RESET NEEDED. Websocket diff-order received with a non-consecutive sequence: {}, current sequence was: {}", diffOrdersMessage.getSequence(),
-						currentSequence);
+				LOGGER.warn("RESET NEEDED. Websocket diff-order received with a non-consecutive sequence: {}, current sequence was: {}. Messages held: {}",
+						diffOrdersMessage.getSequence(), currentSequence, reorderBuffer.size());
+				metrics.increment(MetricNames.ORDERBOOK_SEQUENCE_GAPS);
+				reorderBuffer.clear();
 				reset();
 
 			}
 		}
 	}
 
+	/**
+	 * Checks the gap just opened once the reorder window has passed, in case no more diff-orders are received to check it
+	 */
+	private void scheduleGapExpiryCheck() {
+		scheduleCheck(this::resetIfGapExpired, reorderBuffer.getWindowMillis());
+	}
+
+	/**
+	 * Runs the given check once after the delay, for the conditions that must be checked even if no more diff-orders are received.
+	 * Checks are run one after the other, in a single thread shared by all of them.
+	 */
+	protected synchronized void scheduleCheck(Runnable check, long delayMillis) {
+		if (checksExecutor == null) {
+			checksExecutor = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("OrderBook:checks", true));
+		}
+		checksExecutor.schedule(check, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Runs in {@link #checksExecutor}. If the gap was closed meanwhile (even if another one is open now) there is nothing to do
+	 */
+	private void resetIfGapExpired() {
+		synchronized (diffOrdersLock) {
+			if (reorderBuffer.isGapExpired()) {
+				LOGGER.warn("RESET NEEDED. Missing diff-order not received within the reorder window, current sequence is: {}. Messages held: {}",
+						currentSequence, reorderBuffer.size());
+				metrics.increment(MetricNames.ORDERBOOK_SEQUENCE_GAPS);
+				reorderBuffer.clear();
+				reset();
+			}
+		}
+	}
+
+	private void applyDiffOrderMessage(DiffOrdersWebsocketMessage diffOrdersMessage) {
+		long startNanos = System.nanoTime();
+		diffOrdersMessage.getPayload().forEach(this::applyDiffOrder);
+		currentSequence++;
+		metrics.recordTime(MetricNames.ORDERBOOK_DIFF_APPLY, System.nanoTime() - startNanos);
+		recordLatencies(diffOrdersMessage);
+	}
+
+	/**
+	 * Records the latency of each stage the message went through, just after it was applied to the book
+	 */
+	protected void recordLatencies(DiffOrdersWebsocketMessage diffOrdersMessage) {
+		if (diffOrdersMessage.getReceivedNanos() == 0) {
+			return; // Message didn't come from the websocket
+		}
+		long appliedNanos = System.nanoTime();
+
+		List<DiffOrdersWebsocketMessage.DiffOrder> payload = diffOrdersMessage.getPayload();
+		if (!payload.isEmpty() && payload.get(0).getTimestamp() != null) {
+			long exchangeToReceivedMillis = diffOrdersMessage.getReceivedEpochMillis() - payload.get(0).getTimestamp();
+			metrics.recordLatency(MetricNames.LATENCY_EXCHANGE_TO_RECEIVED, TimeUnit.MILLISECONDS.toNanos(Math.max(0, exchangeToReceivedMillis)));
+		}
+		metrics.recordLatency(MetricNames.LATENCY_RECEIVED_TO_PARSED, diffOrdersMessage.getParsedNanos() - diffOrdersMessage.getReceivedNanos());
+		metrics.recordLatency(MetricNames.LATENCY_PARSED_TO_APPLIED, appliedNanos - diffOrdersMessage.getParsedNanos());
+	}
+
+	/**
+	 * Note this must be called before incrementing {@link #currentSequence}, as the sequence of the message being applied is recorded
+	 */
 	protected void applyDiffOrder(DiffOrdersWebsocketMessage.DiffOrder diffOrder) {
 		switch (diffOrder.getOrderType()) {
 		case SELL:
-			applyDiffOrderToASortedOrdersMap(this.asks, diffOrder);
+			applyDiffOrderToASortedOrdersMap(this.asks, diffOrder, currentSequence + 1);
 			break;
 		case BUY:
-			applyDiffOrderToASortedOrdersMap(this.bids, diffOrder);
+			applyDiffOrderToASortedOrdersMap(this.bids, diffOrder, currentSequence + 1);
 			break;
 		default:
 			throw new IllegalArgumentException("Unexpected order type: " + diffOrder.getOrderType());
 		}
 	}
 
-	private static void applyDiffOrderToASortedOrdersMap(SortedBookOrdersMap sortedOrdersMap, DiffOrdersWebsocketMessage.DiffOrder diffOrderMessage) {
+	private void applyDiffOrderToASortedOrdersMap(OrderBookSide sortedOrdersMap, DiffOrdersWebsocketMessage.DiffOrder diffOrderMessage, long sequence) {
 		String orderId = diffOrderMessage.getId();
 		String amount = diffOrderMessage.getAmount();
 
@@ -88,24 +202,19 @@ public abstract class BaseOrderBookKeeper implements DiffOrdersListener, OrderBo
 				LOGGER.warn(
 						"Amount was present in message but is empty or zero. Assuming order should be removed, even if Bitso spec specifies that property amount won't be present in this case");
 			}
-			Optional<BitsoOrder> previousOrder = sortedOrdersMap.remove(orderId);
-			if (previousOrder.isPresent()) {
-				LOGGER.debug("Removed order from orderbook: {}; from diffOrder: {}", previousOrder, diffOrderMessage);
+			if (sortedOrdersMap.removeOrder(orderId)) {
+				eventLog.record(HotPathEvent.ORDER_REMOVED, sequence, diffOrderMessage);
 			} else {
 				LOGGER.warn("Order didn't exist in orderbook: {}", orderId);
 			}
 		} else {
-			Optional<BitsoOrder> existingOrder = sortedOrdersMap.get(orderId);
-			if (existingOrder.isPresent()) {
-				// orderList.put could be used also for updating, but this else-block is just to
-				// avoid creating a new order as it is unnecessary. Plus, debug log trace is
-				// more descriptive
-				existingOrder.get().setAmount(amount);
-				LOGGER.debug("Updated order: {}; from diffOrder: {}", existingOrder, diffOrderMessage);
+			// addOrder could be used also for updating, but updating only the amount is cheaper. Plus, debug log trace is
+			// more descriptive
+			if (sortedOrdersMap.updateOrderAmount(orderId, amount)) {
+				eventLog.record(HotPathEvent.ORDER_UPDATED, sequence, diffOrderMessage);
 			} else {
-				BitsoOrder newOrder = new BitsoOrder(orderId, diffOrderMessage.getRate(), amount);
-				sortedOrdersMap.put(newOrder);
-				LOGGER.debug("Added new order to orderbook: {}; from diffOrder: {}", newOrder, diffOrderMessage);
+				sortedOrdersMap.addOrder(orderId, diffOrderMessage.getRate(), amount);
+				eventLog.record(HotPathEvent.ORDER_ADDED, sequence, diffOrderMessage);
 			}
 		}
 	}
@@ -150,6 +259,13 @@ public abstract class BaseOrderBookKeeper implements DiffOrdersListener, OrderBo
 		return bids.getBestNSortedOrdersThreadSafe(n);
 	}
 
+	/**
+	 * Note this doesn't wait for the book to be ready, so it returns {@value #SEQUENCE_NOT_INITIZALIZED} if the book was never retrieved
+	 */
+	public long getSequence() {
+		return currentSequence;
+	}
+
 	/**
 	 * If book is currently resetting (either at startup time or after sequence is
 	 * lost) this method will wait till the book is finally ready for reading
@@ -157,9 +273,10 @@ public abstract class BaseOrderBookKeeper implements DiffOrdersListener, OrderBo
 	private final void checkBookReady() {
 		try {
 			LOGGER.trace("Checking book ready");
-			boolean ready = bookReadyForReadingLatch.await(Configuration.getOrderBookReadyTimeoutSeconds(), TimeUnit.SECONDS);
+			long timeoutSeconds = config.get().getOrderBookReadyTimeoutSeconds();
+			boolean ready = bookReadyForReadingLatch.await(timeoutSeconds, TimeUnit.SECONDS);
 			if (!ready) {
-				throw new OrderBookResetTimeOutException("OrderBook not ready after waiting for " + Configuration.getOrderBookReadyTimeoutSeconds() + " seconds.");
+				throw new OrderBookResetTimeOutException("OrderBook not ready after waiting for " + timeoutSeconds + " seconds.");
 			}
 			LOGGER.trace("Book ready");
 		} catch (InterruptedException e) {
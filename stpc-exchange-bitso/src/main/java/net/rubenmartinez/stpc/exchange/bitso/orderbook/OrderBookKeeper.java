@@ -12,5 +12,10 @@ public interface OrderBookKeeper {
     public List<Order> getBids(int n);
     
     public List<Order> getAsks(int n);
+
+    /**
+     * Sequence of the last diff-order applied to the book
+     */
+    public long getSequence();
     
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package net.rubenmartinez.stpc.exchange.bitso.orderbook;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 
@@ -13,40 +16,196 @@ import org.slf4j.LoggerFactory;
 
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient;
 import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.ReloadableConfig;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEvent;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.exception.SequenceMissingAgainWhileResettingException;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSide;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSnapshotFile;
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
+import net.rubenmartinez.stpc.exchange.domain.Order;
 
 /**
- *
+ * Keeps the OrderBook while it's being reset: the diff-orders received meanwhile are queued and replayed once the new book is retrieved.
+ * <p>
+ * If <code>orderbook.snapshot.directory</code> is set, the book is also saved there periodically (see {@link OrderBookSnapshotFile}),
+ * and a new keeper starts from the last snapshot saved instead of retrieving the whole book, as long as the first diff-order received
+ * follows it.</p>
  */
 public class ReplayQueueOrderBookKeeper extends BaseOrderBookKeeper {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ReplayQueueOrderBookKeeper.class);
 	
 	private static final int LOG_ERROR_AFTER_CONSECUTIVE_TRIES_RESETING = 10;
+	private static final String SNAPSHOT_FILE_EXTENSION = ".book";
 	
 	private ExecutorService resetBookExecutor; 
 	private ResetBookTask resetBookTask;
 	private volatile boolean resetting;
+	private volatile long resetStartNanos;
+	private volatile int resets; // Only incremented from reset(), so never concurrently
+	private volatile boolean bridgingSnapshot;
+
+	OrderBookSnapshotFile snapshotFile;
+	private int snapshotMaxAgeSeconds;
+	private int snapshotBridgeTimeoutMillis;
+	private ScheduledExecutorService snapshotExecutor;
 	
 	@Resource
 	List<DiffOrdersWebsocketMessage> diffOrdersReplayQueue;
 
 	public ReplayQueueOrderBookKeeper(BitsoRestApiClient client, String bookName) {
-		super(client, bookName);
+		this(client, bookName, ExchangeMetrics.NO_OP);
+	}
+
+	public ReplayQueueOrderBookKeeper(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics) {
+		this(client, bookName, metrics, Configuration.getDefault());
+	}
+
+	public ReplayQueueOrderBookKeeper(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics, ReloadableConfig config) {
+		super(client, bookName, metrics, config);
 		
 		this.diffOrdersReplayQueue = new ArrayList<>();
+		metrics.registerGauge(MetricNames.ORDERBOOK_REPLAY_QUEUE_SIZE, () -> diffOrdersReplayQueue.size()); // Not synchronized, as an approximate size is enough
 		this.resetBookTask = new ResetBookTask();
-		this.resetBookExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "ResetBookExec"));
-		
-		reset();
+		this.resetBookExecutor = Executors.newSingleThreadExecutor(ThreadFactories.named("ResetBookExec", false));
+
+		BitsoConfig currentConfig = config.get();
+		if (!currentConfig.getOrderBookSnapshotDirectory().isEmpty()) {
+			this.snapshotFile = new OrderBookSnapshotFile(Paths.get(currentConfig.getOrderBookSnapshotDirectory(), bookName + SNAPSHOT_FILE_EXTENSION), currentConfig);
+			this.snapshotMaxAgeSeconds = currentConfig.getOrderBookSnapshotMaxAgeSeconds();
+			this.snapshotBridgeTimeoutMillis = currentConfig.getOrderBookSnapshotBridgeTimeoutMillis();
+		}
+
+		if (!startFromSnapshot()) {
+			reset();
+		}
+
+		if (snapshotFile != null) {
+			long intervalSeconds = currentConfig.getOrderBookSnapshotIntervalSeconds();
+			this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("OrderBookSnapshot", true));
+			snapshotExecutor.scheduleWithFixedDelay(this::saveSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+		}
 
 		LOGGER.debug("Constructed");
 	}
+
+	/**
+	 * The snapshot is applied, but the book isn't readable till the first diff-order received proves there is no gap between them
+	 * (see {@link #bridgeSnapshot(DiffOrdersWebsocketMessage)}). The websocket doesn't send past messages, so that only happens if
+	 * the book didn't change since the snapshot was saved (e.g. a quick restart in a quiet market); otherwise the book is reset
+	 * (retrieved through REST) as if there were no snapshot, just later. It's also reset if no diff-order is received within
+	 * <code>orderbook.snapshot.bridge-timeout-millis</code>, so a stalled websocket doesn't keep the book unreadable.
+	 *
+	 * @return whether the book was started from the snapshot
+	 */
+	private boolean startFromSnapshot() {
+		if (snapshotFile == null || !snapshotFile.exists()) {
+			return false;
+		}
+		try {
+			OrderBookSnapshotFile.Snapshot snapshot = snapshotFile.read();
+			long ageMillis = System.currentTimeMillis() - snapshot.getSavedEpochMillis();
+			if (!bookName.equals(snapshot.getBookName())) {
+				LOGGER.warn("OrderBook snapshot {} is of another book: {}. Ignoring it", snapshotFile.getFile(), snapshot.getBookName());
+			} else if (ageMillis > TimeUnit.SECONDS.toMillis(snapshotMaxAgeSeconds)) {
+				LOGGER.info("OrderBook snapshot {} saved {} ms ago is too old. Ignoring it", snapshotFile.getFile(), ageMillis);
+			} else {
+				applyNewOrderBook(snapshot.getOrderBook());
+				bookReadyForReadingLatch = new CountDownLatch(1);
+				resetting = false;
+				bridgingSnapshot = true;
+				scheduleCheck(this::resetIfSnapshotNotBridged, snapshotBridgeTimeoutMillis);
+				LOGGER.info("OrderBook started from snapshot {} saved {} ms ago, waiting for the next diff-order. Sequence: {}; Number of Asks: {}; Number of Bids: {}",
+						snapshotFile.getFile(), ageMillis, currentSequence, asks.size(), bids.size());
+				return true;
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Error reading OrderBook snapshot " + snapshotFile.getFile() + ". Ignoring it", e);
+		}
+		metrics.increment(MetricNames.ORDERBOOK_SNAPSHOT_LOADS, MetricNames.TAG_RESULT, MetricNames.RESULT_MISS);
+		return false;
+	}
+
+	/**
+	 * Applies the first diff-order received after starting from a snapshot, making the book readable if it follows the snapshot,
+	 * or resetting it otherwise. Must be called holding {@link #diffOrdersLock}.
+	 */
+	private void bridgeSnapshot(DiffOrdersWebsocketMessage diffOrdersMessage) {
+		if (diffOrdersMessage.getSequence() <= currentSequence) {
+			LOGGER.debug("Diff-order already in the snapshot, ignoring it. Sequence: {}, snapshot sequence: {}", diffOrdersMessage.getSequence(), currentSequence);
+			return;
+		}
+		bridgingSnapshot = false;
+		if (diffOrdersMessage.getSequence() == currentSequence + 1) {
+			evaluateAndApplyDiffOrderMessage(diffOrdersMessage);
+			bookReadyForReadingLatch.countDown();
+			metrics.increment(MetricNames.ORDERBOOK_SNAPSHOT_LOADS, MetricNames.TAG_RESULT, MetricNames.RESULT_HIT);
+			LOGGER.info("OrderBook snapshot bridged with the diff-orders received. Sequence: {}", currentSequence);
+		} else {
+			metrics.increment(MetricNames.ORDERBOOK_SNAPSHOT_LOADS, MetricNames.TAG_RESULT, MetricNames.RESULT_MISS);
+			LOGGER.info("OrderBook snapshot with sequence {} can't be bridged with the first diff-order received, sequence {}", currentSequence, diffOrdersMessage.getSequence());
+			reset();
+		}
+	}
+
+	/**
+	 * Scheduled when starting from a snapshot, resets the book if no diff-order was received meanwhile to bridge it
+	 */
+	private void resetIfSnapshotNotBridged() {
+		synchronized (diffOrdersLock) {
+			if (bridgingSnapshot) {
+				bridgingSnapshot = false;
+				metrics.increment(MetricNames.ORDERBOOK_SNAPSHOT_LOADS, MetricNames.TAG_RESULT, MetricNames.RESULT_MISS);
+				LOGGER.info("No diff-order received within {} ms to bridge the OrderBook snapshot with sequence {}", snapshotBridgeTimeoutMillis, currentSequence);
+				reset();
+			}
+		}
+	}
+
+	/**
+	 * Runs periodically in {@link #snapshotExecutor}.
+	 * <p>
+	 * The sides are copied while the diff-orders are still being applied, reading the sequence before, so the snapshot may include
+	 * changes of the following diff-orders too. That's fine, as each diff-order sets the whole state of its order, so applying them
+	 * again when starting from the snapshot gives the same book. A reset replaces the sides though, so nothing is saved if the book
+	 * was reset meanwhile.</p>
+	 */
+	void saveSnapshot() {
+		try {
+			int resetsBefore = resets;
+			if (resetting || bridgingSnapshot) {
+				return;
+			}
+			long startNanos = System.nanoTime();
+			long sequence = currentSequence;
+			OrderBookSide currentAsks = asks;
+			OrderBookSide currentBids = bids;
+			List<Order> askOrders = currentAsks.copySortedOrdersThreadSafe(); // Copies, so the orders in the book can still be reused
+			List<Order> bidOrders = currentBids.copySortedOrdersThreadSafe();
+			if (resetting || resets != resetsBefore) {
+				LOGGER.debug("OrderBook reset while copying it for the snapshot, not saved");
+				return;
+			}
+
+			snapshotFile.write(bookName, sequence, askOrders, bidOrders);
+			metrics.recordTime(MetricNames.ORDERBOOK_SNAPSHOT_SAVE, System.nanoTime() - startNanos);
+		} catch (Exception e) {
+			LOGGER.warn("Error saving OrderBook snapshot to " + snapshotFile.getFile(), e);
+		}
+	}
 	
 	@Override
 	protected void reset() {
 		LOGGER.info("Reset started");
-		bookReadyForReadingLatch = new CountDownLatch(1);
+		resets++;
+		if (bookReadyForReadingLatch == null || bookReadyForReadingLatch.getCount() == 0) {
+			bookReadyForReadingLatch = new CountDownLatch(1);
+		} // Otherwise the book was never ready (e.g. snapshot not bridged), so readers already waiting keep waiting for this reset
+		resetStartNanos = System.nanoTime();
 		resetting = true;
 		
 		resetBookExecutor.execute(resetBookTask);
@@ -62,20 +221,21 @@ public class ReplayQueueOrderBookKeeper extends BaseOrderBookKeeper {
 	 */
 	@Override
 	public void onDiffOrder(DiffOrdersWebsocketMessage diffOrdersMessage) {
-		LOGGER.debug("Diff order received: {}", diffOrdersMessage);
-
-		if (resetting) {
-			synchronized (diffOrdersReplayQueue) {
-				if (resetting) { // double-checked-locking is fine with a boolean volatile variable. Thanks to this there is no need for locking in normal functioning (without reply queue)
-					LOGGER.debug("Book is being reset, queuing diffOrderMessage to apply it later");
-					diffOrdersReplayQueue.add(diffOrdersMessage);
+		synchronized (diffOrdersLock) { // Uncontended but for the gap expiry check, which may reset the book
+			if (bridgingSnapshot) {
+				bridgeSnapshot(diffOrdersMessage);
+			} else if (resetting) {
+				synchronized (diffOrdersReplayQueue) {
+					if (resetting) { // double-checked-locking is fine with a boolean volatile variable. Thanks to this there is no need for locking the replay queue in normal functioning (without reply queue)
+						eventLog.record(HotPathEvent.DIFF_ORDERS_QUEUED, diffOrdersMessage.getSequence(), null);
+						diffOrdersReplayQueue.add(diffOrdersMessage);
+					}
 				}
 			}
+			else {
+				evaluateAndApplyDiffOrderMessage(diffOrdersMessage);
+			}
 		}
-		else {
-			evaluateAndApplyDiffOrderMessage(diffOrdersMessage);
-		}
-		
 	}
 	
 	
@@ -103,6 +263,7 @@ public class ReplayQueueOrderBookKeeper extends BaseOrderBookKeeper {
 					}
 					
 					bookReadyForReadingLatch.countDown();
+					metrics.recordTime(MetricNames.ORDERBOOK_RESET, System.nanoTime() - resetStartNanos);
 					LOGGER.info("OrderBook reset completed. Sequence: {}; Number of Asks: {}; Number of Bids: {}", currentSequence, asks.size(), bids.size());
 
 				} catch (Exception e) {
@@ -116,6 +277,7 @@ public class ReplayQueueOrderBookKeeper extends BaseOrderBookKeeper {
 			if (message.getSequence() == (currentSequence + 1)) {
 				message.getPayload().forEach(diffOrder -> applyDiffOrder(diffOrder));
 				currentSequence++;
+				recordLatencies(message);
 			} else {
 				LOGGER.warn("Sequence lost while *replaying*. Message sequence: [{}], current sequence: [{}]", message.getSequence(), currentSequence);
 				throw new SequenceMissingAgainWhileResettingException("Sequence lost while *replaying*. Message sequence: ["+message.getSequence()+"], current sequence: ["+currentSequence+"]");
@@ -42,8 +42,8 @@ public class SimpleOrderBookKeeper extends BaseOrderBookKeeper {
 	 */
 	@Override
 	public void onDiffOrder(DiffOrdersWebsocketMessage diffOrdersMessage) {
-		LOGGER.debug("Diff order received: {}", diffOrdersMessage);
-		
-		evaluateAndApplyDiffOrderMessage(diffOrdersMessage);
+		synchronized (diffOrdersLock) {
+			evaluateAndApplyDiffOrderMessage(diffOrdersMessage);
+		}
 	}
 }
\ No newline at end of file
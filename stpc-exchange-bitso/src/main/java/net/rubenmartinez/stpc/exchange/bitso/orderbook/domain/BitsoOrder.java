@@ -1,18 +1,38 @@
 // Generated by delombok at Sat Dec 15 11:30:27 CET 2018
 package net.rubenmartinez.stpc.exchange.bitso.orderbook.domain;
 
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 import net.rubenmartinez.stpc.exchange.domain.Order;
 
+/**
+ * Orders in the book are recycled (see {@link #reuse(String, String, String)}) and their amount updated in place while only the
+ * book has them. Once an order is handed to a reader it is published (see {@link #publish(String)}): from then on it never changes,
+ * so the book must replace it to update it, and it is never recycled. Readers that don't hand the orders out (e.g. snapshots) copy
+ * them instead (see {@link #copyIfIdIs(String)}), so the orders can still be recycled.
+ */
 public class BitsoOrder implements Order {
-    private String id;
-    private String price;
-    private String amount;
+    private static final int IN_BOOK = 0;
+    private static final int UPDATING = 1;
+    private static final int PUBLISHED = 2;
+    private static final int RECYCLED = 3;
+
+    private static final AtomicIntegerFieldUpdater<BitsoOrder> STATE = AtomicIntegerFieldUpdater.newUpdater(BitsoOrder.class, "state");
+
+    // Volatile so readers copying an order concurrently with its reuse can tell whether they got a consistent copy
+    private volatile String id;
+    private volatile String price;
+    private volatile String amount;
+    private BigDecimal priceValue; // Parsed lazily, only used by the writer
+    private volatile int state;
 
     public BitsoOrder(String id, String price, String amount) {
         // Better not to use Lombok's annotation @AllArgsConstructor with all parameters of equal type, as this would make declaration order relevant
         this.id = id;
         this.price = price;
         this.amount = amount;
+        this.state = IN_BOOK;
     }
 
     public String getId() {
@@ -27,12 +47,86 @@ public class BitsoOrder implements Order {
         return this.amount;
     }
 
-    @Override
-    public String toString() {
-        return "BitsoOrder(id=" + this.getId() + ", price=" + this.getPrice() + ", amount=" + this.getAmount() + ")";
+    public BigDecimal getPriceValue() {
+        if (this.priceValue == null) {
+            this.priceValue = new BigDecimal(this.price);
+        }
+        return this.priceValue;
+    }
+
+    /**
+     * Reinitializes a recycled order (see {@link #recycle()}) so it represents another one. The id is written first, and read last
+     * by {@link #copyIfIdIs(String)}
+     */
+    public void reuse(String id, String price, String amount) {
+        this.id = id;
+        this.price = price;
+        this.amount = amount;
+        this.priceValue = null;
+        this.state = IN_BOOK;
     }
 
-    public void setAmount(final String amount) {
+    /**
+     * Marks this order as no longer used by the book, so it can be reused for another order.
+     *
+     * @return <code>false</code> if it can't be reused because it was published to a reader
+     */
+    public boolean recycle() {
+        return STATE.compareAndSet(this, IN_BOOK, RECYCLED);
+    }
+
+    /**
+     * Updates the amount in place, unless the order was published to a reader
+     *
+     * @return <code>false</code> if the order was published and has to be replaced by a new one with the new amount
+     */
+    public boolean updateAmountIfNotPublished(String amount) {
+        if (!STATE.compareAndSet(this, IN_BOOK, UPDATING)) {
+            return false;
+        }
         this.amount = amount;
+        this.state = IN_BOOK;
+        return true;
+    }
+
+    /**
+     * Publishes this order to a reader if it still is the order with the given id, so it won't change anymore.
+     *
+     * @return <code>false</code> if meanwhile the order was recycled or reused for another order (so the expected order is no longer in the book)
+     */
+    public boolean publish(String expectedId) {
+        int currentState;
+        while ((currentState = this.state) != PUBLISHED) {
+            if (currentState == RECYCLED) {
+                return false;
+            }
+            if (currentState == IN_BOOK && STATE.compareAndSet(this, IN_BOOK, PUBLISHED)) {
+                break;
+            }
+            Thread.yield(); // Just while the writer is setting a new amount
+        }
+        return expectedId.equals(this.id);
+    }
+
+    /**
+     * Returns a copy of this order if it still is the order with the given id, or <code>null</code> if meanwhile it was recycled
+     * or reused for another order (so the expected order is no longer in the book). Unlike {@link #publish(String)}, this order
+     * can still be updated in place and recycled afterwards.
+     */
+    public BitsoOrder copyIfIdIs(String expectedId) {
+        if (this.state == RECYCLED) {
+            return null;
+        }
+        String copiedAmount = this.amount;
+        String copiedPrice = this.price;
+        if (!expectedId.equals(this.id)) {
+            return null;
+        }
+        return new BitsoOrder(expectedId, copiedPrice, copiedAmount);
+    }
+
+    @Override
+    public String toString() {
+        return "BitsoOrder(id=" + this.getId() + ", price=" + this.getPrice() + ", amount=" + this.getAmount() + ")";
     }
 }
@@ -1,33 +1,33 @@
 // Generated by delombok at Sat Dec 15 11:30:27 CET 2018
 package net.rubenmartinez.stpc.exchange.bitso.orderbook.dto;
 
-import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSide;
 
 public class OrderBookBeanDTO {
-	private SortedBookOrdersMap asks;
-	private SortedBookOrdersMap bids;
+	private OrderBookSide asks;
+	private OrderBookSide bids;
 	private long sequence;
 
-	OrderBookBeanDTO(final SortedBookOrdersMap asks, final SortedBookOrdersMap bids, final long sequence) {
+	OrderBookBeanDTO(final OrderBookSide asks, final OrderBookSide bids, final long sequence) {
 		this.asks = asks;
 		this.bids = bids;
 		this.sequence = sequence;
 	}
 
 	public static class OrderBookBeanDTOBuilder {
-		private SortedBookOrdersMap asks;
-		private SortedBookOrdersMap bids;
+		private OrderBookSide asks;
+		private OrderBookSide bids;
 		private long sequence;
 
 		OrderBookBeanDTOBuilder() {
 		}
 
-		public OrderBookBeanDTOBuilder asks(final SortedBookOrdersMap asks) {
+		public OrderBookBeanDTOBuilder asks(final OrderBookSide asks) {
 			this.asks = asks;
 			return this;
 		}
 
-		public OrderBookBeanDTOBuilder bids(final SortedBookOrdersMap bids) {
+		public OrderBookBeanDTOBuilder bids(final OrderBookSide bids) {
 			this.bids = bids;
 			return this;
 		}
@@ -51,11 +51,11 @@ public class OrderBookBeanDTO {
 		return new OrderBookBeanDTOBuilder();
 	}
 
-	public SortedBookOrdersMap getAsks() {
+	public OrderBookSide getAsks() {
 		return this.asks;
 	}
 
-	public SortedBookOrdersMap getBids() {
+	public OrderBookSide getBids() {
 		return this.bids;
 	}
 
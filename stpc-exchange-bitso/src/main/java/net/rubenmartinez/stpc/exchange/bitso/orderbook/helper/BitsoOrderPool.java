@@ -0,0 +1,45 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
+
+/**
+ * Free list of the orders removed from the book, so new orders reuse them instead of being allocated on each diff-order.
+ * <p>
+ * Only the keeper applying the diff-orders uses the pool. Orders handed to readers are published and never change again
+ * (see {@link BitsoOrder#publish(String)}), so only the orders no reader got are kept to be reused.</p>
+ */
+public class BitsoOrderPool {
+
+	private final Deque<BitsoOrder> freeOrders;
+	private final int maxSize;
+
+	public BitsoOrderPool(int maxSize) {
+		this.freeOrders = new ArrayDeque<>(Math.min(maxSize, 1024));
+		this.maxSize = maxSize;
+	}
+
+	public synchronized BitsoOrder acquire(String id, String price, String amount) {
+		BitsoOrder order = freeOrders.pollFirst();
+		if (order == null) {
+			return new BitsoOrder(id, price, amount);
+		}
+		order.reuse(id, price, amount);
+		return order;
+	}
+
+	/**
+	 * The order must have been removed from the book already. If it was published to a reader or the pool is full, the order is just discarded
+	 */
+	public synchronized void release(BitsoOrder order) {
+		if (order.recycle() && freeOrders.size() < maxSize) {
+			freeOrders.addFirst(order);
+		}
+	}
+
+	public synchronized int size() {
+		return freeOrders.size();
+	}
+}
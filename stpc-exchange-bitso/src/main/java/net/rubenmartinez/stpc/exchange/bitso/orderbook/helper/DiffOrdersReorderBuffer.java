@@ -0,0 +1,83 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
+
+/**
+ * Holds the diff-orders messages received after a missing sequence, so they can be applied once it arrives (websocket frames
+ * are sometimes received slightly out of order) instead of resetting the whole book.
+ * <p>
+ * A gap can be held for up to <code>windowMillis</code> since its first message was held, and with up to <code>maxMessages</code>
+ * messages. The window is checked when a new message is held, and the keeper also checks {@link #isGapExpired()} once the window
+ * has passed, so a gap followed by no more messages isn't kept open. A window or a limit of zero disables holding any message.</p>
+ * <p>
+ * Not thread-safe: it is meant to be used only by the thread applying the diff-orders.</p>
+ */
+public class DiffOrdersReorderBuffer {
+
+	private final long windowMillis;
+	private final long windowNanos;
+	private final int maxMessages;
+	private final TreeMap<Long, DiffOrdersWebsocketMessage> heldMessages;
+	private long gapStartNanos;
+
+	public DiffOrdersReorderBuffer(long windowMillis, int maxMessages) {
+		this.windowMillis = windowMillis;
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		this.maxMessages = maxMessages;
+		this.heldMessages = new TreeMap<>();
+	}
+
+	/**
+	 * @return <code>false</code> if the message couldn't be held, as the gap has been open longer than the window or there
+	 * are already too many messages held; the book must be reset then
+	 */
+	public boolean hold(DiffOrdersWebsocketMessage message) {
+		if (windowNanos == 0 || maxMessages == 0) {
+			return false;
+		}
+		long nowNanos = System.nanoTime();
+		if (heldMessages.isEmpty()) {
+			gapStartNanos = nowNanos;
+		} else if (nowNanos - gapStartNanos > windowNanos || heldMessages.size() >= maxMessages) {
+			return false;
+		}
+		heldMessages.put(message.getSequence(), message);
+		return true;
+	}
+
+	/**
+	 * Whether there is a gap open longer than the window
+	 */
+	public boolean isGapExpired() {
+		return !heldMessages.isEmpty() && System.nanoTime() - gapStartNanos >= windowNanos;
+	}
+
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+
+	/**
+	 * Removes and returns the held message with the given sequence, discarding the held ones with a lower sequence (repeated)
+	 *
+	 * @return the message, or <code>null</code> if it isn't held (the gap is still open, or there was no gap)
+	 */
+	public DiffOrdersWebsocketMessage pollNext(long nextSequence) {
+		Map.Entry<Long, DiffOrdersWebsocketMessage> first;
+		while ((first = heldMessages.firstEntry()) != null && first.getKey() < nextSequence) {
+			heldMessages.pollFirstEntry();
+		}
+		return heldMessages.remove(nextSequence);
+	}
+
+	public void clear() {
+		heldMessages.clear();
+	}
+
+	public int size() {
+		return heldMessages.size();
+	}
+}
@@ -0,0 +1,460 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap.SortOrdering;
+import net.rubenmartinez.stpc.exchange.domain.Order;
+
+/**
+ * Book side keeping its orders in direct buffers, outside the heap, so deep books don't make the heap bigger nor the GC slower.
+ * <p>
+ * Each order is a fixed size record in the records buffer:
+ * <pre>
+ * 0  i64 id hash | 8  i64 price unscaled | 16 i64 amount unscaled | 24 u8 price scale | 25 u8 amount scale
+ * 26 u8 id length ({@value #LONG_ID} if the id is kept in the heap) | 28 i32 previous record | 32 i32 next record
+ * 36 id ASCII bytes (up to {@value #MAX_INLINE_ID_BYTES})
+ * </pre>
+ * The orders with the same price are a list, sorted by id, linked through the previous/next fields, and only the price levels
+ * are kept in the heap. Orders are found by id in an open addressing table of record numbers, also in a direct buffer.
+ * Removed records are reused, linked through their next field, and the buffers are replaced by bigger ones when full (they are
+ * released by the GC as any other direct buffer when the side is no longer used).</p>
+ * <p>
+ * Readers get heap copies of the orders, created through a flyweight {@link RecordView} while holding the read lock; writes hold
+ * the write lock, so readers never see an order being modified. Copies take the read lock once per price level, so copying the
+ * whole side doesn't keep the writer waiting: as in {@link SortedBookOrdersMap}, each level is consistent, but the copy as a whole
+ * may include writes done while copying it.</p>
+ */
+public class OffHeapOrderBookSide implements OrderBookSide {
+
+	static final int RECORD_BYTES = 64;
+	static final int MAX_INLINE_ID_BYTES = RECORD_BYTES - 36;
+
+	private static final int ID_HASH = 0;
+	private static final int PRICE = 8;
+	private static final int AMOUNT = 16;
+	private static final int PRICE_SCALE = 24;
+	private static final int AMOUNT_SCALE = 25;
+	private static final int ID_LENGTH = 26;
+	private static final int PREVIOUS = 28;
+	private static final int NEXT = 32;
+	private static final int ID = 36;
+
+	private static final int LONG_ID = 0xFF;
+	private static final int NO_RECORD = -1;
+	private static final int INITIAL_RECORDS = 1024;
+
+	private static final int INDEX_EMPTY = 0;
+	private static final int INDEX_TOMBSTONE = -1;
+	private static final double INDEX_MAX_LOAD_FACTOR = 0.5;
+
+	private final int idOrdering;
+	private final NavigableMap<BigDecimal, PriceLevel> priceLevels;
+	private final Map<Integer, String> longIds;
+	private final StampedLock lock;
+
+	private ByteBuffer records;
+	private int recordsCapacity;
+	private int unusedRecord; // First record never used
+	private int freeRecord; // First removed record, to be reused
+
+	private ByteBuffer index;
+	private int indexMask;
+	private int indexUsedSlots; // Records plus tombstones
+
+	private volatile int size;
+
+	public OffHeapOrderBookSide(SortOrdering ordering) {
+		Comparator<BigDecimal> comparator = (ordering == SortOrdering.ASCENDING ? Comparator.naturalOrder() : Comparator.reverseOrder());
+		this.idOrdering = (ordering == SortOrdering.ASCENDING ? 1 : -1);
+		this.priceLevels = new TreeMap<>(comparator);
+		this.longIds = new HashMap<>();
+		this.lock = new StampedLock();
+		this.records = allocate(INITIAL_RECORDS * RECORD_BYTES);
+		this.recordsCapacity = INITIAL_RECORDS;
+		this.freeRecord = NO_RECORD;
+		this.index = allocate(INITIAL_RECORDS * 2 * Integer.BYTES);
+		this.indexMask = INITIAL_RECORDS * 2 - 1;
+	}
+
+	@Override
+	public List<Order> getBestNSortedOrdersThreadSafe(int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Number of orders must be greater than zero");
+		}
+		return copyOrders(n);
+	}
+
+	@Override
+	public List<Order> getSortedOrdersThreadSafe() {
+		return copyOrders(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public List<Order> copySortedOrdersThreadSafe() {
+		return copyOrders(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void addOrder(String orderId, String price, String amount) {
+		long stamp = lock.writeLock();
+		try {
+			long idHash = hash(orderId);
+			int existing = find(orderId, idHash);
+			if (existing != NO_RECORD) {
+				unlink(existing);
+			}
+
+			BigDecimal priceValue = new BigDecimal(price);
+			int record = newRecord();
+			int offset = record * RECORD_BYTES;
+			records.putLong(offset + ID_HASH, idHash);
+			putDecimal(offset + PRICE, offset + PRICE_SCALE, priceValue);
+			putDecimal(offset + AMOUNT, offset + AMOUNT_SCALE, new BigDecimal(amount));
+			putId(record, orderId);
+
+			PriceLevel level = priceLevels.computeIfAbsent(priceValue, p -> new PriceLevel());
+			linkInLevel(level, record, orderId);
+			indexPut(record, idHash);
+			size++;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public boolean updateOrderAmount(String orderId, String amount) {
+		long stamp = lock.writeLock();
+		try {
+			int record = find(orderId, hash(orderId));
+			if (record == NO_RECORD) {
+				return false;
+			}
+			int offset = record * RECORD_BYTES;
+			putDecimal(offset + AMOUNT, offset + AMOUNT_SCALE, new BigDecimal(amount));
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public boolean removeOrder(String orderId) {
+		long stamp = lock.writeLock();
+		try {
+			int record = find(orderId, hash(orderId));
+			if (record == NO_RECORD) {
+				return false;
+			}
+			unlink(record);
+			return true;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Copies the orders level by level, releasing the lock between levels so writes can be applied meanwhile
+	 */
+	private List<Order> copyOrders(int n) {
+		List<Order> orders = new ArrayList<>(Math.min(n, size));
+		RecordView view = new RecordView();
+		BigDecimal lastPrice = null;
+		while (orders.size() < n) {
+			long stamp = lock.readLock();
+			try {
+				Map.Entry<BigDecimal, PriceLevel> level = (lastPrice == null ? priceLevels.firstEntry() : priceLevels.higherEntry(lastPrice));
+				if (level == null) {
+					break;
+				}
+				for (int record = level.getValue().head; record != NO_RECORD && orders.size() < n; record = next(record)) {
+					view.moveTo(record);
+					orders.add(new BitsoOrder(view.getId(), view.getPrice(), view.getAmount()));
+				}
+				lastPrice = level.getKey();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return orders;
+	}
+
+	/**
+	 * Removes the record from its price level and the index, and frees it
+	 */
+	private void unlink(int record) {
+		int offset = record * RECORD_BYTES;
+		BigDecimal priceValue = getDecimal(offset + PRICE, offset + PRICE_SCALE);
+		PriceLevel level = priceLevels.get(priceValue);
+		int previous = records.getInt(offset + PREVIOUS);
+		int next = records.getInt(offset + NEXT);
+		if (previous == NO_RECORD) {
+			level.head = next;
+		} else {
+			records.putInt(previous * RECORD_BYTES + NEXT, next);
+		}
+		if (next != NO_RECORD) {
+			records.putInt(next * RECORD_BYTES + PREVIOUS, previous);
+		}
+		if (level.head == NO_RECORD) {
+			priceLevels.remove(priceValue);
+		}
+
+		indexRemove(record, records.getLong(offset + ID_HASH));
+		longIds.remove(record);
+		records.putInt(offset + NEXT, freeRecord);
+		freeRecord = record;
+		size--;
+	}
+
+	/**
+	 * Links the record in its position in the level, as orders with the same price are sorted by id (in the same order as prices)
+	 */
+	private void linkInLevel(PriceLevel level, int record, String orderId) {
+		int previous = NO_RECORD;
+		int next = level.head;
+		while (next != NO_RECORD && compareId(next, orderId) * idOrdering < 0) {
+			previous = next;
+			next = next(next);
+		}
+		int offset = record * RECORD_BYTES;
+		records.putInt(offset + PREVIOUS, previous);
+		records.putInt(offset + NEXT, next);
+		if (previous == NO_RECORD) {
+			level.head = record;
+		} else {
+			records.putInt(previous * RECORD_BYTES + NEXT, record);
+		}
+		if (next != NO_RECORD) {
+			records.putInt(next * RECORD_BYTES + PREVIOUS, record);
+		}
+	}
+
+	private int next(int record) {
+		return records.getInt(record * RECORD_BYTES + NEXT);
+	}
+
+	private int newRecord() {
+		if (freeRecord != NO_RECORD) {
+			int record = freeRecord;
+			freeRecord = next(record);
+			return record;
+		}
+		if (unusedRecord == recordsCapacity) {
+			recordsCapacity <<= 1;
+			records = grow(records, recordsCapacity * RECORD_BYTES);
+		}
+		return unusedRecord++;
+	}
+
+	private void putId(int record, String orderId) {
+		int offset = record * RECORD_BYTES;
+		if (orderId.length() > MAX_INLINE_ID_BYTES || !isAscii(orderId)) {
+			records.put(offset + ID_LENGTH, (byte) LONG_ID);
+			longIds.put(record, orderId);
+			return;
+		}
+		records.put(offset + ID_LENGTH, (byte) orderId.length());
+		for (int i = 0; i < orderId.length(); i++) {
+			records.put(offset + ID + i, (byte) orderId.charAt(i));
+		}
+	}
+
+	private String getId(int record) {
+		int offset = record * RECORD_BYTES;
+		int length = records.get(offset + ID_LENGTH) & 0xFF;
+		if (length == LONG_ID) {
+			return longIds.get(record);
+		}
+		char[] id = new char[length];
+		for (int i = 0; i < length; i++) {
+			id[i] = (char) records.get(offset + ID + i);
+		}
+		return new String(id);
+	}
+
+	/**
+	 * Compares the id of the record with the given one as {@link String#compareTo(String)} does, without creating the record id
+	 */
+	private int compareId(int record, String orderId) {
+		int offset = record * RECORD_BYTES;
+		int length = records.get(offset + ID_LENGTH) & 0xFF;
+		if (length == LONG_ID) {
+			return longIds.get(record).compareTo(orderId);
+		}
+		int common = Math.min(length, orderId.length());
+		for (int i = 0; i < common; i++) {
+			int difference = (char) records.get(offset + ID + i) - orderId.charAt(i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - orderId.length();
+	}
+
+	private void putDecimal(int valueOffset, int scaleOffset, BigDecimal value) {
+		BigDecimal stored = value.scale() < 0 ? value.setScale(0) : value;
+		if (stored.scale() > Byte.MAX_VALUE || stored.unscaledValue().bitLength() > 63) {
+			throw new IllegalArgumentException("Value can't be stored off-heap: " + value);
+		}
+		records.putLong(valueOffset, stored.unscaledValue().longValue());
+		records.put(scaleOffset, (byte) stored.scale());
+	}
+
+	private BigDecimal getDecimal(int valueOffset, int scaleOffset) {
+		return BigDecimal.valueOf(records.getLong(valueOffset), records.get(scaleOffset));
+	}
+
+	/**
+	 * @return the record with the given id, or {@link #NO_RECORD}
+	 */
+	private int find(String orderId, long idHash) {
+		for (int slot = slotOf(idHash);; slot = (slot + 1) & indexMask) {
+			int entry = index.getInt(slot * Integer.BYTES);
+			if (entry == INDEX_EMPTY) {
+				return NO_RECORD;
+			}
+			if (entry != INDEX_TOMBSTONE) {
+				int record = entry - 1;
+				if (records.getLong(record * RECORD_BYTES + ID_HASH) == idHash && compareId(record, orderId) == 0) {
+					return record;
+				}
+			}
+		}
+	}
+
+	private void indexPut(int record, long idHash) {
+		if (indexUsedSlots + 1 > (indexMask + 1) * INDEX_MAX_LOAD_FACTOR) {
+			rebuildIndex();
+		}
+		int slot = slotOf(idHash);
+		while (index.getInt(slot * Integer.BYTES) != INDEX_EMPTY) {
+			slot = (slot + 1) & indexMask;
+		}
+		index.putInt(slot * Integer.BYTES, record + 1);
+		indexUsedSlots++;
+	}
+
+	private void indexRemove(int record, long idHash) {
+		for (int slot = slotOf(idHash);; slot = (slot + 1) & indexMask) {
+			int entry = index.getInt(slot * Integer.BYTES);
+			if (entry == INDEX_EMPTY) {
+				return;
+			}
+			if (entry == record + 1) {
+				index.putInt(slot * Integer.BYTES, INDEX_TOMBSTONE);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new index without tombstones, bigger if needed
+	 */
+	private void rebuildIndex() {
+		int capacity = indexMask + 1;
+		while (size + 1 > capacity * INDEX_MAX_LOAD_FACTOR / 2) {
+			capacity <<= 1;
+		}
+		ByteBuffer previousIndex = index;
+		int previousCapacity = indexMask + 1;
+		index = allocate(capacity * Integer.BYTES);
+		indexMask = capacity - 1;
+		indexUsedSlots = 0;
+		for (int slot = 0; slot < previousCapacity; slot++) {
+			int entry = previousIndex.getInt(slot * Integer.BYTES);
+			if (entry != INDEX_EMPTY && entry != INDEX_TOMBSTONE) {
+				int record = entry - 1;
+				indexPut(record, records.getLong(record * RECORD_BYTES + ID_HASH));
+			}
+		}
+	}
+
+	private int slotOf(long idHash) {
+		long mixed = idHash ^ (idHash >>> 33);
+		mixed *= 0xFF51AFD7ED558CCDL;
+		mixed ^= mixed >>> 33;
+		return (int) mixed & indexMask;
+	}
+
+	/**
+	 * 64 bits FNV-1a of the id characters
+	 */
+	private static long hash(String orderId) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < orderId.length(); i++) {
+			hash ^= orderId.charAt(i);
+			hash *= 0x100000001B3L;
+		}
+		return hash;
+	}
+
+	private static boolean isAscii(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > Byte.MAX_VALUE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static ByteBuffer allocate(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	private static ByteBuffer grow(ByteBuffer buffer, int bytes) {
+		ByteBuffer grown = allocate(bytes);
+		ByteBuffer source = buffer.duplicate();
+		source.clear();
+		grown.put(source);
+		grown.clear();
+		return grown;
+	}
+
+	private static final class PriceLevel {
+		private int head = NO_RECORD;
+	}
+
+	/**
+	 * Flyweight over a record, to read an order without copying it. Only valid while holding the lock and until the record is modified
+	 */
+	final class RecordView implements Order {
+		private int record;
+
+		void moveTo(int record) {
+			this.record = record;
+		}
+
+		@Override
+		public String getId() {
+			return OffHeapOrderBookSide.this.getId(record);
+		}
+
+		@Override
+		public String getPrice() {
+			int offset = record * RECORD_BYTES;
+			return getDecimal(offset + PRICE, offset + PRICE_SCALE).toPlainString();
+		}
+
+		@Override
+		public String getAmount() {
+			int offset = record * RECORD_BYTES;
+			return getDecimal(offset + AMOUNT, offset + AMOUNT_SCALE).toPlainString();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
+
+import java.util.List;
+
+import net.rubenmartinez.stpc.exchange.domain.Order;
+
+/**
+ * The orders of one side of a book (asks or bids), sorted by price (and order id, for the orders with the same price).
+ * <p>
+ * Only one thread modifies a side, while the methods ending in <code>ThreadSafe</code> can be called concurrently with
+ * any other method. The orders returned to readers never change, whether they are copies or the published instances kept by
+ * the side.</p>
+ *
+ * @see OrderBookSides
+ */
+public interface OrderBookSide {
+
+	/**
+	 * Returns the <code>n</code> best orders in this side, which won't change anymore
+	 */
+	List<Order> getBestNSortedOrdersThreadSafe(int n);
+
+	/**
+	 * Returns all the orders in this side, which won't change anymore
+	 */
+	List<Order> getSortedOrdersThreadSafe();
+
+	/**
+	 * Returns a <strong>copy</strong> of all the orders in this side, for readers that don't hand them out (e.g. to save a snapshot):
+	 * unlike {@link #getSortedOrdersThreadSafe()}, the orders kept by the side are not published, so they can still be reused
+	 */
+	List<Order> copySortedOrdersThreadSafe();
+
+	int size();
+
+	/**
+	 * Adds an order, replacing the one with the same id if there was any
+	 */
+	void addOrder(String orderId, String price, String amount);
+
+	/**
+	 * @return <code>false</code> if there wasn't any order with the given id
+	 */
+	boolean updateOrderAmount(String orderId, String amount);
+
+	/**
+	 * @return <code>false</code> if there wasn't any order with the given id
+	 */
+	boolean removeOrder(String orderId);
+}
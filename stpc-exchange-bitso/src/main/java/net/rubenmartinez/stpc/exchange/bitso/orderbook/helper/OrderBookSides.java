@@ -0,0 +1,39 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
+
+import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeException;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap.SortOrdering;
+
+/**
+ * Creates the book sides with the storage configured in <code>orderbook.storage</code>:
+ * <ul>
+ * <li><code>heap</code>: {@link SortedBookOrdersMap}, the default</li>
+ * <li><code>off-heap</code>: {@link OffHeapOrderBookSide}, for full depth books of many markets, so their orders are
+ * neither on the heap nor traced by the GC</li>
+ * </ul>
+ */
+public final class OrderBookSides {
+
+	public static final String STORAGE_HEAP = "heap";
+	public static final String STORAGE_OFF_HEAP = "off-heap";
+
+	public static OrderBookSide newSide(SortOrdering ordering) {
+		return newSide(ordering, Configuration.getDefault().get());
+	}
+
+	public static OrderBookSide newSide(SortOrdering ordering, BitsoConfig config) {
+		String storage = config.getOrderBookStorage();
+		switch (storage) {
+		case STORAGE_HEAP:
+			return new SortedBookOrdersMap(ordering, new BitsoOrderPool(config.getOrderBookOrderPoolMaxSize()));
+		case STORAGE_OFF_HEAP:
+			return new OffHeapOrderBookSide(ordering);
+		default:
+			throw new BitsoExchangeException("Unknown orderbook storage: " + storage);
+		}
+	}
+
+	private OrderBookSides() {
+	}
+}
@@ -0,0 +1,210 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.dto.OrderBookBeanDTO;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap.SortOrdering;
+import net.rubenmartinez.stpc.exchange.domain.Order;
+
+/**
+ * Compact binary snapshot of an OrderBook in a file, so a restarted keeper can start from it instead of retrieving the whole book.
+ * <p>
+ * The snapshot is written to a temporary file in the same directory, which then replaces the previous snapshot with a rename,
+ * so the file is always either the previous or the new complete snapshot, even if the process dies while writing.</p>
+ * <p>
+ * All numbers are big-endian:
+ * <pre>
+ * header:  u32 magic ("STBK") | u8 version (1) | UTF book name | i64 sequence | i64 saved epoch millis
+ * sides:   i32 number of asks | asks | i32 number of bids | bids
+ * order:   UTF id | decimal price | decimal amount
+ * decimal: i8 scale | i64 unscaled value, or scale -1 | UTF string if it doesn't fit
+ * trailer: i64 CRC32 of all the previous bytes
+ * </pre>
+ * (UTF being the modified UTF-8 of {@link DataOutputStream#writeUTF(String)}, prefixed by its u16 length)</p>
+ */
+public class OrderBookSnapshotFile {
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrderBookSnapshotFile.class);
+
+	static final int MAGIC = 0x5354424B;
+	static final byte VERSION = 1;
+
+	private static final byte SCALE_NOT_ENCODABLE = -1;
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final Path file;
+	private final BitsoConfig config;
+
+	public OrderBookSnapshotFile(Path file) {
+		this(file, Configuration.getDefault().get());
+	}
+
+	/**
+	 * @param config configuration of the book sides created when reading (see {@link OrderBookSides})
+	 */
+	public OrderBookSnapshotFile(Path file, BitsoConfig config) {
+		this.file = file;
+		this.config = config;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public boolean exists() {
+		return Files.isRegularFile(file);
+	}
+
+	/**
+	 * Replaces the snapshot in the file with the given orders
+	 */
+	public void write(String bookName, long sequence, List<Order> asks, List<Order> bids) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path tempFile = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+
+		CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)), new CRC32());
+		try (DataOutputStream out = new DataOutputStream(checked)) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeUTF(bookName);
+			out.writeLong(sequence);
+			out.writeLong(System.currentTimeMillis());
+			writeOrders(out, asks);
+			writeOrders(out, bids);
+			out.writeLong(checked.getChecksum().getValue());
+		}
+
+		try {
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		LOGGER.debug("OrderBook snapshot written to {}. Sequence: {}; Number of Asks: {}; Number of Bids: {}", file, sequence, asks.size(), bids.size());
+	}
+
+	/**
+	 * Reads the snapshot in the file into new book sides (see {@link OrderBookSides})
+	 *
+	 * @throws IOException if the file can't be read, isn't a snapshot, or is corrupted
+	 */
+	public Snapshot read() throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), new CRC32());
+		try (DataInputStream in = new DataInputStream(checked)) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not an OrderBook snapshot: " + file);
+			}
+			byte version = in.readByte();
+			if (version != VERSION) {
+				throw new IOException("Unsupported OrderBook snapshot version " + version + ": " + file);
+			}
+			String bookName = in.readUTF();
+			long sequence = in.readLong();
+			long savedEpochMillis = in.readLong();
+			OrderBookSide asks = readOrders(in, OrderBookSides.newSide(SortOrdering.ASCENDING, config));
+			OrderBookSide bids = readOrders(in, OrderBookSides.newSide(SortOrdering.DESCENDING, config));
+			long checksum = checked.getChecksum().getValue();
+			if (in.readLong() != checksum) {
+				throw new IOException("Corrupted OrderBook snapshot, checksum doesn't match: " + file);
+			}
+
+			OrderBookBeanDTO orderBook = OrderBookBeanDTO.builder().asks(asks).bids(bids).sequence(sequence).build();
+			return new Snapshot(bookName, savedEpochMillis, orderBook);
+		}
+	}
+
+	private static void writeOrders(DataOutputStream out, List<Order> orders) throws IOException {
+		out.writeInt(orders.size());
+		for (Order order : orders) {
+			out.writeUTF(order.getId());
+			writeDecimal(out, order.getPrice());
+			writeDecimal(out, order.getAmount());
+		}
+	}
+
+	private static OrderBookSide readOrders(DataInputStream in, OrderBookSide side) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			throw new IOException("Corrupted OrderBook snapshot, negative number of orders: " + size);
+		}
+		for (int i = 0; i < size; i++) {
+			String id = in.readUTF();
+			String price = readDecimal(in);
+			String amount = readDecimal(in);
+			side.addOrder(id, price, amount);
+		}
+		return side;
+	}
+
+	/**
+	 * The decimals sent by Bitso have few digits, so they usually fit in a long and a scale, keeping the same representation
+	 * (e.g. "0.50" is written as 50 with scale 2)
+	 */
+	private static void writeDecimal(DataOutputStream out, String value) throws IOException {
+		BigDecimal decimal = new BigDecimal(value);
+		if (decimal.unscaledValue().bitLength() < Long.SIZE && decimal.scale() >= 0 && decimal.scale() <= Byte.MAX_VALUE) {
+			out.writeByte(decimal.scale());
+			out.writeLong(decimal.unscaledValue().longValue());
+		} else {
+			out.writeByte(SCALE_NOT_ENCODABLE);
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readDecimal(DataInputStream in) throws IOException {
+		byte scale = in.readByte();
+		if (scale == SCALE_NOT_ENCODABLE) {
+			return in.readUTF();
+		}
+		return BigDecimal.valueOf(in.readLong(), scale).toPlainString();
+	}
+
+
+	public static class Snapshot {
+		private final String bookName;
+		private final long savedEpochMillis;
+		private final OrderBookBeanDTO orderBook;
+
+		Snapshot(String bookName, long savedEpochMillis, OrderBookBeanDTO orderBook) {
+			this.bookName = bookName;
+			this.savedEpochMillis = savedEpochMillis;
+			this.orderBook = orderBook;
+		}
+
+		public String getBookName() {
+			return bookName;
+		}
+
+		public long getSavedEpochMillis() {
+			return savedEpochMillis;
+		}
+
+		public OrderBookBeanDTO getOrderBook() {
+			return orderBook;
+		}
+
+		@Override
+		public String toString() {
+			return "OrderBookSnapshotFile.Snapshot(bookName=" + bookName + ", savedEpochMillis=" + savedEpochMillis + ", sequence=" + orderBook.getSequence() + ")";
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
+
+/**
+ * Orders by id, for the order ids used by Bitso (up to 20 alphanumeric characters, e.g. <code>"7v1r9ac2pQQhOXtK"</code>).
+ * <p>
+ * Ids are encoded in two <code>long</code> keys (6 bits per character) and stored in an open addressing table, so there is
+ * no entry object per order, and neither hashing nor comparing the id strings once encoded. Ids that can't be encoded
+ * (longer or with other characters) are kept in a regular concurrent map.</p>
+ * <p>
+ * Methods modifying the index are serialized, while {@link #get(String)} can be called concurrently with them without locking:
+ * a removed order leaves a tombstone (so probing never stops early), and the table is replaced, not modified, when it is resized.
+ * A get concurrent with the put of the same id may not find it yet.</p>
+ */
+public class OrderIdIndex {
+
+	private static final long NOT_ENCODABLE = -1;
+	private static final int CHARS_PER_KEY = 10;
+	private static final int BITS_PER_CHAR = 6;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final double MAX_LOAD_FACTOR = 0.6;
+
+	private static final BitsoOrder TOMBSTONE = new BitsoOrder("", "0", "0");
+
+	private volatile Table table;
+	private volatile int encodedSize;
+	private int usedSlots; // Orders plus tombstones; only accessed while modifying
+	private Map<String, BitsoOrder> notEncodableOrders;
+
+	public OrderIdIndex() {
+		this.table = new Table(INITIAL_CAPACITY);
+		this.notEncodableOrders = new ConcurrentHashMap<>();
+	}
+
+	public BitsoOrder get(String orderId) {
+		long high = encode(orderId, 0);
+		long low = encode(orderId, CHARS_PER_KEY);
+		if (high == NOT_ENCODABLE || low == NOT_ENCODABLE) {
+			return notEncodableOrders.get(orderId);
+		}
+
+		Table current = table;
+		int index = current.indexOf(high, low);
+		for (int probes = 0; probes <= current.mask; probes++) {
+			BitsoOrder order = current.orders.get(index);
+			if (order == null) {
+				return null;
+			}
+			if (order != TOMBSTONE && current.highKeys[index] == high && current.lowKeys[index] == low && current.orders.get(index) == order) {
+				return order;
+			}
+			index = (index + 1) & current.mask;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the order previously stored with the same id, or <code>null</code> if there wasn't any
+	 */
+	public synchronized BitsoOrder put(BitsoOrder order) {
+		String orderId = order.getId();
+		long high = encode(orderId, 0);
+		long low = encode(orderId, CHARS_PER_KEY);
+		if (high == NOT_ENCODABLE || low == NOT_ENCODABLE) {
+			return notEncodableOrders.put(orderId, order);
+		}
+
+		Table current = table;
+		int index = current.indexOf(high, low);
+		int freeIndex = -1;
+		for (int probes = 0; probes <= current.mask; probes++) {
+			BitsoOrder existing = current.orders.get(index);
+			if (existing == null) {
+				break;
+			}
+			if (existing == TOMBSTONE) {
+				if (freeIndex < 0) {
+					freeIndex = index;
+				}
+			} else if (current.highKeys[index] == high && current.lowKeys[index] == low) {
+				current.orders.set(index, order);
+				return existing;
+			}
+			index = (index + 1) & current.mask;
+		}
+
+		if (freeIndex < 0) {
+			if (usedSlots + 1 > current.capacity() * MAX_LOAD_FACTOR) {
+				rebuild();
+				return put(order);
+			}
+			freeIndex = index;
+			usedSlots++;
+		}
+		// Keys written before publishing the order, so a reader seeing the order sees its keys
+		current.highKeys[freeIndex] = high;
+		current.lowKeys[freeIndex] = low;
+		current.orders.set(freeIndex, order);
+		encodedSize++;
+		return null;
+	}
+
+	/**
+	 * @return the order removed, or <code>null</code> if there wasn't any with the given id
+	 */
+	public synchronized BitsoOrder remove(String orderId) {
+		long high = encode(orderId, 0);
+		long low = encode(orderId, CHARS_PER_KEY);
+		if (high == NOT_ENCODABLE || low == NOT_ENCODABLE) {
+			return notEncodableOrders.remove(orderId);
+		}
+
+		Table current = table;
+		int index = current.indexOf(high, low);
+		for (int probes = 0; probes <= current.mask; probes++) {
+			BitsoOrder existing = current.orders.get(index);
+			if (existing == null) {
+				return null;
+			}
+			if (existing != TOMBSTONE && current.highKeys[index] == high && current.lowKeys[index] == low) {
+				current.orders.set(index, TOMBSTONE);
+				encodedSize--;
+				return existing;
+			}
+			index = (index + 1) & current.mask;
+		}
+		return null;
+	}
+
+	public int size() {
+		return encodedSize + notEncodableOrders.size();
+	}
+
+	/**
+	 * Copies the orders to a new table without tombstones, bigger if needed, and publishes it
+	 */
+	private void rebuild() {
+		Table current = table;
+		int capacity = current.capacity();
+		while (encodedSize + 1 > capacity * MAX_LOAD_FACTOR / 2) {
+			capacity <<= 1;
+		}
+
+		Table rebuilt = new Table(capacity);
+		for (int i = 0; i <= current.mask; i++) {
+			BitsoOrder order = current.orders.get(i);
+			if (order != null && order != TOMBSTONE) {
+				int index = rebuilt.indexOf(current.highKeys[i], current.lowKeys[i]);
+				while (rebuilt.orders.get(index) != null) {
+					index = (index + 1) & rebuilt.mask;
+				}
+				rebuilt.highKeys[index] = current.highKeys[i];
+				rebuilt.lowKeys[index] = current.lowKeys[i];
+				rebuilt.orders.lazySet(index, order);
+			}
+		}
+		usedSlots = encodedSize;
+		table = rebuilt;
+	}
+
+	/**
+	 * Encodes up to {@link #CHARS_PER_KEY} characters of the id starting at <code>from</code>, each one as a number from 1 to 63
+	 * (0 meaning no character)
+	 *
+	 * @return the encoded characters, or {@link #NOT_ENCODABLE}
+	 */
+	static long encode(String orderId, int from) {
+		if (orderId.length() > 2 * CHARS_PER_KEY) {
+			return NOT_ENCODABLE;
+		}
+		long key = 0;
+		int to = Math.min(orderId.length(), from + CHARS_PER_KEY);
+		for (int i = from; i < to; i++) {
+			int code = encode(orderId.charAt(i));
+			if (code == 0) {
+				return NOT_ENCODABLE;
+			}
+			key = (key << BITS_PER_CHAR) | code;
+		}
+		return key;
+	}
+
+	private static int encode(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0' + 1;
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A' + 11;
+		}
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 37;
+		}
+		return c == '-' ? 63 : 0;
+	}
+
+	private static final class Table {
+		private final long[] highKeys;
+		private final long[] lowKeys;
+		private final AtomicReferenceArray<BitsoOrder> orders;
+		private final int mask;
+
+		private Table(int capacity) {
+			this.highKeys = new long[capacity];
+			this.lowKeys = new long[capacity];
+			this.orders = new AtomicReferenceArray<>(capacity);
+			this.mask = capacity - 1;
+		}
+
+		private int capacity() {
+			return mask + 1;
+		}
+
+		private int indexOf(long high, long low) {
+			long hash = high * 0x9E3779B97F4A7C15L + low;
+			hash ^= hash >>> 33;
+			hash *= 0xFF51AFD7ED558CCDL;
+			hash ^= hash >>> 33;
+			return (int) hash & mask;
+		}
+	}
+}
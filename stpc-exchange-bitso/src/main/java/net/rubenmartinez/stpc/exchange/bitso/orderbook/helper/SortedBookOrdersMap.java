@@ -4,8 +4,8 @@ package net.rubenmartinez.stpc.exchange.bitso.orderbook.helper;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
@@ -13,6 +13,7 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
 import net.rubenmartinez.stpc.exchange.domain.Order;
 
@@ -24,8 +25,12 @@ import net.rubenmartinez.stpc.exchange.domain.Order;
  * 
  * If a method name ends in <code>threadSafe</code>, it means it can be called concurrently with any other method
  * in this class (regardless if the other method is named as thread-safe or not)
+ * <p>
+ * Orders removed from this map may be reused for new orders (see {@link BitsoOrderPool}), unless a reader got them: the
+ * thread-safe methods publish the orders they return, which then never change nor are reused (see {@link BitsoOrder#publish(String)}),
+ * and skip the ones reused meanwhile. So readers don't get copies, and only the orders no reader got are recycled.</p>
  */
-public class SortedBookOrdersMap {
+public class SortedBookOrdersMap implements OrderBookSide {
 
 	public enum SortOrdering {
 		ASCENDING, DESCENDING;
@@ -33,58 +38,118 @@ public class SortedBookOrdersMap {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(SortedBookOrdersMap.class);
 	private ConcurrentSkipListMap<SortedOrdersKey, BitsoOrder> sortedOrdersMapByPrice;
-	private HashMap<String, BitsoOrder> ordersMapById;
+	private OrderIdIndex ordersMapById;
+	private BitsoOrderPool orderPool;
+
+	// Changed on each lookup of an order already in the map, so the writer doesn't create a key each time: it must never be put in the map
+	private SortedOrdersKey writerLookupKey = new SortedOrdersKey(null, null);
 
 	public SortedBookOrdersMap(SortOrdering ordering) {
+		this(ordering, new BitsoOrderPool(Configuration.getDefault().get().getOrderBookOrderPoolMaxSize()));
+	}
+
+	public SortedBookOrdersMap(SortOrdering ordering, BitsoOrderPool orderPool) {
 		Comparator<SortedOrdersKey> comparator = (ordering == SortOrdering.ASCENDING ? Comparator.naturalOrder() : Comparator.reverseOrder());
 		this.sortedOrdersMapByPrice = new ConcurrentSkipListMap<>(comparator);
-		this.ordersMapById = new HashMap<>();
+		this.ordersMapById = new OrderIdIndex();
+		this.orderPool = orderPool;
 	}
 
 	/**
-	 * Returns a <strong>copy</strong> of the <code>n</code> best orders stored in this map
+	 * Returns the <code>n</code> best orders stored in this map, which won't change anymore
 	 * 
 	 * @param n
 	 * @return
 	 */
+	@Override
 	public List<Order> getBestNSortedOrdersThreadSafe(int n) {
 		if (n < 0) {
 			throw new IllegalArgumentException("Number of orders must be greater than zero");
 		}
 		LOGGER.trace("getBestNSortedOrdersThreadSafe({})", n);
-		List<Order> orders = sortedOrdersMapByPrice.values().stream().limit(n).collect(Collectors.toList());
+		List<Order> orders = sortedOrdersMapByPrice.entrySet().stream().filter(SortedBookOrdersMap::publish).map(Map.Entry::getValue).limit(n)
+				.collect(Collectors.toList());
 		LOGGER.trace("getBestNSortedOrdersThreadSafe({}) --> ", orders);
 		return orders;
 	}
 
 	/**
-	 * Returns a <strong>copy</strong> of the best orders stored in this map
+	 * Returns the best orders stored in this map, which won't change anymore
 	 * 
 	 */
+	@Override
 	public List<Order> getSortedOrdersThreadSafe() {
-		return new ArrayList<>(sortedOrdersMapByPrice.values());
+		List<Order> orders = new ArrayList<>();
+		for (Map.Entry<SortedOrdersKey, BitsoOrder> entry : sortedOrdersMapByPrice.entrySet()) {
+			if (publish(entry)) {
+				orders.add(entry.getValue());
+			}
+		}
+		return orders;
 	}
 
 	/**
-	 * Returns the number of orders in this this map.  If this map
-	 * contains more than {@code Integer.MAX_VALUE} elements, it
-	 * returns {@code Integer.MAX_VALUE}.
-	 *
-	 * <p>Beware that, unlike in most collections, this method is
-	 * <em>NOT</em> a constant-time operation. Because of the
-	 * asynchronous nature of these maps, determining the current
-	 * number of elements requires traversing them all to count them.
-	 * Additionally, it is possible for the size to change during
-	 * execution of this method, in which case the returned result
-	 * will be inaccurate. Thus, this method is typically not very
-	 * useful in concurrent applications.
+	 * Returns a <strong>copy</strong> of the orders stored in this map, skipping the ones reused while copying them
+	 */
+	@Override
+	public List<Order> copySortedOrdersThreadSafe() {
+		List<Order> orders = new ArrayList<>();
+		for (Map.Entry<SortedOrdersKey, BitsoOrder> entry : sortedOrdersMapByPrice.entrySet()) {
+			BitsoOrder copy = entry.getValue().copyIfIdIs(entry.getKey().orderId);
+			if (copy != null) {
+				orders.add(copy);
+			}
+		}
+		return orders;
+	}
+
+	/**
+	 * Returns the number of orders in this map, in constant time: it is the size of the index by id (see {@link OrderIdIndex}),
+	 * kept as orders are put and removed.
+	 * <p>
+	 * While an order is being put or removed, the orders sorted by price may still not include that change.</p>
 	 *
-	 * @return the number of elements in this map
+	 * @return the number of orders in this map
 	 */
+	@Override
 	public int size() {
 		return ordersMapById.size();
 	}
 
+	/**
+	 * The order is taken from the pool of orders removed from this map
+	 */
+	@Override
+	public void addOrder(String orderId, String price, String amount) {
+		removeOrder(orderId);
+		put(orderPool.acquire(orderId, price, amount));
+	}
+
+	/**
+	 * The amount is updated in place, unless a reader got the order: then it is replaced by a new order with the new amount
+	 */
+	@Override
+	public boolean updateOrderAmount(String orderId, String amount) {
+		BitsoOrder existingOrder = ordersMapById.get(orderId);
+		if (existingOrder == null) {
+			return false;
+		}
+		if (!existingOrder.updateAmountIfNotPublished(amount)) {
+			put(orderPool.acquire(orderId, existingOrder.getPrice(), amount));
+		}
+		return true;
+	}
+
+	/**
+	 * The order removed is returned to the pool, to be reused by a new order
+	 */
+	@Override
+	public boolean removeOrder(String orderId) {
+		Optional<BitsoOrder> previous = remove(orderId);
+		previous.ifPresent(orderPool::release);
+		return previous.isPresent();
+	}
+
 	/**
 	 * Maps the specified key to the specified value in this table. Neither the key
 	 * nor the value can be null.
@@ -101,8 +166,15 @@ public class SortedBookOrdersMap {
 	 * @throws NullPointerException if the specified key or value is null
 	 */
 	public Optional<BitsoOrder> put(BitsoOrder order) {
-		BitsoOrder previous = ordersMapById.put(order.getId(), order);
-		sortedOrdersMapByPrice.put(getKey(order), order);
+		BitsoOrder previous = ordersMapById.put(order);
+		if (previous != null && previous.getPriceValue().compareTo(order.getPriceValue()) == 0) {
+			sortedOrdersMapByPrice.replace(lookupKey(order), order); // Never inserts the lookup key
+		} else {
+			if (previous != null) {
+				sortedOrdersMapByPrice.remove(lookupKey(previous));
+			}
+			sortedOrdersMapByPrice.put(new SortedOrdersKey(order.getId(), order.getPriceValue()), order);
+		}
 		LOGGER.trace("New order put: {}", order);
 		return Optional.ofNullable(previous);
 	}
@@ -119,7 +191,7 @@ public class SortedBookOrdersMap {
 	public Optional<BitsoOrder> remove(String orderId) {
 		BitsoOrder previous = ordersMapById.remove(orderId);
 		if (previous != null) {
-			sortedOrdersMapByPrice.remove(getKey(previous));
+			sortedOrdersMapByPrice.remove(lookupKey(previous));
 		}
 		LOGGER.trace("Order removed: {}", orderId);
 		return Optional.ofNullable(previous);
@@ -137,12 +209,21 @@ public class SortedBookOrdersMap {
 	 * @throws NullPointerException if the specified key is null
 	 */
 	public Optional<BitsoOrder> get(String orderId) {
-		// As only the map is involved, this uses only the per-bin lock in ConcurrentHashMap which is more efficient that our lock
+		// As only the index is involved, this doesn't lock (see OrderIdIndex)
 		return Optional.ofNullable(ordersMapById.get(orderId));
 	}
 
-	private static SortedOrdersKey getKey(BitsoOrder order) {
-		return new SortedOrdersKey(order.getId(), new BigDecimal(order.getPrice()));
+	private SortedOrdersKey lookupKey(BitsoOrder order) {
+		writerLookupKey.orderId = order.getId();
+		writerLookupKey.price = order.getPriceValue();
+		return writerLookupKey;
+	}
+
+	/**
+	 * @return whether the order in the entry can be returned to a reader, <code>false</code> if it was removed and reused for another order
+	 */
+	private static boolean publish(Map.Entry<SortedOrdersKey, BitsoOrder> entry) {
+		return entry.getValue().publish(entry.getKey().orderId);
 	}
 
 
@@ -1,8 +1,7 @@
 package net.rubenmartinez.stpc.exchange.bitso.trade;
 
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,9 +11,15 @@ import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeThreadInterruptedExcep
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient.TradesSort;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.domain.BitsoRestApiTrades;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
 import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.ReloadableConfig;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
+import net.rubenmartinez.stpc.exchange.bitso.trade.helper.BackfillCoordinator;
 import net.rubenmartinez.stpc.exchange.bitso.trade.helper.ConcurrentSoftLimitedBuffer;
 import net.rubenmartinez.stpc.exchange.bitso.trade.helper.NewTradesNotifier;
+import net.rubenmartinez.stpc.exchange.bitso.trade.helper.ParallelHistoryLoader;
 import net.rubenmartinez.stpc.exchange.domain.Trade;
 import net.rubenmartinez.stpc.exchange.listener.TradeListener;
 
@@ -27,24 +32,40 @@ import net.rubenmartinez.stpc.exchange.listener.TradeListener;
 public class TradesHolder implements TradeListener {
 	private static final Logger LOGGER = LoggerFactory.getLogger(TradesHolder.class);
 	
-	private static final int INCREASING_BUFFER_TRYLOCK_TIMEOUT_MILLIS = Configuration.getTradeHolderIterationsMillisWaitFindingLastTrade();
-	
 	private String bookName;
 	private BitsoRestApiClient restClient;
 
 	private NewTradesNotifier tradesNotifier;
 	private volatile ConcurrentSoftLimitedBuffer<Trade> tradesBuffer;
-	private ReentrantLock increasingBufferLock;
+	private ParallelHistoryLoader historyLoader;
+	private BackfillCoordinator backfillCoordinator;
 	private boolean started;
+	private ExchangeMetrics metrics;
+	private int bufferMaxTrades;
+	private int historyPageTrades;
 
 	public TradesHolder(BitsoRestApiClient client, String bookName) {
+		this(client, bookName, ExchangeMetrics.NO_OP);
+	}
+
+	public TradesHolder(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics) {
+		this(client, bookName, metrics, Configuration.getDefault());
+	}
+
+	public TradesHolder(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics, ReloadableConfig config) {
+		BitsoConfig currentConfig = config.get();
 		this.bookName = bookName;
 		this.restClient = client;
-		this.tradesBuffer = new ConcurrentSoftLimitedBuffer<>(Configuration.getTradeHolderBufferMaxTrades());
-		this.tradesNotifier = new NewTradesNotifier(client, bookName); // The exercise specifically instructs to "Use the REST API (not the websocket) to poll for recent trades at some regular interval", although normally we would be using websocket connection for that 
-		this.increasingBufferLock = new ReentrantLock();
+		this.metrics = metrics;
+		this.bufferMaxTrades = currentConfig.getTradeHolderBufferMaxTrades();
+		this.historyPageTrades = currentConfig.getTradeHolderPollTrades();
+		this.tradesBuffer = new ConcurrentSoftLimitedBuffer<>(bufferMaxTrades);
+		this.tradesNotifier = new NewTradesNotifier(client, bookName, metrics, config); // The exercise specifically instructs to "Use the REST API (not the websocket) to poll for recent trades at some regular interval", although normally we would be using websocket connection for that 
+		this.historyLoader = new ParallelHistoryLoader(this::retrieveOlderTradesPage, historyPageTrades,
+		                                               currentConfig.getTradeHolderHistoryParallelPages(), currentConfig.getTradeHolderHistoryMarkerOverlapPercent());
+		this.backfillCoordinator = new BackfillCoordinator(tradesBuffer, historyLoader::loadOlderThan);
 		this.started = false;
-		checkConfig();
+		metrics.registerGauge(MetricNames.TRADES_BUFFER_SIZE, () -> tradesBuffer.getSize());
 		
 		LOGGER.debug("Constructed");
 	}
@@ -96,10 +117,10 @@ public class TradesHolder implements TradeListener {
 	 */
 	public List<Trade> getLastTrades(int n) {
 		LOGGER.debug("getLastTrades({})", n);
-		if (n > Configuration.getTradeHolderBufferMaxTrades()) {
+		if (n > bufferMaxTrades) {
 			// If the Strategy is running for days, probably we don't want to store 1million trades in the cache buffer
 			// so we just put a limit by configuration for our circular buffer
-			throw new UnsupportedOperationException("Max number of trades to request from this holder are: " + Configuration.getTradeHolderBufferMaxTrades()
+			throw new UnsupportedOperationException("Max number of trades to request from this holder are: " + bufferMaxTrades
 			                                       + ". This number can be simply increased by configuration");
 		}
 		
@@ -107,102 +128,35 @@ public class TradesHolder implements TradeListener {
 		LOGGER.debug("Number of trades returned from buffer: {}", lastTrades.size());
 		
 		if (lastTrades.size() < n) {
-			lastTrades = getLastTradesIncreasingBufferSize(lastTrades.size(), n);
+			metrics.increment(MetricNames.TRADES_LAST_TRADES_REQUESTS, MetricNames.TAG_RESULT, MetricNames.RESULT_MISS);
+			lastTrades = getLastTradesIncreasingBufferSize(n);
+		} else {
+			metrics.increment(MetricNames.TRADES_LAST_TRADES_REQUESTS, MetricNames.TAG_RESULT, MetricNames.RESULT_HIT);
 		}
 				
 		return lastTrades;
 	}
 	
-	private List<Trade> getLastTradesIncreasingBufferSize(int currentSize, int requiredSize) {
-		List<Trade> lastTrades;
-		
-		boolean lockAcquired = false;
+	private List<Trade> getLastTradesIncreasingBufferSize(int requiredSize) {
 		try {
-			do {
-				// Lock to ensure the oldestTradeId is fixed without any other thread messing with the head of the buffer
-				LOGGER.debug("Trying to acquire increasingBufferLock");
-				lockAcquired = increasingBufferLock.tryLock(INCREASING_BUFFER_TRYLOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-				LOGGER.debug("Trying to acquire increasingBufferLock: {}", lockAcquired);
-				if (!lockAcquired) {
-					
-					// If lock couldn't be acquired let's see if other thread might have increased the buffer enough anyway for this thread's needs
-					// Note that if some client asks for a huge number of Trades, it might take a long time to retrieve it from exchange
-					// Imagine current buffer size is: 100, a Client A asks for 100000 trades, then another Client B, after, asks for 101 trades
-					// Client B would be waiting a long time for client A, but this iterative tryLock client B will get 101 trades after the first 
-					// iterative retrieval from Client A
-					lastTrades = tradesBuffer.peekNewest(requiredSize);
-					LOGGER.debug("Peeking for {} trades (just in case other thread already got them), returned {} trades", requiredSize, lastTrades.size());
-				}
-				else {
-					String oldestTradeId = tradesBuffer.peekOldest().getTradeId();
-					int extraSize = requiredSize - currentSize;
-					retrieveOlderTradesFromExchangeIterativelyIntoBuffer(oldestTradeId, extraSize);
-					lastTrades = tradesBuffer.peekNewest(requiredSize);
-					LOGGER.debug("Buffer increased to {} trades", lastTrades.size());
-				}
-			} while (!lockAcquired && lastTrades.size() < requiredSize);
-
+			return backfillCoordinator.requestDepth(requiredSize).get();
 		} catch (InterruptedException interruptedException) {
 			Thread.currentThread().interrupt();
-			throw new BitsoExchangeThreadInterruptedException("Interrupted while trying to get lock to increase buffer", interruptedException);
-		} catch (Exception e) {
-			throw new BitsoExchangeException("Unexpected exception while increasing trades buffer", e);
-		} finally {
-			if (lockAcquired) {
-				increasingBufferLock.unlock();
-			}
+			throw new BitsoExchangeThreadInterruptedException("Interrupted while waiting for the trades buffer to be increased", interruptedException);
+		} catch (ExecutionException e) {
+			throw new BitsoExchangeException("Unexpected exception while increasing trades buffer", e.getCause());
 		}
-		
-		return lastTrades;
 	}
 	
 	/**
-	 * This can be done while other threads can still be calling {@link #getLastTrades(int)} 
-	 * for a number of trades that are already in the buffer
-	 * 
-	 * @param restClient
-	 * @param bookName
-	 * @param currentBuffer
-	 * @param extraSize
-	 * @return
+	 * Gets the page of trades just older than the given one. Called by the {@link ParallelHistoryLoader}, several pages at a time;
+	 * there is no wait between pages as the REST client already paces them within the rate limit.
+	 * The page size is the one the loader was created with, as it estimates the markers from it
 	 */
-	private void retrieveOlderTradesFromExchangeIterativelyIntoBuffer(String oldestTradeId, int extraSize) {
-		int totalTradesAdded = 0;
-
-		LOGGER.debug("Retrieving at least {} older trades from tradeId: {}", extraSize, oldestTradeId);
-
-		do {
-			LOGGER.debug("Sleeping Configuration.getTradeHolderIterationsMillisWaitFindingLastTrade(): {}", Configuration.getTradeHolderIterationsMillisWaitFindingLastTrade());
-			sleep(Configuration.getTradeHolderIterationsMillisWaitFindingLastTrade());
-			List<BitsoRestApiTrades.BitsoTrade> batchFromOldestIdTrades = restClient.getTrades(bookName, oldestTradeId, TradesSort.DESC, Configuration.getTradeHolderPollTrades()).getPayload();
-
-			tradesBuffer.addAllAsOldest(batchFromOldestIdTrades);
-			totalTradesAdded += batchFromOldestIdTrades.size();
-			oldestTradeId = tradesBuffer.peekOldest().getTradeId();
-			
-			LOGGER.debug("tradesList increased in {} trades. New oldest trade id: {}; Total trades added in this retrieval: {}", batchFromOldestIdTrades.size(), oldestTradeId, totalTradesAdded);
-		} while (totalTradesAdded < extraSize);
-	}
-	
-	private static void sleep(long millis) {
-		try {
-			LOGGER.trace("Sleeping");
-			Thread.sleep(millis);
-			LOGGER.trace("Waking up");
-		} catch (InterruptedException e) {
-			LOGGER.warn("Sleep interrupted");
-			Thread.currentThread().interrupt();
-		}
-	}	
-	
-	private static void checkConfig() {
-		if (Configuration.getTradeHolderBufferMaxTrades() <= 0) {
-			throw new IllegalArgumentException("Configuration for 'trades holder buffer max trades' must be greater than zero. Current: " + Configuration.getTradeHolderBufferMaxTrades());
-		}
-		if (Configuration.getTradeHolderIterationsMillisWaitFindingLastTrade() <= 0) {
-			throw new IllegalArgumentException("Configuration for 'trades holder iteration millis wait finding last trade' must be greater than zero. Current: " + Configuration.getTradeHolderIterationsMillisWaitFindingLastTrade());
-		}
+	private List<BitsoRestApiTrades.BitsoTrade> retrieveOlderTradesPage(String oldestTradeId) {
+		return restClient.getTrades(bookName, oldestTradeId, TradesSort.DESC, historyPageTrades).getPayload();
 	}
 
 
+
 }
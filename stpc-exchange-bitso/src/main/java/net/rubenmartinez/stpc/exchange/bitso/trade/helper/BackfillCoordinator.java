@@ -0,0 +1,144 @@
+package net.rubenmartinez.stpc.exchange.bitso.trade.helper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeException;
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
+import net.rubenmartinez.stpc.exchange.domain.Trade;
+
+/**
+ * Fills a trades buffer with older trades (history) on behalf of all the callers needing more trades than the ones buffered.
+ * <p>
+ * There is at most one backfill in flight: a caller asking for a depth not buffered yet just joins it, and gets a future that completes
+ * as soon as the buffer holds that many trades, even if the backfill continues for deeper callers. Batches of older trades are requested one
+ * after the other, always before the oldest trade buffered, so no trades are requested twice.</p>
+ * <p>
+ * If the history ends (an empty batch) or the buffer doesn't accept more trades, the remaining callers get the trades available.</p>
+ */
+public class BackfillCoordinator {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BackfillCoordinator.class);
+
+	private ConcurrentSoftLimitedBuffer<Trade> tradesBuffer;
+	private BiFunction<String, Integer, List<? extends Trade>> olderTrades;
+	private ExecutorService backfillExecutor;
+
+	// Guarded by this
+	private PriorityQueue<DepthRequest> pendingRequests;
+	private boolean backfilling;
+
+	/**
+	 * @param tradesBuffer buffer to fill, newest trades first
+	 * @param olderTrades given a trade id and the number of trades still wanted, returns a batch of the trades just older than it, newest first
+	 *                    (it may return less trades than wanted, it will be called again while there are pending requests)
+	 */
+	public BackfillCoordinator(ConcurrentSoftLimitedBuffer<Trade> tradesBuffer, BiFunction<String, Integer, List<? extends Trade>> olderTrades) {
+		this.tradesBuffer = tradesBuffer;
+		this.olderTrades = olderTrades;
+		this.pendingRequests = new PriorityQueue<>(Comparator.comparingInt(DepthRequest::getDepth));
+		this.backfillExecutor = Executors.newSingleThreadExecutor(ThreadFactories.named("Trades:backfill", true));
+	}
+
+	/**
+	 * Returns the newest <code>depth</code> trades as soon as they are buffered, starting a backfill if there isn't one in flight already
+	 */
+	public CompletableFuture<List<Trade>> requestDepth(int depth) {
+		synchronized (this) {
+			if (tradesBuffer.getSize() >= depth) {
+				return CompletableFuture.completedFuture(tradesBuffer.peekNewest(depth));
+			}
+
+			DepthRequest request = new DepthRequest(depth);
+			pendingRequests.add(request);
+			if (!backfilling) {
+				backfilling = true;
+				backfillExecutor.execute(this::backfill);
+				LOGGER.debug("Backfill started for depth: {}", depth);
+			} else {
+				LOGGER.debug("Joined backfill in flight for depth: {}", depth);
+			}
+			return request.future;
+		}
+	}
+
+	private void backfill() {
+		try {
+			int deepestRequest;
+			while ((deepestRequest = getDeepestPendingRequest()) > 0) {
+				Trade oldestTrade = tradesBuffer.peekOldest();
+				if (oldestTrade == null) {
+					throw new BitsoExchangeException("No trades buffered yet to get older trades from");
+				}
+
+				int tradesWanted = Math.max(1, deepestRequest - tradesBuffer.getSize());
+				List<? extends Trade> batch = olderTrades.apply(oldestTrade.getTradeId(), tradesWanted);
+				boolean accepted = !batch.isEmpty() && tradesBuffer.addAllAsOldest(batch);
+				LOGGER.debug("Backfilled {} trades older than: {}; accepted: {}", batch.size(), oldestTrade.getTradeId(), accepted);
+
+				completeSatisfiedRequests(accepted);
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Backfill failed, failing pending requests", e);
+			failPendingRequests(e);
+		}
+	}
+
+	/**
+	 * @return the depth of the deepest pending request, or 0 (and the backfill is finished) if there are none
+	 */
+	private synchronized int getDeepestPendingRequest() {
+		if (pendingRequests.isEmpty()) {
+			backfilling = false;
+			return 0;
+		}
+		return pendingRequests.stream().mapToInt(DepthRequest::getDepth).max().getAsInt();
+	}
+
+	/**
+	 * @param moreTradesAvailable if false all the pending requests are completed with the trades available
+	 */
+	private void completeSatisfiedRequests(boolean moreTradesAvailable) {
+		List<DepthRequest> satisfied = new ArrayList<>();
+		synchronized (this) {
+			int bufferedTrades = tradesBuffer.getSize();
+			while (!pendingRequests.isEmpty() && (!moreTradesAvailable || pendingRequests.peek().getDepth() <= bufferedTrades)) {
+				satisfied.add(pendingRequests.poll());
+			}
+		}
+		// Completed outside the lock, as callers may continue in this thread
+		satisfied.forEach(request -> request.future.complete(tradesBuffer.peekNewest(request.getDepth())));
+	}
+
+	private void failPendingRequests(Exception e) {
+		List<DepthRequest> failed;
+		synchronized (this) {
+			failed = new ArrayList<>(pendingRequests);
+			pendingRequests.clear();
+			backfilling = false;
+		}
+		failed.forEach(request -> request.future.completeExceptionally(e));
+	}
+
+	private static class DepthRequest {
+		private final int depth;
+		private final CompletableFuture<List<Trade>> future;
+
+		private DepthRequest(int depth) {
+			this.depth = depth;
+			this.future = new CompletableFuture<>();
+		}
+
+		private int getDepth() {
+			return depth;
+		}
+	}
+}
@@ -12,6 +12,8 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
+
 /**
  * A circular buffer that accepts elements on both sides
  * 
@@ -40,7 +42,7 @@ public class ConcurrentSoftLimitedBuffer<T> {
 		this.deque = copyFrom != null ? new ConcurrentLinkedDeque<>(copyFrom) : new ConcurrentLinkedDeque<>();
 		this.currentSize = new AtomicInteger(0);
 		
-		capacityCheckerExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "ConcurrentBuffer:CapacityChecker"));
+		capacityCheckerExecutor = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("ConcurrentBuffer:CapacityChecker", false));
 		capacityCheckerExecutor.scheduleAtFixedRate(new CapacityCheckerRunnable(), capacityCheckerPeriodMillis, capacityCheckerPeriodMillis, TimeUnit.MILLISECONDS);
 		
 		LOGGER.trace("Constructed");
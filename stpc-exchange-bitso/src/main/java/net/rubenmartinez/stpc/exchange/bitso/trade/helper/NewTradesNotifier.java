@@ -13,7 +13,14 @@ import org.slf4j.LoggerFactory;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient.TradesSort;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.domain.BitsoRestApiTrades;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
 import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.ReloadableConfig;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEvent;
+import net.rubenmartinez.stpc.exchange.bitso.eventlog.HotPathEventLog;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
 import net.rubenmartinez.stpc.exchange.domain.Trade;
 import net.rubenmartinez.stpc.exchange.listener.TradeListener;
 
@@ -35,13 +42,31 @@ public class NewTradesNotifier {
 	private List<TradeListener> tradeListeners;
 	
 	private boolean started;
+	private ExchangeMetrics metrics;
+	private HotPathEventLog eventLog;
+	private ReloadableConfig config;
+	private int pollSeconds;
 
 	public NewTradesNotifier(BitsoRestApiClient client, String bookName) {
+		this(client, bookName, ExchangeMetrics.NO_OP);
+	}
+
+	public NewTradesNotifier(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics) {
+		this(client, bookName, metrics, Configuration.getDefault());
+	}
+
+	/**
+	 * @param config the poll interval is read once, but the trades per request and the wait between requests are read on each poll
+	 */
+	public NewTradesNotifier(BitsoRestApiClient client, String bookName, ExchangeMetrics metrics, ReloadableConfig config) {
 		this.bookName = bookName;
+		this.config = config;
+		this.pollSeconds = config.get().getTradeHolderPollSeconds();
 		this.restClient = client;
+		this.metrics = metrics;
+		this.eventLog = HotPathEventLog.getInstance();
 		this.tradeListeners = new CopyOnWriteArrayList<>();
 		this.started = false;
-		checkConfig();
 
 		LOGGER.debug("Constructed");
 	}
@@ -55,11 +80,11 @@ public class NewTradesNotifier {
 			if (!started) {
 				this.lastTradeId = initializeLastTradeId();
 				
-				int pollSeconds = Configuration.getTradeHolderPollSeconds();
-
-				executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "NewTrades:scheduler"));
+				executor = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("NewTrades:scheduler", false));
 				Runnable retrieveRecentTradesAndNotify = () -> {
+					long startNanos = System.nanoTime();
 					List<Trade> tradesToNotify = findNewTradesInAscendingOrder();
+					metrics.recordTime(MetricNames.TRADES_POLL, System.nanoTime() - startNanos);
 					if (!tradesToNotify.isEmpty()) {
 						notifyListeners(tradesToNotify);
 					}
@@ -114,8 +139,8 @@ public class NewTradesNotifier {
 	
 	private String initializeLastTradeId() {
 		List<BitsoRestApiTrades.BitsoTrade> trades = new Retry()
-				.withDelay(Configuration.getTradeHolderPollSeconds(), TimeUnit.SECONDS)
-				.withExceptionMessage("Error while getting last trade id. That is required for initialization so waiting for " + Configuration.getTradeHolderPollSeconds() + " seconds (same as poll interval) and retrying")
+				.withDelay(pollSeconds, TimeUnit.SECONDS)
+				.withExceptionMessage("Error while getting last trade id. That is required for initialization so waiting for " + pollSeconds + " seconds (same as poll interval) and retrying")
 				.indefinitely(() -> restClient.getNewestTrades(bookName, 1).getPayload());
 		
 		Trade lastTrade = trades.get(0);
@@ -126,27 +151,47 @@ public class NewTradesNotifier {
 	private void notifyListeners(List<Trade> trades) {
 		LOGGER.debug("Notifying listeners of <{}> new trades starting with id: {}", trades.size(), trades.get(0).getTradeId());
 		tradeListeners.forEach(listener -> trades.forEach(trade -> safeNotification(listener, trade)));
-		LOGGER.info("Listeners notified of <{}> new trades", trades.size());
+		recordLatency(trades);
+		eventLog.record(HotPathEvent.TRADES_NOTIFIED, trades.size(), null);
 	}
 
 
+	private void recordLatency(List<Trade> trades) {
+		long notifiedEpochMillis = System.currentTimeMillis();
+		for (Trade trade : trades) {
+			if (trade.getCreationDate() != null) {
+				long createdToNotifiedMillis = notifiedEpochMillis - trade.getCreationDate().toInstant().toEpochMilli();
+				metrics.recordLatency(MetricNames.LATENCY_TRADE_CREATED_TO_NOTIFIED, TimeUnit.MILLISECONDS.toNanos(Math.max(0, createdToNotifiedMillis)));
+			}
+		}
+	}
+
 	private void notifyListeners(Trade trade) {
-		LOGGER.debug("Notifying listeners of Trade: {}", trade);
 		tradeListeners.forEach(listener -> safeNotification(listener, trade));
-		LOGGER.info("Listeners notified of trade: {}", trade);
+		eventLog.record(HotPathEvent.TRADE_NOTIFIED, 0, trade);
 	}
 
-	private static void safeNotification(TradeListener listener, Trade trade) {
+	private void safeNotification(TradeListener listener, Trade trade) {
+		long startNanos = System.nanoTime();
 		try {
-			LOGGER.debug("Notifying listener [{}]. Trade: {}", listener, trade);
 			listener.onNewTrade(trade);
 		} catch (Exception e) {
 			LOGGER.warn("(Swallowing) Exception on listener ["+listener+"] while notifying of trade: " + trade, e);
 		}
+		metrics.recordTime(MetricNames.TRADES_LISTENER_NOTIFICATION, System.nanoTime() - startNanos, MetricNames.TAG_LISTENER, listenerName(listener));
+	}
+
+	/**
+	 * Name of the listener class, without the suffix of lambda classes that changes on every run (e.g. <code>/1915318863</code> in <code>Foo$$Lambda$12/1915318863</code>)
+	 */
+	private static String listenerName(TradeListener listener) {
+		String name = listener.getClass().getName();
+		int runSuffix = name.indexOf('/');
+		return runSuffix < 0 ? name : name.substring(0, runSuffix);
 	}
 
-	private List<BitsoRestApiTrades.BitsoTrade> tryToFindNewTradesFromLastTradeIdAscending() {
-		return restClient.getTrades(bookName, lastTradeId, TradesSort.ASC, Configuration.getTradeHolderPollTrades()).getPayload();
+	private List<BitsoRestApiTrades.BitsoTrade> tryToFindNewTradesFromLastTradeIdAscending(int pollTrades) {
+		return restClient.getTrades(bookName, lastTradeId, TradesSort.ASC, pollTrades).getPayload();
 	}
 
 	/**
@@ -164,22 +209,27 @@ public class NewTradesNotifier {
 
 		List<BitsoRestApiTrades.BitsoTrade> batchFromLastIdTrades;
 		boolean scanCompleted = false;
+		int pages = 0;
 		do {
-			batchFromLastIdTrades = tryToFindNewTradesFromLastTradeIdAscending();
+			BitsoConfig currentConfig = config.get();
+			int pollTrades = currentConfig.getTradeHolderPollTrades();
+			batchFromLastIdTrades = tryToFindNewTradesFromLastTradeIdAscending(pollTrades);
+			pages++;
 			LOGGER.debug("Iteration returned {} new trades", batchFromLastIdTrades.size());
 			if (!batchFromLastIdTrades.isEmpty()) {
 				newTrades.addAll(batchFromLastIdTrades);
 				lastTradeId = getLast(newTrades).getTradeId();
 			}
 			
-			if (batchFromLastIdTrades.size() < Configuration.getTradeHolderPollTrades()) {
+			if (batchFromLastIdTrades.size() < pollTrades) {
 				scanCompleted = true;
 			}
 			else {
-				LOGGER.debug("Number of new trades returned are the same as requested ({}). Performing another iteration to check if there are newer trades", Configuration.getTradeHolderPollTrades());
-				sleep(Configuration.getTradeHolderIterationsMillisWaitFindingLastTrade());
+				LOGGER.debug("Number of new trades returned are the same as requested ({}). Performing another iteration to check if there are newer trades", pollTrades);
+				sleep(currentConfig.getTradeHolderIterationsMillisWaitFindingLastTrade());
 			}
 		} while (!scanCompleted);
+		metrics.recordValue(MetricNames.TRADES_POLL_PAGES, pages);
 
 		LOGGER.debug("Found {} new trades, lastTradeId is now: {}", newTrades.size(), lastTradeId);
 		return newTrades;
@@ -198,13 +248,4 @@ public class NewTradesNotifier {
 		}
 	}
 
-	private static void checkConfig() {
-		if (Configuration.getTradeHolderPollSeconds() <= 0) {
-			throw new IllegalArgumentException("Configuration for 'trades holder poll seconds' must be greater than zero. Current: " + Configuration.getTradeHolderPollSeconds());
-		}
-		if (Configuration.getTradeHolderPollTrades() <= 0) {
-			throw new IllegalArgumentException("Configuration for 'trades holder poll trades' must be greater than zero. Current: " + Configuration.getTradeHolderPollTrades());
-		}
-	}
-
 }
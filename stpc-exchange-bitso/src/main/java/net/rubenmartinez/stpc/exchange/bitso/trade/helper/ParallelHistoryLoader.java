@@ -0,0 +1,162 @@
+package net.rubenmartinez.stpc.exchange.bitso.trade.helper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeException;
+import net.rubenmartinez.stpc.exchange.bitso.BitsoExchangeThreadInterruptedException;
+import net.rubenmartinez.stpc.exchange.bitso.util.ThreadFactories;
+import net.rubenmartinez.stpc.exchange.domain.Trade;
+
+/**
+ * Loads trades history fetching several pages at the same time instead of one after the other.
+ * <p>
+ * Bitso trade ids are numeric and increasing, but shared by all the books, so the ids of a book are not consecutive. The first page
+ * is requested from the oldest trade known, and the span of ids it covers (from that marker to its oldest trade) is taken as an estimation of the span of the next pages. Then the
+ * next pages are requested concurrently, each one from a speculative marker a bit newer than the estimated end of the previous one,
+ * so consecutive pages overlap a little instead of leaving gaps. At most <code>parallelPages</code> pages are requested ahead of the
+ * last page known to be contiguous, so a wrong estimation wastes at most that many requests.</p>
+ * <p>
+ * Pages are then reassembled in order, dropping the trades already in the previous page. If a page doesn't reach the marker of the next one
+ * (the estimation was wrong) the pages after it are discarded, the ones not sent yet (still waiting for a permit of the rate limit)
+ * are not sent at all, and the next call starts from there with a new estimation.
+ * The requests are still paced by the rate limit of the REST client, so the parallelism only needs to be enough to use its budget.</p>
+ */
+public class ParallelHistoryLoader {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ParallelHistoryLoader.class);
+
+	private Function<String, List<? extends Trade>> olderTradesPage;
+	private int pageSize;
+	private int parallelPages;
+	private int markerOverlapPercent;
+	private ExecutorService pagesExecutor;
+
+	/**
+	 * @param olderTradesPage given a trade id, returns a page of the trades just older than it, newest first
+	 * @param pageSize number of trades returned by a full page
+	 * @param parallelPages maximum number of pages requested at the same time
+	 * @param markerOverlapPercent percentage of the estimated span of a page that consecutive pages should overlap
+	 */
+	public ParallelHistoryLoader(Function<String, List<? extends Trade>> olderTradesPage, int pageSize, int parallelPages, int markerOverlapPercent) {
+		if (pageSize <= 0 || parallelPages <= 0 || markerOverlapPercent < 0 || markerOverlapPercent >= 100) {
+			throw new IllegalArgumentException("Invalid history loader parameters. Page size: " + pageSize + "; parallel pages: " + parallelPages
+			                                   + "; marker overlap percent: " + markerOverlapPercent);
+		}
+		this.olderTradesPage = olderTradesPage;
+		this.pageSize = pageSize;
+		this.parallelPages = parallelPages;
+		this.markerOverlapPercent = markerOverlapPercent;
+		this.pagesExecutor = Executors.newFixedThreadPool(parallelPages, ThreadFactories.named("Trades:history", true));
+	}
+
+	/**
+	 * Returns the trades older than the given one, newest first and without gaps nor duplicates. It returns at least one page
+	 * (unless the history ends), and as many as needed for <code>tradesWanted</code> trades if the id estimations are right.
+	 */
+	public List<Trade> loadOlderThan(String oldestTradeId, int tradesWanted) {
+		List<Trade> trades = new ArrayList<>(olderTradesPage.apply(oldestTradeId));
+		int morePages = (tradesWanted - trades.size() + pageSize - 1) / pageSize;
+		if (trades.size() < pageSize || morePages <= 0) {
+			return trades;
+		}
+
+		long markerTid;
+		long oldestTid;
+		try {
+			markerTid = Long.parseLong(oldestTradeId);
+			oldestTid = Long.parseLong(trades.get(trades.size() - 1).getTradeId());
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Non numeric trade ids, speculative pages disabled: {}", e.getMessage());
+			return trades;
+		}
+
+		long estimatedSpan = Math.max(1, markerTid - oldestTid);
+		long markerStep = Math.max(1, estimatedSpan - estimatedSpan * markerOverlapPercent / 100);
+		LOGGER.debug("Requesting {} speculative pages older than: {}; estimated span: {}", morePages, oldestTid, estimatedSpan);
+		appendContiguousPages(trades, oldestTid, markerStep, morePages);
+		return trades;
+	}
+
+	/**
+	 * Requests the pages keeping at most <code>parallelPages</code> of them ahead of the last contiguous page, and appends them in order.
+	 * On a gap or at the end of the history the pages ahead are cancelled, interrupting the ones still waiting for a permit of the
+	 * rate limit, so only the requests already sent are wasted.
+	 */
+	private void appendContiguousPages(List<Trade> trades, long firstMarker, long markerStep, int morePages) {
+		Deque<SpeculativePage> pagesAhead = new ArrayDeque<>(parallelPages);
+		int nextPage = 0;
+		long oldestTid = firstMarker;
+		try {
+			while (true) {
+				while (pagesAhead.size() < parallelPages && nextPage < morePages && firstMarker - nextPage * markerStep > 0) {
+					long marker = firstMarker - nextPage * markerStep;
+					pagesAhead.add(new SpeculativePage(marker, pagesExecutor.submit(() -> olderTradesPage.apply(String.valueOf(marker)))));
+					nextPage++;
+				}
+				SpeculativePage next = pagesAhead.poll();
+				if (next == null) {
+					return;
+				}
+				if (next.marker < oldestTid) {
+					LOGGER.debug("Gap between speculative pages, discarding from marker: {}", next.marker);
+					next.page.cancel(true);
+					return;
+				}
+
+				List<? extends Trade> page = next.get();
+				int added = 0;
+				for (Trade trade : page) {
+					long tid = Long.parseLong(trade.getTradeId());
+					if (tid < oldestTid) {
+						trades.add(trade);
+						oldestTid = tid;
+						added++;
+					}
+				}
+				LOGGER.trace("Speculative page from marker {}: {} trades, {} new", next.marker, page.size(), added);
+
+				if (page.size() < pageSize) {
+					LOGGER.debug("End of history reached");
+					return;
+				}
+			}
+		} finally {
+			pagesAhead.forEach(pageAhead -> pageAhead.page.cancel(true));
+		}
+	}
+
+
+	private static class SpeculativePage {
+		private final long marker;
+		private final Future<List<? extends Trade>> page;
+
+		SpeculativePage(long marker, Future<List<? extends Trade>> page) {
+			this.marker = marker;
+			this.page = page;
+		}
+
+		List<? extends Trade> get() {
+			try {
+				return page.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new BitsoExchangeThreadInterruptedException("Interrupted while waiting for a page of trades history", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new BitsoExchangeException("Unexpected exception while loading a page of trades history", e.getCause());
+			}
+		}
+	}
+}
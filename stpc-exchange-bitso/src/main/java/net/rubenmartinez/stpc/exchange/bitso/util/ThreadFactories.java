@@ -0,0 +1,27 @@
+package net.rubenmartinez.stpc.exchange.bitso.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of the library: resetting the book, polling trades, loading history... so all of them are named
+ * after what they do and the executors are created the same way everywhere.
+ */
+public final class ThreadFactories {
+
+	/**
+	 * Factory of threads with the given name, or the name followed by a number if more than one thread is created
+	 */
+	public static ThreadFactory named(String name, boolean daemon) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return r -> {
+			int number = threadNumber.incrementAndGet();
+			Thread thread = new Thread(r, number == 1 ? name : name + "-" + number);
+			thread.setDaemon(daemon);
+			return thread;
+		};
+	}
+
+	private ThreadFactories() {
+	}
+}
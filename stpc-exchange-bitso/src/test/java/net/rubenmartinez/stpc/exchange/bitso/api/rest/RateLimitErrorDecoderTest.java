@@ -0,0 +1,47 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import feign.Request;
+import feign.Request.HttpMethod;
+import feign.Response;
+import feign.RetryableException;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class RateLimitErrorDecoderTest {
+
+	private int rateLimited;
+	private RateLimitErrorDecoder decoder = new RateLimitErrorDecoder(() -> rateLimited++);
+
+	private static Response response(int status) {
+		Request request = Request.create(HttpMethod.GET, "https://api.bitso.com/v3/trades/", Collections.emptyMap(), null, StandardCharsets.UTF_8);
+		return Response.builder().status(status).reason("").headers(Collections.emptyMap()).request(request).body("", StandardCharsets.UTF_8).build();
+	}
+
+	@Test
+	public void rateLimitRejectionsAreNotRetriedByFeign() {
+		Exception exception = decoder.decode("BitsoRestApiClient#getTrades", response(RateLimitErrorDecoder.HTTP_TOO_MANY_REQUESTS));
+
+		assertThat(exception, instanceOf(BitsoExchangeRateLimitedException.class));
+		assertEquals(1, rateLimited);
+	}
+
+	@Test
+	public void otherErrorsAreNotRetried() {
+		Exception exception = decoder.decode("BitsoRestApiClient#getTrades", response(400));
+
+		assertThat(exception, not(instanceOf(RetryableException.class)));
+		assertThat(exception, not(instanceOf(BitsoExchangeRateLimitedException.class)));
+		assertEquals(0, rateLimited);
+	}
+}
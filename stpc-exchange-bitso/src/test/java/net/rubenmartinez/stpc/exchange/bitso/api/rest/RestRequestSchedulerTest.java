@@ -0,0 +1,159 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import feign.RetryableException;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class RestRequestSchedulerTest {
+
+	private static Thread acquireInBackground(RestRequestScheduler scheduler, RequestPriority priority, List<RequestPriority> acquired) {
+		Thread thread = new Thread(() -> {
+			scheduler.acquire(priority);
+			acquired.add(priority);
+		});
+		thread.start();
+		return thread;
+	}
+
+	private static void waitTillWaiting(RestRequestScheduler scheduler, RequestPriority priority) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (scheduler.getWaiting(priority) == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static void waitTillWaitingUninterruptibly(RestRequestScheduler scheduler, RequestPriority priority) {
+		try {
+			waitTillWaiting(scheduler, priority);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void burstServedImmediately() {
+		RestRequestScheduler scheduler = new RestRequestScheduler(60, 3, 1000, 60000);
+
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < 3; i++) {
+			assertEquals("response", scheduler.execute(RequestPriority.POLL, () -> "response"));
+		}
+
+		assertThat(System.nanoTime() - startNanos, lessThan(TimeUnit.MILLISECONDS.toNanos(500)));
+	}
+
+	@Test
+	public void higherPriorityServedFirst() throws InterruptedException {
+		RestRequestScheduler scheduler = new RestRequestScheduler(300, 1, 1000, 60000); // One permit each 200 ms
+		scheduler.acquire(RequestPriority.POLL); // Bucket empty
+		List<RequestPriority> acquired = new CopyOnWriteArrayList<>();
+
+		Thread backfill = acquireInBackground(scheduler, RequestPriority.BACKFILL, acquired);
+		waitTillWaiting(scheduler, RequestPriority.BACKFILL);
+		Thread poll = acquireInBackground(scheduler, RequestPriority.POLL, acquired);
+		waitTillWaiting(scheduler, RequestPriority.POLL);
+		Thread reset = acquireInBackground(scheduler, RequestPriority.RESET, acquired);
+
+		backfill.join(5000);
+		poll.join(5000);
+		reset.join(5000);
+		assertThat(acquired, contains(RequestPriority.RESET, RequestPriority.POLL, RequestPriority.BACKFILL));
+	}
+
+	@Test
+	public void pausedAndSlowedDownWhenRateLimited() {
+		RestRequestScheduler scheduler = new RestRequestScheduler(600, 5, 300, 60000);
+
+		long startNanos = System.nanoTime(); // Before, as the pause starts when rate limited
+		scheduler.onRateLimited();
+		scheduler.acquire(RequestPriority.RESET);
+
+		assertThat(System.nanoTime() - startNanos, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(300)));
+		assertEquals(300, scheduler.getRequestsPerMinute(), 0.001);
+	}
+
+	@Test
+	public void rateLimitedRequestQueuedAgainWithItsPriority() throws InterruptedException {
+		RestRequestScheduler scheduler = new RestRequestScheduler(600, 5, 300, 60000);
+		List<RequestPriority> acquired = new CopyOnWriteArrayList<>();
+		AtomicInteger attempts = new AtomicInteger();
+		Thread[] reset = new Thread[1];
+
+		long startNanos = System.nanoTime();
+		String response = scheduler.execute(RequestPriority.POLL, () -> {
+			if (attempts.incrementAndGet() == 1) {
+				scheduler.onRateLimited(); // As RateLimitErrorDecoder does
+				reset[0] = acquireInBackground(scheduler, RequestPriority.RESET, acquired);
+				waitTillWaitingUninterruptibly(scheduler, RequestPriority.RESET);
+				throw new BitsoExchangeRateLimitedException("429", null);
+			}
+			acquired.add(RequestPriority.POLL);
+			return "response";
+		});
+
+		reset[0].join(5000);
+		assertEquals("response", response);
+		assertEquals(2, attempts.get());
+		// 300 ms paused, when the halved rate (one permit each 200 ms) refills 1.5 permits, one taken by the reset: the retry waits 100 ms more
+		assertThat(System.nanoTime() - startNanos, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(400)));
+		assertThat(acquired, contains(RequestPriority.RESET, RequestPriority.POLL)); // Not retried before the reset requested meanwhile
+	}
+
+	@Test
+	public void rateLimitedRequestGivenUpAfterMaxAttempts() {
+		RestRequestScheduler scheduler = new RestRequestScheduler(6000, 5, 1, 10, 2);
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThrows(BitsoExchangeRateLimitedException.class, () -> scheduler.execute(RequestPriority.POLL, () -> {
+			attempts.incrementAndGet();
+			scheduler.onRateLimited();
+			throw new BitsoExchangeRateLimitedException("429", null);
+		}));
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	public void failedRequestQueuedAgainForAPermit() {
+		RestRequestScheduler scheduler = new RestRequestScheduler(600, 1, 1000, 60000, 3, 1, 1, 3); // One permit each 100 ms
+		AtomicInteger attempts = new AtomicInteger();
+		long startNanos = System.nanoTime();
+
+		String response = scheduler.execute(RequestPriority.POLL, () -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new RetryableException("Connection reset", null, null);
+			}
+			return "trades";
+		});
+
+		assertEquals("trades", response);
+		assertEquals(3, attempts.get());
+		assertThat(System.nanoTime() - startNanos, greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150))); // Two more permits taken
+	}
+
+	@Test
+	public void failedRequestGivenUpAfterMaxAttempts() {
+		RestRequestScheduler scheduler = new RestRequestScheduler(6000, 5, 1, 10, 3, 1, 1, 2);
+		AtomicInteger attempts = new AtomicInteger();
+
+		assertThrows(RetryableException.class, () -> scheduler.execute(RequestPriority.POLL, () -> {
+			attempts.incrementAndGet();
+			throw new RetryableException("Connection reset", null, null);
+		}));
+		assertEquals(2, attempts.get());
+	}
+}
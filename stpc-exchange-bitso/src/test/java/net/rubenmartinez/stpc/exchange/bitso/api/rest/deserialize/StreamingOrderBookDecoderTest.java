@@ -0,0 +1,60 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.rest.deserialize;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import feign.codec.DecodeException;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.dto.OrderBookBeanDTO;
+import net.rubenmartinez.stpc.exchange.domain.Order;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class StreamingOrderBookDecoderTest {
+
+	private static final String BOOK_JSON = "{\"success\": true, \"payload\": {"
+			+ "\"asks\": [{\"book\": \"btc_mxn\", \"price\": \"102\", \"amount\": \"1.3\", \"oid\": \"id102\"}, {\"book\": \"btc_mxn\", \"price\": \"101\", \"amount\": \"0.4\", \"oid\": \"id101\"}],"
+			+ "\"bids\": [{\"book\": \"btc_mxn\", \"price\": \"98\", \"amount\": \"1.1\", \"oid\": \"id98\", \"extra\": {\"ignored\": [1, 2]}}, {\"price\": \"99\", \"amount\": \"2.2\", \"oid\": \"id99\"}],"
+			+ "\"updated_at\": \"2018-11-01T00:00:00.000+00:00\", \"sequence\": \"27214\"}}";
+
+	private StreamingOrderBookDecoder decoder = new StreamingOrderBookDecoder(null);
+
+	private static InputStream json(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static List<String> orderIds(List<Order> orders) {
+		return orders.stream().map(Order::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void ordersStreamedIntoSortedBook() throws IOException {
+		OrderBookBeanDTO orderBook = decoder.decodeOrderBook(json(BOOK_JSON));
+
+		assertEquals(27214, orderBook.getSequence());
+		assertThat(orderIds(orderBook.getAsks().getSortedOrdersThreadSafe()), contains("id101", "id102"));
+		assertThat(orderIds(orderBook.getBids().getSortedOrdersThreadSafe()), contains("id99", "id98"));
+		assertEquals("1.1", orderBook.getBids().getSortedOrdersThreadSafe().get(1).getAmount());
+	}
+
+	@Test
+	public void unsuccessfulResponseRejected() {
+		assertThrows(DecodeException.class, () -> decoder.decodeOrderBook(json("{\"success\": false, \"error\": {\"code\": \"0201\"}}")));
+	}
+
+	@Test
+	public void incompleteOrderRejected() {
+		assertThrows(DecodeException.class, () -> decoder.decodeOrderBook(json("{\"success\": true, \"payload\": {\"asks\": [{\"price\": \"1\"}], \"sequence\": \"1\"}}")));
+	}
+}
@@ -0,0 +1,130 @@
+package net.rubenmartinez.stpc.exchange.bitso.api.websocket;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.CloseReason;
+import javax.websocket.CloseReason.CloseCodes;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.MetricNames;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class BitsoWebsocketClientTest {
+
+	private final List<Long> notifiedSequences = new CopyOnWriteArrayList<>();
+	private final List<BitsoWebsocketConnection> connections = new CopyOnWriteArrayList<>();
+
+	private BitsoWebsocketClient newClient(ExchangeMetrics metrics) throws Exception {
+		Session session = mock(Session.class);
+		when(session.isOpen()).thenReturn(true);
+		WebSocketContainer container = mock(WebSocketContainer.class);
+		when(container.connectToServer(any(Object.class), any(URI.class))).thenAnswer(invocation -> {
+			connections.add(invocation.getArgument(0));
+			return session;
+		});
+
+		BitsoWebsocketClient client = new BitsoWebsocketClient(message -> notifiedSequences.add(message.getSequence()), metrics);
+		client.webSocketContainer = container;
+		return client;
+	}
+
+	private void awaitConnections(int number) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (connections.size() < number && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+	}
+
+	@Test
+	void standbyTakesOverWithoutGaps() throws Exception {
+		BitsoWebsocketClient client = newClient(ExchangeMetrics.NO_OP);
+		client.standbyEnabled = true;
+		client.start();
+		try {
+			awaitConnections(2);
+			BitsoWebsocketConnection primary = connections.get(0);
+			BitsoWebsocketConnection standby = connections.get(1);
+
+			for (long sequence = 1; sequence <= 4; sequence++) {
+				standby.onMessage(diffOrders(sequence));
+				if (sequence <= 2) {
+					primary.onMessage(diffOrders(sequence));
+				}
+			}
+			assertThat(notifiedSequences, contains(1L, 2L));
+
+			primary.onClose(new CloseReason(CloseCodes.CLOSED_ABNORMALLY, "test"));
+			standby.onMessage(diffOrders(5));
+			primary.onMessage(diffOrders(6)); // Ignored, no longer connected
+
+			assertThat(notifiedSequences, contains(1L, 2L, 3L, 4L, 5L));
+		} finally {
+			client.stop();
+		}
+	}
+
+	@Test
+	void arbitrationTakesFirstCopyOfEachSequence() throws Exception {
+		ExchangeMetrics metrics = mock(ExchangeMetrics.class);
+		BitsoWebsocketClient client = newClient(metrics);
+		client.arbiter = new FeedArbiter(16, metrics);
+		client.start();
+		try {
+			awaitConnections(2);
+			BitsoWebsocketConnection primary = connections.get(0);
+			BitsoWebsocketConnection standby = connections.get(1);
+
+			standby.onMessage(diffOrders(1));
+			primary.onMessage(diffOrders(1));
+			primary.onMessage(diffOrders(2));
+			standby.onMessage(diffOrders(3));
+			standby.onMessage(diffOrders(2));
+			primary.onMessage(diffOrders(3));
+
+			assertThat(notifiedSequences, contains(1L, 2L, 3L));
+			verify(metrics, times(2)).increment(MetricNames.WEBSOCKET_ARBITRATION_WINS, MetricNames.TAG_FEED, "standby");
+			verify(metrics, times(1)).increment(MetricNames.WEBSOCKET_ARBITRATION_WINS, MetricNames.TAG_FEED, "primary");
+			verify(metrics, times(2)).recordTime(eq(MetricNames.WEBSOCKET_ARBITRATION_LAG), anyLong(), eq(MetricNames.TAG_FEED), eq("primary"));
+		} finally {
+			client.stop();
+		}
+	}
+
+	@Test
+	void backoffDoubledAndJittered() {
+		ReconnectBackoff backoff = new ReconnectBackoff(100, 1000);
+		long[] maxDelays = { 100, 200, 400, 800, 1000, 1000 };
+		for (long maxDelay : maxDelays) {
+			long delay = backoff.nextDelayMillis();
+			assertThat(delay, greaterThanOrEqualTo(maxDelay / 2));
+			assertThat(delay, lessThanOrEqualTo(maxDelay));
+		}
+		backoff.reset();
+		assertThat(backoff.nextDelayMillis(), lessThanOrEqualTo(100L));
+	}
+
+	private static String diffOrders(long sequence) {
+		return "{\"type\":\"diff-orders\",\"book\":\"btc_mxn\",\"sequence\":" + sequence + ",\"payload\":[]}";
+	}
+}
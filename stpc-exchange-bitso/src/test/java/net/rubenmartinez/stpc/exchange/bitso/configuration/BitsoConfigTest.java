@@ -0,0 +1,56 @@
+package net.rubenmartinez.stpc.exchange.bitso.configuration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class BitsoConfigTest {
+
+	private static String rejectionMessage(String name, String value) {
+		Properties properties = Configuration.getDefault().get().getProperties();
+		if (value == null) {
+			properties.remove(name);
+		} else {
+			properties.setProperty(name, value);
+		}
+		return assertThrows(IllegalArgumentException.class, () -> BitsoConfig.fromProperties(properties)).getMessage();
+	}
+
+	@Test
+	void missingMandatoryPropertyRejected() {
+		assertThat(rejectionMessage("rest.endpoint", null), containsString("[rest.endpoint] is mandatory"));
+		assertThat(rejectionMessage("websocket.endpoint", "  "), containsString("[websocket.endpoint] is mandatory"));
+	}
+
+	@Test
+	void wrongNumbersRejected() {
+		assertThat(rejectionMessage("rest.retry.max-attempts", "3.5"), containsString("[rest.retry.max-attempts] must be a number"));
+		assertThat(rejectionMessage("rest.rate-limit.burst", "0"), containsString("[rest.rate-limit.burst] must be greater than zero"));
+		assertThat(rejectionMessage("websocket.liveness.timeout-millis", "-1"), containsString("must be greater than zero"));
+	}
+
+	@Test
+	void wrongBooleansRejected() {
+		assertThat(rejectionMessage("websocket.standby.enabled", "yes"), containsString("[websocket.standby.enabled] must be true or false"));
+	}
+
+	@Test
+	void optionalPropertiesDefaultToEmpty() {
+		Properties properties = Configuration.getDefault().get().getProperties();
+		properties.remove("orderbook.snapshot.directory");
+		properties.setProperty("eventlog.file", " ");
+
+		BitsoConfig config = BitsoConfig.fromProperties(properties);
+		assertEquals("", config.getOrderBookSnapshotDirectory());
+		assertEquals("", config.getEventLogFile());
+	}
+}
@@ -0,0 +1,95 @@
+package net.rubenmartinez.stpc.exchange.bitso.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class ConfigurationFileWatcherTest {
+
+	private Path file;
+	private ReloadableConfig config;
+	private ConfigurationFileWatcher watcher;
+
+	@BeforeEach
+	void createWatcher() throws IOException {
+		file = Files.createTempFile("ConfigurationFileWatcherTest", ".properties");
+		config = new ReloadableConfig(Configuration.getDefault().get());
+		watcher = new ConfigurationFileWatcher(file, config);
+	}
+
+	@AfterEach
+	void deleteFile() throws IOException {
+		watcher.stop();
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Writes the property and moves the modification time forward, as some file systems only keep it in seconds
+	 */
+	private void writeProperty(String name, String value, int modifiedSecondsLater) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(name, value);
+		try (OutputStream out = Files.newOutputStream(file)) {
+			properties.store(out, null);
+		}
+		long modifiedMillis = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(modifiedSecondsLater);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+	}
+
+	@Test
+	void reloadedWhenModified() throws IOException {
+		writeProperty("trade-holder.poll.trades", "42", 1);
+		watcher.reloadIfModified();
+		assertEquals(42, config.get().getTradeHolderPollTrades());
+
+		BitsoConfig reloaded = config.get();
+		watcher.reloadIfModified();
+		assertSame(reloaded, config.get()); // Not modified, not reloaded again
+
+		writeProperty("trade-holder.poll.trades", "43", 2);
+		watcher.reloadIfModified();
+		assertEquals(43, config.get().getTradeHolderPollTrades());
+	}
+
+	@Test
+	void wrongFileKeepsCurrentConfig() throws IOException {
+		writeProperty("trade-holder.poll.trades", "42", 1);
+		watcher.reloadIfModified();
+		BitsoConfig current = config.get();
+
+		writeProperty("trade-holder.poll.trades", "none", 2);
+		watcher.reloadIfModified();
+		assertSame(current, config.get());
+
+		Files.delete(file);
+		watcher.reloadIfModified();
+		assertSame(current, config.get());
+	}
+
+	@Test
+	void checkedPeriodicallyOnceStarted() throws Exception {
+		watcher.start(10);
+		writeProperty("orderbook.ready-timeout-seconds", "7", 1);
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (config.get().getOrderBookReadyTimeoutSeconds() != 7 && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		assertEquals(7, config.get().getOrderBookReadyTimeoutSeconds());
+	}
+}
@@ -0,0 +1,69 @@
+package net.rubenmartinez.stpc.exchange.bitso.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class ReloadableConfigTest {
+
+	@Test
+	void propertiesParsedOnce() {
+		BitsoConfig config = BitsoConfig.fromProperties(Configuration.getProperties());
+
+		assertEquals(Configuration.getTradeHolderPollTrades(), config.getTradeHolderPollTrades());
+		assertEquals(Configuration.getOrderBookReadyTimeoutSeconds(), config.getOrderBookReadyTimeoutSeconds());
+		assertEquals(Configuration.isWebsocketStandbyEnabled(), config.isWebsocketStandbyEnabled());
+		assertEquals("", config.getConfigurationReloadFile());
+	}
+
+	@Test
+	void wrongValuesRejectedWhenCreated() {
+		Properties properties = Configuration.getDefault().get().getProperties();
+		properties.setProperty("trade-holder.poll.trades", "many");
+		assertThrows(IllegalArgumentException.class, () -> BitsoConfig.fromProperties(properties));
+
+		properties.setProperty("trade-holder.poll.trades", "0");
+		assertThrows(IllegalArgumentException.class, () -> BitsoConfig.fromProperties(properties));
+
+		properties.remove("trade-holder.poll.trades");
+		assertThrows(IllegalArgumentException.class, () -> BitsoConfig.fromProperties(properties));
+	}
+
+	@Test
+	void onlyWatchedPropertiesReloaded() {
+		BitsoConfig initial = Configuration.getDefault().get();
+		ReloadableConfig reloadable = new ReloadableConfig(initial);
+
+		Properties changed = initial.getProperties();
+		changed.setProperty("trade-holder.poll.trades", "42");
+		changed.setProperty("orderbook.ready-timeout-seconds", "7");
+		changed.setProperty("trade-holder.buffer.max-trades", "3");
+		BitsoConfig reloaded = reloadable.reload(changed);
+
+		assertSame(reloaded, reloadable.get());
+		assertEquals(42, reloaded.getTradeHolderPollTrades());
+		assertEquals(7, reloaded.getOrderBookReadyTimeoutSeconds());
+		assertEquals(initial.getTradeHolderBufferMaxTrades(), reloaded.getTradeHolderBufferMaxTrades());
+		assertEquals(initial.getTradeHolderPollTrades(), Configuration.getTradeHolderPollTrades()); // Other instances not affected
+	}
+
+	@Test
+	void wrongReloadKeepsCurrentConfig() {
+		BitsoConfig initial = Configuration.getDefault().get();
+		ReloadableConfig reloadable = new ReloadableConfig(initial);
+
+		Properties changed = initial.getProperties();
+		changed.setProperty("websocket.liveness.timeout-millis", "-1");
+		assertThrows(IllegalArgumentException.class, () -> reloadable.reload(changed));
+
+		assertSame(initial, reloadable.get());
+	}
+}
@@ -0,0 +1,79 @@
+package net.rubenmartinez.stpc.exchange.bitso.eventlog;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class HotPathEventLogTest {
+
+	private static class ListEventSink implements HotPathEventSink {
+		private List<String> messages = new ArrayList<>();
+
+		@Override
+		public boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		public void write(long epochMillis, HotPathEvent event, String message) {
+			messages.add(message);
+		}
+
+		@Override
+		public void flush() {
+			// Nothing to do
+		}
+	}
+
+	@Test
+	public void eventsDrainedInOrderAndFormattedOnlyWhenDrained() {
+		ListEventSink sink = new ListEventSink();
+		HotPathEventLog eventLog = new HotPathEventLog(true, 8, 1, sink);
+
+		eventLog.record(HotPathEvent.DIFF_ORDERS_RECEIVED, 10, 2, null);
+		eventLog.record(HotPathEvent.TRADE_NOTIFIED, 0, "trade-1");
+		assertThat(sink.messages, empty());
+
+		assertEquals(2, eventLog.drain());
+		assertThat(sink.messages, contains("Diff orders received. Sequence: 10; orders: 2", "Listeners notified of trade: trade-1"));
+		assertEquals(0, eventLog.drain());
+	}
+
+	@Test
+	public void sampledEventsRecordedOnceEverySamplingRate() {
+		ListEventSink sink = new ListEventSink();
+		HotPathEventLog eventLog = new HotPathEventLog(true, 64, 10, sink);
+
+		for (int i = 0; i < 25; i++) {
+			eventLog.record(HotPathEvent.ORDER_ADDED, i, null);
+			eventLog.record(HotPathEvent.TRADES_NOTIFIED, i, null); // Not sampled
+		}
+
+		eventLog.drain();
+		assertEquals(3 + 25, sink.messages.size());
+	}
+
+	@Test
+	public void oldestEventsOverwrittenWhenNotDrained() {
+		ListEventSink sink = new ListEventSink();
+		HotPathEventLog eventLog = new HotPathEventLog(true, 3, 1, sink); // Rounded up to 4
+
+		for (int i = 0; i < 10; i++) {
+			eventLog.record(HotPathEvent.TRADES_NOTIFIED, i, null);
+		}
+
+		assertEquals(4, eventLog.drain());
+		assertEquals(6, eventLog.getDroppedEvents());
+		assertEquals("Listeners notified of 6 new trades", sink.messages.get(0));
+	}
+}
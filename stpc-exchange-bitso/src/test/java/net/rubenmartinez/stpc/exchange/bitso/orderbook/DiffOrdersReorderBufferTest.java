@@ -0,0 +1,78 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.DiffOrdersReorderBuffer;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class DiffOrdersReorderBufferTest {
+
+	private static DiffOrdersWebsocketMessage message(long sequence) {
+		DiffOrdersWebsocketMessage message = new DiffOrdersWebsocketMessage();
+		message.setSequence(sequence);
+		return message;
+	}
+
+	@Test
+	void heldMessagesPolledInSequence() {
+		DiffOrdersReorderBuffer buffer = new DiffOrdersReorderBuffer(10_000, 10);
+		DiffOrdersWebsocketMessage message4 = message(4);
+		DiffOrdersWebsocketMessage message5 = message(5);
+		assertTrue(buffer.hold(message5));
+		assertTrue(buffer.hold(message4));
+		assertTrue(buffer.hold(message(2)));
+
+		assertNull(buffer.pollNext(2 + 1)); // Gap still open, repeated message 2 discarded
+		assertEquals(2, buffer.size());
+		assertSame(message4, buffer.pollNext(4));
+		assertSame(message5, buffer.pollNext(5));
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	void notHeldOverLimit() {
+		DiffOrdersReorderBuffer buffer = new DiffOrdersReorderBuffer(10_000, 2);
+		assertTrue(buffer.hold(message(3)));
+		assertTrue(buffer.hold(message(4)));
+		assertFalse(buffer.hold(message(5)));
+	}
+
+	@Test
+	void notHeldAfterWindow() throws InterruptedException {
+		DiffOrdersReorderBuffer buffer = new DiffOrdersReorderBuffer(10, 10);
+		assertTrue(buffer.hold(message(3)));
+		TimeUnit.MILLISECONDS.sleep(50);
+		assertFalse(buffer.hold(message(4)));
+
+		buffer.clear();
+		assertTrue(buffer.hold(message(10))); // A new gap starts a new window
+	}
+
+	@Test
+	void gapExpiredAfterWindow() throws InterruptedException {
+		DiffOrdersReorderBuffer buffer = new DiffOrdersReorderBuffer(10, 10);
+		assertFalse(buffer.isGapExpired()); // No gap
+		assertTrue(buffer.hold(message(3)));
+		TimeUnit.MILLISECONDS.sleep(50);
+		assertTrue(buffer.isGapExpired());
+
+		assertEquals(3, buffer.pollNext(3).getSequence()); // Gap closed
+		assertFalse(buffer.isGapExpired());
+	}
+
+	@Test
+	void disabledWithZeroWindow() {
+		assertFalse(new DiffOrdersReorderBuffer(0, 10).hold(message(3)));
+	}
+}
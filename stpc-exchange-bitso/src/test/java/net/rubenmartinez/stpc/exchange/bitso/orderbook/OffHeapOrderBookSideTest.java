@@ -0,0 +1,111 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OffHeapOrderBookSide;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSide;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap.SortOrdering;
+import net.rubenmartinez.stpc.exchange.domain.Order;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class OffHeapOrderBookSideTest {
+
+	private static void assertSameOrders(OrderBookSide expected, OrderBookSide actual) {
+		List<Order> expectedOrders = expected.getSortedOrdersThreadSafe();
+		List<Order> actualOrders = actual.getSortedOrdersThreadSafe();
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expectedOrders.size(), actualOrders.size());
+		for (int i = 0; i < expectedOrders.size(); i++) {
+			assertEquals(expectedOrders.get(i).getId(), actualOrders.get(i).getId());
+			assertEquals(expectedOrders.get(i).getPrice(), actualOrders.get(i).getPrice());
+			assertEquals(expectedOrders.get(i).getAmount(), actualOrders.get(i).getAmount());
+		}
+	}
+
+	private static void sameAsHeapSideForRandomOperations(SortOrdering ordering) {
+		Random random = new Random(7);
+		OrderBookSide heap = new SortedBookOrdersMap(ordering);
+		OrderBookSide offHeap = new OffHeapOrderBookSide(ordering);
+
+		for (int i = 0; i < 50_000; i++) {
+			String id = "oid" + random.nextInt(3000) + (random.nextInt(50) == 0 ? "-with-a-very-long-suffix-kept-in-the-heap" : "");
+			int operation = random.nextInt(3);
+			if (operation == 0) {
+				String price = (100 + random.nextInt(40)) + "." + random.nextInt(10) + "0";
+				String amount = "0." + random.nextInt(100_000_000);
+				heap.addOrder(id, price, amount);
+				offHeap.addOrder(id, price, amount);
+			} else if (operation == 1) {
+				String amount = random.nextInt(5) + ".00100000";
+				assertEquals(heap.updateOrderAmount(id, amount), offHeap.updateOrderAmount(id, amount));
+			} else {
+				assertEquals(heap.removeOrder(id), offHeap.removeOrder(id));
+			}
+		}
+
+		assertSameOrders(heap, offHeap);
+		assertEquals(heap.getBestNSortedOrdersThreadSafe(10).get(9).getId(), offHeap.getBestNSortedOrdersThreadSafe(10).get(9).getId());
+	}
+
+	@Test
+	void sameAsHeapSideForRandomOperations_Ascending() {
+		sameAsHeapSideForRandomOperations(SortOrdering.ASCENDING);
+	}
+
+	@Test
+	void sameAsHeapSideForRandomOperations_Descending() {
+		sameAsHeapSideForRandomOperations(SortOrdering.DESCENDING);
+	}
+
+	@Test
+	void decimalsKeepTheirScale() {
+		OrderBookSide side = new OffHeapOrderBookSide(SortOrdering.ASCENDING);
+		side.addOrder("a", "100.00", "0.10000000");
+		side.addOrder("b", "100", "1");
+
+		assertTrue(side.updateOrderAmount("b", "2.50"));
+		assertFalse(side.updateOrderAmount("c", "1"));
+
+		List<Order> orders = side.getSortedOrdersThreadSafe();
+		assertEquals("100.00", orders.get(0).getPrice());
+		assertEquals("0.10000000", orders.get(0).getAmount());
+		assertEquals("100", orders.get(1).getPrice());
+		assertEquals("2.50", orders.get(1).getAmount());
+	}
+
+	@Test
+	void copiesSortedWhileWritten() throws InterruptedException {
+		OrderBookSide side = new OffHeapOrderBookSide(SortOrdering.ASCENDING);
+		Thread writer = new Thread(() -> {
+			Random random = new Random(7);
+			for (int i = 0; i < 50_000; i++) {
+				String id = "oid" + random.nextInt(1000);
+				if (random.nextBoolean()) {
+					side.addOrder(id, (100 + random.nextInt(40)) + ".00", "1");
+				} else {
+					side.removeOrder(id);
+				}
+			}
+		});
+		writer.start();
+
+		while (writer.isAlive()) {
+			List<Order> orders = side.getSortedOrdersThreadSafe();
+			for (int i = 1; i < orders.size(); i++) {
+				assertTrue(new BigDecimal(orders.get(i - 1).getPrice()).compareTo(new BigDecimal(orders.get(i).getPrice())) <= 0);
+			}
+		}
+		writer.join();
+	}
+}
@@ -2,14 +2,19 @@ package net.rubenmartinez.stpc.exchange.bitso.orderbook;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
@@ -23,8 +28,15 @@ import org.slf4j.LoggerFactory;
 
 import name.falgout.jeffrey.testing.junit.mockito.MockitoExtension;
 import net.rubenmartinez.stpc.exchange.bitso.api.rest.BitsoRestApiClient;
-import net.rubenmartinez.stpc.exchange.bitso.api.rest.domain.BitsoRestApiOrderBook;
+import net.rubenmartinez.stpc.exchange.bitso.api.rest.deserialize.StreamingOrderBookDecoder;
 import net.rubenmartinez.stpc.exchange.bitso.api.websocket.domain.DiffOrdersWebsocketMessage;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.BitsoConfig;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.Configuration;
+import net.rubenmartinez.stpc.exchange.bitso.configuration.ReloadableConfig;
+import net.rubenmartinez.stpc.exchange.bitso.metrics.ExchangeMetrics;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.dto.OrderBookBeanDTO;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.DiffOrdersReorderBuffer;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSnapshotFile;
 import net.rubenmartinez.stpc.exchange.bitso.util.Resources;
 import net.rubenmartinez.stpc.exchange.domain.Order;
 import net.rubenmartinez.stpc.test.util.DelayedReturnAnswer;
@@ -64,12 +76,12 @@ public class OrderBookKeeperTest {
 	
 	private static BitsoRestApiClient getMockedRestApiClient(Duration delay) {
 		BitsoRestApiClient mockedRestApiClient = mock(BitsoRestApiClient.class);
-		BitsoRestApiOrderBook returnedBookSeq1 = Resources.getResourceAsParsedJson(BOOK_RESOURCE_SEQ1, BitsoRestApiOrderBook.class);
-		BitsoRestApiOrderBook returnedBookSeq5 = Resources.getResourceAsParsedJson(BOOK_RESOURCE_SEQ5, BitsoRestApiOrderBook.class);
-		BitsoRestApiOrderBook returnedBookSeq9 = Resources.getResourceAsParsedJson(BOOK_RESOURCE_SEQ1, BitsoRestApiOrderBook.class);
-		returnedBookSeq9.getPayload().setSequence(9);
+		OrderBookBeanDTO returnedBookSeq1 = decodeBookResource(BOOK_RESOURCE_SEQ1);
+		OrderBookBeanDTO returnedBookSeq5 = decodeBookResource(BOOK_RESOURCE_SEQ5);
+		OrderBookBeanDTO bookSeq1 = decodeBookResource(BOOK_RESOURCE_SEQ1);
+		OrderBookBeanDTO returnedBookSeq9 = OrderBookBeanDTO.builder().asks(bookSeq1.getAsks()).bids(bookSeq1.getBids()).sequence(9).build();
 
-		when(mockedRestApiClient.getOrderBook(anyString(), eq(false)))
+		when(mockedRestApiClient.getFullOrderBook(anyString()))
 				.thenAnswer(new DelayedReturnAnswer<>(delay, returnedBookSeq1))
 				.thenAnswer(new DelayedReturnAnswer<>(delay, returnedBookSeq5))
 		        .thenAnswer(new DelayedReturnAnswer<>(delay, returnedBookSeq9));
@@ -83,6 +95,14 @@ public class OrderBookKeeperTest {
 		return mockedRestApiClient;
 	}
 	
+	private static OrderBookBeanDTO decodeBookResource(String resource) {
+		try {
+			return new StreamingOrderBookDecoder(null).decodeOrderBook(Resources.getResourceAsStream(resource));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
 	@ParameterizedTest
 	@MethodSource("orderBookKeeperParams")
 	void orderBookInitialization(BaseOrderBookKeeper orderBookKeeper) {
@@ -189,6 +209,49 @@ public class OrderBookKeeperTest {
 		assertEquals("0.5", bidsSeq3.get(1).getAmount());
 	}
 	
+	@Test
+	void outOfOrderMessagesAppliedOnceGapIsClosed() {
+		SimpleOrderBookKeeper orderBookKeeper = new SimpleOrderBookKeeper(getMockedRestApiClient(Duration.ZERO), bookName);
+		orderBookKeeper.reorderBuffer = new DiffOrdersReorderBuffer(TimeUnit.SECONDS.toMillis(10), 10);
+
+		DiffOrdersWebsocketMessage diffOrdersMessageSeq3 = Resources.getResourceAsParsedJson(DIFF_ORDER_SEQ3_REMOVE1SELL_UPDATE1BUY, DiffOrdersWebsocketMessage.class);
+		orderBookKeeper.onDiffOrder(diffOrdersMessageSeq3);
+		assertEquals(1, orderBookKeeper.getSequence());
+		assertEquals(3, orderBookKeeper.getAsks(10).size());
+
+		DiffOrdersWebsocketMessage diffOrdersMessageSeq2 = Resources.getResourceAsParsedJson(DIFF_ORDER_SEQ2_ADD2SELLS_ADD1BUY, DiffOrdersWebsocketMessage.class);
+		orderBookKeeper.onDiffOrder(diffOrdersMessageSeq2);
+		assertEquals(3, orderBookKeeper.getSequence());
+
+		List<Order> asksSeq3 = orderBookKeeper.getAsks(10);
+		assertEquals(4, asksSeq3.size());
+		assertEquals("100.4", asksSeq3.get(0).getPrice());
+		assertEquals("101", asksSeq3.get(1).getPrice());
+
+		List<Order> bidsSeq3 = orderBookKeeper.getBids(3);
+		assertEquals("99", bidsSeq3.get(1).getPrice());
+		assertEquals("0.5", bidsSeq3.get(1).getAmount());
+	}
+
+	@Test
+	void resetWhenGapFollowedBySilence() throws InterruptedException {
+		SimpleOrderBookKeeper orderBookKeeper = new SimpleOrderBookKeeper(getMockedRestApiClient(Duration.ZERO), bookName);
+		orderBookKeeper.reorderBuffer = new DiffOrdersReorderBuffer(100, 10);
+
+		DiffOrdersWebsocketMessage diffOrdersMessageSeq3 = Resources.getResourceAsParsedJson(DIFF_ORDER_SEQ3_REMOVE1SELL_UPDATE1BUY, DiffOrdersWebsocketMessage.class);
+		orderBookKeeper.onDiffOrder(diffOrdersMessageSeq3);
+		assertEquals(1, orderBookKeeper.getSequence()); // Held
+
+		// No more messages: BOOK_RESOURCE_SEQ5 should be retrieved once the window expires
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (orderBookKeeper.getSequence() != 5 && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		assertEquals(5, orderBookKeeper.getSequence());
+		assertEquals(1, orderBookKeeper.getAsks(10).size());
+		assertEquals(0, orderBookKeeper.reorderBuffer.size());
+	}
+
 	@Test
 	void twoMessagesInReplyQueue() {
 		ReplayQueueOrderBookKeeper orderBookKeeperSpied = new ReplayQueueOrderBookKeeper(getMockedRestApiClient(Duration.ofSeconds(2)), bookName);
@@ -385,4 +448,85 @@ public class OrderBookKeeperTest {
 		assertEquals(2, asks.size());
 	}
 
+	/**
+	 * Snapshots saved to a new temporary directory, with the book in {@link #BOOK_RESOURCE_SEQ1}
+	 */
+	private static ReloadableConfig snapshotConfigWithBookSeq1(Path directory) throws IOException {
+		return snapshotConfigWithBookSeq1(directory, 5000);
+	}
+
+	private static ReloadableConfig snapshotConfigWithBookSeq1(Path directory, int bridgeTimeoutMillis) throws IOException {
+		OrderBookBeanDTO bookSeq1 = decodeBookResource(BOOK_RESOURCE_SEQ1);
+		new OrderBookSnapshotFile(directory.resolve(bookName + ".book"))
+				.write(bookName, bookSeq1.getSequence(), bookSeq1.getAsks().getSortedOrdersThreadSafe(), bookSeq1.getBids().getSortedOrdersThreadSafe());
+
+		Properties properties = Configuration.getDefault().get().getProperties();
+		properties.setProperty("orderbook.snapshot.directory", directory.toString());
+		properties.setProperty("orderbook.snapshot.bridge-timeout-millis", String.valueOf(bridgeTimeoutMillis));
+		return new ReloadableConfig(BitsoConfig.fromProperties(properties));
+	}
+
+	private static void deleteSnapshotDirectory(Path directory) throws IOException {
+		Files.deleteIfExists(directory.resolve(bookName + ".book"));
+		Files.deleteIfExists(directory);
+	}
+
+	@Test
+	void startFromSnapshotWithoutRetrievingBook() throws IOException {
+		Path directory = Files.createTempDirectory("OrderBookKeeperTest");
+		try {
+			BitsoRestApiClient restApiClient = getMockedRestApiClient(Duration.ofSeconds(2));
+			ReplayQueueOrderBookKeeper orderBookKeeper = new ReplayQueueOrderBookKeeper(restApiClient, bookName, ExchangeMetrics.NO_OP, snapshotConfigWithBookSeq1(directory));
+
+			assertEquals(1, orderBookKeeper.getSequence());
+			assertEquals(1, orderBookKeeper.bookReadyForReadingLatch.getCount()); // Not ready till bridged
+
+			DiffOrdersWebsocketMessage diffOrdersMessageSeq2 = Resources.getResourceAsParsedJson(DIFF_ORDER_SEQ2_ADD2SELLS_ADD1BUY, DiffOrdersWebsocketMessage.class);
+			orderBookKeeper.onDiffOrder(diffOrdersMessageSeq2);
+			List<Order> asksSeq2 = orderBookKeeper.getAsks(10);
+			assertEquals(5, asksSeq2.size());
+			assertEquals("100.4", asksSeq2.get(0).getPrice());
+			verify(restApiClient, never()).getFullOrderBook(anyString());
+
+			orderBookKeeper.saveSnapshot();
+			OrderBookSnapshotFile.Snapshot snapshot = orderBookKeeper.snapshotFile.read();
+			assertEquals(2, snapshot.getOrderBook().getSequence());
+			assertEquals(5, snapshot.getOrderBook().getAsks().size());
+		} finally {
+			deleteSnapshotDirectory(directory);
+		}
+	}
+
+	@Test
+	void resetWhenSnapshotCannotBeBridged() throws IOException {
+		Path directory = Files.createTempDirectory("OrderBookKeeperTest");
+		try {
+			BitsoRestApiClient restApiClient = getMockedRestApiClient(Duration.ofSeconds(1));
+			ReplayQueueOrderBookKeeper orderBookKeeper = new ReplayQueueOrderBookKeeper(restApiClient, bookName, ExchangeMetrics.NO_OP, snapshotConfigWithBookSeq1(directory));
+
+			DiffOrdersWebsocketMessage diffOrdersMessageSeq3 = Resources.getResourceAsParsedJson(DIFF_ORDER_SEQ3_REMOVE1SELL_UPDATE1BUY, DiffOrdersWebsocketMessage.class);
+			orderBookKeeper.onDiffOrder(diffOrdersMessageSeq3);
+			assertEquals(1, orderBookKeeper.bookReadyForReadingLatch.getCount()); // Snapshot never served, waiting for the reset
+
+			assertEquals(3, orderBookKeeper.getAsks(10).size()); // Waits for the book retrieved, BOOK_RESOURCE_SEQ1 again
+			verify(restApiClient).getFullOrderBook(bookName);
+		} finally {
+			deleteSnapshotDirectory(directory);
+		}
+	}
+
+	@Test
+	void resetWhenSnapshotNotBridgedInTime() throws IOException {
+		Path directory = Files.createTempDirectory("OrderBookKeeperTest");
+		try {
+			BitsoRestApiClient restApiClient = getMockedRestApiClient(Duration.ofMillis(100));
+			ReplayQueueOrderBookKeeper orderBookKeeper = new ReplayQueueOrderBookKeeper(restApiClient, bookName, ExchangeMetrics.NO_OP, snapshotConfigWithBookSeq1(directory, 200));
+			assertEquals(1, orderBookKeeper.bookReadyForReadingLatch.getCount());
+
+			assertEquals(3, orderBookKeeper.getAsks(10).size()); // No diff-order received, waits for the book retrieved after the timeout
+			verify(restApiClient).getFullOrderBook(bookName);
+		} finally {
+			deleteSnapshotDirectory(directory);
+		}
+	}
 }
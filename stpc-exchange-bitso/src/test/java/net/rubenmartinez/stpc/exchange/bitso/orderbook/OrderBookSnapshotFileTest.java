@@ -0,0 +1,89 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderBookSnapshotFile;
+import net.rubenmartinez.stpc.exchange.domain.Order;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class OrderBookSnapshotFileTest {
+
+	private Path directory;
+	private OrderBookSnapshotFile snapshotFile;
+
+	@BeforeEach
+	void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("OrderBookSnapshotFileTest");
+		snapshotFile = new OrderBookSnapshotFile(directory.resolve("btc_mxn.book"));
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		Files.deleteIfExists(directory.resolve("btc_mxn.book"));
+		Files.deleteIfExists(directory.resolve("btc_mxn.book.tmp"));
+		Files.deleteIfExists(directory);
+	}
+
+	@Test
+	void ordersReadAsWritten() throws IOException {
+		List<Order> asks = Arrays.asList(new BitsoOrder("a1", "100.50", "0.00012345"), new BitsoOrder("a2", "101", "12345678901234567890.5"));
+		List<Order> bids = Collections.singletonList(new BitsoOrder("b1", "99.99", "2"));
+		assertFalse(snapshotFile.exists());
+
+		snapshotFile.write("btc_mxn", 42, asks, bids);
+		assertTrue(snapshotFile.exists());
+		assertFalse(Files.exists(directory.resolve("btc_mxn.book.tmp")));
+
+		OrderBookSnapshotFile.Snapshot snapshot = snapshotFile.read();
+		assertEquals("btc_mxn", snapshot.getBookName());
+		assertEquals(42, snapshot.getOrderBook().getSequence());
+		assertTrue(System.currentTimeMillis() - snapshot.getSavedEpochMillis() < 60_000);
+
+		List<Order> readAsks = snapshot.getOrderBook().getAsks().getSortedOrdersThreadSafe();
+		assertEquals(2, readAsks.size());
+		assertEquals("a1", readAsks.get(0).getId());
+		assertEquals("100.50", readAsks.get(0).getPrice());
+		assertEquals("0.00012345", readAsks.get(0).getAmount());
+		assertEquals("12345678901234567890.5", readAsks.get(1).getAmount()); // Doesn't fit in a long
+		List<Order> readBids = snapshot.getOrderBook().getBids().getSortedOrdersThreadSafe();
+		assertEquals(1, readBids.size());
+		assertEquals("99.99", readBids.get(0).getPrice());
+	}
+
+	@Test
+	void newSnapshotReplacesPrevious() throws IOException {
+		snapshotFile.write("btc_mxn", 1, Collections.singletonList(new BitsoOrder("a1", "101", "1")), Collections.emptyList());
+		snapshotFile.write("btc_mxn", 2, Collections.emptyList(), Collections.emptyList());
+
+		OrderBookSnapshotFile.Snapshot snapshot = snapshotFile.read();
+		assertEquals(2, snapshot.getOrderBook().getSequence());
+		assertEquals(0, snapshot.getOrderBook().getAsks().size());
+	}
+
+	@Test
+	void corruptedSnapshotRejected() throws IOException {
+		snapshotFile.write("btc_mxn", 1, Collections.singletonList(new BitsoOrder("a1", "101", "1")), Collections.emptyList());
+		byte[] bytes = Files.readAllBytes(snapshotFile.getFile());
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(snapshotFile.getFile(), bytes);
+
+		assertThrows(IOException.class, () -> snapshotFile.read());
+	}
+}
@@ -0,0 +1,83 @@
+package net.rubenmartinez.stpc.exchange.bitso.orderbook;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.OrderIdIndex;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+
+@ExtendWith(TestLoggingExtension.class)
+public class OrderIdIndexTest {
+	private static final String ID_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	private static String randomId(Random random, int length) {
+		StringBuilder id = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			id.append(ID_CHARS.charAt(random.nextInt(ID_CHARS.length())));
+		}
+		return id.toString();
+	}
+
+	private static BitsoOrder order(String id) {
+		return new BitsoOrder(id, "100", "1");
+	}
+
+	@Test
+	void sameAsHashMapForRandomOperations() {
+		Random random = new Random(42);
+		OrderIdIndex index = new OrderIdIndex();
+		Map<String, BitsoOrder> expected = new HashMap<>();
+		String[] ids = new String[5000];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = randomId(random, 1 + random.nextInt(24)); // Some too long to be encoded
+		}
+
+		for (int i = 0; i < 100_000; i++) {
+			String id = ids[random.nextInt(ids.length)];
+			if (random.nextBoolean()) {
+				BitsoOrder order = order(id);
+				assertSame(expected.put(id, order), index.put(order));
+			} else {
+				assertSame(expected.remove(id), index.remove(id));
+			}
+		}
+
+		assertEquals(expected.size(), index.size());
+		for (String id : ids) {
+			assertSame(expected.get(id), index.get(id));
+		}
+	}
+
+	@Test
+	void idsNotEncodableStillIndexed() {
+		OrderIdIndex index = new OrderIdIndex();
+		BitsoOrder order = order("id_with.other:chars");
+
+		index.put(order);
+
+		assertSame(order, index.get("id_with.other:chars"));
+		assertNull(index.get("idwithotherchars"));
+		assertSame(order, index.remove("id_with.other:chars"));
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	void idsSplitBetweenKeysNotConfused() {
+		OrderIdIndex index = new OrderIdIndex();
+		index.put(order("0123456789a"));
+
+		assertNull(index.get("0123456789"));
+		assertNull(index.get("a0123456789"));
+		assertNotEquals(index.get("0123456789a"), null);
+	}
+}
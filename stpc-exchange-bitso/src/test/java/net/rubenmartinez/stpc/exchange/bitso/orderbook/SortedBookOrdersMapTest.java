@@ -1,6 +1,8 @@
 package net.rubenmartinez.stpc.exchange.bitso.orderbook;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -16,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import net.jodah.concurrentunit.Waiter;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.domain.BitsoOrder;
+import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.BitsoOrderPool;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap;
 import net.rubenmartinez.stpc.exchange.bitso.orderbook.helper.SortedBookOrdersMap.SortOrdering;
 import net.rubenmartinez.stpc.exchange.domain.Order;
@@ -106,6 +109,10 @@ public class SortedBookOrdersMapTest {
 		assertEquals(1, sortedBookOrdersMap.size());
 		assertEquals("100", getOrderFromMap("id").getPrice());
 		assertEquals("10", getOrderFromMap("id").getAmount());
+
+		List<Order> sortedOrders = sortedBookOrdersMap.getSortedOrdersThreadSafe(); // Not left at the previous price
+		assertEquals(1, sortedOrders.size());
+		assertEquals("10", sortedOrders.get(0).getAmount());
 	}
 
 	@Test
@@ -139,6 +146,73 @@ public class SortedBookOrdersMapTest {
 		}
 	}
 
+	@Test
+	void removedOrderNotRead_Reused() {
+		BitsoOrderPool pool = new BitsoOrderPool(10);
+		sortedBookOrdersMap = new SortedBookOrdersMap(SortOrdering.ASCENDING, pool);
+		sortedBookOrdersMap.addOrder("id-0", "0", "1");
+		BitsoOrder order = getOrderFromMap("id-0");
+
+		sortedBookOrdersMap.removeOrder("id-0");
+		sortedBookOrdersMap.addOrder("id-1", "1", "2");
+
+		assertSame(order, getOrderFromMap("id-1"));
+		assertEquals("1", sortedBookOrdersMap.getSortedOrdersThreadSafe().get(0).getPrice());
+	}
+
+	@Test
+	void removedOrderRead_NotReusedNorChanged() {
+		BitsoOrderPool pool = new BitsoOrderPool(10);
+		sortedBookOrdersMap = new SortedBookOrdersMap(SortOrdering.ASCENDING, pool);
+		sortedBookOrdersMap.addOrder("id-0", "0", "1");
+		List<Order> orders = sortedBookOrdersMap.getBestNSortedOrdersThreadSafe(1);
+
+		sortedBookOrdersMap.removeOrder("id-0");
+		sortedBookOrdersMap.addOrder("id-1", "1", "2");
+
+		assertEquals(0, pool.size());
+		assertNotSame(orders.get(0), getOrderFromMap("id-1"));
+		assertEquals("id-0", orders.get(0).getId());
+		assertEquals("0", orders.get(0).getPrice());
+		assertEquals("1", orders.get(0).getAmount());
+		assertEquals("id-1", sortedBookOrdersMap.getSortedOrdersThreadSafe().get(0).getId());
+	}
+
+	@Test
+	void copiedOrder_StillUpdatedInPlaceAndReused() {
+		BitsoOrderPool pool = new BitsoOrderPool(10);
+		sortedBookOrdersMap = new SortedBookOrdersMap(SortOrdering.ASCENDING, pool);
+		sortedBookOrdersMap.addOrder("id-0", "0", "1");
+		BitsoOrder order = getOrderFromMap("id-0");
+		List<Order> copies = sortedBookOrdersMap.copySortedOrdersThreadSafe();
+
+		sortedBookOrdersMap.updateOrderAmount("id-0", "2");
+		assertSame(order, getOrderFromMap("id-0"));
+		sortedBookOrdersMap.removeOrder("id-0");
+		sortedBookOrdersMap.addOrder("id-1", "1", "3");
+
+		assertSame(order, getOrderFromMap("id-1"));
+		assertNotSame(order, copies.get(0));
+		assertEquals("id-0", copies.get(0).getId());
+		assertEquals("1", copies.get(0).getAmount());
+	}
+
+	@Test
+	void readOrderAmountUpdated_ReplacedInsteadOfChanged() {
+		sortedBookOrdersMap.addOrder("id-0", "0", "1");
+		BitsoOrder notRead = getOrderFromMap("id-0");
+		sortedBookOrdersMap.updateOrderAmount("id-0", "2");
+		assertSame(notRead, getOrderFromMap("id-0"));
+
+		List<Order> orders = sortedBookOrdersMap.getSortedOrdersThreadSafe();
+		assertSame(notRead, orders.get(0));
+		sortedBookOrdersMap.updateOrderAmount("id-0", "3");
+
+		assertEquals("2", orders.get(0).getAmount());
+		assertEquals(1, sortedBookOrdersMap.size());
+		assertEquals("3", sortedBookOrdersMap.getSortedOrdersThreadSafe().get(0).getAmount());
+	}
+
 	private static void checkSequentialNoMissingOrderTillIndex(List<Order> orders, int maxIndex) {
 		for (int i = 0; i < maxIndex; i++) {
 			String checkId = "id-" + i;
@@ -0,0 +1,101 @@
+package net.rubenmartinez.stpc.exchange.bitso.trade.helper;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+import net.rubenmartinez.stpc.exchange.domain.Trade;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+import net.rubenmartinez.stpc.test.util.TestingTrade;
+
+@ExtendWith(TestLoggingExtension.class)
+public class BackfillCoordinatorTest {
+
+	private ConcurrentSoftLimitedBuffer<Trade> tradesBuffer;
+	private Semaphore pagesAllowed;
+	private List<String> pagesRequested;
+	private BackfillCoordinator backfillCoordinator;
+
+	private static Trade trade(long tradeId) {
+		return new TestingTrade(String.valueOf(tradeId), null, "1", OrderSide.BUY, "100");
+	}
+
+	private static List<String> tradeIds(List<Trade> trades) {
+		return trades.stream().map(Trade::getTradeId).collect(Collectors.toList());
+	}
+
+	/**
+	 * Pages of 2 trades, only returned when allowed by the test
+	 */
+	private List<Trade> olderTradesPage(String tradeId) {
+		pagesRequested.add(tradeId);
+		try {
+			pagesAllowed.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		long id = Long.parseLong(tradeId);
+		return id > 2 ? Arrays.asList(trade(id - 1), trade(id - 2)) : Collections.emptyList();
+	}
+
+	@BeforeEach
+	void beforeEach() {
+		tradesBuffer = new ConcurrentSoftLimitedBuffer<>(100);
+		tradesBuffer.addNew(trade(100));
+		pagesAllowed = new Semaphore(0);
+		pagesRequested = new CopyOnWriteArrayList<>();
+		backfillCoordinator = new BackfillCoordinator(tradesBuffer, (tradeId, tradesWanted) -> olderTradesPage(tradeId));
+	}
+
+	@Test
+	void concurrentRequestsJoinTheSameBackfill() throws Exception {
+		CompletableFuture<List<Trade>> depth3 = backfillCoordinator.requestDepth(3);
+		CompletableFuture<List<Trade>> depth5 = backfillCoordinator.requestDepth(5);
+		CompletableFuture<List<Trade>> otherDepth3 = backfillCoordinator.requestDepth(3);
+
+		pagesAllowed.release();
+		assertThat(tradeIds(depth3.get(5, TimeUnit.SECONDS)), contains("100", "99", "98"));
+		assertThat(tradeIds(otherDepth3.get(5, TimeUnit.SECONDS)), contains("100", "99", "98"));
+		assertFalse(depth5.isDone());
+
+		pagesAllowed.release();
+		assertThat(tradeIds(depth5.get(5, TimeUnit.SECONDS)), contains("100", "99", "98", "97", "96"));
+		assertThat(pagesRequested, contains("100", "98"));
+	}
+
+	@Test
+	void bufferedDepthCompletedImmediately() {
+		CompletableFuture<List<Trade>> depth1 = backfillCoordinator.requestDepth(1);
+
+		assertTrue(depth1.isDone());
+		assertEquals(0, pagesRequested.size());
+	}
+
+	@Test
+	void endOfHistoryCompletesWithAvailableTrades() throws Exception {
+		tradesBuffer = new ConcurrentSoftLimitedBuffer<>(100);
+		tradesBuffer.addNew(trade(4));
+		backfillCoordinator = new BackfillCoordinator(tradesBuffer, (tradeId, tradesWanted) -> olderTradesPage(tradeId));
+		pagesAllowed.release(2);
+
+		List<Trade> trades = backfillCoordinator.requestDepth(10).get(5, TimeUnit.SECONDS);
+
+		assertThat(tradeIds(trades), contains("4", "3", "2"));
+	}
+}
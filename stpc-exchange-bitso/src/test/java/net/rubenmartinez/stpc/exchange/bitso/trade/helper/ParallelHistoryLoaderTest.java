@@ -0,0 +1,126 @@
+package net.rubenmartinez.stpc.exchange.bitso.trade.helper;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import net.rubenmartinez.stpc.exchange.domain.OrderSide;
+import net.rubenmartinez.stpc.exchange.domain.Trade;
+import net.rubenmartinez.stpc.test.util.TestLoggingExtension;
+import net.rubenmartinez.stpc.test.util.TestingTrade;
+
+@ExtendWith(TestLoggingExtension.class)
+public class ParallelHistoryLoaderTest {
+	private static final int PAGE_SIZE = 10;
+	private static final int PARALLEL_PAGES = 4;
+	private static final int MARKER_OVERLAP_PERCENT = 10;
+
+	/** Simulated history of the book, newest first */
+	private List<Long> historyTids;
+	private AtomicInteger pagesRequested;
+	private long rateLimitedBelowTid;
+	private CountDownLatch permitsReleased;
+	private ParallelHistoryLoader loader;
+
+	@BeforeEach
+	void beforeEach() {
+		historyTids = new ArrayList<>();
+		pagesRequested = new AtomicInteger();
+		rateLimitedBelowTid = Long.MIN_VALUE;
+		permitsReleased = new CountDownLatch(1);
+		loader = new ParallelHistoryLoader(this::olderTradesPage, PAGE_SIZE, PARALLEL_PAGES, MARKER_OVERLAP_PERCENT);
+	}
+
+	private void addHistory(int trades, long tidsSpacing) {
+		long tid = historyTids.isEmpty() ? 3000 : historyTids.get(historyTids.size() - 1);
+		for (int i = 0; i < trades; i++) {
+			tid -= tidsSpacing;
+			historyTids.add(tid);
+		}
+	}
+
+	private List<Trade> olderTradesPage(String tradeId) {
+		long marker = Long.parseLong(tradeId);
+		if (marker < rateLimitedBelowTid) {
+			waitForPermit();
+		}
+		pagesRequested.incrementAndGet();
+		return historyTids.stream()
+				.filter(tid -> tid < marker)
+				.limit(PAGE_SIZE)
+				.map(tid -> new TestingTrade(String.valueOf(tid), null, "1", OrderSide.BUY, "100"))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Simulates a request waiting for a permit of the rate limit, till the permits are released
+	 */
+	private void waitForPermit() {
+		try {
+			permitsReleased.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a permit", e);
+		}
+	}
+
+	private static List<Long> tids(List<Trade> trades) {
+		return trades.stream().map(trade -> Long.parseLong(trade.getTradeId())).collect(Collectors.toList());
+	}
+
+	@Test
+	void pagesReassembledInOrderWithoutDuplicates() {
+		addHistory(100, 3);
+
+		List<Trade> trades = loader.loadOlderThan("3000", 40);
+
+		assertEquals(historyTids.subList(0, trades.size()), tids(trades));
+		assertThat(35, lessThanOrEqualTo(trades.size())); // Only the overlaps lost
+		assertEquals(4, pagesRequested.get());
+	}
+
+	@Test
+	void pagesAfterGapDiscarded() {
+		addHistory(PAGE_SIZE, 50); // First page sparse, so the estimated span is too big for the next ones
+		addHistory(100, 1);
+
+		List<Trade> trades = loader.loadOlderThan("3000", 100);
+
+		assertEquals(historyTids.subList(0, trades.size()), tids(trades));
+		assertThat(2 * PAGE_SIZE, lessThanOrEqualTo(trades.size()));
+	}
+
+	@Test
+	void pagesWaitingForPermitNotSentAfterGap() throws InterruptedException {
+		addHistory(PAGE_SIZE, 50); // Estimated span 500, so the speculative markers are 2500, 2050, 1600 and 1150
+		addHistory(100, 1);
+		rateLimitedBelowTid = 2500; // Only the first speculative page gets a permit before the gap is found
+
+		List<Trade> trades = loader.loadOlderThan("3000", 100);
+		permitsReleased.countDown();
+		TimeUnit.MILLISECONDS.sleep(200);
+
+		assertEquals(historyTids.subList(0, 2 * PAGE_SIZE), tids(trades));
+		assertEquals(2, pagesRequested.get()); // No request wasted, the pages after the gap were never sent
+	}
+
+	@Test
+	void endOfHistory() {
+		addHistory(25, 7);
+
+		List<Trade> trades = loader.loadOlderThan("3000", 100);
+
+		assertEquals(historyTids, tids(trades));
+	}
+}